@@ -170,12 +170,22 @@ public class Application {
   @Bean("biosamplesAgentSolrContainerFactory")
   public SimpleRabbitListenerContainerFactory containerFactory(
       final SimpleRabbitListenerContainerFactoryConfigurer configurer,
-      final ConnectionFactory connectionFactory) {
+      final ConnectionFactory connectionFactory,
+      final BioSamplesProperties bioSamplesProperties) {
     final SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
     factory.setConcurrentConsumers(32);
     factory.setMaxConcurrentConsumers(64);
     configurer.configure(factory, connectionFactory);
 
+    // hand messages to the listener in batches that are sent to solr as a single update, a batch
+    // is released when it is full or no message arrived within the timeout and is only
+    // acknowledged after the listener returned
+    factory.setBatchListener(true);
+    factory.setConsumerBatchEnabled(true);
+    factory.setBatchSize(bioSamplesProperties.getAgentSolrBatchSize());
+    factory.setReceiveTimeout(bioSamplesProperties.getAgentSolrBatchTimeout());
+    factory.setPrefetchCount(bioSamplesProperties.getAgentSolrBatchSize());
+
     return factory;
   }
 }
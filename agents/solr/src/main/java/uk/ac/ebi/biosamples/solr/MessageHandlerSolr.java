@@ -14,7 +14,11 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -24,7 +28,6 @@ import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.messaging.MessagingConstants;
 import uk.ac.ebi.biosamples.messaging.model.MessageContent;
 import uk.ac.ebi.biosamples.solr.model.SolrSample;
-import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
 import uk.ac.ebi.biosamples.solr.service.SampleToSolrSampleConverter;
 
 @Service
@@ -40,47 +43,66 @@ public class MessageHandlerSolr {
           "temporary_suppressed",
           "temporary_killed");
 
-  private final SolrSampleRepository repository;
+  private final SolrBatchIndexer solrBatchIndexer;
   private final SampleToSolrSampleConverter sampleToSolrSampleConverter;
 
   public MessageHandlerSolr(
-      final SolrSampleRepository repository,
+      final SolrBatchIndexer solrBatchIndexer,
       final SampleToSolrSampleConverter sampleToSolrSampleConverter) {
-    this.repository = repository;
+    this.solrBatchIndexer = solrBatchIndexer;
     this.sampleToSolrSampleConverter = sampleToSolrSampleConverter;
   }
 
   @RabbitListener(
       queues = MessagingConstants.INDEXING_QUEUE,
       containerFactory = "biosamplesAgentSolrContainerFactory")
-  public void handleIndexing(final MessageContent messageContent) {
-    handle(messageContent);
+  public void handleIndexing(final List<MessageContent> messageContents) {
+    handle(messageContents);
   }
 
   @RabbitListener(
       queues = MessagingConstants.REINDEXING_QUEUE,
       containerFactory = "biosamplesAgentSolrContainerFactory")
-  public void handleReindexing(final MessageContent messageContent) {
-    handle(messageContent);
+  public void handleReindexing(final List<MessageContent> messageContents) {
+    handle(messageContents);
   }
 
-  private void handle(final MessageContent messageContent) {
-    if (messageContent.getSample() == null) {
-      LOGGER.warn("received message without sample");
-
-      return;
-    }
+  /*
+  The container hands over a batch of messages and only acknowledges them once this returns, so the
+  whole batch is sent to solr before any of its messages are acknowledged. If it fails the batch is
+  rejected and redelivered. A sample that cannot be converted is logged and left out, so that it
+  does not hold back the rest of the batch on every redelivery. An earlier version of it in the
+  batch is left out too, as it has been superseded.
+   */
+  private void handle(final List<MessageContent> messageContents) {
+    // keyed by accession so only the latest version of a sample in the batch is sent
+    final Map<String, SolrSample> solrSamples = new LinkedHashMap<>();
+    final Set<String> deletions = new LinkedHashSet<>();
+
+    for (final MessageContent messageContent : messageContents) {
+      if (messageContent.getSample() == null) {
+        LOGGER.warn("received message without sample");
+
+        continue;
+      }
 
-    final Sample sample = messageContent.getSample();
+      final Sample sample = messageContent.getSample();
 
-    handleSample(sample, messageContent.getCreationTime());
+      handleSample(sample, messageContent.getCreationTime(), solrSamples, deletions);
 
-    for (final Sample related : messageContent.getRelated()) {
-      handleSample(related, messageContent.getCreationTime());
+      for (final Sample related : messageContent.getRelated()) {
+        handleSample(related, messageContent.getCreationTime(), solrSamples, deletions);
+      }
     }
+
+    solrBatchIndexer.index(solrSamples.values(), deletions);
   }
 
-  private void handleSample(final Sample sample, final String modifiedTime) {
+  private void handleSample(
+      final Sample sample,
+      final String modifiedTime,
+      final Map<String, SolrSample> solrSamples,
+      final Set<String> deletions) {
     final String accession = sample.getAccession();
 
     if (isIndexingCandidate(sample)) {
@@ -111,19 +133,20 @@ public class MessageHandlerSolr {
                 solrSample.getExternalReferencesData(),
                 solrSample.getKeywords());
 
-        repository.saveWithoutCommit(solrSample);
+        deletions.remove(accession);
+        solrSamples.remove(accession);
+        solrSamples.put(accession, solrSample);
 
-        LOGGER.info(String.format("added %s to index", accession));
+        LOGGER.debug(String.format("adding %s to index", accession));
       } catch (final Exception e) {
-        LOGGER.error("failed to index " + accession, e);
-
-        throw e;
+        // an earlier version of the sample in this batch is out of date
+        solrSamples.remove(accession);
+        LOGGER.error("failed to index " + accession + ", skipping it", e);
       }
     } else {
-      if (repository.existsById(accession)) {
-        repository.deleteById(accession);
-        LOGGER.info(String.format("removed %s from index", accession));
-      }
+      solrSamples.remove(accession);
+      deletions.add(accession);
+      LOGGER.debug(String.format("removing %s from index", accession));
     }
   }
 
@@ -0,0 +1,182 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.messaging.MessagingConstants;
+import uk.ac.ebi.biosamples.messaging.service.MessageUtils;
+import uk.ac.ebi.biosamples.solr.model.SolrSample;
+import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
+import uk.ac.ebi.biosamples.solr.service.SolrIndexGenerationService;
+
+/**
+ * Sends a batch of converted samples and deletions to solr with one add and one delete request,
+ * leaving the commit to solr through commitWithin. Records the size and latency of each flush and
+ * exposes the number of messages still waiting in the indexing queues.
+ *
+ * <p>The index generation, which tells the webapps to drop the facets they have cached, is bumped
+ * once the changes can be searched, after commitWithin has passed. Flushes within the same commit
+ * window share one bump, so the webapps don't cache facets from the uncommitted index or drop their
+ * cache on every flush.
+ */
+@Service
+public class SolrBatchIndexer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrBatchIndexer.class);
+  // time for solr to open a new searcher once it has committed
+  private static final Duration SEARCHER_OPEN_MARGIN = Duration.ofSeconds(5);
+
+  private final SolrSampleRepository repository;
+  private final MessageUtils messageUtils;
+  private final SolrIndexGenerationService solrIndexGenerationService;
+  private final Duration commitWithin;
+  private final ScheduledExecutorService scheduler;
+  private final Timer flushTimer;
+  private final DistributionSummary addBatchSize;
+  private final DistributionSummary deleteBatchSize;
+  private boolean generationBumpScheduled = false;
+  private boolean flushedSinceBumpScheduled = false;
+
+  @Autowired
+  public SolrBatchIndexer(
+      final SolrSampleRepository repository,
+      final MessageUtils messageUtils,
+      final SolrIndexGenerationService solrIndexGenerationService,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
+    this(
+        repository,
+        messageUtils,
+        solrIndexGenerationService,
+        bioSamplesProperties,
+        meterRegistry,
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "solr-index-generation");
+              thread.setDaemon(true);
+              return thread;
+            }));
+  }
+
+  SolrBatchIndexer(
+      final SolrSampleRepository repository,
+      final MessageUtils messageUtils,
+      final SolrIndexGenerationService solrIndexGenerationService,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry,
+      final ScheduledExecutorService scheduler) {
+    this.repository = repository;
+    this.messageUtils = messageUtils;
+    this.solrIndexGenerationService = solrIndexGenerationService;
+    this.scheduler = scheduler;
+    commitWithin = Duration.ofMillis(bioSamplesProperties.getAgentSolrCommitWithin());
+    flushTimer = Timer.builder("biosamples.solr.flush").register(meterRegistry);
+    addBatchSize =
+        DistributionSummary.builder("biosamples.solr.flush.size")
+            .tag("operation", "add")
+            .register(meterRegistry);
+    deleteBatchSize =
+        DistributionSummary.builder("biosamples.solr.flush.size")
+            .tag("operation", "delete")
+            .register(meterRegistry);
+
+    for (final String queue :
+        new String[] {MessagingConstants.INDEXING_QUEUE, MessagingConstants.REINDEXING_QUEUE}) {
+      Gauge.builder("biosamples.solr.backlog", () -> getQueueCount(queue))
+          .tag("queue", queue)
+          .register(meterRegistry);
+    }
+  }
+
+  public void index(final Collection<SolrSample> solrSamples, final Collection<String> deletions) {
+    final long startTime = System.nanoTime();
+
+    repository.saveAllWithoutCommit(solrSamples, commitWithin);
+    repository.deleteAllByIdWithoutCommit(deletions, commitWithin);
+
+    final long elapsed = System.nanoTime() - startTime;
+
+    flushTimer.record(Duration.ofNanos(elapsed));
+    addBatchSize.record(solrSamples.size());
+    deleteBatchSize.record(deletions.size());
+
+    scheduleGenerationBump();
+
+    LOGGER.info(
+        String.format(
+            "added %d and removed %d samples from index in %dms",
+            solrSamples.size(), deletions.size(), elapsed / 1000000));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // a bump still waiting for its commit runs before the thread stops
+    scheduler.shutdown();
+  }
+
+  private synchronized void scheduleGenerationBump() {
+    if (generationBumpScheduled) {
+      flushedSinceBumpScheduled = true;
+      return;
+    }
+
+    generationBumpScheduled = true;
+    scheduler.schedule(
+        this::bumpGeneration,
+        commitWithin.plus(SEARCHER_OPEN_MARGIN).toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void bumpGeneration() {
+    synchronized (this) {
+      // solr may commit flushes made since this bump was scheduled only in the next window
+      if (flushedSinceBumpScheduled) {
+        flushedSinceBumpScheduled = false;
+        scheduler.schedule(
+            this::bumpGeneration,
+            commitWithin.plus(SEARCHER_OPEN_MARGIN).toMillis(),
+            TimeUnit.MILLISECONDS);
+      } else {
+        generationBumpScheduled = false;
+      }
+    }
+
+    try {
+      solrIndexGenerationService.increment();
+    } catch (final Exception e) {
+      // cached facets will expire anyway, this must not fail indexing
+      LOGGER.warn("Failed to increment the solr index generation", e);
+    }
+  }
+
+  private double getQueueCount(final String queue) {
+    try {
+      return messageUtils.getQueueCount(queue);
+    } catch (final Exception e) {
+      LOGGER.debug("Failed to get message count of " + queue, e);
+
+      return Double.NaN;
+    }
+  }
+}
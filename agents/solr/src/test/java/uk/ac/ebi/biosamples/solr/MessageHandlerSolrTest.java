@@ -11,13 +11,17 @@
 package uk.ac.ebi.biosamples.solr;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
@@ -28,6 +32,9 @@ import org.springframework.web.client.RestTemplate;
 import uk.ac.ebi.biosamples.core.model.Attribute;
 import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.core.model.SampleStatus;
+import uk.ac.ebi.biosamples.messaging.model.MessageContent;
+import uk.ac.ebi.biosamples.solr.model.SolrSample;
+import uk.ac.ebi.biosamples.solr.service.SampleToSolrSampleConverter;
 
 public class MessageHandlerSolrTest {
 
@@ -96,6 +103,153 @@ public class MessageHandlerSolrTest {
             (generateTestSample("unexpected-example", Collections.singletonList(attribute)))));
   }
 
+  @Test
+  public void should_remove_samples_of_a_batch_in_a_single_delete() {
+    final SolrBatchIndexer solrBatchIndexer = Mockito.mock(SolrBatchIndexer.class);
+    final MessageHandlerSolr messageHandlerSolr =
+        new MessageHandlerSolr(solrBatchIndexer, Mockito.mock(SampleToSolrSampleConverter.class));
+    final List<Attribute> attributes =
+        Collections.singletonList(Attribute.build("INSDC status", "gertgerge"));
+
+    messageHandlerSolr.handleIndexing(
+        Arrays.asList(
+            MessageContent.build(
+                generateTestSample("SAMEA1", attributes), null, Collections.emptyList(), false),
+            MessageContent.build(
+                generateTestSample("SAMEA2", attributes), null, Collections.emptyList(), false),
+            MessageContent.build(
+                generateTestSample("SAMEA1", attributes), null, Collections.emptyList(), false)));
+
+    final ArgumentCaptor<Collection> deletions = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(solrBatchIndexer, Mockito.times(1))
+        .index(Mockito.anyCollection(), deletions.capture());
+    assertEquals(Arrays.asList("SAMEA1", "SAMEA2"), new ArrayList<>(deletions.getValue()));
+  }
+
+  @Test
+  public void should_index_rest_of_batch_when_a_sample_fails_to_convert() {
+    final SolrBatchIndexer solrBatchIndexer = Mockito.mock(SolrBatchIndexer.class);
+    final SampleToSolrSampleConverter converter = Mockito.mock(SampleToSolrSampleConverter.class);
+    Mockito.when(converter.convert(Mockito.any(Sample.class)))
+        .thenAnswer(
+            invocation -> {
+              final Sample sample = invocation.getArgument(0);
+              if (sample.getAccession().equals("SAMEA2")) {
+                throw new IllegalStateException("cannot convert " + sample.getAccession());
+              }
+
+              return SolrSample.build(
+                  sample.getAccession(),
+                  sample.getAccession(),
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  Collections.emptyList());
+            });
+    final MessageHandlerSolr messageHandlerSolr =
+        new MessageHandlerSolr(solrBatchIndexer, converter);
+
+    messageHandlerSolr.handleIndexing(
+        Arrays.asList(
+            MessageContent.build(
+                generateTestSample("SAMEA1", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false),
+            MessageContent.build(
+                generateTestSample("SAMEA2", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false),
+            MessageContent.build(
+                generateTestSample("SAMEA3", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false)));
+
+    final ArgumentCaptor<Collection> solrSamples = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(solrBatchIndexer, Mockito.times(1))
+        .index(solrSamples.capture(), Mockito.anyCollection());
+    final List<String> accessions = new ArrayList<>();
+    for (final Object solrSample : solrSamples.getValue()) {
+      accessions.add(((SolrSample) solrSample).getAccession());
+    }
+    assertEquals(Arrays.asList("SAMEA1", "SAMEA3"), accessions);
+  }
+
+  @Test
+  public void should_not_index_superseded_version_when_newer_version_fails_to_convert() {
+    final SolrBatchIndexer solrBatchIndexer = Mockito.mock(SolrBatchIndexer.class);
+    final SampleToSolrSampleConverter converter = Mockito.mock(SampleToSolrSampleConverter.class);
+    final AtomicInteger conversions = new AtomicInteger();
+    Mockito.when(converter.convert(Mockito.any(Sample.class)))
+        .thenAnswer(
+            invocation -> {
+              final Sample sample = invocation.getArgument(0);
+              // the second version of SAMEA1 is the third sample converted
+              if (conversions.incrementAndGet() == 3) {
+                throw new IllegalStateException("cannot convert " + sample.getAccession());
+              }
+
+              return SolrSample.build(
+                  sample.getAccession(),
+                  sample.getAccession(),
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  Collections.emptyList());
+            });
+    final MessageHandlerSolr messageHandlerSolr =
+        new MessageHandlerSolr(solrBatchIndexer, converter);
+
+    messageHandlerSolr.handleIndexing(
+        Arrays.asList(
+            MessageContent.build(
+                generateTestSample("SAMEA1", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false),
+            MessageContent.build(
+                generateTestSample("SAMEA2", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false),
+            MessageContent.build(
+                generateTestSample("SAMEA1", Collections.emptyList()),
+                null,
+                Collections.emptyList(),
+                false)));
+
+    final ArgumentCaptor<Collection> solrSamples = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(solrBatchIndexer, Mockito.times(1))
+        .index(solrSamples.capture(), Mockito.anyCollection());
+    final List<String> accessions = new ArrayList<>();
+    for (final Object solrSample : solrSamples.getValue()) {
+      accessions.add(((SolrSample) solrSample).getAccession());
+    }
+    assertEquals(Collections.singletonList("SAMEA2"), accessions);
+  }
+
   private Sample generateTestSample(final String accession, final List<Attribute> attributes) {
     final Set<Attribute> attributeSet = new HashSet<>();
     for (final Attribute attribute : attributes) {
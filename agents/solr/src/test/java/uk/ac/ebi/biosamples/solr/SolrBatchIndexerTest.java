@@ -0,0 +1,124 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr;
+
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.messaging.service.MessageUtils;
+import uk.ac.ebi.biosamples.solr.model.SolrSample;
+import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
+import uk.ac.ebi.biosamples.solr.service.SolrIndexGenerationService;
+
+public class SolrBatchIndexerTest {
+  private static final long COMMIT_WITHIN = 10000;
+
+  private SolrIndexGenerationService solrIndexGenerationService;
+  private ScheduledExecutorService scheduler;
+  private SolrBatchIndexer solrBatchIndexer;
+
+  @Before
+  public void setUp() {
+    final BioSamplesProperties bioSamplesProperties = new BioSamplesProperties();
+    bioSamplesProperties.setAgentSolrCommitWithin(COMMIT_WITHIN);
+    solrIndexGenerationService = Mockito.mock(SolrIndexGenerationService.class);
+    scheduler = Mockito.mock(ScheduledExecutorService.class);
+    solrBatchIndexer =
+        new SolrBatchIndexer(
+            Mockito.mock(SolrSampleRepository.class),
+            Mockito.mock(MessageUtils.class),
+            solrIndexGenerationService,
+            bioSamplesProperties,
+            new SimpleMeterRegistry(),
+            scheduler);
+  }
+
+  @Test
+  public void given_flush_bump_generation_only_after_commit_within() {
+    index("SAMEA1");
+
+    Mockito.verify(solrIndexGenerationService, Mockito.never()).increment();
+    final Runnable bump = captureScheduledBump(1).get(0);
+
+    bump.run();
+
+    Mockito.verify(solrIndexGenerationService).increment();
+  }
+
+  @Test
+  public void given_flushes_in_one_commit_window_bump_generation_once_per_window() {
+    index("SAMEA1");
+    index("SAMEA2");
+    index("SAMEA3");
+
+    Mockito.verify(solrIndexGenerationService, Mockito.never()).increment();
+    final Runnable firstBump = captureScheduledBump(1).get(0);
+
+    // the later flushes may only be committed in the next window, so bump again after it
+    firstBump.run();
+
+    Mockito.verify(solrIndexGenerationService).increment();
+    final Runnable secondBump = captureScheduledBump(2).get(1);
+
+    secondBump.run();
+
+    Mockito.verify(solrIndexGenerationService, Mockito.times(2)).increment();
+    captureScheduledBump(2);
+
+    index("SAMEA4");
+
+    captureScheduledBump(3);
+  }
+
+  private void index(final String accession) {
+    final SolrSample solrSample =
+        SolrSample.build(
+            accession,
+            accession,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            Collections.emptyList());
+    solrBatchIndexer.index(Collections.singletonList(solrSample), Collections.emptyList());
+  }
+
+  private List<Runnable> captureScheduledBump(final int times) {
+    final ArgumentCaptor<Runnable> bumps = ArgumentCaptor.forClass(Runnable.class);
+    final ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+    Mockito.verify(scheduler, Mockito.times(times))
+        .schedule(bumps.capture(), delays.capture(), Mockito.eq(TimeUnit.MILLISECONDS));
+
+    for (final Long delay : delays.getAllValues()) {
+      assertTrue(delay >= COMMIT_WITHIN);
+    }
+
+    return bumps.getAllValues();
+  }
+}
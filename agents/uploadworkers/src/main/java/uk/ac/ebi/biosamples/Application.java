@@ -45,11 +45,13 @@ public class Application {
       final MongoSampleRepository mongoSampleRepository,
       final SampleToMongoSampleConverter sampleToMongoSampleConverter,
       final MongoSampleToSampleConverter mongoSampleToSampleConverter,
-      final MongoOperations mongoOperations) {
+      final MongoOperations mongoOperations,
+      final BioSamplesProperties bioSamplesProperties) {
     return new MongoAccessionService(
         mongoSampleRepository,
         sampleToMongoSampleConverter,
         mongoSampleToSampleConverter,
-        mongoOperations);
+        mongoOperations,
+        bioSamplesProperties.getAccessionBlockSize());
   }
 }
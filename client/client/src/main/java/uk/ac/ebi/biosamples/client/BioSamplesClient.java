@@ -32,6 +32,7 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import uk.ac.ebi.biosamples.client.service.*;
 import uk.ac.ebi.biosamples.client.utils.ClientProperties;
+import uk.ac.ebi.biosamples.client.utils.PartitionedResourceFetchAll;
 import uk.ac.ebi.biosamples.core.model.*;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.core.model.structured.StructuredData;
@@ -54,6 +55,8 @@ public class BioSamplesClient implements AutoCloseable {
   private final CurationSubmissionService curationSubmissionService;
   private final StructuredDataSubmissionService structuredDataSubmissionService;
   private final SampleValidator sampleValidator;
+  private final int partitionCount;
+  private final int partitionPrefetch;
   /**
    * -- GETTER -- Gets the public client.
    *
@@ -98,7 +101,8 @@ public class BioSamplesClient implements AutoCloseable {
 
     sampleRetrievalService = new SampleRetrievalService(restOperations, traverson);
     samplePageRetrievalService = new SamplePageRetrievalService(restOperations, traverson);
-    sampleCursorRetrievalService = new SampleCursorRetrievalService(restOperations, traverson);
+    sampleCursorRetrievalService =
+        new SampleCursorRetrievalService(restOperations, traverson, samplePageRetrievalService);
     sampleSubmissionService = new SampleSubmissionService(restOperations, traverson);
     sampleSubmissionServiceV2 = new SampleSubmissionServiceV2(restOperations, uriV2);
     sampleRetrievalServiceV2 = new SampleRetrievalServiceV2(restOperations, uriV2);
@@ -110,6 +114,8 @@ public class BioSamplesClient implements AutoCloseable {
     structuredDataSubmissionService =
         new StructuredDataSubmissionService(restOperations, traverson);
     this.sampleValidator = sampleValidator;
+    partitionCount = clientProperties.getBiosamplesClientPartitionCount();
+    partitionPrefetch = clientProperties.getBiosamplesClientPartitionPrefetch();
 
     if (clientService == null) {
       publicClient = Optional.empty();
@@ -298,7 +304,9 @@ public class BioSamplesClient implements AutoCloseable {
   }
 
   /**
-   * Fetches all sample resources using BioSamples with a text query and specified filters.
+   * Fetches all sample resources using BioSamples with a text query and specified filters. When
+   * biosamples.client.partition.count is more than 1 the samples are fetched in that many
+   * partitions at the same time, and come in no particular order.
    *
    * @param text the text query
    * @param filters the collection of filters
@@ -306,9 +314,29 @@ public class BioSamplesClient implements AutoCloseable {
    */
   public Iterable<EntityModel<Sample>> fetchSampleResourceAll(
       final String text, final Collection<Filter> filters) {
+    if (partitionCount > 1) {
+      return fetchSampleResourcePartitioned(text, filters, partitionCount);
+    }
+
     return sampleCursorRetrievalService.fetchAll(text, filters);
   }
 
+  /**
+   * Fetches all sample resources using BioSamples with a text query and specified filters, split
+   * into disjoint update date ranges fetched at the same time. Use {@link
+   * PartitionedResourceFetchAll#stream(boolean)} to consume them in parallel.
+   *
+   * @param text the text query
+   * @param filters the collection of filters
+   * @param partitions the number of partitions fetched at the same time
+   * @return the sample resources, in no particular order
+   */
+  public PartitionedResourceFetchAll<Sample> fetchSampleResourcePartitioned(
+      final String text, final Collection<Filter> filters, final int partitions) {
+    return sampleCursorRetrievalService.fetchAllPartitioned(
+        text, filters, null, true, partitions, partitionPrefetch);
+  }
+
   /**
    * Fetches all sample resources using BioSamples with a text query and specified filters excluding
    * curations.
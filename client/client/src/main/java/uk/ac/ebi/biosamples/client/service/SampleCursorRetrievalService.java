@@ -10,11 +10,20 @@
 */
 package uk.ac.ebi.biosamples.client.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.PagedModel;
@@ -23,22 +32,43 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestOperations;
 import uk.ac.ebi.biosamples.client.utils.IterableResourceFetchAll;
+import uk.ac.ebi.biosamples.client.utils.PartitionedResourceFetchAll;
 import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.model.filter.DateRangeFilter;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
+import uk.ac.ebi.biosamples.core.service.FilterBuilder;
 
 public class SampleCursorRetrievalService {
+  private final Logger log = LoggerFactory.getLogger(getClass());
   private static final ParameterizedTypeReference<PagedModel<EntityModel<Sample>>>
       parameterizedTypeReferencePagedResourcesSample =
           new ParameterizedTypeReference<PagedModel<EntityModel<Sample>>>() {};
   private final Traverson traverson;
   private final ExecutorService executor;
+  // runs the producers of partitioned iterations and prefetches their pages, one shared thread
+  // would fetch the partitions one page at a time
+  private final ExecutorService partitionExecutor;
   private final RestOperations restOperations;
+  private final SamplePageRetrievalService samplePageRetrievalService;
 
   public SampleCursorRetrievalService(
-      final RestOperations restOperations, final Traverson traverson) {
+      final RestOperations restOperations,
+      final Traverson traverson,
+      final SamplePageRetrievalService samplePageRetrievalService) {
     this.restOperations = restOperations;
     this.traverson = traverson;
+    this.samplePageRetrievalService = samplePageRetrievalService;
     this.executor = Executors.newSingleThreadExecutor();
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.partitionExecutor =
+        Executors.newCachedThreadPool(
+            runnable -> {
+              final Thread thread =
+                  new Thread(runnable, "partition-fetch-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
   }
 
   public Iterable<EntityModel<Sample>> fetchAll(
@@ -61,6 +91,39 @@ public class SampleCursorRetrievalService {
       final Collection<Filter> filterCollection,
       final String jwt,
       final boolean addCurations) {
+    return fetchAll(text, filterCollection, jwt, addCurations, executor);
+  }
+
+  /**
+   * Splits the query into disjoint ranges of update date and fetches them at the same time. The
+   * range with the most samples is halved until there are enough partitions, so they are roughly
+   * balanced. An update date filter in the query bounds the ranges, its until date is exclusive.
+   *
+   * @param partitionCount the number of partitions fetched at the same time
+   * @param prefetch the max number of samples fetched ahead of the consumers
+   */
+  public PartitionedResourceFetchAll<Sample> fetchAllPartitioned(
+      final String text,
+      final Collection<Filter> filterCollection,
+      final String jwt,
+      final boolean addCurations,
+      final int partitionCount,
+      final int prefetch) {
+    final List<Iterable<EntityModel<Sample>>> partitions = new ArrayList<>();
+    for (final Collection<Filter> partitionFilters :
+        partitionByUpdateDate(text, filterCollection, jwt, partitionCount)) {
+      partitions.add(fetchAll(text, partitionFilters, jwt, addCurations, partitionExecutor));
+    }
+
+    return new PartitionedResourceFetchAll<>(partitionExecutor, partitions, prefetch);
+  }
+
+  private Iterable<EntityModel<Sample>> fetchAll(
+      final String text,
+      final Collection<Filter> filterCollection,
+      final String jwt,
+      final boolean addCurations,
+      final ExecutorService pageExecutor) {
     MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
 
     params.add("text", text);
@@ -74,7 +137,7 @@ public class SampleCursorRetrievalService {
     params = encodePlusInQueryParameters(params);
 
     return new IterableResourceFetchAll<>(
-        executor,
+        pageExecutor,
         traverson,
         restOperations,
         parameterizedTypeReferencePagedResourcesSample,
@@ -84,6 +147,98 @@ public class SampleCursorRetrievalService {
         "cursor");
   }
 
+  List<Collection<Filter>> partitionByUpdateDate(
+      final String text,
+      final Collection<Filter> filterCollection,
+      final String jwt,
+      final int partitionCount) {
+    final List<Filter> otherFilters = new ArrayList<>();
+    Instant from = Instant.EPOCH;
+    Instant until = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+
+    for (final Filter filter : filterCollection) {
+      if (filter instanceof DateRangeFilter && "update".equals(filter.getLabel())) {
+        final DateRangeFilter dateRangeFilter = (DateRangeFilter) filter;
+        if (dateRangeFilter.getContent().isPresent()) {
+          final DateRangeFilter.DateRange dateRange = dateRangeFilter.getContent().get();
+          from = dateRange.isFromMinDate() ? from : dateRange.getFrom();
+          until = dateRange.isUntilMaxDate() ? until : dateRange.getUntil();
+        }
+      } else {
+        otherFilters.add(filter);
+      }
+    }
+
+    final PriorityQueue<UpdateDateRange> ranges =
+        new PriorityQueue<>(
+            Comparator.comparingLong((UpdateDateRange range) -> range.count).reversed());
+    final List<UpdateDateRange> partitions = new ArrayList<>();
+    ranges.add(new UpdateDateRange(from, until, count(text, otherFilters, jwt, from, until)));
+
+    while (!ranges.isEmpty() && ranges.size() + partitions.size() < partitionCount) {
+      final UpdateDateRange largest = ranges.poll();
+      final Instant middle =
+          largest
+              .from
+              .plus(Duration.between(largest.from, largest.until).dividedBy(2))
+              .truncatedTo(ChronoUnit.SECONDS);
+
+      if (largest.count <= 1 || !middle.isAfter(largest.from)) {
+        // can't be split any further
+        partitions.add(largest);
+        continue;
+      }
+
+      final long lowerCount = count(text, otherFilters, jwt, largest.from, middle);
+      ranges.add(new UpdateDateRange(largest.from, middle, lowerCount));
+      ranges.add(
+          new UpdateDateRange(middle, largest.until, Math.max(0, largest.count - lowerCount)));
+    }
+    partitions.addAll(ranges);
+
+    log.info("Fetching samples in {} update date partitions", partitions.size());
+
+    final List<Collection<Filter>> partitionFilters = new ArrayList<>();
+    for (final UpdateDateRange partition : partitions) {
+      final List<Filter> filters = new ArrayList<>(otherFilters);
+      filters.add(partition.toFilter());
+      partitionFilters.add(filters);
+    }
+
+    return partitionFilters;
+  }
+
+  private long count(
+      final String text,
+      final List<Filter> otherFilters,
+      final String jwt,
+      final Instant from,
+      final Instant until) {
+    final List<Filter> filters = new ArrayList<>(otherFilters);
+    filters.add(new UpdateDateRange(from, until, 0).toFilter());
+
+    final PagedModel<EntityModel<Sample>> page =
+        samplePageRetrievalService.search(text, filters, 0, 1, jwt);
+    return page == null || page.getMetadata() == null ? 0 : page.getMetadata().getTotalElements();
+  }
+
+  private static class UpdateDateRange {
+    private final Instant from;
+    // exclusive
+    private final Instant until;
+    private final long count;
+
+    private UpdateDateRange(final Instant from, final Instant until, final long count) {
+      this.from = from;
+      this.until = until;
+      this.count = count;
+    }
+
+    private Filter toFilter() {
+      return FilterBuilder.create().onUpdateDate().from(from).until(until).build();
+    }
+  }
+
   // TODO to keep the + in a (not encoded) query parameter is to force encoding
   private MultiValueMap<String, String> encodePlusInQueryParameters(
       final MultiValueMap<String, String> queryParameters) {
@@ -46,6 +46,14 @@ public class ClientProperties {
   @Value("${biosamples.client.threadcount.max:8}")
   private int threadCountMax;
 
+  // fetchSampleResourceAll(text, filters) fetches this many update date ranges at the same time
+  @Value("${biosamples.client.partition.count:1}")
+  private int biosamplesClientPartitionCount;
+
+  // max number of samples fetched ahead of the consumer by a partitioned fetch
+  @Value("${biosamples.client.partition.prefetch:1000}")
+  private int biosamplesClientPartitionPrefetch;
+
   @Value("${biosamples.submit.max-files-size-kb:20}")
   private long biosamplesFileUploaderMaxSameTimeUploadFileSize;
 
@@ -0,0 +1,230 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.client.utils;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.hateoas.EntityModel;
+
+/**
+ * Iterates over several disjoint partitions of a query at the same time. Each partition is pulled
+ * by its own producer into a bounded buffer shared by the consumers, so at most prefetch resources
+ * are fetched ahead of them. Resources come in no particular order.
+ *
+ * <p>The spliterator can be split for parallel streams, the splits all take from the same buffer.
+ * The producers stop once every partition has been read or the stream is closed. A consumer that
+ * may give up early must use {@link #stream(boolean)} and close it. An iterator given up early only
+ * stops them once it is garbage collected, which is a backstop against leaking producers rather
+ * than a way to stop them.
+ */
+public class PartitionedResourceFetchAll<T> implements Iterable<EntityModel<T>> {
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final ExecutorService executor;
+  private final List<? extends Iterable<EntityModel<T>>> partitions;
+  private final int prefetch;
+
+  public PartitionedResourceFetchAll(
+      final ExecutorService executor,
+      final List<? extends Iterable<EntityModel<T>>> partitions,
+      final int prefetch) {
+    if (partitions.isEmpty()) {
+      throw new IllegalArgumentException("At least one partition is needed");
+    }
+    this.executor = executor;
+    this.partitions = partitions;
+    this.prefetch = Math.max(1, prefetch);
+  }
+
+  public int getPartitionCount() {
+    return partitions.size();
+  }
+
+  @Override
+  public Iterator<EntityModel<T>> iterator() {
+    return Spliterators.iterator(spliterator());
+  }
+
+  @Override
+  public Spliterator<EntityModel<T>> spliterator() {
+    return newSpliterator(new Buffer<>(executor, partitions, prefetch));
+  }
+
+  /** Closing the stream stops the producers of the partitions not yet fully read */
+  public Stream<EntityModel<T>> stream(final boolean parallel) {
+    final Buffer<T> buffer = new Buffer<>(executor, partitions, prefetch);
+    return StreamSupport.stream(newSpliterator(buffer), parallel).onClose(buffer::close);
+  }
+
+  private static <U> Spliterator<EntityModel<U>> newSpliterator(final Buffer<U> buffer) {
+    final Object consumers = new Object();
+    // the producers only reach the buffer, so once no consumer is left the buffer is closed
+    CLEANER.register(consumers, buffer::close);
+
+    return new BufferSpliterator<>(buffer, consumers);
+  }
+
+  private static class Buffer<U> {
+    private static final Object END = new Object();
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final BlockingQueue<Object> queue;
+    private final AtomicInteger running;
+    // splits left for parallel streams, no point in more consumers than producers
+    private final AtomicInteger splits;
+    private final List<Future<?>> producers = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    Buffer(
+        final ExecutorService executor,
+        final List<? extends Iterable<EntityModel<U>>> partitions,
+        final int prefetch) {
+      queue = new ArrayBlockingQueue<>(prefetch + partitions.size());
+      running = new AtomicInteger(partitions.size());
+      splits = new AtomicInteger(partitions.size() - 1);
+
+      for (final Iterable<EntityModel<U>> partition : partitions) {
+        producers.add(executor.submit(() -> produce(partition)));
+      }
+    }
+
+    private void produce(final Iterable<EntityModel<U>> partition) {
+      try {
+        for (final EntityModel<U> resource : partition) {
+          if (!put(resource)) {
+            return;
+          }
+        }
+      } catch (final RuntimeException e) {
+        log.error("Failed to fetch a partition", e);
+        put(new Failure(e));
+      }
+      put(END);
+    }
+
+    /** @return false if the buffer was closed while waiting for space */
+    private boolean put(final Object item) {
+      try {
+        while (!closed) {
+          if (queue.offer(item, 1, TimeUnit.SECONDS)) {
+            return true;
+          }
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      return false;
+    }
+
+    /** @return the next resource, or null once all the partitions have been read */
+    @SuppressWarnings("unchecked")
+    EntityModel<U> next() {
+      while (true) {
+        final Object item;
+        try {
+          item = queue.take();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+
+        if (item == END) {
+          if (running.decrementAndGet() <= 0) {
+            // let the other consumers know too, there is room as no producer is left
+            queue.offer(END);
+            return null;
+          }
+        } else if (item instanceof Failure) {
+          close();
+          throw new RuntimeException("Failed to fetch a partition", ((Failure) item).cause);
+        } else {
+          return (EntityModel<U>) item;
+        }
+      }
+    }
+
+    boolean trySplit() {
+      return splits.getAndDecrement() > 0;
+    }
+
+    synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+
+      producers.forEach(producer -> producer.cancel(true));
+      running.set(0);
+      queue.clear();
+      queue.offer(END);
+    }
+  }
+
+  private static class Failure {
+    private final RuntimeException cause;
+
+    private Failure(final RuntimeException cause) {
+      this.cause = cause;
+    }
+  }
+
+  private static class BufferSpliterator<U> implements Spliterator<EntityModel<U>> {
+    private final Buffer<U> buffer;
+    // shared by the splits, unreachable once they all are
+    private final Object consumers;
+
+    BufferSpliterator(final Buffer<U> buffer, final Object consumers) {
+      this.buffer = buffer;
+      this.consumers = consumers;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super EntityModel<U>> action) {
+      final EntityModel<U> resource = buffer.next();
+      if (resource == null) {
+        return false;
+      }
+
+      action.accept(resource);
+      return true;
+    }
+
+    @Override
+    public Spliterator<EntityModel<U>> trySplit() {
+      return buffer.trySplit() ? new BufferSpliterator<>(buffer, consumers) : null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.NONNULL | Spliterator.CONCURRENT;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.client.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.PagedModel;
+import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.model.filter.DateRangeFilter;
+import uk.ac.ebi.biosamples.core.model.filter.Filter;
+import uk.ac.ebi.biosamples.core.service.FilterBuilder;
+
+public class SampleCursorRetrievalServiceTest {
+  private static final Instant FROM = Instant.parse("2020-01-01T00:00:00Z");
+  private static final Instant UNTIL = Instant.parse("2021-01-01T00:00:00Z");
+  private static final Filter ATTRIBUTE_FILTER =
+      FilterBuilder.create().onAttribute("organism").withValue("Homo sapiens").build();
+
+  private final List<Instant> updateDates = new ArrayList<>();
+
+  @Test
+  public void given_update_date_filter_partitions_cover_its_range_without_overlap() {
+    for (int i = 0; i < 1000; i++) {
+      updateDates.add(FROM.plusSeconds(i * 31_000L));
+    }
+    // on the until date, so outside of the range
+    updateDates.add(UNTIL);
+
+    final List<DateRangeFilter.DateRange> ranges =
+        partition(
+            List.of(
+                ATTRIBUTE_FILTER,
+                FilterBuilder.create().onUpdateDate().from(FROM).until(UNTIL).build()),
+            8);
+
+    assertEquals(8, ranges.size());
+    assertEquals(FROM, ranges.get(0).getFrom());
+    assertEquals(UNTIL, ranges.get(ranges.size() - 1).getUntil());
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).getUntil(), ranges.get(i).getFrom());
+    }
+
+    for (final Instant updateDate : updateDates) {
+      final long count = ranges.stream().filter(range -> contains(range, updateDate)).count();
+      assertEquals(updateDate.isBefore(UNTIL) ? 1 : 0, count);
+    }
+  }
+
+  @Test
+  public void given_no_update_date_filter_partitions_cover_all_dates() {
+    final Instant now = Instant.now();
+    updateDates.add(Instant.EPOCH);
+    updateDates.add(FROM);
+    updateDates.add(now);
+
+    final List<DateRangeFilter.DateRange> ranges =
+        partition(Collections.singletonList(ATTRIBUTE_FILTER), 4);
+
+    assertEquals(Instant.EPOCH, ranges.get(0).getFrom());
+    assertTrue(ranges.get(ranges.size() - 1).getUntil().isAfter(now));
+    for (final Instant updateDate : updateDates) {
+      assertEquals(1, ranges.stream().filter(range -> contains(range, updateDate)).count());
+    }
+  }
+
+  @Test
+  public void given_too_few_samples_ranges_are_not_split_further() {
+    updateDates.add(FROM);
+
+    final List<DateRangeFilter.DateRange> ranges =
+        partition(
+            List.of(
+                ATTRIBUTE_FILTER,
+                FilterBuilder.create().onUpdateDate().from(FROM).until(UNTIL).build()),
+            8);
+
+    assertEquals(1, ranges.size());
+    assertEquals(FROM, ranges.get(0).getFrom());
+    assertEquals(UNTIL, ranges.get(0).getUntil());
+  }
+
+  /** @return the update date ranges of the partitions, in order */
+  private List<DateRangeFilter.DateRange> partition(
+      final Collection<Filter> filters, final int partitionCount) {
+    final SampleCursorRetrievalService service =
+        new SampleCursorRetrievalService(null, null, new StubPageRetrievalService());
+
+    final List<DateRangeFilter.DateRange> ranges = new ArrayList<>();
+    for (final Collection<Filter> partitionFilters :
+        service.partitionByUpdateDate("", filters, null, partitionCount)) {
+      assertTrue(partitionFilters.contains(ATTRIBUTE_FILTER));
+      ranges.add(getUpdateDateRange(partitionFilters));
+    }
+    ranges.sort(Comparator.comparing(DateRangeFilter.DateRange::getFrom));
+
+    return ranges;
+  }
+
+  private static DateRangeFilter.DateRange getUpdateDateRange(final Collection<Filter> filters) {
+    final List<DateRangeFilter.DateRange> ranges = new ArrayList<>();
+    for (final Filter filter : filters) {
+      if (filter instanceof DateRangeFilter && "update".equals(filter.getLabel())) {
+        ((DateRangeFilter) filter).getContent().ifPresent(ranges::add);
+      }
+    }
+    assertEquals(1, ranges.size());
+
+    return ranges.get(0);
+  }
+
+  private static boolean contains(final DateRangeFilter.DateRange range, final Instant instant) {
+    return !instant.isBefore(range.getFrom()) && instant.isBefore(range.getUntil());
+  }
+
+  /** Counts the samples with an update date in the range searched, with an exclusive until */
+  private class StubPageRetrievalService extends SamplePageRetrievalService {
+    private StubPageRetrievalService() {
+      super(null, null);
+    }
+
+    @Override
+    public PagedModel<EntityModel<Sample>> search(
+        final String text,
+        final Collection<Filter> filters,
+        final int page,
+        final int size,
+        final String jwt) {
+      final DateRangeFilter.DateRange range = getUpdateDateRange(filters);
+      final long count = updateDates.stream().filter(date -> contains(range, date)).count();
+
+      return PagedModel.of(
+          Collections.emptyList(), new PagedModel.PageMetadata(size, page, count));
+    }
+  }
+}
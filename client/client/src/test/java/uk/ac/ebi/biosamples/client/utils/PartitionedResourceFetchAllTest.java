@@ -0,0 +1,165 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.client.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.hateoas.EntityModel;
+
+public class PartitionedResourceFetchAllTest {
+  private static final int PARTITION_SIZE = 1000;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void given_partitions_iterated_every_item_is_delivered_once() {
+    final List<Integer> items = new ArrayList<>();
+    for (final EntityModel<Integer> resource : newFetchAll(getPartitions(4))) {
+      items.add(resource.getContent());
+    }
+
+    assertEquals(getItems(4), sorted(items));
+  }
+
+  @Test
+  public void given_partitions_streamed_in_parallel_every_item_is_delivered_once() {
+    final List<Integer> items;
+    try (final Stream<EntityModel<Integer>> stream = newFetchAll(getPartitions(4)).stream(true)) {
+      items = stream.map(EntityModel::getContent).collect(Collectors.toList());
+    }
+
+    assertEquals(getItems(4), sorted(items));
+  }
+
+  @Test
+  public void given_producer_fails_consumer_gets_the_failure() {
+    final IllegalStateException failure = new IllegalStateException("partition unavailable");
+    final List<Iterable<EntityModel<Integer>>> partitions = getPartitions(2);
+    partitions.add(
+        () ->
+            IntStream.range(0, 2 * PARTITION_SIZE)
+                .mapToObj(
+                    i -> {
+                      if (i == 10) {
+                        throw failure;
+                      }
+                      return EntityModel.of(i);
+                    })
+                .iterator());
+
+    final RuntimeException e =
+        assertThrows(
+            RuntimeException.class,
+            () -> newFetchAll(partitions).forEach(resource -> {}));
+
+    assertSame(failure, e.getCause());
+  }
+
+  @Test
+  public void given_stream_closed_early_producers_stop() throws InterruptedException {
+    try (final Stream<EntityModel<Integer>> stream =
+        newFetchAll(getEndlessPartitions(4)).stream(false)) {
+      assertEquals(5, stream.limit(5).count());
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void given_stream_iterator_given_up_and_stream_closed_producers_stop()
+      throws InterruptedException {
+    try (final Stream<EntityModel<Integer>> stream =
+        newFetchAll(getEndlessPartitions(4)).stream(false)) {
+      final Iterator<EntityModel<Integer>> iterator = stream.iterator();
+      for (int i = 0; i < 5; i++) {
+        iterator.next();
+      }
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void given_parallel_stream_closed_early_producers_stop() throws InterruptedException {
+    try (final Stream<EntityModel<Integer>> stream =
+        newFetchAll(getEndlessPartitions(4)).stream(true)) {
+      assertTrue(stream.anyMatch(resource -> resource.getContent() > 100));
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private PartitionedResourceFetchAll<Integer> newFetchAll(
+      final List<Iterable<EntityModel<Integer>>> partitions) {
+    return new PartitionedResourceFetchAll<>(executor, partitions, 10);
+  }
+
+  /** Partitions of consecutive items, the first one from 0 */
+  private static List<Iterable<EntityModel<Integer>>> getPartitions(final int count) {
+    final List<Iterable<EntityModel<Integer>>> partitions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final int start = i * PARTITION_SIZE;
+      partitions.add(
+          () ->
+              IntStream.range(start, start + PARTITION_SIZE)
+                  .mapToObj(n -> EntityModel.of(n))
+                  .iterator());
+    }
+
+    return partitions;
+  }
+
+  private static List<Iterable<EntityModel<Integer>>> getEndlessPartitions(final int count) {
+    final List<Iterable<EntityModel<Integer>>> partitions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      partitions.add(
+          () -> IntStream.iterate(0, n -> n + 1).mapToObj(n -> EntityModel.of(n)).iterator());
+    }
+
+    return partitions;
+  }
+
+  private static List<Integer> getItems(final int partitionCount) {
+    return IntStream.range(0, partitionCount * PARTITION_SIZE)
+        .boxed()
+        .collect(Collectors.toList());
+  }
+
+  private static List<Integer> sorted(final List<Integer> items) {
+    final List<Integer> sorted = new ArrayList<>(items);
+    Collections.sort(sorted);
+
+    return sorted;
+  }
+}
@@ -10,9 +10,26 @@
 */
 package uk.ac.ebi.biosamples.core.service;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import uk.ac.ebi.biosamples.core.model.Attribute;
+import uk.ac.ebi.biosamples.core.model.ExternalReference;
+import uk.ac.ebi.biosamples.core.model.Relationship;
 import uk.ac.ebi.biosamples.core.model.Sample;
 
 public interface FileDownloadSerializer {
@@ -23,6 +40,8 @@ public interface FileDownloadSerializer {
       serializer = new FileDownloadAccessionsSerializer();
     } else if ("xml".equalsIgnoreCase(format)) {
       serializer = new FileDownloadXmlSerializer();
+    } else if ("ndjson".equalsIgnoreCase(format)) {
+      serializer = new FileDownloadNdJsonSerializer();
     } else {
       serializer = new FileDownloadJsonSerializer();
     }
@@ -37,9 +56,32 @@ public interface FileDownloadSerializer {
 
   String delimiter();
 
+  /**
+   * Opens a writer for a whole file of samples, serialized straight to the output stream. The start
+   * of the file is written on opening and the end of the file on closing the writer, the output
+   * stream itself is left open.
+   *
+   * <p>The writer passes everything it has written on to the output stream after each call, but
+   * leaves flushing the output stream to the caller.
+   */
+  default SampleWriter open(final OutputStream out) throws IOException {
+    return new DelimitedSampleWriter(this, out);
+  }
+
+  interface SampleWriter extends Closeable {
+    void write(Sample sample) throws IOException;
+  }
+
   class FileDownloadJsonSerializer implements FileDownloadSerializer {
-    private final ObjectMapper objectMapper =
-        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    protected final ObjectMapper objectMapper;
+
+    public FileDownloadJsonSerializer() {
+      this(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    public FileDownloadJsonSerializer(final ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+    }
 
     @Override
     public String asString(final Sample sample) throws IOException {
@@ -60,12 +102,118 @@ public interface FileDownloadSerializer {
     public String delimiter() {
       return "," + System.lineSeparator();
     }
+
+    @Override
+    public SampleWriter open(final OutputStream out) throws IOException {
+      return new JsonSampleWriter(createGenerator(out));
+    }
+
+    protected JsonGenerator createGenerator(final OutputStream out) throws IOException {
+      final JsonGenerator generator =
+          objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+      // samples are separated by the delimiter, not by the root value separator
+      generator.setRootValueSeparator(null);
+      if (objectMapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+        generator.setPrettyPrinter(new DefaultPrettyPrinter((SerializableString) null));
+      }
+
+      return generator;
+    }
+
+    private class JsonSampleWriter implements SampleWriter {
+      private final JsonGenerator generator;
+      private boolean first = true;
+
+      private JsonSampleWriter(final JsonGenerator generator) throws IOException {
+        this.generator = generator;
+        generator.writeRaw(startOfFile());
+        generator.flush();
+      }
+
+      @Override
+      public void write(final Sample sample) throws IOException {
+        if (!first) {
+          generator.writeRaw(delimiter());
+        }
+        objectMapper.writeValue(generator, sample);
+        generator.flush();
+        first = false;
+      }
+
+      @Override
+      public void close() throws IOException {
+        generator.writeRaw(endOfFile());
+        generator.close();
+      }
+    }
+  }
+
+  /**
+   * One compact JSON sample per line, ending with a line break. Files can be read in parallel by
+   * splitting on lines, and concatenated.
+   */
+  class FileDownloadNdJsonSerializer extends FileDownloadJsonSerializer {
+    public FileDownloadNdJsonSerializer() {
+      this(new ObjectMapper());
+    }
+
+    public FileDownloadNdJsonSerializer(final ObjectMapper objectMapper) {
+      super(objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public String startOfFile() {
+      return "";
+    }
+
+    @Override
+    public String endOfFile() {
+      return "\n";
+    }
+
+    @Override
+    public String delimiter() {
+      return "\n";
+    }
+
+    @Override
+    public SampleWriter open(final OutputStream out) throws IOException {
+      final JsonGenerator generator = createGenerator(out);
+
+      return new SampleWriter() {
+        @Override
+        public void write(final Sample sample) throws IOException {
+          objectMapper.writeValue(generator, sample);
+          generator.writeRaw('\n');
+          generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          generator.close();
+        }
+      };
+    }
   }
 
   class FileDownloadXmlSerializer implements FileDownloadSerializer {
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
     @Override
-    public String asString(final Sample sample) {
-      throw new RuntimeException("XML not a supported format");
+    public String asString(final Sample sample) throws IOException {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        final XMLStreamWriter xmlWriter =
+            XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+        writeSample(xmlWriter, sample);
+        xmlWriter.close();
+      } catch (final XMLStreamException e) {
+        throw new IOException("Failed to serialize " + sample.getAccession() + " to XML", e);
+      }
+
+      return out.toString(StandardCharsets.UTF_8.name());
     }
 
     @Override
@@ -82,6 +230,108 @@ public interface FileDownloadSerializer {
     public String delimiter() {
       return System.lineSeparator();
     }
+
+    @Override
+    public SampleWriter open(final OutputStream out) throws IOException {
+      try {
+        return new XmlSampleWriter(
+            XML_OUTPUT_FACTORY.createXMLStreamWriter(
+                new NonFlushingOutputStream(out), StandardCharsets.UTF_8.name()));
+      } catch (final XMLStreamException e) {
+        throw new IOException("Failed to start the XML file", e);
+      }
+    }
+
+    private static void writeSample(final XMLStreamWriter xmlWriter, final Sample sample)
+        throws XMLStreamException {
+      xmlWriter.writeStartElement("BioSample");
+      writeAttribute(xmlWriter, "accession", sample.getAccession());
+      writeAttribute(xmlWriter, "name", sample.getName());
+      writeAttribute(xmlWriter, "release", sample.getRelease());
+      writeAttribute(xmlWriter, "update", sample.getUpdate());
+
+      if (sample.getAttributes() != null) {
+        for (final Attribute attribute : sample.getAttributes()) {
+          xmlWriter.writeStartElement("Attribute");
+          writeAttribute(xmlWriter, "type", attribute.getType());
+          writeAttribute(xmlWriter, "tag", attribute.getTag());
+          writeAttribute(xmlWriter, "unit", attribute.getUnit());
+          writeElement(xmlWriter, "Value", attribute.getValue());
+          for (final String iri : attribute.getIri()) {
+            writeElement(xmlWriter, "Iri", iri);
+          }
+          xmlWriter.writeEndElement();
+        }
+      }
+
+      if (sample.getRelationships() != null) {
+        for (final Relationship relationship : sample.getRelationships()) {
+          xmlWriter.writeEmptyElement("Relationship");
+          writeAttribute(xmlWriter, "source", relationship.getSource());
+          writeAttribute(xmlWriter, "type", relationship.getType());
+          writeAttribute(xmlWriter, "target", relationship.getTarget());
+        }
+      }
+
+      if (sample.getExternalReferences() != null) {
+        for (final ExternalReference externalReference : sample.getExternalReferences()) {
+          xmlWriter.writeEmptyElement("ExternalReference");
+          writeAttribute(xmlWriter, "url", externalReference.getUrl());
+        }
+      }
+
+      xmlWriter.writeEndElement();
+    }
+
+    private static void writeAttribute(
+        final XMLStreamWriter xmlWriter, final String name, final Object value)
+        throws XMLStreamException {
+      if (value != null) {
+        xmlWriter.writeAttribute(name, value.toString());
+      }
+    }
+
+    private static void writeElement(
+        final XMLStreamWriter xmlWriter, final String name, final String value)
+        throws XMLStreamException {
+      if (value != null) {
+        xmlWriter.writeStartElement(name);
+        xmlWriter.writeCharacters(value);
+        xmlWriter.writeEndElement();
+      }
+    }
+
+    private class XmlSampleWriter implements SampleWriter {
+      private final XMLStreamWriter xmlWriter;
+
+      private XmlSampleWriter(final XMLStreamWriter xmlWriter) throws XMLStreamException {
+        this.xmlWriter = xmlWriter;
+        xmlWriter.writeStartElement("BioSamples");
+        xmlWriter.writeCharacters(System.lineSeparator());
+        xmlWriter.flush();
+      }
+
+      @Override
+      public void write(final Sample sample) throws IOException {
+        try {
+          writeSample(xmlWriter, sample);
+          xmlWriter.writeCharacters(delimiter());
+          xmlWriter.flush();
+        } catch (final XMLStreamException e) {
+          throw new IOException("Failed to serialize " + sample.getAccession() + " to XML", e);
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          xmlWriter.writeEndElement();
+          xmlWriter.close();
+        } catch (final XMLStreamException e) {
+          throw new IOException("Failed to end the XML file", e);
+        }
+      }
+    }
   }
 
   class FileDownloadAccessionsSerializer implements FileDownloadSerializer {
@@ -105,4 +355,53 @@ public interface FileDownloadSerializer {
       return System.lineSeparator();
     }
   }
+
+  /** Writes the strings from the serializer, sharing one writer for the whole file */
+  class DelimitedSampleWriter implements SampleWriter {
+    private final FileDownloadSerializer serializer;
+    private final Writer writer;
+    private boolean first = true;
+
+    private DelimitedSampleWriter(final FileDownloadSerializer serializer, final OutputStream out)
+        throws IOException {
+      this.serializer = serializer;
+      writer = new OutputStreamWriter(new NonFlushingOutputStream(out), StandardCharsets.UTF_8);
+      writer.write(serializer.startOfFile());
+      writer.flush();
+    }
+
+    @Override
+    public void write(final Sample sample) throws IOException {
+      if (!first) {
+        writer.write(serializer.delimiter());
+      }
+      writer.write(serializer.asString(sample));
+      writer.flush();
+      first = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.write(serializer.endOfFile());
+      writer.close();
+    }
+  }
+
+  /** Keeps the writers from closing or flushing the output stream, which belongs to the caller */
+  class NonFlushingOutputStream extends FilterOutputStream {
+    private NonFlushingOutputStream(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      out.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
 }
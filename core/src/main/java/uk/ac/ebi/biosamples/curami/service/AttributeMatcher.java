@@ -0,0 +1,195 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.curami.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import org.apache.commons.text.similarity.JaroWinklerSimilarity;
+
+/**
+ * Finds the most similar of a set of attributes, with the same result as {@link
+ * CuramiUtils#getMostSimilarAttribute} but without scoring every attribute. The attributes are
+ * indexed by length, and each one keeps its sorted characters. The Jaro-Winkler score of two
+ * strings cannot exceed a bound computed from their lengths, the characters they have in common
+ * and their common prefix, so an attribute is only scored if its bound beats the best score found
+ * so far. The lengths closest to the attribute matched are tried first, as they tend to give the
+ * best scores. The attributes matched are mostly the same few, so the results are also cached.
+ */
+public class AttributeMatcher {
+  private static final double SIMILARITY_THRESHOLD = 0.8;
+  private static final int MAX_PREFIX = 4;
+  private static final double PREFIX_SCALE = 0.1;
+  private static final double BOOST_THRESHOLD = 0.7;
+  // allows for the bound being rounded differently from the score
+  private static final double EPSILON = 1e-9;
+
+  private final JaroWinklerSimilarity similarity = new JaroWinklerSimilarity();
+  private final List<Candidate[]> candidatesByLength = new ArrayList<>();
+  private final int[] lengths;
+  // null when disabled
+  private final Cache<String, Optional<String>> matchCache;
+
+  /**
+   * @param attributes the attributes to match against, ties are broken by their order
+   * @param cacheSize the number of attributes matched to keep the results of, 0 disables the cache
+   */
+  public AttributeMatcher(final SortedSet<String> attributes, final int cacheSize) {
+    final Map<Integer, List<Candidate>> byLength = new TreeMap<>();
+    int rank = 0;
+    for (final String attribute : attributes) {
+      byLength
+          .computeIfAbsent(attribute.length(), length -> new ArrayList<>())
+          .add(new Candidate(attribute, rank++));
+    }
+
+    lengths = new int[byLength.size()];
+    int i = 0;
+    for (final Map.Entry<Integer, List<Candidate>> entry : byLength.entrySet()) {
+      lengths[i++] = entry.getKey();
+      candidatesByLength.add(entry.getValue().toArray(new Candidate[0]));
+    }
+
+    matchCache = cacheSize > 0 ? Caffeine.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
+  /** @return the attribute scoring highest above the similarity threshold, if any */
+  public Optional<String> getMostSimilarAttribute(final String attribute) {
+    if (matchCache == null) {
+      return findMostSimilarAttribute(attribute);
+    }
+
+    return matchCache.get(attribute, this::findMostSimilarAttribute);
+  }
+
+  private Optional<String> findMostSimilarAttribute(final String attribute) {
+    final char[] chars = sortedChars(attribute);
+    double bestScore = SIMILARITY_THRESHOLD;
+    Candidate best = null;
+
+    for (final int index : getLengthOrder(attribute.length())) {
+      if (getMaxScore(attribute.length(), lengths[index], MAX_PREFIX) + EPSILON < bestScore) {
+        continue;
+      }
+
+      for (final Candidate candidate : candidatesByLength.get(index)) {
+        final double maxScore =
+            getMaxScore(
+                attribute.length(),
+                candidate.attribute.length(),
+                countCommon(chars, candidate.chars),
+                commonPrefix(attribute, candidate.attribute));
+        if (maxScore + EPSILON < bestScore) {
+          continue;
+        }
+
+        // scored in the same argument order as CuramiUtils, so that the scores are identical
+        final double score = similarity.apply(candidate.attribute, attribute);
+        // an equal score goes to the attribute first in order, as with a scan in order
+        if (score > bestScore
+            || (best != null && score == bestScore && candidate.rank < best.rank)) {
+          bestScore = score;
+          best = candidate;
+        }
+      }
+    }
+
+    return best == null ? Optional.empty() : Optional.of(best.attribute);
+  }
+
+  /** @return the indexes of the length buckets, the lengths closest to this one first */
+  private Integer[] getLengthOrder(final int length) {
+    final Integer[] order = new Integer[lengths.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingInt(i -> Math.abs(lengths[i] - length)));
+
+    return order;
+  }
+
+  /** The score of two strings of these lengths if all their characters matched */
+  private static double getMaxScore(final int length1, final int length2, final int prefix) {
+    return getMaxScore(length1, length2, Math.min(length1, length2), prefix);
+  }
+
+  /**
+   * The Jaro score is highest when every common character is matched and nothing is transposed,
+   * then the Winkler boost is highest with the whole common prefix.
+   */
+  private static double getMaxScore(
+      final int length1, final int length2, final int common, final int prefix) {
+    if (common == 0) {
+      return length1 == 0 && length2 == 0 ? 1 : 0;
+    }
+
+    final double jaro = ((double) common / length1 + (double) common / length2 + 1) / 3;
+
+    return jaro < BOOST_THRESHOLD ? jaro : jaro + PREFIX_SCALE * prefix * (1 - jaro);
+  }
+
+  /** @return the number of characters, with repeats, found in both sorted arrays */
+  private static int countCommon(final char[] chars1, final char[] chars2) {
+    int common = 0;
+    int i = 0;
+    int j = 0;
+    while (i < chars1.length && j < chars2.length) {
+      if (chars1[i] == chars2[j]) {
+        common++;
+        i++;
+        j++;
+      } else if (chars1[i] < chars2[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+
+    return common;
+  }
+
+  private static int commonPrefix(final String s1, final String s2) {
+    final int max = Math.min(MAX_PREFIX, Math.min(s1.length(), s2.length()));
+    int prefix = 0;
+    while (prefix < max && s1.charAt(prefix) == s2.charAt(prefix)) {
+      prefix++;
+    }
+
+    return prefix;
+  }
+
+  private static char[] sortedChars(final String s) {
+    final char[] chars = s.toCharArray();
+    Arrays.sort(chars);
+
+    return chars;
+  }
+
+  private static class Candidate {
+    private final String attribute;
+    private final char[] chars;
+    // position in the attributes, for breaking ties
+    private final int rank;
+
+    private Candidate(final String attribute, final int rank) {
+      this.attribute = attribute;
+      chars = sortedChars(attribute);
+      this.rank = rank;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.mongo.model;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The relationships pointing at a sample, keyed by the accession of their target. This is kept in
+ * step with the relationships stored on the source samples so that inverse relationships can be
+ * read by id instead of searching the relationships of every sample.
+ */
+@Document
+public class MongoInverseRelationship {
+  @Id private final String accession;
+
+  private final SortedSet<MongoRelationship> relationships;
+
+  private MongoInverseRelationship(
+      final String accession, final SortedSet<MongoRelationship> relationships) {
+    this.accession = accession;
+    this.relationships = relationships;
+  }
+
+  public String getAccession() {
+    return accession;
+  }
+
+  public SortedSet<MongoRelationship> getRelationships() {
+    return relationships;
+  }
+
+  public static MongoInverseRelationship build(
+      final String accession, final SortedSet<MongoRelationship> relationships) {
+    return new MongoInverseRelationship(
+        accession, relationships == null ? new TreeSet<>() : relationships);
+  }
+}
@@ -156,7 +156,7 @@ public class CurationReadService {
         .build();
   }
 
-  public Sample applyAllCurationToSample(Sample sample) {
+  public Sample applyAllCurationToSample(final Sample sample) {
     // Try to apply curations in the order of creation date.
     // Because of the index in creation date mongo returns in that order
     final Set<CurationLink> curationLinks = new LinkedHashSet<>();
@@ -174,6 +174,50 @@ public class CurationReadService {
       pageNo += 1;
     } while (pageNo < page.getTotalPages());
 
+    return applyCurationLinksToSample(sample, curationLinks);
+  }
+
+  /**
+   * Bulk variant of {@link #applyAllCurationToSample(Sample)}. The curation links of all the given
+   * samples are fetched with a single query and applied in memory, in order of creation date.
+   *
+   * @return the curated samples, in the same order as the given collection
+   */
+  public List<Sample> applyAllCurationsToSamples(final Collection<Sample> samples) {
+    final Set<String> accessions = new HashSet<>();
+
+    for (final Sample sample : samples) {
+      if (sample.getAccession() != null) {
+        accessions.add(sample.getAccession());
+      }
+    }
+
+    final Map<String, Set<CurationLink>> curationLinksBySample = new HashMap<>();
+
+    if (!accessions.isEmpty()) {
+      for (final MongoCurationLink mongoCurationLink :
+          mongoCurationLinkRepository.findBySampleIn(
+              accessions, Sort.by(Sort.Direction.ASC, "created"))) {
+        curationLinksBySample
+            .computeIfAbsent(mongoCurationLink.getSample(), k -> new LinkedHashSet<>())
+            .add(mongoCurationLinkToCurationLinkConverter.apply(mongoCurationLink));
+      }
+    }
+
+    final List<Sample> curatedSamples = new ArrayList<>(samples.size());
+
+    for (final Sample sample : samples) {
+      curatedSamples.add(
+          applyCurationLinksToSample(
+              sample,
+              curationLinksBySample.getOrDefault(sample.getAccession(), Collections.emptySet())));
+    }
+
+    return curatedSamples;
+  }
+
+  private Sample applyCurationLinksToSample(
+      Sample sample, final Collection<CurationLink> curationLinks) {
     for (final CurationLink curation : curationLinks) {
       try {
         sample = applyCurationLinkToSample(sample, curation);
@@ -14,11 +14,17 @@ import static org.springframework.data.mongodb.core.FindAndModifyOptions.options
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
+import com.mongodb.bulk.BulkWriteError;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Update;
 import uk.ac.ebi.biosamples.BioSamplesConstants;
@@ -36,16 +42,21 @@ public class MongoAccessionService {
   private final SampleToMongoSampleConverter sampleToMongoSampleConverter;
   private final MongoSampleToSampleConverter mongoSampleToSampleConverter;
   private final MongoOperations mongoOperations;
+  private final SequenceBlock accessionSequence;
+  private final SequenceBlock sraAccessionSequence;
 
   public MongoAccessionService(
       final MongoSampleRepository mongoSampleRepository,
       final SampleToMongoSampleConverter sampleToMongoSampleConverter,
       final MongoSampleToSampleConverter mongoSampleToSampleConverter,
-      final MongoOperations mongoOperations) {
+      final MongoOperations mongoOperations,
+      final int accessionBlockSize) {
     this.mongoSampleRepository = mongoSampleRepository;
     this.sampleToMongoSampleConverter = sampleToMongoSampleConverter;
     this.mongoSampleToSampleConverter = mongoSampleToSampleConverter;
     this.mongoOperations = mongoOperations;
+    accessionSequence = new SequenceBlock(MongoSample.SEQUENCE_NAME, accessionBlockSize);
+    sraAccessionSequence = new SequenceBlock(MongoSample.SRA_SEQUENCE_NAME, accessionBlockSize);
   }
 
   public Sample generateAccession(final Sample sample, final boolean generateSAMEAndSRAAccession) {
@@ -56,6 +67,56 @@ public class MongoAccessionService {
     return mongoSampleToSampleConverter.apply(mongoSample);
   }
 
+  /**
+   * Accessions all the given samples and stores them with a single bulk insert. Samples that
+   * cannot be inserted, e.g. because their accession is already taken, are retried one at a time
+   * with new accessions.
+   *
+   * @return the accessioned samples, in the same order as the given samples
+   */
+  public List<Sample> generateAccessions(
+      final List<Sample> samples, final boolean generateSAMEAndSRAAccession) {
+    final List<MongoSample> mongoSamples = new ArrayList<>(samples.size());
+
+    for (final Sample sample : samples) {
+      mongoSamples.add(
+          prepare(
+              sampleToMongoSampleConverter.convert(sample),
+              generateUniqueAccessions(generateSAMEAndSRAAccession)));
+    }
+
+    if (!mongoSamples.isEmpty()) {
+      try {
+        mongoOperations
+            .bulkOps(BulkOperations.BulkMode.UNORDERED, MongoSample.class)
+            .insert(mongoSamples)
+            .execute();
+      } catch (final BulkOperationException e) {
+        log.warn("Failed to insert " + e.getErrors().size() + " accessioned samples, retrying");
+
+        for (final BulkWriteError error : e.getErrors()) {
+          final int index = error.getIndex();
+
+          // convert again since preparing a sample adds the SRA accession to its attributes
+          mongoSamples.set(
+              index,
+              accessionAndInsert(
+                  sampleToMongoSampleConverter.convert(samples.get(index)),
+                  generateSAMEAndSRAAccession));
+        }
+      }
+    }
+
+    log.info("Generated " + mongoSamples.size() + " BioSample accessions");
+
+    final List<Sample> accessionedSamples = new ArrayList<>(mongoSamples.size());
+    for (final MongoSample mongoSample : mongoSamples) {
+      accessionedSamples.add(mongoSampleToSampleConverter.apply(mongoSample));
+    }
+
+    return accessionedSamples;
+  }
+
   private MongoSample accessionAndInsert(
       MongoSample sample, final boolean generateSAMEAndSRAAccession) {
     log.trace("Generating a new accession");
@@ -146,52 +207,83 @@ public class MongoAccessionService {
   }
 
   private Accessions generateUniqueAccessions(final boolean generateSAMEAndSRAAccession) {
-    final MongoSequence accessionSeq =
-        mongoOperations.findAndModify(
-            query(where("_id").is(MongoSample.SEQUENCE_NAME)),
-            new Update().inc("seq", 1),
-            options().returnNew(true).upsert(true),
-            MongoSequence.class);
+    final String accession = BioSamplesConstants.ACCESSION_PREFIX + accessionSequence.next();
 
     if (generateSAMEAndSRAAccession) {
-      final MongoSequence sraAccessionSeq =
+      return new Accessions(
+          accession, BioSamplesConstants.SRA_ACCESSION_PREFIX + sraAccessionSequence.next());
+    } else {
+      return new Accessions(accession, null);
+    }
+  }
+
+  public String generateOneSRAAccession() {
+    return BioSamplesConstants.SRA_ACCESSION_PREFIX + sraAccessionSequence.next();
+  }
+
+  /**
+   * Hands out the numbers of a sequence from blocks that are reserved with a single increment of
+   * the sequence document, instead of incrementing the document for every accession. Handing out a
+   * number from the current block only needs an atomic increment, reserving the next block is done
+   * by one thread at a time.
+   *
+   * <p>Each block is reserved by one atomic update so a number is never handed out twice, also
+   * across instances. Numbers left in a block when the application stops are never used.
+   */
+  private class SequenceBlock {
+    private final String sequenceName;
+    private final int blockSize;
+    private volatile Block block = new Block(1, 0);
+
+    private SequenceBlock(final String sequenceName, final int blockSize) {
+      this.sequenceName = sequenceName;
+      this.blockSize = Math.max(blockSize, 1);
+    }
+
+    private long next() {
+      while (true) {
+        final Block current = block;
+        final long value = current.next.getAndIncrement();
+
+        if (value <= current.last) {
+          return value;
+        }
+
+        synchronized (this) {
+          // another thread may have reserved a new block while this one was waiting
+          if (block == current) {
+            block = reserve();
+          }
+        }
+      }
+    }
+
+    private Block reserve() {
+      final MongoSequence sequence =
           mongoOperations.findAndModify(
-              query(where("_id").is(MongoSample.SRA_SEQUENCE_NAME)),
-              new Update().inc("seq", 1),
+              query(where("_id").is(sequenceName)),
+              new Update().inc("seq", blockSize),
               options().returnNew(true).upsert(true),
               MongoSequence.class);
 
-      if (!Objects.isNull(accessionSeq) && !Objects.isNull(sraAccessionSeq)) {
-        return new Accessions(
-            BioSamplesConstants.ACCESSION_PREFIX + accessionSeq.getSeq(),
-            BioSamplesConstants.SRA_ACCESSION_PREFIX + sraAccessionSeq.getSeq());
-      } else {
-        throw new RuntimeException(
-            "Cannot generate a new BioSample and SRA accession. please contact the BioSamples Helpdesk at biosamples@ebi.ac.uk");
-      }
-    } else {
-      if (!Objects.isNull(accessionSeq)) {
-        return new Accessions(BioSamplesConstants.ACCESSION_PREFIX + accessionSeq.getSeq(), null);
-      } else {
+      if (Objects.isNull(sequence)) {
         throw new RuntimeException(
-            "Cannot generate a new BioSample accession. please contact the BioSamples Helpdesk at biosamples@ebi.ac.uk");
+            "Cannot generate a new accession. please contact the BioSamples Helpdesk at biosamples@ebi.ac.uk");
       }
+
+      log.info("Reserved " + sequenceName + " numbers up to " + sequence.getSeq());
+
+      return new Block(sequence.getSeq() - blockSize + 1, sequence.getSeq());
     }
   }
 
-  public String generateOneSRAAccession() {
-    final MongoSequence sraAccessionSeq =
-        mongoOperations.findAndModify(
-            query(where("_id").is(MongoSample.SRA_SEQUENCE_NAME)),
-            new Update().inc("seq", 1),
-            options().returnNew(true).upsert(true),
-            MongoSequence.class);
-
-    if (!Objects.isNull(sraAccessionSeq)) {
-      return BioSamplesConstants.SRA_ACCESSION_PREFIX + sraAccessionSeq.getSeq();
-    } else {
-      throw new RuntimeException(
-          "Cannot generate a new SRA accession number. please contact the BioSamples Helpdesk at biosamples@ebi.ac.uk");
+  private static class Block {
+    private final AtomicLong next;
+    private final long last;
+
+    private Block(final long first, final long last) {
+      next = new AtomicLong(first);
+      this.last = last;
     }
   }
 
@@ -10,22 +10,43 @@
 */
 package uk.ac.ebi.biosamples.mongo.service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.mongo.model.MongoInverseRelationship;
 import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.repository.MongoInverseRelationshipRepository;
 
+/**
+ * Finds the relationships that point at a sample. These are either read from the precomputed
+ * {@link MongoInverseRelationship} collection, or when that is not enabled yet, searched for in the
+ * relationships of all samples.
+ *
+ * <p>The precomputed collection is always kept up to date when samples are saved, so that it is
+ * complete once it has been built for the existing samples. Only relationships whose source is the
+ * sample they are stored on are indexed, as for all relationships created through the API.
+ */
 @Service
 public class MongoInverseRelationshipService {
 
   private final MongoTemplate mongoTemplate;
+  private final MongoInverseRelationshipRepository mongoInverseRelationshipRepository;
+  private final BioSamplesProperties bioSamplesProperties;
 
-  public MongoInverseRelationshipService(final MongoTemplate mongoTemplate) {
+  public MongoInverseRelationshipService(
+      final MongoTemplate mongoTemplate,
+      final MongoInverseRelationshipRepository mongoInverseRelationshipRepository,
+      final BioSamplesProperties bioSamplesProperties) {
     this.mongoTemplate = mongoTemplate;
+    this.mongoInverseRelationshipRepository = mongoInverseRelationshipRepository;
+    this.bioSamplesProperties = bioSamplesProperties;
   }
 
   public MongoSample addInverseRelationships(final MongoSample mongoSample) {
@@ -34,31 +55,185 @@ public class MongoInverseRelationshipService {
       return mongoSample;
     }
 
-    final Query query =
-        new BasicQuery("{'relationships.target':'" + accession + "'}", "{'relationships.$':1}");
-    for (final MongoSample other : mongoTemplate.find(query, MongoSample.class)) {
-      for (final MongoRelationship relationship : other.getRelationships()) {
-        if (relationship.getTarget().equals(accession)) {
-          mongoSample.getRelationships().add(relationship);
-        }
+    mongoSample.getRelationships().addAll(findInverseRelationships(accession));
+
+    return mongoSample;
+  }
+
+  /**
+   * Bulk variant of {@link #addInverseRelationships(MongoSample)}. The incoming relationships of
+   * all the given samples are found with a single query and added to the samples in place.
+   */
+  public void addInverseRelationships(final Collection<MongoSample> mongoSamples) {
+    final Map<String, MongoSample> mongoSamplesByAccession = new HashMap<>();
+    for (final MongoSample mongoSample : mongoSamples) {
+      if (mongoSample.getAccession() != null) {
+        mongoSamplesByAccession.put(mongoSample.getAccession(), mongoSample);
       }
     }
 
-    return mongoSample;
+    if (mongoSamplesByAccession.isEmpty()) {
+      return;
+    }
+
+    for (final MongoRelationship relationship :
+        findInverseRelationships(mongoSamplesByAccession.keySet())) {
+      final MongoSample target = mongoSamplesByAccession.get(relationship.getTarget());
+      if (target != null) {
+        target.getRelationships().add(relationship);
+      }
+    }
   }
 
   public List<String> getInverseRelationshipsTargets(final String accession) {
     final List<String> relTargetAccessionList = new ArrayList<>();
-    final Query query =
-        new BasicQuery("{'relationships.target':'" + accession + "'}", "{'relationships.$':1}");
+    for (final MongoRelationship relationship : findInverseRelationships(accession)) {
+      relTargetAccessionList.add(relationship.getSource());
+    }
+
+    return relTargetAccessionList;
+  }
+
+  /**
+   * Updates the precomputed inverse relationships after a sample has been saved. Relationships of
+   * the previous version that are no longer present are removed from their targets, and all the
+   * current relationships are added to their targets.
+   *
+   * @param accession the accession of the saved sample
+   * @param oldRelationships the relationships of the previous version, or empty for a new sample
+   * @param newRelationships the relationships of the saved version
+   */
+  public void updateInverseRelationships(
+      final String accession,
+      final Collection<MongoRelationship> oldRelationships,
+      final Collection<MongoRelationship> newRelationships) {
+    if (accession == null) {
+      return;
+    }
+
+    final Set<MongoRelationship> currentRelationships =
+        getOutgoingRelationships(accession, newRelationships);
+    final List<MongoRelationship> removedRelationships = new ArrayList<>();
+
+    for (final MongoRelationship relationship :
+        getOutgoingRelationships(accession, oldRelationships)) {
+      if (!currentRelationships.contains(relationship)) {
+        removedRelationships.add(relationship);
+      }
+    }
+
+    if (currentRelationships.isEmpty() && removedRelationships.isEmpty()) {
+      return;
+    }
+
+    final BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoInverseRelationship.class);
+
+    for (final MongoRelationship relationship : removedRelationships) {
+      bulkOperations.updateOne(
+          byId(relationship.getTarget()),
+          new Update().pull("relationships", new Document("hash", relationship.getHash())));
+    }
+
+    addToBulkOperations(bulkOperations, groupByTarget(currentRelationships));
+
+    bulkOperations.execute();
+  }
+
+  /**
+   * Adds the relationships of the given samples to the precomputed inverse relationships, with one
+   * upsert per target. Used to build the collection from the existing samples, adding a
+   * relationship that is already present has no effect.
+   */
+  public void indexInverseRelationships(final Collection<MongoSample> mongoSamples) {
+    final Set<MongoRelationship> relationships = new HashSet<>();
+    for (final MongoSample mongoSample : mongoSamples) {
+      relationships.addAll(
+          getOutgoingRelationships(mongoSample.getAccession(), mongoSample.getRelationships()));
+    }
+
+    if (relationships.isEmpty()) {
+      return;
+    }
+
+    final BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoInverseRelationship.class);
+
+    addToBulkOperations(bulkOperations, groupByTarget(relationships));
+
+    bulkOperations.execute();
+  }
+
+  private List<MongoRelationship> findInverseRelationships(final String accession) {
+    return findInverseRelationships(Collections.singleton(accession));
+  }
+
+  private List<MongoRelationship> findInverseRelationships(final Collection<String> accessions) {
+    final List<MongoRelationship> inverseRelationships = new ArrayList<>();
+
+    if (bioSamplesProperties.isMongoInverseRelationshipsPrecomputed()) {
+      for (final MongoInverseRelationship inverseRelationship :
+          mongoInverseRelationshipRepository.findAllById(accessions)) {
+        inverseRelationships.addAll(inverseRelationship.getRelationships());
+      }
+
+      return inverseRelationships;
+    }
+
+    // project the whole relationships array, the positional operator would only return the first
+    // matching relationship of each source sample
+    final Query query = new Query(Criteria.where("relationships.target").in(accessions));
+    query.fields().include("relationships");
     for (final MongoSample other : mongoTemplate.find(query, MongoSample.class)) {
       for (final MongoRelationship relationship : other.getRelationships()) {
-        if (relationship.getTarget().equals(accession)) {
-          relTargetAccessionList.add(relationship.getSource());
+        if (accessions.contains(relationship.getTarget())) {
+          inverseRelationships.add(relationship);
         }
       }
     }
 
-    return relTargetAccessionList;
+    return inverseRelationships;
+  }
+
+  private static Set<MongoRelationship> getOutgoingRelationships(
+      final String accession, final Collection<MongoRelationship> relationships) {
+    final Set<MongoRelationship> outgoingRelationships = new HashSet<>();
+
+    if (relationships != null) {
+      for (final MongoRelationship relationship : relationships) {
+        if (accession.equals(relationship.getSource())) {
+          outgoingRelationships.add(relationship);
+        }
+      }
+    }
+
+    return outgoingRelationships;
+  }
+
+  private static Map<String, List<MongoRelationship>> groupByTarget(
+      final Collection<MongoRelationship> relationships) {
+    final Map<String, List<MongoRelationship>> relationshipsByTarget = new HashMap<>();
+    for (final MongoRelationship relationship : relationships) {
+      relationshipsByTarget
+          .computeIfAbsent(relationship.getTarget(), target -> new ArrayList<>())
+          .add(relationship);
+    }
+
+    return relationshipsByTarget;
+  }
+
+  private static void addToBulkOperations(
+      final BulkOperations bulkOperations,
+      final Map<String, List<MongoRelationship>> relationshipsByTarget) {
+    for (final Map.Entry<String, List<MongoRelationship>> entry :
+        relationshipsByTarget.entrySet()) {
+      bulkOperations.upsert(
+          byId(entry.getKey()),
+          new Update().addToSet("relationships").each(entry.getValue().toArray()));
+    }
+  }
+
+  private static Query byId(final String accession) {
+    return new Query(Criteria.where("_id").is(accession));
   }
 }
@@ -10,8 +10,16 @@
 */
 package uk.ac.ebi.biosamples.mongo.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +55,8 @@ public class SampleReadService {
   private final MongoStructuredDataToStructuredDataConverter
       mongoStructuredDataToStructuredDataConverter;
   private final ExecutorService executorService;
+  // assembled samples keyed by accession and curated/uncurated view, null when disabled
+  private final Cache<String, Sample> sampleCache;
 
   public SampleReadService(
       final MongoSampleRepository mongoSampleRepository,
@@ -56,7 +66,8 @@ public class SampleReadService {
       final MongoStructuredDataRepository mongoStructuredDataRepository,
       final MongoStructuredDataToStructuredDataConverter
           mongoStructuredDataToStructuredDataConverter,
-      final BioSamplesProperties bioSamplesProperties) {
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
     this.mongoSampleRepository = mongoSampleRepository;
     this.mongoSampleToSampleConverter = mongoSampleToSampleConverter;
     this.curationReadService = curationReadService;
@@ -71,9 +82,60 @@ public class SampleReadService {
             false,
             bioSamplesProperties.getBiosamplesCorePageThreadCount(),
             bioSamplesProperties.getBiosamplesCorePageThreadCountMax());
+
+    if (bioSamplesProperties.getBiosamplesCoreSampleCacheMaxEntries() > 0) {
+      sampleCache =
+          Caffeine.newBuilder()
+              .maximumSize(bioSamplesProperties.getBiosamplesCoreSampleCacheMaxEntries())
+              .expireAfterWrite(
+                  Duration.ofSeconds(bioSamplesProperties.getBiosamplesCoreSampleCacheMaxAge()))
+              .recordStats()
+              .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, sampleCache, "samples");
+    } else {
+      sampleCache = null;
+    }
   }
 
+  /**
+   * Fetches a single sample, going through the in-memory sample cache when it is enabled. A copy of
+   * the cached sample is returned so callers are free to modify it.
+   */
   public Optional<Sample> fetch(final String accession, final boolean applyCurations) {
+    // SRA accessions are only an alias of the sample, they can't be evicted by accession
+    if (sampleCache == null || startsWithSraPrefix(accession)) {
+      return fetchFromMongo(accession, applyCurations);
+    }
+
+    // loading through the cache blocks a concurrent evict until the load is done, so a sample
+    // read before an update is never left in the cache after the update is evicted
+    final Sample sample =
+        sampleCache.get(
+            getCacheKey(accession, applyCurations),
+            key -> fetchFromMongo(accession, applyCurations).orElse(null));
+
+    return sample == null
+        ? Optional.empty()
+        : Optional.of(Sample.Builder.fromSample(sample).build());
+  }
+
+  /**
+   * Removes both the curated and the uncurated view of a sample from the sample cache. Must be
+   * called after anything that is part of the assembled sample is written, i.e. the sample itself,
+   * its curation links, its structured data, or a relationship pointing to it.
+   */
+  public void evict(final String accession) {
+    if (sampleCache != null && accession != null) {
+      sampleCache.invalidate(getCacheKey(accession, true));
+      sampleCache.invalidate(getCacheKey(accession, false));
+    }
+  }
+
+  private static String getCacheKey(final String accession, final boolean applyCurations) {
+    return accession + (applyCurations ? ":curated" : ":uncurated");
+  }
+
+  private Optional<Sample> fetchFromMongo(final String accession, final boolean applyCurations) {
     final MongoSample mongoSample = getMongoSample(accession);
 
     if (mongoSample == null) {
@@ -107,6 +169,104 @@ public class SampleReadService {
     return Optional.of(sample.get());
   }
 
+  /**
+   * Fetches a page of samples at once. The samples, their inverse relationships, their curations
+   * and their structured data are each loaded with a single query rather than one query per sample.
+   *
+   * @return the samples that could be found, in the same order as the given accessions
+   */
+  public List<Sample> fetchAll(final List<String> accessions, final boolean applyCurations) {
+    final Map<String, MongoSample> mongoSamples = new HashMap<>();
+    final List<String> idAccessions = new ArrayList<>();
+
+    for (final String accession : accessions) {
+      if (startsWithSraPrefix(accession)) {
+        final MongoSample mongoSample = getMongoSample(accession);
+
+        if (mongoSample != null) {
+          mongoSamples.put(accession, mongoSample);
+        }
+      } else {
+        idAccessions.add(accession);
+      }
+    }
+
+    if (!idAccessions.isEmpty()) {
+      for (final MongoSample mongoSample : mongoSampleRepository.findAllById(idAccessions)) {
+        mongoSamples.put(mongoSample.getAccession(), mongoSample);
+      }
+    }
+
+    final List<MongoSample> foundMongoSamples = new ArrayList<>(accessions.size());
+
+    for (final String accession : accessions) {
+      final MongoSample mongoSample = mongoSamples.get(accession);
+
+      if (mongoSample == null) {
+        LOGGER.warn(String.format("Failed to retrieve sample with accession %s", accession));
+      } else {
+        foundMongoSamples.add(mongoSample);
+      }
+    }
+
+    return assembleAll(foundMongoSamples, applyCurations);
+  }
+
+  /**
+   * Builds samples from mongo samples that have already been loaded, e.g. by streaming the sample
+   * collection. Inverse relationships, curations and structured data of all the samples are each
+   * loaded with a single query. The given mongo samples are modified by adding their inverse
+   * relationships.
+   *
+   * @return the samples, in the same order as the given mongo samples
+   */
+  public List<Sample> assembleAll(
+      final List<MongoSample> mongoSamples, final boolean applyCurations) {
+    mongoInverseRelationshipService.addInverseRelationships(mongoSamples);
+
+    List<Sample> samples = new ArrayList<>(mongoSamples.size());
+
+    for (final MongoSample mongoSample : mongoSamples) {
+      samples.add(mongoSampleToSampleConverter.apply(mongoSample));
+    }
+
+    if (applyCurations) {
+      samples = curationReadService.applyAllCurationsToSamples(samples);
+    }
+
+    final List<String> sampleAccessions = new ArrayList<>(samples.size());
+
+    for (final Sample sample : samples) {
+      sampleAccessions.add(sample.getAccession());
+    }
+
+    final Map<String, MongoStructuredData> mongoStructuredData = new HashMap<>();
+
+    if (!sampleAccessions.isEmpty()) {
+      for (final MongoStructuredData data :
+          mongoStructuredDataRepository.findAllById(sampleAccessions)) {
+        mongoStructuredData.put(data.getAccession(), data);
+      }
+    }
+
+    final List<Sample> result = new ArrayList<>(samples.size());
+
+    for (final Sample sample : samples) {
+      final MongoStructuredData data = mongoStructuredData.get(sample.getAccession());
+
+      if (data == null) {
+        result.add(sample);
+      } else {
+        final StructuredData structuredData =
+            mongoStructuredDataToStructuredDataConverter.convert(data);
+        result.add(
+            Sample.Builder.fromSample(sample).withStructuredData(structuredData.getData()).build());
+      }
+    }
+
+    return result;
+  }
+
   private MongoSample getMongoSample(final String accession) {
     if (startsWithSraPrefix(accession)) {
       final List<MongoSample> samples = /*mongoSampleRepository.findBySraAccession(accession);*/
@@ -10,78 +10,153 @@
 */
 package uk.ac.ebi.biosamples.security.service;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.interfaces.DecodedJWT;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.security.model.AuthToken;
 import uk.ac.ebi.biosamples.security.model.AuthorizationProvider;
 
+/**
+ * Extracts the authentication details of a JWT. A client sends the same token with each of its
+ * requests until it expires, so the parsed tokens are kept until their expiry, keyed by the digest
+ * of the token rather than the token itself.
+ */
 @Service
 public class AccessControlService {
-  private final ObjectMapper objectMapper;
+  private static final String BEARER_PREFIX = "Bearer ";
 
-  public AccessControlService(final ObjectMapper objectMapper) {
+  private final ObjectMapper objectMapper;
+  // null when disabled
+  private final Cache<String, ParsedToken> tokenCache;
+  private final Timer parseTimer;
+
+  public AccessControlService(
+      final ObjectMapper objectMapper,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
     this.objectMapper = objectMapper;
-  }
 
-  public Optional<AuthToken> extractToken(String token) {
-    try {
-      if (token == null || token.isEmpty()) {
-        return Optional.empty();
-      }
+    if (bioSamplesProperties.getSecurityTokenCacheMaxEntries() > 0) {
+      tokenCache =
+          Caffeine.newBuilder()
+              .maximumSize(bioSamplesProperties.getSecurityTokenCacheMaxEntries())
+              .expireAfter(new TokenExpiry())
+              .recordStats()
+              .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, tokenCache, "tokens");
+    } else {
+      tokenCache = null;
+    }
+
+    parseTimer = Timer.builder("biosamples.security.token.parse").register(meterRegistry);
+  }
 
-      token = token.startsWith("Bearer ") ? token.split("Bearer ")[1] : token;
+  public Optional<AuthToken> extractToken(final String token) {
+    if (token == null || token.isEmpty()) {
+      return Optional.empty();
+    }
 
-      final String[] chunks = token.split("\\.");
-      final Base64.Decoder decoder = Base64.getDecoder();
-      final String header = new String(decoder.decode(chunks[0]));
-      final String payload = new String(decoder.decode(chunks[1]));
+    try {
+      final String jwt =
+          token.startsWith(BEARER_PREFIX) ? token.substring(BEARER_PREFIX.length()) : token;
 
       if (!verifySignature()) {
         throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
       }
 
-      final AuthToken authToken;
-
-      try {
-        final String algorithm = objectMapper.readTree(header).get("alg").asText();
-        final AuthorizationProvider authority;
-        final String user;
-        final List<String> roles;
-        final JsonNode node = objectMapper.readTree(payload);
-
-        verifyValidity(token);
+      final ParsedToken parsedToken =
+          tokenCache == null ? parse(jwt) : tokenCache.get(getDigest(jwt), digest -> parse(jwt));
 
-        authority = AuthorizationProvider.WEBIN;
-        user = node.get("principle").asText();
-        roles = objectMapper.convertValue(node.get("role"), new TypeReference<>() {});
-
-        authToken = new AuthToken(algorithm, authority, user, roles);
-      } catch (final IOException e) {
-        throw new ResponseStatusException(
-            HttpStatus.UNAUTHORIZED, "Invalid authentication details provided", e);
+      if (parsedToken.expiresAt < System.currentTimeMillis()) {
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
       }
 
-      return Optional.of(authToken);
+      return Optional.of(parsedToken.authToken);
     } catch (final Exception e) {
       throw new ResponseStatusException(
           HttpStatus.UNAUTHORIZED, "Invalid authentication details provided", e);
     }
   }
 
-  private void verifyValidity(final String token) {
-    final DecodedJWT jwt = JWT.decode(token);
+  /** Decodes the header and the payload once, reading the expiry along with the user details */
+  private ParsedToken parse(final String jwt) {
+    return parseTimer.record(
+        () -> {
+          final int headerEnd = jwt.indexOf('.');
+          final int payloadEnd = headerEnd < 0 ? -1 : jwt.indexOf('.', headerEnd + 1);
+
+          if (payloadEnd < 0 || jwt.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+          }
+
+          final Base64.Decoder decoder = Base64.getDecoder();
+          final JsonNode header;
+          final JsonNode payload;
+
+          try {
+            header = objectMapper.readTree(decoder.decode(jwt.substring(0, headerEnd)));
+            payload =
+                objectMapper.readTree(decoder.decode(jwt.substring(headerEnd + 1, payloadEnd)));
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+
+          final JsonNode algorithm = header.get("alg");
+          final JsonNode user = payload.get("principle");
+          final JsonNode expiresAt = payload.get("exp");
+
+          if (algorithm == null
+              || user == null
+              || expiresAt == null
+              || !expiresAt.canConvertToLong()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+          }
+
+          final AuthToken authToken =
+              new AuthToken(
+                  algorithm.asText(),
+                  AuthorizationProvider.WEBIN,
+                  user.asText(),
+                  getRoles(payload.get("role")));
+
+          return new ParsedToken(authToken, TimeUnit.SECONDS.toMillis(expiresAt.asLong()));
+        });
+  }
 
-    if (jwt.getExpiresAt().before(new Date())) {
-      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+  private List<String> getRoles(final JsonNode roles) {
+    if (roles == null || !roles.isArray()) {
+      return objectMapper.convertValue(roles, new TypeReference<>() {});
     }
+
+    final List<String> roleNames = new ArrayList<>(roles.size());
+    for (final JsonNode role : roles) {
+      roleNames.add(role.isNull() ? null : role.asText());
+    }
+
+    return roleNames;
+  }
+
+  private static String getDigest(final String jwt) throws NoSuchAlgorithmException {
+    return Base64.getEncoder()
+        .encodeToString(
+            MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8)));
   }
 
   private boolean verifySignature() {
@@ -91,4 +166,42 @@ public class AccessControlService {
   public String getUser(final AuthToken token) {
     return token.getUser();
   }
+
+  private static class ParsedToken {
+    private final AuthToken authToken;
+    private final long expiresAt;
+
+    private ParsedToken(final AuthToken authToken, final long expiresAt) {
+      this.authToken = authToken;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /** Keeps a token until it expires */
+  private static class TokenExpiry implements Expiry<String, ParsedToken> {
+    @Override
+    public long expireAfterCreate(
+        final String digest, final ParsedToken parsedToken, final long currentTime) {
+      return TimeUnit.MILLISECONDS.toNanos(
+          Math.max(0, parsedToken.expiresAt - System.currentTimeMillis()));
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        final String digest,
+        final ParsedToken parsedToken,
+        final long currentTime,
+        final long currentDuration) {
+      return expireAfterCreate(digest, parsedToken, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        final String digest,
+        final ParsedToken parsedToken,
+        final long currentTime,
+        final long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
@@ -21,6 +21,7 @@ import uk.ac.ebi.biosamples.mongo.model.MongoStructuredData;
 import uk.ac.ebi.biosamples.mongo.repository.MongoSampleRepository;
 import uk.ac.ebi.biosamples.mongo.repository.MongoStructuredDataRepository;
 import uk.ac.ebi.biosamples.mongo.service.MongoStructuredDataToStructuredDataConverter;
+import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
 import uk.ac.ebi.biosamples.mongo.service.StructuredDataToMongoStructuredDataConverter;
 
 @Service
@@ -34,6 +35,7 @@ public class StructuredDataService {
   private final StructuredDataToMongoStructuredDataConverter
       structuredDataToMongoStructuredDataConverter;
   private final MessagingService messagingService;
+  private final SampleReadService sampleReadService;
 
   public StructuredDataService(
       final MongoSampleRepository mongoSampleRepository,
@@ -42,7 +44,8 @@ public class StructuredDataService {
           mongoStructuredDataToStructuredDataConverter,
       final StructuredDataToMongoStructuredDataConverter
           structuredDataToMongoStructuredDataConverter,
-      final MessagingService messagingService) {
+      final MessagingService messagingService,
+      final SampleReadService sampleReadService) {
     this.mongoSampleRepository = mongoSampleRepository;
     this.mongoStructuredDataRepository = mongoStructuredDataRepository;
     this.mongoStructuredDataToStructuredDataConverter =
@@ -50,6 +53,7 @@ public class StructuredDataService {
     this.structuredDataToMongoStructuredDataConverter =
         structuredDataToMongoStructuredDataConverter;
     this.messagingService = messagingService;
+    this.sampleReadService = sampleReadService;
   }
 
   public Optional<StructuredData> getStructuredData(final String accession) {
@@ -84,6 +88,7 @@ public class StructuredDataService {
     MongoStructuredData mongoStructuredData =
         structuredDataToMongoStructuredDataConverter.convert(structuredData);
     mongoStructuredData = mongoStructuredDataRepository.save(mongoStructuredData);
+    sampleReadService.evict(structuredData.getAccession());
 
     messagingService.fetchThenSendMessage(structuredData.getAccession());
     return mongoStructuredDataToStructuredDataConverter.convert(mongoStructuredData);
@@ -14,41 +14,38 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.net.URI;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.exception.GlobalExceptions;
 
 @Service
 @Qualifier("elixirValidator")
 public class ElixirSchemaValidator implements ValidatorI {
-  private final Logger log = LoggerFactory.getLogger(getClass());
-
   private final RestTemplate restTemplate;
   private final BioSamplesProperties bioSamplesProperties;
   private final ObjectMapper objectMapper;
+  private final SchemaRegistry schemaRegistry;
 
   public ElixirSchemaValidator(
       final RestTemplate restTemplate,
       final BioSamplesProperties bioSamplesProperties,
-      final ObjectMapper objectMapper) {
+      final ObjectMapper objectMapper,
+      final SchemaRegistry schemaRegistry) {
     this.restTemplate = restTemplate;
     this.bioSamplesProperties = bioSamplesProperties;
     this.objectMapper = objectMapper;
+    this.schemaRegistry = schemaRegistry;
   }
 
   @Override
   public void validate(final String schemaId, final String sample) throws IOException {
     final JsonNode sampleJson = objectMapper.readTree(sample);
-    final JsonSchema schema = getSchema(schemaId);
+    final JsonSchema schema =
+        objectMapper.treeToValue(schemaRegistry.getSchemaById(schemaId), JsonSchema.class);
 
     final ValidationRequest validationRequest =
         new ValidationRequest(schema.getSchema(), sampleJson);
@@ -70,8 +67,13 @@ public class ElixirSchemaValidator implements ValidatorI {
   @Override
   public String validateById(final String schemaAccession, final String sample)
       throws IOException, GlobalExceptions.SchemaValidationException {
-    final JsonNode sampleJson = objectMapper.readTree(sample);
-    final JsonNode schema = getSchemaByAccession(schemaAccession);
+    return validateById(schemaAccession, objectMapper.readTree(sample));
+  }
+
+  @Override
+  public String validateById(final String schemaAccession, final JsonNode sampleJson)
+      throws IOException, GlobalExceptions.SchemaValidationException {
+    final JsonNode schema = schemaRegistry.getSchemaByAccession(schemaAccession);
 
     final ValidationRequest validationRequest = new ValidationRequest(schema, sampleJson);
     final URI validatorUri = URI.create(bioSamplesProperties.getSchemaValidator());
@@ -89,52 +91,4 @@ public class ElixirSchemaValidator implements ValidatorI {
 
     return schemaAccession;
   }
-
-  private JsonSchema getSchema(final String schemaId) {
-    final URI schemaStoreUri =
-        UriComponentsBuilder.fromUriString(
-                bioSamplesProperties.getSchemaStore() + "/api/v2/schemas?id={schemaId}")
-            .build()
-            .expand(schemaId)
-            .encode()
-            .toUri();
-
-    final RequestEntity<Void> requestEntity =
-        RequestEntity.get(schemaStoreUri).accept(MediaType.APPLICATION_JSON).build();
-    final ResponseEntity<JsonSchema> schemaResponse =
-        restTemplate.exchange(requestEntity, JsonSchema.class);
-    if (schemaResponse.getStatusCode() != HttpStatus.OK) {
-      log.error(
-          "Failed to retrieve schema from JSON Schema Store: {} {}", schemaId, schemaResponse);
-      throw new GlobalExceptions.SampleValidationException(
-          "Failed to retrieve schema from JSON Schema Store");
-    }
-
-    return schemaResponse.getBody();
-  }
-
-  private JsonNode getSchemaByAccession(final String schemaAccession) {
-    final URI schemaStoreUri =
-        UriComponentsBuilder.fromUriString(
-                bioSamplesProperties.getSchemaStore() + "/registry/schemas/{accession}")
-            .build()
-            .expand(schemaAccession)
-            .encode()
-            .toUri();
-
-    final RequestEntity<Void> requestEntity =
-        RequestEntity.get(schemaStoreUri).accept(MediaType.APPLICATION_JSON).build();
-    final ResponseEntity<JsonNode> schemaResponse =
-        restTemplate.exchange(requestEntity, JsonNode.class);
-    if (schemaResponse.getStatusCode() != HttpStatus.OK) {
-      log.error(
-          "Failed to retrieve schema from JSON Schema Store: {} {}",
-          schemaAccession,
-          schemaResponse);
-      throw new GlobalExceptions.SampleValidationException(
-          "Failed to retrieve schema from JSON Schema Store: " + schemaAccession);
-    }
-
-    return schemaResponse.getBody();
-  }
 }
@@ -0,0 +1,110 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.ValidationException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.core.model.SubmissionReceipt;
+import uk.ac.ebi.biosamples.exception.GlobalExceptions;
+
+/**
+ * Validates samples in the webapp against the schemas of the {@link SchemaRegistry}, instead of
+ * posting each sample and its schema to the schema validator. The errors are reported in the same
+ * shape as the schema validator, a list of data paths with their error messages. Only the standard
+ * JSON schema keywords are checked, the custom keywords of the schema validator, such as ontology
+ * term checks, are ignored.
+ */
+@Service
+@Qualifier("localValidator")
+public class LocalSchemaValidator implements ValidatorI {
+  private final SchemaRegistry schemaRegistry;
+  private final ObjectMapper objectMapper;
+
+  public LocalSchemaValidator(
+      final SchemaRegistry schemaRegistry, final ObjectMapper objectMapper) {
+    this.schemaRegistry = schemaRegistry;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void validate(final String schemaId, final String sample) throws IOException {
+    validate(schemaRegistry.getCompiledSchemaById(schemaId), sample);
+  }
+
+  @Override
+  public String validateById(final String schemaAccession, final String sample)
+      throws IOException, GlobalExceptions.SchemaValidationException {
+    validate(schemaRegistry.getCompiledSchemaByAccession(schemaAccession), sample);
+
+    return schemaAccession;
+  }
+
+  @Override
+  public String validateById(final String schemaAccession, final JsonNode sample)
+      throws IOException, GlobalExceptions.SchemaValidationException {
+    validate(
+        schemaRegistry.getCompiledSchemaByAccession(schemaAccession),
+        new JSONObject(objectMapper.convertValue(sample, Map.class)));
+
+    return schemaAccession;
+  }
+
+  private void validate(final Schema schema, final String sample) throws IOException {
+    validate(schema, new JSONObject(sample));
+  }
+
+  private void validate(final Schema schema, final JSONObject sample) throws IOException {
+    try {
+      schema.validate(sample);
+    } catch (final ValidationException e) {
+      throw new GlobalExceptions.SampleValidationException(
+          objectMapper.writeValueAsString(getValidationErrors(e)));
+    }
+  }
+
+  /** Groups the violations by the path of the data, as the schema validator does */
+  private static List<SubmissionReceipt.ValidationError> getValidationErrors(
+      final ValidationException validationException) {
+    final Map<String, List<String>> errors = new LinkedHashMap<>();
+    addErrors(validationException, errors);
+
+    final List<SubmissionReceipt.ValidationError> validationErrors = new ArrayList<>();
+    errors.forEach(
+        (dataPath, messages) ->
+            validationErrors.add(new SubmissionReceipt.ValidationError(dataPath, messages)));
+
+    return validationErrors;
+  }
+
+  private static void addErrors(
+      final ValidationException validationException, final Map<String, List<String>> errors) {
+    if (validationException.getCausingExceptions().isEmpty()) {
+      final String dataPath = validationException.getPointerToViolation().replaceFirst("^#", "");
+      errors
+          .computeIfAbsent(dataPath, path -> new ArrayList<>())
+          .add(validationException.getErrorMessage());
+    } else {
+      for (final ValidationException cause : validationException.getCausingExceptions()) {
+        addErrors(cause, errors);
+      }
+    }
+  }
+}
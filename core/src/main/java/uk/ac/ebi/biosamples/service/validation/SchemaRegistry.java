@@ -0,0 +1,176 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.exception.GlobalExceptions;
+
+/**
+ * Keeps the schemas fetched from the JSON schema store, so that validating a sample does not fetch
+ * its schema every time. A schema is used for the configured ttl, then revalidated with its ETag,
+ * which costs a single not modified response while it is unchanged. If the schema store cannot be
+ * reached, the schema held is used until it can. Each version of a schema is compiled at most
+ * once, for the validators running in the webapp.
+ */
+@Service
+public class SchemaRegistry {
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final RestTemplate restTemplate;
+  private final BioSamplesProperties bioSamplesProperties;
+  private final long ttl;
+  private final Map<URI, Entry> entries = new ConcurrentHashMap<>();
+
+  public SchemaRegistry(
+      final RestTemplate restTemplate, final BioSamplesProperties bioSamplesProperties) {
+    this.restTemplate = restTemplate;
+    this.bioSamplesProperties = bioSamplesProperties;
+    ttl = TimeUnit.SECONDS.toNanos(bioSamplesProperties.getBiosamplesSchemaRegistryTtl());
+  }
+
+  /** @return the schema registered under this accession, such as BSDC00001 */
+  public JsonNode getSchemaByAccession(final String schemaAccession) {
+    return getEntry(getUri("/registry/schemas/{accession}", schemaAccession)).schema;
+  }
+
+  /** @return the schema with this id, wrapped with its name and version as in {@link JsonSchema} */
+  public JsonNode getSchemaById(final String schemaId) {
+    return getEntry(getUri("/api/v2/schemas?id={schemaId}", schemaId)).schema;
+  }
+
+  /** @return the schema registered under this accession, compiled */
+  public Schema getCompiledSchemaByAccession(final String schemaAccession) {
+    return getEntry(getUri("/registry/schemas/{accession}", schemaAccession)).getCompiled(null);
+  }
+
+  /** @return the schema with this id, unwrapped and compiled */
+  public Schema getCompiledSchemaById(final String schemaId) {
+    return getEntry(getUri("/api/v2/schemas?id={schemaId}", schemaId)).getCompiled("schema");
+  }
+
+  /** @return the listing of all the schemas in the schema store */
+  public JsonNode getSchemaList() {
+    return getEntry(getUri("/api/v2/schemas/list")).schema;
+  }
+
+  private Entry getEntry(final URI uri) {
+    final Entry entry = entries.get(uri);
+    final long now = System.nanoTime();
+
+    if (entry != null && now - entry.checkedAt < ttl) {
+      return entry;
+    }
+
+    final Entry fetched = fetch(uri, entry, now);
+    entries.put(uri, fetched);
+
+    return fetched;
+  }
+
+  private Entry fetch(final URI uri, final Entry entry, final long now) {
+    final RequestEntity.HeadersBuilder<?> request =
+        RequestEntity.get(uri).accept(MediaType.APPLICATION_JSON);
+    if (entry != null && entry.etag != null) {
+      request.ifNoneMatch(entry.etag);
+    }
+
+    final ResponseEntity<JsonNode> response;
+    try {
+      response = restTemplate.exchange(request.build(), JsonNode.class);
+    } catch (final RestClientException e) {
+      if (entry != null) {
+        log.warn("JSON Schema Store inaccessible, using the schema held for {}", uri, e);
+        return entry.checked(now);
+      }
+
+      log.error("Failed to retrieve schema from JSON Schema Store: {}", uri, e);
+      throw new GlobalExceptions.SampleValidationException(
+          "Failed to retrieve schema from JSON Schema Store: " + uri);
+    }
+
+    if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && entry != null) {
+      return entry.checked(now);
+    }
+
+    if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+      log.error("Failed to retrieve schema from JSON Schema Store: {} {}", uri, response);
+      throw new GlobalExceptions.SampleValidationException(
+          "Failed to retrieve schema from JSON Schema Store: " + uri);
+    }
+
+    if (entry != null && response.getBody().equals(entry.schema)) {
+      return entry.checked(now);
+    }
+
+    log.info("Fetched schema {} from JSON Schema Store", uri);
+
+    return new Entry(response.getBody(), response.getHeaders().getETag(), now);
+  }
+
+  private URI getUri(final String path, final Object... values) {
+    return UriComponentsBuilder.fromUriString(bioSamplesProperties.getSchemaStore() + path)
+        .build()
+        .expand(values)
+        .encode()
+        .toUri();
+  }
+
+  private static class Entry {
+    private final JsonNode schema;
+    private final String etag;
+    private final long checkedAt;
+    private volatile Schema compiled;
+
+    private Entry(final JsonNode schema, final String etag, final long checkedAt) {
+      this.schema = schema;
+      this.etag = etag;
+      this.checkedAt = checkedAt;
+    }
+
+    /** The same schema, checked again, keeps its compiled form */
+    private Entry checked(final long checkedAt) {
+      final Entry entry = new Entry(schema, etag, checkedAt);
+      entry.compiled = compiled;
+
+      return entry;
+    }
+
+    /** @param field the field the schema is wrapped in, null if it is not wrapped */
+    private Schema getCompiled(final String field) {
+      Schema schema = compiled;
+      if (schema == null) {
+        final JsonNode node = field == null ? this.schema : this.schema.get(field);
+        schema = SchemaLoader.load(new JSONObject(node.toString()));
+        compiled = schema;
+      }
+
+      return schema;
+    }
+  }
+}
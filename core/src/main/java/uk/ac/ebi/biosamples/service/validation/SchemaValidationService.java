@@ -10,7 +10,11 @@
 */
 package uk.ac.ebi.biosamples.service.validation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,10 +39,39 @@ public class SchemaValidationService {
   public SchemaValidationService(
       final ObjectMapper mapper,
       final BioSamplesProperties bioSamplesProperties,
-      @Qualifier("elixirValidator") final ValidatorI validator) {
+      @Qualifier("elixirValidator") final ValidatorI elixirValidator,
+      @Qualifier("localValidator") final ValidatorI localValidator) {
     objectMapper = mapper;
     this.bioSamplesProperties = bioSamplesProperties;
-    this.validator = validator;
+    validator = isLocal(bioSamplesProperties) ? localValidator : elixirValidator;
+  }
+
+  private static boolean isLocal(final BioSamplesProperties bioSamplesProperties) {
+    return "local".equalsIgnoreCase(bioSamplesProperties.getBiosamplesSchemaValidationMode());
+  }
+
+  /**
+   * Validates a batch of samples, each one against its own schema, which is fetched once for the
+   * whole batch. The samples are validated in parallel when validated in the webapp.
+   *
+   * @return the validation error of each sample, in the order of the samples, null if it is valid
+   */
+  public List<String> validateAll(final List<Sample> samples, final String webinId) {
+    final Stream<Sample> stream =
+        isLocal(bioSamplesProperties) ? samples.parallelStream() : samples.stream();
+
+    return stream
+        .map(
+            sample -> {
+              try {
+                validate(sample, webinId);
+                return null;
+              } catch (final GlobalExceptions.SchemaValidationException
+                  | ResponseStatusException e) {
+                return e.getMessage() != null ? e.getMessage() : "Unknown validation error";
+              }
+            })
+        .collect(Collectors.toList());
   }
 
   public Sample validate(final Sample sample, final String webinId) {
@@ -59,9 +92,7 @@ public class SchemaValidationService {
     }
 
     try {
-      final String sampleString = objectMapper.writeValueAsString(sample);
-
-      validator.validateById(schemaId, sampleString);
+      validator.validateById(schemaId, objectMapper.<JsonNode>valueToTree(sample));
 
       /*if (sampleAttributes.stream()
           .noneMatch(attribute -> attribute.getType().equalsIgnoreCase("checklist"))) {
@@ -10,6 +10,7 @@
 */
 package uk.ac.ebi.biosamples.service.validation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
 import uk.ac.ebi.biosamples.exception.GlobalExceptions;
 
@@ -18,4 +19,10 @@ public interface ValidatorI {
 
   String validateById(String schemaId, String document)
       throws IOException, GlobalExceptions.SchemaValidationException;
+
+  /** Validates a document already read into a tree, without writing it to a string and back */
+  default String validateById(final String schemaId, final JsonNode document)
+      throws IOException, GlobalExceptions.SchemaValidationException {
+    return validateById(schemaId, document.toString());
+  }
 }
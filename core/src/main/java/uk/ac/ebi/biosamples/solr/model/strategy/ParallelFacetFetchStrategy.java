@@ -0,0 +1,183 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr.model.strategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.solr.core.query.FacetQuery;
+import org.springframework.data.solr.core.query.SimpleFacetQuery;
+import uk.ac.ebi.biosamples.core.model.facet.Facet;
+import uk.ac.ebi.biosamples.solr.model.field.SolrSampleField;
+import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
+
+/**
+ * Splits the facet fields into small groups and fetches each group with its own solr request, all
+ * running at the same time on the given executor. The range facets are fetched with the first
+ * group.
+ *
+ * <p>Groups that do not finish within the latency budget, fail or cannot be queued are left out,
+ * and an empty optional is returned for each of their fields so callers can tell the result is
+ * partial.
+ */
+public class ParallelFacetFetchStrategy implements FacetFetchStrategy {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelFacetFetchStrategy.class);
+
+  private final FacetFetchStrategy delegate = new RegularFacetFetchStrategy();
+  private final ExecutorService executorService;
+  private final int fieldsPerRequest;
+  private final long latencyBudgetMillis;
+
+  public ParallelFacetFetchStrategy(
+      final ExecutorService executorService,
+      final int fieldsPerRequest,
+      final long latencyBudgetMillis) {
+    if (fieldsPerRequest < 1) {
+      throw new IllegalArgumentException("Must fetch at least one field per request");
+    }
+
+    this.executorService = executorService;
+    this.fieldsPerRequest = fieldsPerRequest;
+    this.latencyBudgetMillis = latencyBudgetMillis;
+  }
+
+  @Override
+  public List<Optional<Facet>> fetchFacetsUsing(
+      final SolrSampleRepository solrSampleRepository,
+      final FacetQuery query,
+      final List<Entry<SolrSampleField, Long>> facetFieldCountEntries,
+      final Pageable facetPageable) {
+    return fetchInParallel(
+        facetFieldCountEntries,
+        Collections.emptyList(),
+        (fields, rangeFields) ->
+            delegate.fetchFacetsUsing(solrSampleRepository, copyOf(query), fields, facetPageable));
+  }
+
+  @Override
+  public List<Optional<Facet>> fetchFacetsUsing(
+      final SolrSampleRepository solrSampleRepository,
+      final FacetQuery query,
+      final List<Entry<SolrSampleField, Long>> facetFieldCountEntries,
+      final List<Entry<SolrSampleField, Long>> rangeFieldCountEntries,
+      final Pageable facetPageable) {
+    return fetchInParallel(
+        facetFieldCountEntries,
+        rangeFieldCountEntries,
+        (fields, rangeFields) ->
+            delegate.fetchFacetsUsing(
+                solrSampleRepository, copyOf(query), fields, rangeFields, facetPageable));
+  }
+
+  private List<Optional<Facet>> fetchInParallel(
+      final List<Entry<SolrSampleField, Long>> facetFieldCountEntries,
+      final List<Entry<SolrSampleField, Long>> rangeFieldCountEntries,
+      final BiFunction<
+              List<Entry<SolrSampleField, Long>>,
+              List<Entry<SolrSampleField, Long>>,
+              List<Optional<Facet>>>
+          fetcher) {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latencyBudgetMillis);
+    final List<List<Entry<SolrSampleField, Long>>> partitions = new ArrayList<>();
+    final List<Future<List<Optional<Facet>>>> futures = new ArrayList<>();
+
+    for (int i = 0; i < facetFieldCountEntries.size(); i += fieldsPerRequest) {
+      final List<Entry<SolrSampleField, Long>> fields =
+          facetFieldCountEntries.subList(
+              i, Math.min(i + fieldsPerRequest, facetFieldCountEntries.size()));
+      final List<Entry<SolrSampleField, Long>> rangeFields =
+          i == 0 ? rangeFieldCountEntries : Collections.emptyList();
+
+      partitions.add(fields);
+      try {
+        futures.add(executorService.submit(() -> fetcher.apply(fields, rangeFields)));
+      } catch (final RejectedExecutionException e) {
+        futures.add(null);
+      }
+    }
+
+    final List<Optional<Facet>> facetResults = new ArrayList<>();
+    boolean interrupted = false;
+
+    for (int i = 0; i < partitions.size(); i++) {
+      final List<Entry<SolrSampleField, Long>> fields = partitions.get(i);
+      final Future<List<Optional<Facet>>> future = futures.get(i);
+
+      if (future == null) {
+        omit(facetResults, fields, "the facet executor is full");
+        continue;
+      }
+
+      if (interrupted) {
+        future.cancel(true);
+        omit(facetResults, fields, "the request was interrupted");
+        continue;
+      }
+
+      try {
+        facetResults.addAll(
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+      } catch (final TimeoutException e) {
+        future.cancel(true);
+        omit(facetResults, fields, "they were not fetched within " + latencyBudgetMillis + "ms");
+      } catch (final ExecutionException e) {
+        LOGGER.warn("Failed to fetch facets for " + getLabels(fields), e.getCause());
+        omit(facetResults, fields, "fetching them failed");
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        interrupted = true;
+        future.cancel(true);
+        omit(facetResults, fields, "the request was interrupted");
+      }
+    }
+
+    return facetResults;
+  }
+
+  private static void omit(
+      final List<Optional<Facet>> facetResults,
+      final List<Entry<SolrSampleField, Long>> fields,
+      final String reason) {
+    LOGGER.warn("Leaving out facets " + getLabels(fields) + " because " + reason);
+    fields.forEach(field -> facetResults.add(Optional.empty()));
+  }
+
+  private static List<String> getLabels(final List<Entry<SolrSampleField, Long>> fields) {
+    return fields.stream()
+        .map(Entry::getKey)
+        .map(SolrSampleField::getReadableLabel)
+        .collect(Collectors.toList());
+  }
+
+  /** Each request sets its own facet options on the query, so every group needs its own copy */
+  private static FacetQuery copyOf(final FacetQuery query) {
+    final FacetQuery copy = new SimpleFacetQuery(query.getCriteria());
+    query.getFilterQueries().forEach(copy::addFilterQuery);
+    if (query.getTimeAllowed() != null) {
+      copy.setTimeAllowed(query.getTimeAllowed());
+    }
+
+    return copy;
+  }
+}
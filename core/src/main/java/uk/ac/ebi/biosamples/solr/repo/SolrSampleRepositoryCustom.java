@@ -10,7 +10,10 @@
 */
 package uk.ac.ebi.biosamples.solr.repo;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import org.apache.solr.common.SolrDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.solr.core.query.FacetQuery;
@@ -88,5 +91,35 @@ public interface SolrSampleRepositoryCustom {
 
   SolrSample saveWithoutCommit(SolrSample entity);
 
+  /**
+   * Adds all the given samples to the index with a single update request. They become visible once
+   * solr commits, at the latest after the given commitWithin duration.
+   *
+   * @param entities
+   * @param commitWithin
+   */
+  void saveAllWithoutCommit(Collection<SolrSample> entities, Duration commitWithin);
+
+  /**
+   * Removes all the given accessions from the index with a single update request. Accessions that
+   * are not in the index are ignored by solr, so there is no need to check they exist first.
+   *
+   * @param ids
+   * @param commitWithin
+   */
+  void deleteAllByIdWithoutCommit(Collection<String> ids, Duration commitWithin);
+
   CursorArrayList<SolrSample> findByQueryCursorMark(Query query, String cursorMark, int size);
+
+  /**
+   * Same as findByQueryCursorMark, but returns the documents as solr sends them. Useful when only a
+   * few fields are projected, as the stored types are kept (e.g. dates stay dates).
+   *
+   * @param query
+   * @param cursorMark
+   * @param size
+   * @return
+   */
+  CursorArrayList<SolrDocument> findDocumentsByQueryCursorMark(
+      Query query, String cursorMark, int size);
 }
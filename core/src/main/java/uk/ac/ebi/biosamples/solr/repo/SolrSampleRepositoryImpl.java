@@ -10,13 +10,17 @@
 */
 package uk.ac.ebi.biosamples.solr.repo;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
@@ -160,7 +164,23 @@ public class SolrSampleRepositoryImpl implements SolrSampleRepositoryCustom {
   @Override
   public CursorArrayList<SolrSample> findByQueryCursorMark(
       final Query query, final String cursorMark, final int size) {
+    final QueryResponse response = queryCursorMark(query, cursorMark, size);
+    final List<SolrSample> solrSampleList =
+        solrTemplate.convertQueryResponseToBeans(response, SolrSample.class);
+
+    return new CursorArrayList<>(solrSampleList, response.getNextCursorMark());
+  }
+
+  @Override
+  public CursorArrayList<SolrDocument> findDocumentsByQueryCursorMark(
+      final Query query, final String cursorMark, final int size) {
+    final QueryResponse response = queryCursorMark(query, cursorMark, size);
+
+    return new CursorArrayList<>(response.getResults(), response.getNextCursorMark());
+  }
 
+  private QueryResponse queryCursorMark(
+      final Query query, final String cursorMark, final int size) {
     // TODO this is a different set of query parsers than the solrOperation has itself
     final SolrQuery solrQuery =
         queryParsers.getForClass(query.getClass()).constructSolrQuery(query, SolrSample.class);
@@ -168,13 +188,7 @@ public class SolrSampleRepositoryImpl implements SolrSampleRepositoryCustom {
     solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
     solrQuery.set(CommonParams.ROWS, size);
 
-    final QueryResponse response =
-        solrTemplate.execute(solrClient -> solrClient.query("samples", solrQuery));
-    response.getNextCursorMark();
-    final List<SolrSample> solrSampleList =
-        solrTemplate.convertQueryResponseToBeans(response, SolrSample.class);
-
-    return new CursorArrayList<>(solrSampleList, response.getNextCursorMark());
+    return solrTemplate.execute(solrClient -> solrClient.query("samples", solrQuery));
   }
 
   @Override
@@ -188,4 +202,26 @@ public class SolrSampleRepositoryImpl implements SolrSampleRepositoryCustom {
     solrTemplate.saveBean("samples", entity);
     return entity;
   }
+
+  @Override
+  public void saveAllWithoutCommit(
+      final Collection<SolrSample> entities, final Duration commitWithin) {
+    Assert.notNull(entities, "Cannot save 'null' entities.");
+
+    if (!entities.isEmpty()) {
+      solrTemplate.saveBeans("samples", entities, commitWithin);
+    }
+  }
+
+  @Override
+  public void deleteAllByIdWithoutCommit(
+      final Collection<String> ids, final Duration commitWithin) {
+    Assert.notNull(ids, "Cannot delete 'null' ids.");
+
+    if (!ids.isEmpty()) {
+      solrTemplate.execute(
+          solrClient ->
+              solrClient.deleteById("samples", new ArrayList<>(ids), (int) commitWithin.toMillis()));
+    }
+  }
 }
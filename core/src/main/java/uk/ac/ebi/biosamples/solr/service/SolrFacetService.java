@@ -10,11 +10,22 @@
 */
 package uk.ac.ebi.biosamples.solr.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.solr.core.query.Criteria;
@@ -23,26 +34,106 @@ import org.springframework.data.solr.core.query.FilterQuery;
 import org.springframework.data.solr.core.query.SimpleFacetQuery;
 import org.springframework.data.solr.core.query.result.FacetFieldEntry;
 import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.core.model.facet.Facet;
 import uk.ac.ebi.biosamples.core.model.facet.FacetHelper;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.solr.model.field.SolrSampleField;
+import uk.ac.ebi.biosamples.solr.model.strategy.FacetFetchStrategy;
+import uk.ac.ebi.biosamples.solr.model.strategy.ParallelFacetFetchStrategy;
 import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
 
+/**
+ * Computes facets with two solr queries, one to find the facet fields and one for their values.
+ * Results are cached by search term, filters and paging. Facets only ever count public samples, so
+ * the entries are shared by all users.
+ *
+ * <p>Entries expire after a fixed time, and are all dropped once the solr agent has changed the
+ * index since the last check.
+ *
+ * <p>Unless disabled, the facet values are fetched with several smaller solr requests in parallel.
+ * Facets that do not arrive within the latency budget are left out, and such partial results are
+ * not cached.
+ */
 @Service
 public class SolrFacetService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrFacetService.class);
   private static final int TIME_ALLOWED = 55;
   private final SolrSampleRepository solrSampleRepository;
   private final SolrFieldService solrFieldService;
   private final SolrFilterService solrFilterService;
+  private final SolrIndexGenerationService solrIndexGenerationService;
+  private final Cache<List<Object>, List<Facet>> facetCache;
+  private final ThreadPoolExecutor facetExecutor;
+  private final FacetFetchStrategy parallelFacetFetchStrategy;
+  private final long generationCheckInterval;
+  private volatile long generation = -1;
+  private volatile long generationCheckedAt;
 
   public SolrFacetService(
       final SolrSampleRepository solrSampleRepository,
       final SolrFieldService solrFieldService,
-      final SolrFilterService solrFilterService) {
+      final SolrFilterService solrFilterService,
+      final SolrIndexGenerationService solrIndexGenerationService,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
     this.solrSampleRepository = solrSampleRepository;
     this.solrFieldService = solrFieldService;
     this.solrFilterService = solrFilterService;
+    this.solrIndexGenerationService = solrIndexGenerationService;
+
+    if (bioSamplesProperties.getBiosamplesCoreFacetCacheMaxEntries() > 0) {
+      facetCache =
+          Caffeine.newBuilder()
+              .maximumSize(bioSamplesProperties.getBiosamplesCoreFacetCacheMaxEntries())
+              .expireAfterWrite(
+                  bioSamplesProperties.getBiosamplesCoreFacetCacheTtl(), TimeUnit.SECONDS)
+              .recordStats()
+              .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, facetCache, "facets");
+    } else {
+      facetCache = null;
+    }
+
+    generationCheckInterval =
+        TimeUnit.SECONDS.toNanos(
+            bioSamplesProperties.getBiosamplesCoreFacetCacheGenerationInterval());
+    generationCheckedAt = System.nanoTime() - generationCheckInterval;
+
+    final int threadCount = bioSamplesProperties.getBiosamplesCoreFacetParallelThreadCount();
+    if (threadCount > 0) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      // no caller runs policy, a full queue leaves facets out rather than blocking the request
+      facetExecutor =
+          new ThreadPoolExecutor(
+              threadCount,
+              threadCount,
+              0L,
+              TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(threadCount * 16),
+              runnable -> {
+                final Thread thread =
+                    new Thread(runnable, "facet-fetch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.AbortPolicy());
+      parallelFacetFetchStrategy =
+          new ParallelFacetFetchStrategy(
+              facetExecutor,
+              bioSamplesProperties.getBiosamplesCoreFacetParallelFieldsPerRequest(),
+              bioSamplesProperties.getBiosamplesCoreFacetParallelBudget());
+    } else {
+      facetExecutor = null;
+      parallelFacetFetchStrategy = null;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (facetExecutor != null) {
+      facetExecutor.shutdownNow();
+    }
   }
 
   public List<Facet> getFacets(
@@ -52,6 +143,59 @@ public class SolrFacetService {
       final Pageable facetValuesPageInfo,
       final String facetField,
       final List<String> facetFields) {
+    final String normalisedSearchTerm = searchTerm == null ? null : searchTerm.trim();
+
+    if (facetCache == null) {
+      return fetchFacets(
+              normalisedSearchTerm,
+              filters,
+              facetFieldPageInfo,
+              facetValuesPageInfo,
+              facetField,
+              facetFields)
+          .facets;
+    }
+
+    invalidateIfIndexChanged();
+
+    final List<Object> cacheKey =
+        getCacheKey(
+            normalisedSearchTerm,
+            filters,
+            facetFieldPageInfo,
+            facetValuesPageInfo,
+            facetField,
+            facetFields);
+    List<Facet> facets = facetCache.getIfPresent(cacheKey);
+
+    if (facets == null) {
+      final FetchedFacets fetchedFacets =
+          fetchFacets(
+              normalisedSearchTerm,
+              filters,
+              facetFieldPageInfo,
+              facetValuesPageInfo,
+              facetField,
+              facetFields);
+      facets = fetchedFacets.facets;
+
+      // partial results would hide the slow facets until the entry expires
+      if (fetchedFacets.complete) {
+        facetCache.put(cacheKey, facets);
+      }
+    }
+
+    // callers get their own list, the cached one is shared
+    return new ArrayList<>(facets);
+  }
+
+  private FetchedFacets fetchFacets(
+      final String searchTerm,
+      final Collection<Filter> filters,
+      final Pageable facetFieldPageInfo,
+      final Pageable facetValuesPageInfo,
+      final String facetField,
+      final List<String> facetFields) {
     boolean isLandingPage = false;
 
     final List<Facet> facets = new ArrayList<>();
@@ -102,21 +246,30 @@ public class SolrFacetService {
               .collect(Collectors.toList());
     }
 
+    boolean complete = true;
     if (!allFacetFields.isEmpty()) {
-      allFacetFields
-          .get(0)
-          .getKey()
-          .getFacetCollectionStrategy()
-          .fetchFacetsUsing(
-              solrSampleRepository, query, allFacetFields, rangeFacetFields, facetValuesPageInfo)
-          .forEach(opt -> opt.ifPresent(facets::add));
+      final FacetFetchStrategy facetFetchStrategy =
+          parallelFacetFetchStrategy != null
+              ? parallelFacetFetchStrategy
+              : allFacetFields.get(0).getKey().getFacetCollectionStrategy();
+      final List<Optional<Facet>> fetchedFacets =
+          facetFetchStrategy.fetchFacetsUsing(
+              solrSampleRepository, query, allFacetFields, rangeFacetFields, facetValuesPageInfo);
+
+      for (final Optional<Facet> facet : fetchedFacets) {
+        if (facet.isPresent()) {
+          facets.add(facet.get());
+        } else {
+          complete = false;
+        }
+      }
     }
 
     // Return the list of facets
     Collections.sort(facets);
     Collections.reverse(facets);
 
-    return facets;
+    return new FetchedFacets(facets, complete);
   }
 
   public List<Facet> getFacets(
@@ -128,6 +281,53 @@ public class SolrFacetService {
     return getFacets(searchTerm, filters, facetFieldPageInfo, facetValuesPageInfo, null, null);
   }
 
+  private static List<Object> getCacheKey(
+      final String searchTerm,
+      final Collection<Filter> filters,
+      final Pageable facetFieldPageInfo,
+      final Pageable facetValuesPageInfo,
+      final String facetField,
+      final List<String> facetFields) {
+    final String normalisedSearchTerm =
+        StringUtils.isBlank(searchTerm) || "*:*".equals(searchTerm) ? "*:*" : searchTerm;
+    final List<String> sortedFilters =
+        filters.stream().map(Filter::getSerialization).sorted().collect(Collectors.toList());
+
+    return Arrays.asList(
+        normalisedSearchTerm,
+        sortedFilters,
+        facetFieldPageInfo.getPageNumber(),
+        facetFieldPageInfo.getPageSize(),
+        facetValuesPageInfo.getPageNumber(),
+        facetValuesPageInfo.getPageSize(),
+        facetField,
+        facetFields == null ? null : new ArrayList<>(facetFields));
+  }
+
+  private void invalidateIfIndexChanged() {
+    if (generationCheckInterval <= 0) {
+      return;
+    }
+
+    final long now = System.nanoTime();
+    if (now - generationCheckedAt < generationCheckInterval) {
+      return;
+    }
+
+    generationCheckedAt = now;
+
+    try {
+      final long currentGeneration = solrIndexGenerationService.getGeneration();
+
+      if (currentGeneration != generation) {
+        generation = currentGeneration;
+        facetCache.invalidateAll();
+      }
+    } catch (final Exception e) {
+      LOGGER.warn("Failed to check the solr index generation", e);
+    }
+  }
+
   private List<Entry<SolrSampleField, Long>> getFacetFields(
       final Pageable facetFieldPageInfo,
       final FacetQuery query,
@@ -176,6 +376,16 @@ public class SolrFacetService {
     return allFacetFields;
   }
 
+  private static class FetchedFacets {
+    private final List<Facet> facets;
+    private final boolean complete;
+
+    private FetchedFacets(final List<Facet> facets, final boolean complete) {
+      this.facets = facets;
+      this.complete = complete;
+    }
+  }
+
   private List<Entry<SolrSampleField, Long>> getDynamicFacetFields(
       final Pageable facetFieldPageInfo, final FacetQuery query, final int facetLimit) {
     final List<Entry<SolrSampleField, Long>> allFacetFields = new ArrayList<>();
@@ -10,25 +10,76 @@
 */
 package uk.ac.ebi.biosamples.solr.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.io.BaseEncoding;
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
-import uk.ac.ebi.biosamples.solr.model.field.SolrSampleField;
+import uk.ac.ebi.biosamples.solr.model.field.*;
 
 /**
  * SolrFieldService is the service that should be able to deal with all field matters - Encode and
  * decode of a field is the main reason behind it
+ *
+ * <p>Field names are encoded for every attribute of every indexed sample and decoded for every
+ * facet, so both are cached. The number of distinct attribute types is small compared to the
+ * number of samples, the caches are bounded anyway since attribute types are free text.
  */
 @Service
 public class SolrFieldService {
+  private static final int FIELD_NAME_CACHE_SIZE = 100_000;
+
+  private static final Cache<String, String> encodedFieldNames =
+      Caffeine.newBuilder().maximumSize(FIELD_NAME_CACHE_SIZE).build();
+  private static final Cache<String, String> decodedFieldNames =
+      Caffeine.newBuilder().maximumSize(FIELD_NAME_CACHE_SIZE).build();
+
+  private static final Map<Class<? extends SolrSampleField>, Function<String, SolrSampleField>>
+      fieldFactories = new HashMap<>();
+  private static final Map<
+          Class<? extends SolrSampleField>, BiFunction<String, String, SolrSampleField>>
+      decodedFieldFactories = new HashMap<>();
+
+  static {
+    fieldFactories.put(SolrSampleAccessionField.class, SolrSampleAccessionField::new);
+    fieldFactories.put(SolrSampleAttributeValueField.class, SolrSampleAttributeValueField::new);
+    fieldFactories.put(SolrSampleAuthenticationField.class, SolrSampleAuthenticationField::new);
+    fieldFactories.put(SolrSampleDateField.class, SolrSampleDateField::new);
+    fieldFactories.put(
+        SolrSampleExternalReferenceDataField.class, SolrSampleExternalReferenceDataField::new);
+    fieldFactories.put(SolrSampleInverseRelationField.class, SolrSampleInverseRelationField::new);
+    fieldFactories.put(SolrSampleNameField.class, SolrSampleNameField::new);
+    fieldFactories.put(SolrSampleRelationField.class, SolrSampleRelationField::new);
+
+    decodedFieldFactories.put(SolrSampleAccessionField.class, SolrSampleAccessionField::new);
+    decodedFieldFactories.put(
+        SolrSampleAttributeValueField.class, SolrSampleAttributeValueField::new);
+    decodedFieldFactories.put(
+        SolrSampleAuthenticationField.class, SolrSampleAuthenticationField::new);
+    decodedFieldFactories.put(SolrSampleDateField.class, SolrSampleDateField::new);
+    decodedFieldFactories.put(
+        SolrSampleExternalReferenceDataField.class, SolrSampleExternalReferenceDataField::new);
+    decodedFieldFactories.put(
+        SolrSampleInverseRelationField.class, SolrSampleInverseRelationField::new);
+    decodedFieldFactories.put(SolrSampleNameField.class, SolrSampleNameField::new);
+    decodedFieldFactories.put(SolrSampleRelationField.class, SolrSampleRelationField::new);
+  }
 
   private final List<SolrSampleField> solrFieldList;
+  // the field type and readable label of each encoded field, a new field is built for every call
+  // since fields are mutable
+  private final Cache<String, DecodedField> decodedFields =
+      Caffeine.newBuilder().maximumSize(FIELD_NAME_CACHE_SIZE).build();
 
   @Autowired
   public SolrFieldService(final List<SolrSampleField> solrSampleFields) {
@@ -39,28 +90,28 @@ public class SolrFieldService {
     return solrFieldList;
   }
 
-  public static String encodeFieldName(String field) {
-    // solr only allows alphanumeric field types
-    try {
-      field = BaseEncoding.base32().encode(field.getBytes("UTF-8"));
-    } catch (final UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
-    // although its base32 encoded, that include = which solr doesn't allow
-    field = field.replaceAll("=", "_");
-
-    return field;
+  public static String encodeFieldName(final String field) {
+    return encodedFieldNames.get(
+        field,
+        key -> {
+          // solr only allows alphanumeric field types
+          final String encodedField =
+              BaseEncoding.base32().encode(key.getBytes(StandardCharsets.UTF_8));
+
+          // although its base32 encoded, that include = which solr doesn't allow
+          return encodedField.replace('=', '_');
+        });
   }
 
   public static String decodeFieldName(final String encodedField) {
-    // although its base32 encoded, that include = which solr doesn't allow
-    String decodedField = encodedField.replace("_", "=");
-    try {
-      decodedField = new String(BaseEncoding.base32().decode(decodedField), "UTF-8");
-    } catch (final UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
-    return decodedField;
+    return decodedFieldNames.get(
+        encodedField,
+        key -> {
+          // although its base32 encoded, that include = which solr doesn't allow
+          final String decodedField = key.replace('_', '=');
+
+          return new String(BaseEncoding.base32().decode(decodedField), StandardCharsets.UTF_8);
+        });
   }
 
   /**
@@ -70,7 +121,16 @@ public class SolrFieldService {
    * @return the field name decoded
    */
   public SolrSampleField decodeField(final String encodedField) {
+    final DecodedField decodedField = decodedFields.get(encodedField, this::findDecodedField);
+
+    if (decodedField == null) {
+      throw new RuntimeException("Provide field " + encodedField + " is unknown");
+    }
+
+    return newFieldInstance(decodedField.prototype, decodedField.baseLabel, encodedField);
+  }
 
+  private DecodedField findDecodedField(final String encodedField) {
     final Optional<SolrSampleField> optionalType =
         solrFieldList.stream().filter(solrField -> solrField.matches(encodedField)).findFirst();
     if (optionalType.isPresent()) {
@@ -82,22 +142,13 @@ public class SolrFieldService {
         if (fieldCandidate.isEncodedField()) {
           baseLabel = decodeFieldName(baseLabel);
         }
-        try {
-
-          return getNewFieldInstance(fieldCandidate.getClass(), baseLabel, encodedField);
 
-        } catch (final NoSuchMethodException
-            | IllegalAccessException
-            | InvocationTargetException
-            | InstantiationException e) {
-          throw new RuntimeException(
-              "An error occurred while instantiating creating a new instance of class "
-                  + fieldCandidate.getClass());
-        }
+        return new DecodedField(fieldCandidate.getClass(), baseLabel);
       }
     }
 
-    throw new RuntimeException("Provide field " + encodedField + " is unknown");
+    // not cached, unknown fields are errors
+    return null;
   }
 
   public SolrSampleField getCompatibleField(final Filter filter) {
@@ -108,18 +159,7 @@ public class SolrFieldService {
       final SolrSampleField fieldCandidate = optionalType.get();
       // TODO implement methods to extract suffix and generate also the encoded label
 
-      try {
-
-        return getNewFieldInstance(fieldCandidate.getClass(), filter.getLabel());
-
-      } catch (final NoSuchMethodException
-          | IllegalAccessException
-          | InvocationTargetException
-          | InstantiationException e) {
-        throw new RuntimeException(
-            "An error occurred while instantiating creating a new instance of class "
-                + fieldCandidate.getClass());
-      }
+      return newFieldInstance(fieldCandidate.getClass(), filter.getLabel());
     }
 
     throw new RuntimeException("Provide filter " + filter + " is unknown");
@@ -131,6 +171,13 @@ public class SolrFieldService {
       final String encodedLabel)
       throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
           InstantiationException {
+    final BiFunction<String, String, SolrSampleField> factory =
+        decodedFieldFactories.get(prototype);
+
+    if (factory != null) {
+      return factory.apply(baseLabel, encodedLabel);
+    }
+
     return prototype
         .getConstructor(String.class, String.class)
         .newInstance(baseLabel, encodedLabel);
@@ -140,6 +187,51 @@ public class SolrFieldService {
       final Class<? extends SolrSampleField> prototype, final String baseLabel)
       throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
           InstantiationException {
+    final Function<String, SolrSampleField> factory = fieldFactories.get(prototype);
+
+    if (factory != null) {
+      return factory.apply(baseLabel);
+    }
+
     return prototype.getConstructor(String.class).newInstance(baseLabel);
   }
+
+  private SolrSampleField newFieldInstance(
+      final Class<? extends SolrSampleField> prototype,
+      final String baseLabel,
+      final String encodedLabel) {
+    try {
+      return getNewFieldInstance(prototype, baseLabel, encodedLabel);
+    } catch (final NoSuchMethodException
+        | IllegalAccessException
+        | InvocationTargetException
+        | InstantiationException e) {
+      throw new RuntimeException(
+          "An error occurred while instantiating creating a new instance of class " + prototype);
+    }
+  }
+
+  private SolrSampleField newFieldInstance(
+      final Class<? extends SolrSampleField> prototype, final String baseLabel) {
+    try {
+      return getNewFieldInstance(prototype, baseLabel);
+    } catch (final NoSuchMethodException
+        | IllegalAccessException
+        | InvocationTargetException
+        | InstantiationException e) {
+      throw new RuntimeException(
+          "An error occurred while instantiating creating a new instance of class " + prototype);
+    }
+  }
+
+  private static class DecodedField {
+    private final Class<? extends SolrSampleField> prototype;
+    private final String baseLabel;
+
+    private DecodedField(
+        final Class<? extends SolrSampleField> prototype, final String baseLabel) {
+      this.prototype = prototype;
+      this.baseLabel = baseLabel;
+    }
+  }
 }
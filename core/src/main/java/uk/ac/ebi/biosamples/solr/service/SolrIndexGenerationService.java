@@ -0,0 +1,46 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.mongo.model.MongoSequence;
+
+/**
+ * Counts the changes sent to the solr index by the solr agent, so that results computed from solr,
+ * like facets, can be dropped once the index has changed. The counter is kept in mongo because the
+ * agent and the webapps only share the databases.
+ */
+@Service
+public class SolrIndexGenerationService {
+  private static final String GENERATION_NAME = "solr_index_generation";
+
+  private final MongoOperations mongoOperations;
+
+  public SolrIndexGenerationService(final MongoOperations mongoOperations) {
+    this.mongoOperations = mongoOperations;
+  }
+
+  public void increment() {
+    mongoOperations.upsert(
+        query(where("_id").is(GENERATION_NAME)), new Update().inc("seq", 1), MongoSequence.class);
+  }
+
+  public long getGeneration() {
+    final MongoSequence generation = mongoOperations.findById(GENERATION_NAME, MongoSequence.class);
+
+    return generation == null ? 0 : generation.getSeq();
+  }
+}
@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -92,6 +93,25 @@ public class SolrSampleService {
     return solrSampleRepository.findByQueryCursorMark(query, cursorMark, size);
   }
 
+  /**
+   * Fetch only the accession (id) and update date (update_dt) of the public samples, in accession
+   * order. Nothing else is read from solr, so this is cheap enough to walk the whole index.
+   *
+   * @param cursorMark cursor serialization
+   * @param size the number of documents to fetch
+   * @return a page of solr documents with the id and update_dt fields
+   */
+  public CursorArrayList<SolrDocument> fetchPublicSampleUpdates(
+      final String cursorMark, final int size) {
+    final Query query = new SimpleQuery("*:*");
+    query.addProjectionOnField(new SimpleField("id"));
+    query.addProjectionOnField(new SimpleField("update_dt"));
+    query.addSort(Sort.by("id")); // this must match the field in solr
+    solrFilterService.getPublicFilterQuery(null).ifPresent(query::addFilterQuery);
+
+    return solrSampleRepository.findDocumentsByQueryCursorMark(query, cursorMark, size);
+  }
+
   private Query buildQuery(
       final String searchTerm,
       final Collection<Filter> filters,
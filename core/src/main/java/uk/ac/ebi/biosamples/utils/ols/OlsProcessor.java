@@ -12,11 +12,12 @@ package uk.ac.ebi.biosamples.utils.ols;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.net.URI;
 import java.util.*;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -36,11 +37,24 @@ public class OlsProcessor {
   private final Logger log = LoggerFactory.getLogger(getClass());
   private final RestTemplate restTemplate;
   private final BioSamplesProperties bioSamplesProperties;
+  private final OntologyLookupCache ancestorsAndSynonymsCache;
+  private final OntologyLookupCache shortcodeCache;
 
   public OlsProcessor(
-      final RestTemplate restTemplate, final BioSamplesProperties bioSamplesProperties) {
+      final RestTemplate restTemplate,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
     this.restTemplate = restTemplate;
     this.bioSamplesProperties = bioSamplesProperties;
+    ancestorsAndSynonymsCache =
+        new OntologyLookupCache("ols_ancestors_synonyms", bioSamplesProperties, meterRegistry);
+    shortcodeCache = new OntologyLookupCache("ols_short", bioSamplesProperties, meterRegistry);
+  }
+
+  @PreDestroy
+  public void saveLookups() {
+    ancestorsAndSynonymsCache.save();
+    shortcodeCache.save();
   }
 
   /**
@@ -48,14 +62,12 @@ public class OlsProcessor {
    * @param iri must be unencoded
    * @return
    */
-  @Cacheable("ols_ancestors_synonyms")
-  public Collection<String> ancestorsAndSynonyms(String ontology, String iri) {
-    final Set<String> synonyms = new HashSet<>();
+  public Collection<String> ancestorsAndSynonyms(final String ontology, final String iri) {
     if (ontology == null || ontology.trim().length() == 0) {
-      return synonyms;
+      return Collections.emptyList();
     }
     if (iri == null || iri.trim().length() == 0) {
-      return synonyms;
+      return Collections.emptyList();
     }
 
     // check if the iri is a full iri with all the necessary parts
@@ -65,9 +77,17 @@ public class OlsProcessor {
         || iriComponents.getHost() == null
         || iriComponents.getPath() == null) {
       // incomplete iri (e.g. 9606, EFO_12345) don't bother to check
-      return synonyms;
+      return Collections.emptyList();
     }
 
+    return ancestorsAndSynonymsCache.get(
+        OntologyLookupCache.key(ontology, iri),
+        key -> new ArrayList<>(queryOlsForAncestorsAndSynonyms(ontology, iri)));
+  }
+
+  private Collection<String> queryOlsForAncestorsAndSynonyms(String ontology, String iri) {
+    final Set<String> synonyms = new HashSet<>();
+
     // TODO do more by hal links, needs OLS to support
     // build has to flag this iri as having already been encoded
     final UriComponents uriComponents =
@@ -129,8 +149,16 @@ public class OlsProcessor {
     return synonyms;
   }
 
-  // @Cacheable("ols_short")
   public Optional<String> queryOlsForShortcode(final String shortcode) {
+    return shortcodeCache
+        .get(
+            shortcode,
+            key -> queryOlsForShortcodeIri(shortcode).map(List::of).orElse(Collections.emptyList()))
+        .stream()
+        .findFirst();
+  }
+
+  private Optional<String> queryOlsForShortcodeIri(final String shortcode) {
     log.trace("OLS getting : " + shortcode);
 
     // TODO do more by hal links, needs OLS to support
@@ -0,0 +1,243 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils.ols;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+
+/**
+ * Bounded cache of the lookups made to an ontology service, such as the iri of an OLS short code or
+ * the term Zooma maps an attribute to. A lookup that finds nothing is cached too, for the shorter
+ * negative ttl. If a cache directory is configured, the lookups are saved there when the pipeline
+ * shuts down and read back when the next run starts, so that it does not query the same values
+ * again. The hit rate and the time spent in lookups are reported under the name of the cache.
+ */
+public class OntologyLookupCache {
+  private static final Logger LOG = LoggerFactory.getLogger(OntologyLookupCache.class);
+  private static final int FORMAT_VERSION = 1;
+  // writeUTF is limited to 64KB, which this many chars can't exceed
+  private static final int MAX_SAVED_LENGTH = 16 * 1024;
+
+  private final String name;
+  // null when the lookups are kept in memory only
+  private final Path file;
+  private final long ttl;
+  private final long negativeTtl;
+  private final Cache<String, Lookup> cache;
+  private final Timer lookupTimer;
+
+  public OntologyLookupCache(
+      final String name,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
+    this.name = name;
+    final String dir = bioSamplesProperties.getOntologyCacheDir();
+    file = dir == null || dir.trim().isEmpty() ? null : Paths.get(dir, name + ".cache");
+    ttl = TimeUnit.SECONDS.toMillis(bioSamplesProperties.getOntologyCacheTtl());
+    negativeTtl = TimeUnit.SECONDS.toMillis(bioSamplesProperties.getOntologyCacheNegativeTtl());
+    cache =
+        Caffeine.newBuilder()
+            .maximumSize(bioSamplesProperties.getOntologyCacheMaxEntries())
+            .expireAfter(new LookupExpiry())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    lookupTimer =
+        Timer.builder("biosamples.ontology.lookup").tag("cache", name).register(meterRegistry);
+
+    load();
+  }
+
+  /** @return a key for a lookup made of several values, such as the type and value of a term */
+  public static String key(final String... values) {
+    return String.join("\u0000", values);
+  }
+
+  /**
+   * @param lookup queries the ontology service on a miss, at most once at a time for a key, an
+   *     exception is not cached
+   * @return the values found, empty if the lookup found nothing
+   */
+  public List<String> get(final String key, final Function<String, List<String>> lookup) {
+    return cache.get(
+            key,
+            k -> {
+              final List<String> values = List.copyOf(lookupTimer.record(() -> lookup.apply(k)));
+
+              return new Lookup(
+                  values,
+                  System.currentTimeMillis() + (values.isEmpty() ? negativeTtl : ttl));
+            })
+        .values;
+  }
+
+  /**
+   * Logs the hit rate of this run and, if a cache directory is configured, replaces the saved
+   * lookups with the current ones.
+   */
+  public synchronized void save() {
+    LOG.info(
+        "Ontology lookup cache {}: {} entries, hit rate {}, mean lookup {} ms",
+        name,
+        cache.estimatedSize(),
+        String.format("%.3f", cache.stats().hitRate()),
+        String.format("%.1f", lookupTimer.mean(TimeUnit.MILLISECONDS)));
+
+    if (file == null) {
+      return;
+    }
+
+    final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    final long now = System.currentTimeMillis();
+    int count = 0;
+
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+
+      try (final DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tempFile))))) {
+        out.writeInt(FORMAT_VERSION);
+
+        for (final Map.Entry<String, Lookup> entry : cache.asMap().entrySet()) {
+          final Lookup lookup = entry.getValue();
+
+          if (lookup.expiresAt <= now || !isSavable(entry.getKey(), lookup)) {
+            continue;
+          }
+
+          out.writeBoolean(true);
+          out.writeUTF(entry.getKey());
+          out.writeLong(lookup.expiresAt);
+          out.writeInt(lookup.values.size());
+          for (final String value : lookup.values) {
+            out.writeUTF(value);
+          }
+          count++;
+        }
+
+        out.writeBoolean(false);
+      }
+
+      Files.move(
+          tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Saved {} lookups of {} to {}", count, name, file);
+    } catch (final IOException e) {
+      LOG.error("Failed to save the lookups of " + name + " to " + file, e);
+    }
+  }
+
+  private void load() {
+    if (file == null || !Files.exists(file)) {
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    int count = 0;
+
+    try (final DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        LOG.warn("Ignoring the lookups of {} saved in an older format at {}", name, file);
+        return;
+      }
+
+      while (in.readBoolean()) {
+        final String key = in.readUTF();
+        final long expiresAt = in.readLong();
+        final int size = in.readInt();
+        final List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          values.add(in.readUTF());
+        }
+
+        if (expiresAt > now) {
+          cache.put(key, new Lookup(List.copyOf(values), expiresAt));
+          count++;
+        }
+      }
+
+      LOG.info("Loaded {} lookups of {} from {}", count, name, file);
+    } catch (final IOException e) {
+      // the lookups read so far are kept, the rest are queried again
+      LOG.warn("Failed to load the lookups of " + name + " from " + file, e);
+    }
+  }
+
+  private static boolean isSavable(final String key, final Lookup lookup) {
+    if (key.length() > MAX_SAVED_LENGTH) {
+      return false;
+    }
+
+    for (final String value : lookup.values) {
+      if (value.length() > MAX_SAVED_LENGTH) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static class Lookup {
+    private final List<String> values;
+    // wall clock time, so that it still holds when the lookup is loaded by the next run
+    private final long expiresAt;
+
+    private Lookup(final List<String> values, final long expiresAt) {
+      this.values = values;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  private static class LookupExpiry implements Expiry<String, Lookup> {
+    @Override
+    public long expireAfterCreate(final String key, final Lookup lookup, final long currentTime) {
+      return TimeUnit.MILLISECONDS.toNanos(
+          Math.max(0, lookup.expiresAt - System.currentTimeMillis()));
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        final String key, final Lookup lookup, final long currentTime, final long currentDuration) {
+      return expireAfterCreate(key, lookup, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        final String key, final Lookup lookup, final long currentTime, final long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
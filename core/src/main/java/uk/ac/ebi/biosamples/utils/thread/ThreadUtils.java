@@ -27,28 +27,35 @@ public class ThreadUtils {
   public static <T> void checkFutures(
       final Map<? extends Object, Future<T>> futures, final int maxSize)
       throws InterruptedException, ExecutionException {
-
-    while (futures.size() > maxSize) {
-      for (final Iterator<? extends Object> i = futures.keySet().iterator(); i.hasNext(); ) {
-        final Object key = i.next();
-
-        futures.get(key).get();
-        i.remove();
-      }
-    }
+    checkAndCallbackFutures(futures, maxSize, result -> {});
   }
 
+  /**
+   * Removes the futures that are already done, then waits for the others in iteration order until
+   * no more than maxSize are left. BoundedCompletionService in pipelines common waits in completion
+   * order instead and does not need to keep every future.
+   */
   public static <T> void checkAndCallbackFutures(
       final Map<? extends Object, Future<T>> futures, final int maxSize, final Callback<T> callback)
       throws InterruptedException, ExecutionException {
-    while (futures.size() > maxSize) {
-      for (final Iterator<? extends Object> i = futures.keySet().iterator(); i.hasNext(); ) {
-        final Object key = i.next();
+    if (futures.size() <= maxSize) {
+      return;
+    }
+
+    for (final Iterator<? extends Future<T>> i = futures.values().iterator(); i.hasNext(); ) {
+      final Future<T> future = i.next();
 
-        callback.call(futures.get(key).get());
+      if (future.isDone()) {
+        callback.call(future.get());
         i.remove();
       }
     }
+
+    for (final Iterator<? extends Future<T>> i = futures.values().iterator();
+        futures.size() > maxSize && i.hasNext(); ) {
+      callback.call(i.next().get());
+      i.remove();
+    }
   }
 
   public interface Callback<T> {
@@ -0,0 +1,92 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.core.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import uk.ac.ebi.biosamples.core.model.Attribute;
+import uk.ac.ebi.biosamples.core.model.Sample;
+
+public class FileDownloadSerializerTest {
+  private final List<Sample> samples =
+      Arrays.asList(getTestSample("SAMEA1", "liver"), getTestSample("SAMEA2", "café & <bar"));
+
+  @Test
+  public void json_writer_matches_string_serialization() throws IOException {
+    final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("json");
+
+    final String expected =
+        serializer.startOfFile()
+            + serializer.asString(samples.get(0))
+            + serializer.delimiter()
+            + serializer.asString(samples.get(1))
+            + serializer.endOfFile();
+
+    assertEquals(expected, writeAll(serializer));
+  }
+
+  @Test
+  public void ndjson_writer_writes_one_sample_per_line() throws IOException {
+    final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("ndjson");
+
+    final String[] lines = writeAll(serializer).split("\n", -1);
+
+    assertEquals(3, lines.length);
+    assertEquals(serializer.asString(samples.get(0)), lines[0]);
+    assertEquals(serializer.asString(samples.get(1)), lines[1]);
+    assertEquals("", lines[2]);
+  }
+
+  @Test
+  public void accessions_writer_matches_string_serialization() throws IOException {
+    final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("txt");
+
+    assertEquals("SAMEA1" + System.lineSeparator() + "SAMEA2", writeAll(serializer));
+  }
+
+  @Test
+  public void xml_writer_escapes_values() throws IOException {
+    final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("xml");
+
+    final String xml = writeAll(serializer);
+
+    assertTrue(xml.startsWith(serializer.startOfFile() + "<BioSample accession=\"SAMEA1\""));
+    assertTrue(xml.contains("<Value>café &amp; &lt;bar</Value>"));
+    assertTrue(xml.endsWith(serializer.endOfFile()));
+  }
+
+  private String writeAll(final FileDownloadSerializer serializer) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (final FileDownloadSerializer.SampleWriter sampleWriter = serializer.open(out)) {
+      for (final Sample sample : samples) {
+        sampleWriter.write(sample);
+      }
+    }
+
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static Sample getTestSample(final String accession, final String organismPart) {
+    return new Sample.Builder("FileDownloadSerializerTest_sample")
+        .withAccession(accession)
+        .withRelease(Instant.parse("2016-04-01T11:36:57.00Z"))
+        .addAttribute(Attribute.build("organism part", organismPart))
+        .build();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.curami.service;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares matching attribute names to the shipped popular attributes with {@link
+ * AttributeMatcher}, with and without its cache, to scoring every popular attribute with {@link
+ * CuramiUtils#getMostSimilarAttribute}. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeMatcherBenchmark {
+  private static final int ATTRIBUTE_NAME_COUNT = 1000;
+
+  private SortedSet<String> popularAttributes;
+  private List<String> attributeNames;
+  private AttributeMatcher attributeMatcher;
+  private AttributeMatcher cachingAttributeMatcher;
+
+  @Setup
+  public void setup() {
+    final DataLoader dataLoader = new DataLoader();
+    dataLoader.loadDataFromClassPathResource();
+    popularAttributes = dataLoader.getPopularAttributes();
+    attributeNames =
+        AttributeMatcherTest.getAttributeNames(popularAttributes, ATTRIBUTE_NAME_COUNT, 42);
+    attributeMatcher = new AttributeMatcher(popularAttributes, 0);
+    cachingAttributeMatcher = new AttributeMatcher(popularAttributes, ATTRIBUTE_NAME_COUNT);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_NAME_COUNT)
+  public void matchByScan(final Blackhole blackhole) {
+    for (final String attributeName : attributeNames) {
+      blackhole.consume(CuramiUtils.getMostSimilarAttribute(attributeName, popularAttributes));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_NAME_COUNT)
+  public void matchIndexed(final Blackhole blackhole) {
+    for (final String attributeName : attributeNames) {
+      blackhole.consume(attributeMatcher.getMostSimilarAttribute(attributeName));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_NAME_COUNT)
+  public void matchIndexedCached(final Blackhole blackhole) {
+    for (final String attributeName : attributeNames) {
+      blackhole.consume(cachingAttributeMatcher.getMostSimilarAttribute(attributeName));
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(AttributeMatcherBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.curami.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AttributeMatcherTest {
+  private static SortedSet<String> popularAttributes;
+
+  @BeforeClass
+  public static void loadAttributes() {
+    final DataLoader dataLoader = new DataLoader();
+    dataLoader.loadDataFromClassPathResource();
+    popularAttributes = dataLoader.getPopularAttributes();
+  }
+
+  @Test
+  public void given_attribute_names_match_same_as_scanning_all_attributes() {
+    final AttributeMatcher attributeMatcher = new AttributeMatcher(popularAttributes, 0);
+
+    for (final String attributeName : getAttributeNames(popularAttributes, 2000, 42)) {
+      assertEquals(
+          attributeName,
+          CuramiUtils.getMostSimilarAttribute(attributeName, popularAttributes),
+          attributeMatcher.getMostSimilarAttribute(attributeName));
+    }
+  }
+
+  @Test
+  public void given_attribute_names_match_same_with_cache() {
+    final AttributeMatcher attributeMatcher = new AttributeMatcher(popularAttributes, 100);
+
+    for (final String attributeName : getAttributeNames(popularAttributes, 2000, 7)) {
+      assertEquals(
+          attributeName,
+          CuramiUtils.getMostSimilarAttribute(attributeName, popularAttributes),
+          attributeMatcher.getMostSimilarAttribute(attributeName));
+    }
+  }
+
+  @Test
+  public void given_ties_match_first_attribute_in_order() {
+    final SortedSet<String> attributes = new TreeSet<>(List.of("abcx", "abcy", "abcz"));
+
+    assertEquals(
+        CuramiUtils.getMostSimilarAttribute("abcw", attributes),
+        new AttributeMatcher(attributes, 0).getMostSimilarAttribute("abcw"));
+  }
+
+  /**
+   * Attribute names as submitted, mostly a few popular attributes with their case, separators or
+   * spelling changed, and some free text ones.
+   */
+  static List<String> getAttributeNames(
+      final SortedSet<String> attributes, final int count, final long seed) {
+    final Random random = new Random(seed);
+    final List<String> popular = new ArrayList<>(attributes);
+    final List<String> attributeNames = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      // the most popular attributes are at the start of the file, but the set is sorted
+      final int index = (int) (popular.size() * Math.pow(random.nextDouble(), 3));
+      final StringBuilder name = new StringBuilder(popular.get(index));
+
+      switch (random.nextInt(5)) {
+        case 0:
+          attributeNames.add(name.toString().toUpperCase());
+          continue;
+        case 1:
+          attributeNames.add(name.toString().replace(' ', '_'));
+          continue;
+        case 2:
+          if (name.length() > 1) {
+            name.deleteCharAt(random.nextInt(name.length()));
+          }
+          break;
+        case 3:
+          name.insert(random.nextInt(name.length() + 1), (char) ('a' + random.nextInt(26)));
+          break;
+        default:
+          name.append(' ').append(popular.get(random.nextInt(popular.size())));
+      }
+
+      attributeNames.add(name.toString());
+    }
+
+    return attributeNames;
+  }
+}
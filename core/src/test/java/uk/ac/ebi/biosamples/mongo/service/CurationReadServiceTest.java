@@ -54,6 +54,8 @@ public class CurationReadServiceTest {
         convertToMongoCurationList(getCurationLinksForTest());
     Mockito.when(mongoCurationLinkRepository.findBySample(Mockito.anyString(), Mockito.any()))
         .thenReturn(new PageImpl<>(mongoCurationLinks, PageRequest.of(0, 10), 1));
+    Mockito.when(mongoCurationLinkRepository.findBySampleIn(Mockito.any(), Mockito.any()))
+        .thenReturn(mongoCurationLinks);
   }
 
   @Test
@@ -168,6 +170,31 @@ public class CurationReadServiceTest {
     }
   }
 
+  @Test
+  public void applyAllCurationsToSamples_test_matches_single_sample_curation() {
+    final Sample curatedInput =
+        Sample.Builder.fromSample(getSampleForTest()).withAccession("SAMN001").build();
+    final Sample uncuratedSample =
+        Sample.Builder.fromSample(getSampleForTest()).withAccession("SAMN0002").build();
+
+    final List<Sample> curatedSamples =
+        curationReadService.applyAllCurationsToSamples(
+            Arrays.asList(curatedInput, uncuratedSample));
+
+    Assert.assertEquals(2, curatedSamples.size());
+    Assert.assertEquals(
+        curationReadService.applyAllCurationToSample(curatedInput), curatedSamples.get(0));
+    Assert.assertTrue(
+        curatedSamples
+            .get(0)
+            .getAttributes()
+            .contains(Attribute.build("NewCuration", "new value", "iri", "unit")));
+    Assert.assertEquals("SAMN0002", curatedSamples.get(1).getAccession());
+    Assert.assertEquals(uncuratedSample.getAttributes(), curatedSamples.get(1).getAttributes());
+    Mockito.verify(mongoCurationLinkRepository, Mockito.times(1))
+        .findBySampleIn(Mockito.any(), Mockito.any());
+  }
+
   private List<CurationLink> getCurationLinksForTest() {
     final List<CurationLink> curationLinks = new ArrayList<>();
 
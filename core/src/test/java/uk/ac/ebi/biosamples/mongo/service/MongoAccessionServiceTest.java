@@ -0,0 +1,82 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.mongo.service;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import uk.ac.ebi.biosamples.mongo.model.MongoSequence;
+import uk.ac.ebi.biosamples.mongo.repository.MongoSampleRepository;
+
+public class MongoAccessionServiceTest {
+  private static final int BLOCK_SIZE = 100;
+
+  private MongoOperations mongoOperations;
+  private MongoAccessionService mongoAccessionService;
+
+  @Before
+  public void setup() {
+    mongoOperations = Mockito.mock(MongoOperations.class);
+
+    Mockito.when(
+            mongoOperations.findAndModify(
+                Mockito.any(Query.class),
+                Mockito.any(Update.class),
+                Mockito.any(FindAndModifyOptions.class),
+                Mockito.eq(MongoSequence.class)))
+        .thenReturn(sequence(BLOCK_SIZE), sequence(2 * BLOCK_SIZE), sequence(3 * BLOCK_SIZE));
+
+    mongoAccessionService =
+        new MongoAccessionService(
+            Mockito.mock(MongoSampleRepository.class),
+            Mockito.mock(SampleToMongoSampleConverter.class),
+            Mockito.mock(MongoSampleToSampleConverter.class),
+            mongoOperations,
+            BLOCK_SIZE);
+  }
+
+  @Test
+  public void concurrent_accessions_are_unique_and_reserved_in_blocks() throws Exception {
+    final int accessionCount = 2 * BLOCK_SIZE;
+    final Set<String> accessions = ConcurrentHashMap.newKeySet();
+    final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+    for (int i = 0; i < accessionCount; i++) {
+      executorService.submit(
+          () -> accessions.add(mongoAccessionService.generateOneSRAAccession()));
+    }
+
+    executorService.shutdown();
+    Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+    Assert.assertEquals(accessionCount, accessions.size());
+    Mockito.verify(mongoOperations, Mockito.times(2))
+        .findAndModify(
+            Mockito.any(Query.class),
+            Mockito.any(Update.class),
+            Mockito.any(FindAndModifyOptions.class),
+            Mockito.eq(MongoSequence.class));
+  }
+
+  private static MongoSequence sequence(final long seq) {
+    final MongoSequence mongoSequence = new MongoSequence();
+    mongoSequence.setSeq(seq);
+
+    return mongoSequence;
+  }
+}
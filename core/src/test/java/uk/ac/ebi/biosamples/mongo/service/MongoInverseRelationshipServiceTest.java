@@ -0,0 +1,71 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.mongo.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.mongo.model.MongoInverseRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.repository.MongoInverseRelationshipRepository;
+
+public class MongoInverseRelationshipServiceTest {
+  private static final String SOURCE = "SAMEA0001";
+  private static final String TARGET = "SAMEA0002";
+
+  private MongoTemplate mongoTemplate;
+  private MongoInverseRelationshipRepository mongoInverseRelationshipRepository;
+  private MongoInverseRelationshipService mongoInverseRelationshipService;
+
+  @Before
+  public void setup() {
+    mongoTemplate = Mockito.mock(MongoTemplate.class);
+    mongoInverseRelationshipRepository = Mockito.mock(MongoInverseRelationshipRepository.class);
+
+    final BioSamplesProperties bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+    Mockito.when(bioSamplesProperties.isMongoInverseRelationshipsPrecomputed()).thenReturn(true);
+
+    mongoInverseRelationshipService =
+        new MongoInverseRelationshipService(
+            mongoTemplate, mongoInverseRelationshipRepository, bioSamplesProperties);
+  }
+
+  @Test
+  public void precomputed_inverse_relationships_are_read_by_target() {
+    final MongoRelationship relationship = MongoRelationship.build(SOURCE, "derived from", TARGET);
+    final SortedSet<MongoRelationship> relationships = new TreeSet<>();
+    final MongoSample mongoSample = Mockito.mock(MongoSample.class);
+
+    Mockito.when(mongoSample.getAccession()).thenReturn(TARGET);
+    Mockito.when(mongoSample.getRelationships()).thenReturn(relationships);
+    Mockito.when(mongoInverseRelationshipRepository.findAllById(Collections.singleton(TARGET)))
+        .thenReturn(
+            Collections.singletonList(
+                MongoInverseRelationship.build(
+                    TARGET, new TreeSet<>(Collections.singleton(relationship)))));
+
+    mongoInverseRelationshipService.addInverseRelationships(Arrays.asList(mongoSample));
+
+    Assert.assertEquals(Collections.singleton(relationship), relationships);
+    Assert.assertEquals(
+        Collections.singletonList(SOURCE),
+        mongoInverseRelationshipService.getInverseRelationshipsTargets(TARGET));
+    Mockito.verifyZeroInteractions(mongoTemplate);
+  }
+}
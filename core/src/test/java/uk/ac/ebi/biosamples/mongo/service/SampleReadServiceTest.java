@@ -0,0 +1,216 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.mongo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.core.model.Attribute;
+import uk.ac.ebi.biosamples.core.model.Relationship;
+import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.model.structured.StructuredData;
+import uk.ac.ebi.biosamples.core.model.structured.StructuredDataTable;
+import uk.ac.ebi.biosamples.mongo.model.MongoRelationship;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.model.MongoStructuredData;
+import uk.ac.ebi.biosamples.mongo.repository.MongoSampleRepository;
+import uk.ac.ebi.biosamples.mongo.repository.MongoStructuredDataRepository;
+
+public class SampleReadServiceTest {
+  private static final String ACCESSION = "SAMEA0001";
+
+  private MongoSampleRepository mongoSampleRepository;
+  private MongoSampleToSampleConverter mongoSampleToSampleConverter;
+  private MongoInverseRelationshipService mongoInverseRelationshipService;
+  private MongoStructuredDataRepository mongoStructuredDataRepository;
+  private MongoStructuredDataToStructuredDataConverter mongoStructuredDataToStructuredDataConverter;
+  private SampleReadService sampleReadService;
+
+  @Before
+  public void setup() {
+    mongoSampleRepository = Mockito.mock(MongoSampleRepository.class);
+    mongoSampleToSampleConverter = Mockito.mock(MongoSampleToSampleConverter.class);
+    mongoInverseRelationshipService = Mockito.mock(MongoInverseRelationshipService.class);
+    mongoStructuredDataRepository = Mockito.mock(MongoStructuredDataRepository.class);
+    mongoStructuredDataToStructuredDataConverter =
+        Mockito.mock(MongoStructuredDataToStructuredDataConverter.class);
+
+    final BioSamplesProperties bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+    final MongoSample mongoSample = Mockito.mock(MongoSample.class);
+
+    Mockito.when(mongoSampleRepository.findById(ACCESSION)).thenReturn(Optional.of(mongoSample));
+    Mockito.when(mongoInverseRelationshipService.addInverseRelationships(mongoSample))
+        .thenReturn(mongoSample);
+    Mockito.when(mongoSampleToSampleConverter.apply(mongoSample))
+        .thenReturn(new Sample.Builder("test", ACCESSION).build());
+    Mockito.when(mongoStructuredDataRepository.findById(ACCESSION)).thenReturn(Optional.empty());
+    Mockito.when(bioSamplesProperties.getBiosamplesCorePageThreadCount()).thenReturn(1);
+    Mockito.when(bioSamplesProperties.getBiosamplesCorePageThreadCountMax()).thenReturn(1);
+    Mockito.when(bioSamplesProperties.getBiosamplesCoreSampleCacheMaxEntries()).thenReturn(10);
+    Mockito.when(bioSamplesProperties.getBiosamplesCoreSampleCacheMaxAge()).thenReturn(60);
+
+    sampleReadService =
+        new SampleReadService(
+            mongoSampleRepository,
+            mongoSampleToSampleConverter,
+            Mockito.mock(CurationReadService.class),
+            mongoInverseRelationshipService,
+            mongoStructuredDataRepository,
+            mongoStructuredDataToStructuredDataConverter,
+            bioSamplesProperties,
+            new SimpleMeterRegistry());
+  }
+
+  @Test
+  public void fetch_uses_cache_until_evicted() {
+    Assert.assertTrue(sampleReadService.fetch(ACCESSION, false).isPresent());
+    Assert.assertTrue(sampleReadService.fetch(ACCESSION, false).isPresent());
+    Mockito.verify(mongoSampleRepository, Mockito.times(1)).findById(ACCESSION);
+
+    sampleReadService.evict(ACCESSION);
+
+    Assert.assertTrue(sampleReadService.fetch(ACCESSION, false).isPresent());
+    Mockito.verify(mongoSampleRepository, Mockito.times(2)).findById(ACCESSION);
+  }
+
+  @Test
+  public void fetch_returns_copy_of_cached_sample() {
+    sampleReadService.fetch(ACCESSION, false).get().getAttributes().add(Attribute.build("a", "b"));
+
+    Assert.assertTrue(sampleReadService.fetch(ACCESSION, false).get().getAttributes().isEmpty());
+  }
+
+  @Test
+  public void fetch_all_keeps_order_of_accessions() {
+    final MongoSample first = mockMongoSample("SAMEA3");
+    final MongoSample second = mockMongoSample("SAMEA1");
+    final MongoSample third = mockMongoSample("SAMEA2");
+    // mongo returns the samples in its own order
+    Mockito.when(mongoSampleRepository.findAllById(Mockito.anyIterable()))
+        .thenReturn(Arrays.asList(second, third, first));
+
+    final List<Sample> samples =
+        sampleReadService.fetchAll(Arrays.asList("SAMEA3", "SAMEA1", "SAMEA2"), false);
+
+    Assert.assertEquals(Arrays.asList("SAMEA3", "SAMEA1", "SAMEA2"), getAccessions(samples));
+    Mockito.verify(mongoSampleRepository, Mockito.times(1)).findAllById(Mockito.anyIterable());
+  }
+
+  @Test
+  public void fetch_all_finds_sra_accessions_through_sra_index() {
+    final MongoSample sraSample = mockMongoSample("SAMEA2");
+    final MongoSample idSample = mockMongoSample("SAMEA1");
+    Mockito.when(mongoSampleRepository.findUsingSraAccessionIndex("ERS2"))
+        .thenReturn(Collections.singletonList(sraSample));
+    Mockito.when(mongoSampleRepository.findAllById(Collections.singletonList("SAMEA1")))
+        .thenReturn(Collections.singletonList(idSample));
+
+    final List<Sample> samples = sampleReadService.fetchAll(Arrays.asList("ERS2", "SAMEA1"), false);
+
+    Assert.assertEquals(Arrays.asList("SAMEA2", "SAMEA1"), getAccessions(samples));
+    Mockito.verify(mongoSampleRepository).findUsingSraAccessionIndex("ERS2");
+  }
+
+  @Test
+  public void fetch_all_skips_missing_accessions() {
+    final MongoSample found = mockMongoSample("SAMEA2");
+    Mockito.when(mongoSampleRepository.findAllById(Mockito.anyIterable()))
+        .thenReturn(Collections.singletonList(found));
+    Mockito.when(mongoSampleRepository.findUsingSraAccessionIndex("ERS3"))
+        .thenReturn(Collections.emptyList());
+
+    final List<Sample> samples =
+        sampleReadService.fetchAll(Arrays.asList("SAMEA1", "SAMEA2", "ERS3"), false);
+
+    Assert.assertEquals(Collections.singletonList("SAMEA2"), getAccessions(samples));
+  }
+
+  @Test
+  public void fetch_all_adds_inverse_relationships_and_structured_data_to_each_sample() {
+    final MongoSample first = mockMongoSample("SAMEA1");
+    final MongoSample second = mockMongoSample("SAMEA2");
+    Mockito.when(mongoSampleRepository.findAllById(Mockito.anyIterable()))
+        .thenReturn(Arrays.asList(first, second));
+    Mockito.doAnswer(
+            invocation -> {
+              final Collection<MongoSample> mongoSamples = invocation.getArgument(0);
+              for (final MongoSample mongoSample : mongoSamples) {
+                if (mongoSample.getAccession().equals("SAMEA2")) {
+                  mongoSample
+                      .getRelationships()
+                      .add(MongoRelationship.build("SAMEA9", "derived from", "SAMEA2"));
+                }
+              }
+              return null;
+            })
+        .when(mongoInverseRelationshipService)
+        .addInverseRelationships(Mockito.anyCollection());
+    final MongoStructuredData mongoStructuredData = Mockito.mock(MongoStructuredData.class);
+    final Set<StructuredDataTable> tables =
+        Collections.singleton(
+            StructuredDataTable.build(null, null, "AMR", null, Collections.emptySet()));
+    Mockito.when(mongoStructuredData.getAccession()).thenReturn("SAMEA1");
+    Mockito.when(mongoStructuredDataRepository.findAllById(Mockito.anyIterable()))
+        .thenReturn(Collections.singletonList(mongoStructuredData));
+    Mockito.when(mongoStructuredDataToStructuredDataConverter.convert(mongoStructuredData))
+        .thenReturn(StructuredData.build("SAMEA1", null, tables));
+
+    final List<Sample> samples =
+        sampleReadService.fetchAll(Arrays.asList("SAMEA1", "SAMEA2"), false);
+
+    Assert.assertEquals(tables, samples.get(0).getStructuredData());
+    Assert.assertTrue(samples.get(0).getRelationships().isEmpty());
+    Assert.assertTrue(samples.get(1).getStructuredData().isEmpty());
+    Assert.assertEquals(
+        Collections.singleton(Relationship.build("SAMEA9", "derived from", "SAMEA2")),
+        samples.get(1).getRelationships());
+    Mockito.verify(mongoStructuredDataRepository, Mockito.times(1))
+        .findAllById(Mockito.anyIterable());
+  }
+
+  private MongoSample mockMongoSample(final String accession) {
+    final MongoSample mongoSample = Mockito.mock(MongoSample.class);
+    final TreeSet<MongoRelationship> relationships = new TreeSet<>();
+    Mockito.when(mongoSample.getAccession()).thenReturn(accession);
+    Mockito.when(mongoSample.getRelationships()).thenReturn(relationships);
+    Mockito.when(mongoSampleToSampleConverter.apply(mongoSample))
+        .thenAnswer(
+            invocation ->
+                new Sample.Builder("test", accession)
+                    .withRelationships(
+                        relationships.stream()
+                            .map(
+                                relationship ->
+                                    Relationship.build(
+                                        relationship.getSource(),
+                                        relationship.getType(),
+                                        relationship.getTarget()))
+                            .collect(Collectors.toList()))
+                    .build());
+
+    return mongoSample;
+  }
+
+  private static List<String> getAccessions(final List<Sample> samples) {
+    return samples.stream().map(Sample::getAccession).collect(Collectors.toList());
+  }
+}
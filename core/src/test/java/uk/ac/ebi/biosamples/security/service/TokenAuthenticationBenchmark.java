@@ -0,0 +1,171 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.security.service;
+
+import com.auth0.jwt.JWT;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.security.model.AuthToken;
+import uk.ac.ebi.biosamples.security.model.AuthorizationProvider;
+
+/**
+ * Measures the overhead the token authentication filter adds to a request carrying a token, as a
+ * bulk client sends the same token with each request. Compares the tokens cached in {@link
+ * AccessControlService}, parsing the token on every request and the previous parsing, which read
+ * the header and payload as strings and decoded the whole token again to check its expiry. Run with
+ * the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenAuthenticationBenchmark {
+  private static final FilterChain NO_OP_CHAIN = (request, response) -> {};
+
+  private BioSamplesTokenAuthenticationFilter filter;
+  private BioSamplesTokenAuthenticationFilter uncachedFilter;
+  private BioSamplesTokenAuthenticationFilter previousFilter;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+
+  @Setup
+  public void setup() {
+    final ObjectMapper objectMapper = new ObjectMapper();
+    filter = buildFilter(newAccessControlService(objectMapper, 10000));
+    uncachedFilter = buildFilter(newAccessControlService(objectMapper, 0));
+    previousFilter = buildFilter(new PreviousAccessControlService(objectMapper));
+
+    final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    final String header = "{\"alg\":\"RS256\"}";
+    final String payload =
+        "{\"principle\":\"Webin-59287\",\"role\":[],\"exp\":"
+            + (System.currentTimeMillis() / 1000 + 3600)
+            + ",\"iat\":"
+            + System.currentTimeMillis() / 1000
+            + "}";
+    final String token =
+        encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8))
+            + "."
+            + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+            + "."
+            + encoder.encodeToString(new byte[256]);
+
+    request = new MockHttpServletRequest("POST", "/biosamples/v2/samples/bulk-submit");
+    request.addHeader("Authorization", "Bearer " + token);
+    response = new MockHttpServletResponse();
+  }
+
+  @TearDown(Level.Invocation)
+  public void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Benchmark
+  public void filter() throws IOException, ServletException {
+    filter.doFilter(request, response, NO_OP_CHAIN);
+  }
+
+  @Benchmark
+  public void filterUncached() throws IOException, ServletException {
+    uncachedFilter.doFilter(request, response, NO_OP_CHAIN);
+  }
+
+  @Benchmark
+  public void filterPrevious() throws IOException, ServletException {
+    previousFilter.doFilter(request, response, NO_OP_CHAIN);
+  }
+
+  private static AccessControlService newAccessControlService(
+      final ObjectMapper objectMapper, final int cacheSize) {
+    final BioSamplesProperties bioSamplesProperties = new BioSamplesProperties();
+    bioSamplesProperties.setSecurityTokenCacheMaxEntries(cacheSize);
+
+    return new AccessControlService(objectMapper, bioSamplesProperties, new SimpleMeterRegistry());
+  }
+
+  private static BioSamplesTokenAuthenticationFilter buildFilter(
+      final AccessControlService accessControlService) {
+    final BioSamplesTokenHandler tokenHandler = new BioSamplesTokenHandler();
+    tokenHandler.accessControlService = accessControlService;
+
+    return new BioSamplesTokenAuthenticationFilter(
+        new BioSamplesTokenAuthenticationService(tokenHandler));
+  }
+
+  /** Parses the token on every request, as the service used to */
+  private static class PreviousAccessControlService extends AccessControlService {
+    private final ObjectMapper objectMapper;
+
+    private PreviousAccessControlService(final ObjectMapper objectMapper) {
+      super(objectMapper, new BioSamplesProperties(), new SimpleMeterRegistry());
+      this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Optional<AuthToken> extractToken(String token) {
+      try {
+        token = token.startsWith("Bearer ") ? token.split("Bearer ")[1] : token;
+
+        final String[] chunks = token.split("\\.");
+        final Base64.Decoder decoder = Base64.getDecoder();
+        final String header = new String(decoder.decode(chunks[0]));
+        final String payload = new String(decoder.decode(chunks[1]));
+        final String algorithm = objectMapper.readTree(header).get("alg").asText();
+        final JsonNode node = objectMapper.readTree(payload);
+
+        if (JWT.decode(token).getExpiresAt().before(new Date())) {
+          throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+
+        final List<String> roles =
+            objectMapper.convertValue(node.get("role"), new TypeReference<>() {});
+
+        return Optional.of(
+            new AuthToken(
+                algorithm, AuthorizationProvider.WEBIN, node.get("principle").asText(), roles));
+      } catch (final Exception e) {
+        throw new ResponseStatusException(
+            HttpStatus.UNAUTHORIZED, "Invalid authentication details provided", e);
+      }
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(TokenAuthenticationBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.everit.json.schema.Schema;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.exception.GlobalExceptions;
+
+public class SchemaRegistryTest {
+  private static final String SCHEMA_URI = "http://schema.store/registry/schemas/BSDC00001";
+  private static final String SCHEMA =
+      "{\"type\": \"object\", \"required\": [\"name\"],"
+          + " \"properties\": {\"name\": {\"type\": \"string\"}}}";
+
+  private final RestTemplate restTemplate = new RestTemplate();
+  private final BioSamplesProperties bioSamplesProperties = new BioSamplesProperties();
+  private MockRestServiceServer mockServer;
+
+  @Before
+  public void setUp() {
+    mockServer = MockRestServiceServer.createServer(restTemplate);
+    bioSamplesProperties.setSchemaStore("http://schema.store");
+  }
+
+  @Test
+  public void given_fresh_schema_do_not_fetch_it_again() {
+    bioSamplesProperties.setBiosamplesSchemaRegistryTtl(300);
+    final SchemaRegistry schemaRegistry = new SchemaRegistry(restTemplate, bioSamplesProperties);
+    mockServer
+        .expect(ExpectedCount.once(), requestTo(SCHEMA_URI))
+        .andRespond(withSuccess(SCHEMA, MediaType.APPLICATION_JSON));
+
+    assertSame(
+        schemaRegistry.getSchemaByAccession("BSDC00001"),
+        schemaRegistry.getSchemaByAccession("BSDC00001"));
+    mockServer.verify();
+  }
+
+  @Test
+  public void given_expired_schema_revalidate_it_with_etag() {
+    bioSamplesProperties.setBiosamplesSchemaRegistryTtl(0);
+    final SchemaRegistry schemaRegistry = new SchemaRegistry(restTemplate, bioSamplesProperties);
+    final HttpHeaders headers = new HttpHeaders();
+    headers.setETag("\"v1\"");
+    mockServer
+        .expect(requestTo(SCHEMA_URI))
+        .andRespond(withSuccess(SCHEMA, MediaType.APPLICATION_JSON).headers(headers));
+    mockServer
+        .expect(requestTo(SCHEMA_URI))
+        .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+        .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+    final Schema compiled = schemaRegistry.getCompiledSchemaByAccession("BSDC00001");
+
+    assertSame(compiled, schemaRegistry.getCompiledSchemaByAccession("BSDC00001"));
+    mockServer.verify();
+  }
+
+  @Test
+  public void given_schema_store_failure_use_schema_held() {
+    bioSamplesProperties.setBiosamplesSchemaRegistryTtl(0);
+    final SchemaRegistry schemaRegistry = new SchemaRegistry(restTemplate, bioSamplesProperties);
+    mockServer
+        .expect(requestTo(SCHEMA_URI))
+        .andRespond(withSuccess(SCHEMA, MediaType.APPLICATION_JSON));
+    mockServer.expect(requestTo(SCHEMA_URI)).andRespond(withServerError());
+
+    assertEquals(
+        schemaRegistry.getSchemaByAccession("BSDC00001"),
+        schemaRegistry.getSchemaByAccession("BSDC00001"));
+    mockServer.verify();
+  }
+
+  @Test
+  public void given_schema_by_id_compile_it_once() throws Exception {
+    bioSamplesProperties.setBiosamplesSchemaRegistryTtl(300);
+    final SchemaRegistry schemaRegistry = new SchemaRegistry(restTemplate, bioSamplesProperties);
+    final LocalSchemaValidator validator =
+        new LocalSchemaValidator(schemaRegistry, new ObjectMapper());
+    mockServer
+        .expect(ExpectedCount.once(), requestTo("http://schema.store/api/v2/schemas?id=sample"))
+        .andRespond(
+            withSuccess(
+                "{\"name\": \"sample\", \"version\": \"1.0\", \"schema\": " + SCHEMA + "}",
+                MediaType.APPLICATION_JSON));
+
+    validator.validate("sample", "{\"name\": \"sample\"}");
+
+    assertSame(
+        schemaRegistry.getCompiledSchemaById("sample"),
+        schemaRegistry.getCompiledSchemaById("sample"));
+    try {
+      validator.validate("sample", "{}");
+      fail();
+    } catch (final GlobalExceptions.SampleValidationException e) {
+      assertTrue(e.getMessage().contains("name"));
+    }
+    mockServer.verify();
+  }
+
+  @Test
+  public void given_invalid_sample_report_errors_by_data_path() throws Exception {
+    bioSamplesProperties.setBiosamplesSchemaRegistryTtl(300);
+    final LocalSchemaValidator validator =
+        new LocalSchemaValidator(
+            new SchemaRegistry(restTemplate, bioSamplesProperties), new ObjectMapper());
+    mockServer
+        .expect(ExpectedCount.once(), requestTo(SCHEMA_URI))
+        .andRespond(withSuccess(SCHEMA, MediaType.APPLICATION_JSON));
+
+    validator.validateById("BSDC00001", "{\"name\": \"sample\"}");
+
+    try {
+      validator.validateById("BSDC00001", "{\"name\": 1}");
+      fail();
+    } catch (final GlobalExceptions.SampleValidationException e) {
+      assertTrue(e.getMessage().startsWith("[{\"dataPath\":\"/name\",\"errors\":["));
+    }
+    mockServer.verify();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr.model.strategy;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.solr.core.query.Criteria;
+import org.springframework.data.solr.core.query.FacetQuery;
+import org.springframework.data.solr.core.query.SimpleFacetQuery;
+import org.springframework.data.solr.core.query.result.FacetPage;
+import uk.ac.ebi.biosamples.core.model.facet.Facet;
+import uk.ac.ebi.biosamples.solr.model.field.SolrSampleAttributeValueField;
+import uk.ac.ebi.biosamples.solr.model.field.SolrSampleField;
+import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
+
+public class ParallelFacetFetchStrategyTest {
+  private static final Pageable PAGE = PageRequest.of(0, 10);
+
+  private final CountDownLatch slowFieldRelease = new CountDownLatch(1);
+  private ExecutorService executorService;
+  private SolrSampleRepository solrSampleRepository;
+
+  @Before
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  public void setup() {
+    executorService = Executors.newFixedThreadPool(4);
+    solrSampleRepository = Mockito.mock(SolrSampleRepository.class);
+
+    final FacetPage facetPage = Mockito.mock(FacetPage.class);
+    Mockito.when(facetPage.getFacetQueryResult())
+        .thenReturn(new PageImpl<>(Collections.emptyList()));
+
+    Mockito.when(
+            solrSampleRepository.getFacets(
+                Mockito.any(FacetQuery.class),
+                Mockito.anyList(),
+                Mockito.anyList(),
+                Mockito.any(Pageable.class)))
+        .thenAnswer(
+            invocation -> {
+              final List<String> fields = (List<String>) invocation.getArguments()[1];
+              if (fields.contains("slow_av_ss")) {
+                slowFieldRelease.await();
+              }
+              return facetPage;
+            });
+  }
+
+  @After
+  public void tearDown() {
+    slowFieldRelease.countDown();
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void fields_are_fetched_in_separate_requests() {
+    final ParallelFacetFetchStrategy strategy =
+        new ParallelFacetFetchStrategy(executorService, 2, 5000);
+
+    final List<Optional<Facet>> facets =
+        strategy.fetchFacetsUsing(
+            solrSampleRepository,
+            new SimpleFacetQuery(new Criteria().expression("*:*")),
+            Arrays.asList(field("organism"), field("tissue"), field("sex")),
+            Collections.singletonList(field("release")),
+            PAGE);
+
+    Assert.assertTrue(facets.stream().allMatch(Optional::isPresent));
+    Mockito.verify(solrSampleRepository, Mockito.times(1))
+        .getFacets(
+            Mockito.any(FacetQuery.class),
+            Mockito.eq(Arrays.asList("organism_av_ss", "tissue_av_ss")),
+            Mockito.eq(Collections.singletonList("release_av_ss")),
+            Mockito.any(Pageable.class));
+    Mockito.verify(solrSampleRepository, Mockito.times(1))
+        .getFacets(
+            Mockito.any(FacetQuery.class),
+            Mockito.eq(Collections.singletonList("sex_av_ss")),
+            Mockito.eq(Collections.emptyList()),
+            Mockito.any(Pageable.class));
+  }
+
+  @Test
+  public void fields_outside_latency_budget_are_left_out() {
+    final ParallelFacetFetchStrategy strategy =
+        new ParallelFacetFetchStrategy(executorService, 1, 200);
+
+    final List<Optional<Facet>> facets =
+        strategy.fetchFacetsUsing(
+            solrSampleRepository,
+            new SimpleFacetQuery(new Criteria().expression("*:*")),
+            Arrays.asList(field("organism"), field("slow"), field("sex")),
+            Collections.emptyList(),
+            PAGE);
+
+    Assert.assertEquals(1, facets.stream().filter(facet -> !facet.isPresent()).count());
+  }
+
+  private static Entry<SolrSampleField, Long> field(final String label) {
+    return new SimpleEntry<>(new SolrSampleAttributeValueField(label, label + "_av_ss"), 0L);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.solr.core.query.FacetQuery;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.core.model.filter.Filter;
+import uk.ac.ebi.biosamples.core.service.FilterBuilder;
+import uk.ac.ebi.biosamples.solr.repo.SolrSampleRepository;
+
+public class SolrFacetServiceTest {
+  private static final Pageable PAGE = PageRequest.of(0, 10);
+
+  private SolrSampleRepository solrSampleRepository;
+  private SolrIndexGenerationService solrIndexGenerationService;
+  private SolrFacetService solrFacetService;
+
+  private final Filter organismFilter =
+      FilterBuilder.create().onAttribute("organism").withValue("Homo sapiens").build();
+  private final Filter tissueFilter =
+      FilterBuilder.create().onAttribute("tissue").withValue("liver").build();
+
+  @Before
+  public void setup() {
+    solrSampleRepository = Mockito.mock(SolrSampleRepository.class);
+    solrIndexGenerationService = Mockito.mock(SolrIndexGenerationService.class);
+
+    final SolrFilterService solrFilterService = Mockito.mock(SolrFilterService.class);
+    final BioSamplesProperties bioSamplesProperties = Mockito.mock(BioSamplesProperties.class);
+
+    Mockito.when(solrFilterService.getPublicFilterQuery(null)).thenReturn(Optional.empty());
+    Mockito.when(
+            solrSampleRepository.getFacetFields(
+                Mockito.any(FacetQuery.class), Mockito.any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Collections.emptyList()));
+    Mockito.when(bioSamplesProperties.getBiosamplesCoreFacetCacheMaxEntries()).thenReturn(10);
+    Mockito.when(bioSamplesProperties.getBiosamplesCoreFacetCacheTtl()).thenReturn(60);
+    Mockito.when(bioSamplesProperties.getBiosamplesCoreFacetCacheGenerationInterval())
+        .thenReturn(0);
+
+    solrFacetService =
+        new SolrFacetService(
+            solrSampleRepository,
+            Mockito.mock(SolrFieldService.class),
+            solrFilterService,
+            solrIndexGenerationService,
+            bioSamplesProperties,
+            new SimpleMeterRegistry());
+  }
+
+  @Test
+  public void facets_are_cached_regardless_of_filter_order() {
+    solrFacetService.getFacets(
+        "liver ", Arrays.asList(organismFilter, tissueFilter), PAGE, PAGE, null, null);
+    solrFacetService.getFacets(
+        "liver", Arrays.asList(tissueFilter, organismFilter), PAGE, PAGE, null, null);
+
+    Mockito.verify(solrSampleRepository, Mockito.times(1))
+        .getFacetFields(Mockito.any(FacetQuery.class), Mockito.any(Pageable.class));
+  }
+
+  @Test
+  public void facets_with_different_filters_are_not_shared() {
+    solrFacetService.getFacets("liver", Arrays.asList(organismFilter), PAGE, PAGE, null, null);
+    solrFacetService.getFacets("liver", Arrays.asList(tissueFilter), PAGE, PAGE, null, null);
+
+    Mockito.verify(solrSampleRepository, Mockito.times(2))
+        .getFacetFields(Mockito.any(FacetQuery.class), Mockito.any(Pageable.class));
+  }
+}
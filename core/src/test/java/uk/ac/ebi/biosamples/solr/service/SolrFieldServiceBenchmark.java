@@ -0,0 +1,188 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.solr.service;
+
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.ebi.biosamples.solr.model.field.*;
+
+/**
+ * Compares encoding and decoding solr field names with {@link SolrFieldService} to the previous
+ * uncached implementation, which scanned the field types with regular expressions and built the
+ * field by reflection. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolrFieldServiceBenchmark {
+  private static final int ATTRIBUTE_TYPE_COUNT = 55;
+
+  // the most used attribute types, plus some free text ones
+  private static final String[] ATTRIBUTE_TYPES = {
+    "organism",
+    "description",
+    "sex",
+    "tissue",
+    "cell type",
+    "strain",
+    "collection date",
+    "geographic location (country and/or sea)",
+    "geo_loc_name",
+    "isolation source",
+    "host",
+    "latitude and longitude",
+    "env_broad_scale",
+    "env_local_scale",
+    "env_medium",
+    "developmental stage",
+    "age",
+    "disease",
+    "genotype",
+    "cultivar",
+    "breed",
+    "isolate",
+    "collected_by",
+    "INSDC status",
+    "INSDC first public",
+    "INSDC last update",
+    "INSDC center name",
+    "ENA-CHECKLIST",
+    "SRA accession",
+    "title",
+    "common name",
+    "scientific_name",
+    "sample_name",
+    "project name",
+    "Submitter Id",
+    "External Id",
+    "biomaterial provider",
+    "treatment",
+    "phenotype",
+    "organism part",
+    "cell line",
+    "ecotype",
+    "depth",
+    "elevation",
+    "host health state",
+    "host scientific name",
+    "sample collection device or method",
+    "lifestage",
+    "GAL_sample_id",
+    "specimen_voucher",
+    "tolid",
+    "Temperature (°C)",
+    "Dissolved oxygen µmol/kg",
+    "RNA integrity number (RIN)",
+    "time point (days post infection)"
+  };
+
+  private SolrFieldService solrFieldService;
+  private List<SolrSampleField> solrSampleFields;
+  private String[] encodedFields;
+
+  @Setup
+  public void setup() {
+    assert ATTRIBUTE_TYPES.length == ATTRIBUTE_TYPE_COUNT;
+
+    solrSampleFields =
+        Arrays.asList(
+            new SolrSampleAccessionField(),
+            new SolrSampleNameField(),
+            new SolrSampleDateField(),
+            new SolrSampleAuthenticationField(),
+            new SolrSampleExternalReferenceDataField(),
+            new SolrSampleInverseRelationField(),
+            new SolrSampleRelationField(),
+            new SolrSampleAttributeValueField());
+    solrFieldService = new SolrFieldService(solrSampleFields);
+
+    encodedFields = new String[ATTRIBUTE_TYPES.length];
+    for (int i = 0; i < ATTRIBUTE_TYPES.length; i++) {
+      encodedFields[i] = uncachedEncodeFieldName(ATTRIBUTE_TYPES[i]) + "_av_ss";
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_TYPE_COUNT)
+  public void encodeFieldName(final Blackhole blackhole) {
+    for (final String attributeType : ATTRIBUTE_TYPES) {
+      blackhole.consume(SolrFieldService.encodeFieldName(attributeType));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_TYPE_COUNT)
+  public void encodeFieldNameUncached(final Blackhole blackhole) {
+    for (final String attributeType : ATTRIBUTE_TYPES) {
+      blackhole.consume(uncachedEncodeFieldName(attributeType));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_TYPE_COUNT)
+  public void decodeField(final Blackhole blackhole) {
+    for (final String encodedField : encodedFields) {
+      blackhole.consume(solrFieldService.decodeField(encodedField));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ATTRIBUTE_TYPE_COUNT)
+  public void decodeFieldUncached(final Blackhole blackhole) throws Exception {
+    for (final String encodedField : encodedFields) {
+      blackhole.consume(uncachedDecodeField(encodedField));
+    }
+  }
+
+  private static String uncachedEncodeFieldName(String field) {
+    field = BaseEncoding.base32().encode(field.getBytes(StandardCharsets.UTF_8));
+    return field.replaceAll("=", "_");
+  }
+
+  private SolrSampleField uncachedDecodeField(final String encodedField) throws Exception {
+    final Optional<SolrSampleField> optionalType =
+        solrSampleFields.stream().filter(solrField -> solrField.matches(encodedField)).findFirst();
+    final SolrSampleField fieldCandidate = optionalType.get();
+    final Matcher m = fieldCandidate.getSolrFieldPattern().matcher(encodedField);
+    m.find();
+
+    String baseLabel = m.group("fieldname");
+    if (fieldCandidate.isEncodedField()) {
+      baseLabel =
+          new String(
+              BaseEncoding.base32().decode(baseLabel.replace("_", "=")), StandardCharsets.UTF_8);
+    }
+
+    return fieldCandidate
+        .getClass()
+        .getConstructor(String.class, String.class)
+        .newInstance(baseLabel, encodedField);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(SolrFieldServiceBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils.ols;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+
+public class OntologyLookupCacheTest {
+  private static final String IRI = "http://purl.obolibrary.org/obo/NCBITaxon_3702";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final BioSamplesProperties bioSamplesProperties = new BioSamplesProperties();
+  private HttpServer olsServer;
+
+  @Before
+  public void setUp() throws IOException {
+    // a stub of OLS which only knows NCBITaxon_3702
+    olsServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    olsServer.createContext(
+        "/api/terms",
+        exchange -> {
+          requestCount.incrementAndGet();
+          final byte[] body;
+          if (exchange.getRequestURI().getQuery().contains("id=NCBITaxon_3702")) {
+            try (final InputStream inputStream =
+                getClass().getResourceAsStream("/ols-responses/NCBITaxon_3702.json")) {
+              body = inputStream.readAllBytes();
+            }
+          } else {
+            body = "{}".getBytes();
+          }
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (final OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+          }
+        });
+    olsServer.start();
+
+    bioSamplesProperties.setOls("http://localhost:" + olsServer.getAddress().getPort());
+    bioSamplesProperties.setOntologyCacheDir(temporaryFolder.getRoot().getAbsolutePath());
+    bioSamplesProperties.setOntologyCacheMaxEntries(1000);
+    bioSamplesProperties.setOntologyCacheTtl(3600);
+    bioSamplesProperties.setOntologyCacheNegativeTtl(60);
+  }
+
+  @After
+  public void tearDown() {
+    olsServer.stop(0);
+  }
+
+  @Test
+  public void given_shortcode_looked_up_do_not_query_it_again() {
+    final OlsProcessor olsProcessor = newOlsProcessor();
+
+    assertEquals(Optional.of(IRI), olsProcessor.queryOlsForShortcode("NCBITaxon_3702"));
+    assertEquals(Optional.of(IRI), olsProcessor.queryOlsForShortcode("NCBITaxon_3702"));
+    assertEquals(1, requestCount.get());
+  }
+
+  @Test
+  public void given_unknown_shortcode_do_not_query_it_again() {
+    final OlsProcessor olsProcessor = newOlsProcessor();
+
+    assertFalse(olsProcessor.queryOlsForShortcode("invalid-term").isPresent());
+    assertFalse(olsProcessor.queryOlsForShortcode("invalid-term").isPresent());
+    assertEquals(1, requestCount.get());
+  }
+
+  @Test
+  public void given_lookups_saved_use_them_in_next_run() {
+    final OlsProcessor olsProcessor = newOlsProcessor();
+    olsProcessor.queryOlsForShortcode("NCBITaxon_3702");
+    olsProcessor.queryOlsForShortcode("invalid-term");
+    olsProcessor.saveLookups();
+
+    final OlsProcessor nextOlsProcessor = newOlsProcessor();
+
+    assertEquals(Optional.of(IRI), nextOlsProcessor.queryOlsForShortcode("NCBITaxon_3702"));
+    assertFalse(nextOlsProcessor.queryOlsForShortcode("invalid-term").isPresent());
+    assertEquals(2, requestCount.get());
+  }
+
+  @Test
+  public void given_expired_lookups_saved_query_them_again() {
+    bioSamplesProperties.setOntologyCacheNegativeTtl(0);
+    final OlsProcessor olsProcessor = newOlsProcessor();
+    olsProcessor.queryOlsForShortcode("invalid-term");
+    olsProcessor.saveLookups();
+
+    newOlsProcessor().queryOlsForShortcode("invalid-term");
+
+    assertEquals(2, requestCount.get());
+  }
+
+  private OlsProcessor newOlsProcessor() {
+    return new OlsProcessor(new RestTemplate(), bioSamplesProperties, new SimpleMeterRegistry());
+  }
+}
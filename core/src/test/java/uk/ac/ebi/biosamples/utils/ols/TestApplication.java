@@ -10,6 +10,8 @@
 */
 package uk.ac.ebi.biosamples.utils.ols;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -29,4 +31,9 @@ public class TestApplication {
   public BioSamplesProperties bioSamplesProperties() {
     return new BioSamplesProperties();
   }
+
+  @Bean
+  public MeterRegistry meterRegistry() {
+    return new SimpleMeterRegistry();
+  }
 }
@@ -12,6 +12,7 @@ package uk.ac.ebi.biosamples;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,15 +30,20 @@ import uk.ac.ebi.biosamples.core.model.*;
 import uk.ac.ebi.biosamples.sitemap.model.XmlSitemap;
 import uk.ac.ebi.biosamples.sitemap.model.XmlSitemapIndex;
 import uk.ac.ebi.biosamples.sitemap.model.XmlUrlSet;
+import uk.ac.ebi.biosamples.utils.IntegrationTestFailException;
 
 @Order
 @Component
 @Slf4j
 public class SitemapIntegration extends AbstractIntegration {
+  // the sitemaps are regenerated every few seconds in the integration environment
+  private static final int SITEMAP_ATTEMPTS = 12;
+  private static final int SITEMAP_RETRY_SECONDS = 10;
+
   private final URI biosamplesSubmissionUri;
   private final RestOperations restTemplate;
 
-  @Value("${model.page.size:10}")
+  @Value("${biosamples.webapp.core.sitemap.pagesize:10000}")
   private int sitemapPageSize;
 
   public SitemapIntegration(
@@ -54,51 +60,42 @@ public class SitemapIntegration extends AbstractIntegration {
   protected void phaseOne() {}
 
   @Override
-  protected void phaseTwo() {
-    final List<EntityModel<Sample>> samples = new ArrayList<>();
-    final Map<String, Boolean> lookupTable = new HashMap<>();
+  protected void phaseTwo() throws InterruptedException {
+    final Set<String> accessions = new HashSet<>();
 
     for (final EntityModel<Sample> sample : noAuthClient.fetchSampleResourceAll()) {
-      samples.add(sample);
-      lookupTable.put(Objects.requireNonNull(sample.getContent()).getAccession(), Boolean.FALSE);
+      accessions.add(Objects.requireNonNull(sample.getContent()).getAccession());
     }
 
-    if (samples.size() <= 0) {
+    if (accessions.isEmpty()) {
       throw new RuntimeException("No search results found!");
     }
 
-    final int expectedSitemapIndexSize = Math.floorDiv(samples.size(), sitemapPageSize) + 1;
-    final XmlSitemapIndex index = getSitemapIndex();
-    final int modelIndexSize = index.getXmlSitemaps().size();
+    // samples submitted since the last generation are not in the sitemaps until the next one
+    XmlSitemapIndex index = getSitemapIndex();
+    Set<String> missing = getMissingAccessions(index, accessions);
+    for (int attempt = 1; !missing.isEmpty() && attempt < SITEMAP_ATTEMPTS; attempt++) {
+      log.info("{} samples are not in the sitemap yet, checking again", missing.size());
+      TimeUnit.SECONDS.sleep(SITEMAP_RETRY_SECONDS);
+      index = getSitemapIndex();
+      missing = getMissingAccessions(index, accessions);
+    }
+
+    if (!missing.isEmpty()) {
+      throw new IntegrationTestFailException(
+          "Sample " + missing.iterator().next() + " is not in the sitemap", Phase.TWO);
+    }
 
-    if (modelIndexSize != expectedSitemapIndexSize) {
-      throw new RuntimeException(
+    final int expectedSitemapIndexSize = Math.floorDiv(accessions.size() - 1, sitemapPageSize) + 1;
+    if (index.getXmlSitemaps().size() != expectedSitemapIndexSize) {
+      throw new IntegrationTestFailException(
           "The model index size ("
-              + modelIndexSize
+              + index.getXmlSitemaps().size()
               + ") doesn't match the expected size ("
               + expectedSitemapIndexSize
-              + ")");
-    }
-
-    for (final XmlSitemap sitemap : index.getXmlSitemaps()) {
-      final XmlUrlSet urlSet = getUrlSet(sitemap);
-      urlSet
-          .getXmlUrls()
-          .forEach(
-              xmlUrl -> {
-                final UriComponents sampleUri =
-                    UriComponentsBuilder.fromPath(xmlUrl.getLoc()).build();
-                final String sampleAccession = getAccessionFromUri(sampleUri);
-                lookupTable.replace(sampleAccession, Boolean.TRUE);
-              });
+              + ")",
+          Phase.TWO);
     }
-    lookupTable.entrySet().stream()
-        .filter(entry -> !entry.getValue())
-        .findFirst()
-        .ifPresent(
-            entry -> {
-              throw new RuntimeException("Sample " + entry.getKey() + " is not in the sitemap");
-            });
   }
 
   @Override
@@ -113,6 +110,30 @@ public class SitemapIntegration extends AbstractIntegration {
   @Override
   protected void phaseSix() {}
 
+  private Set<String> getMissingAccessions(
+      final XmlSitemapIndex index, final Set<String> accessions) {
+    final Set<String> missing = new HashSet<>(accessions);
+
+    for (final XmlSitemap sitemap : index.getXmlSitemaps()) {
+      final XmlUrlSet urlSet = getUrlSet(sitemap);
+      if (urlSet.getXmlUrls().size() > sitemapPageSize) {
+        throw new RuntimeException(
+            "Sitemap " + sitemap.getLoc() + " has more than " + sitemapPageSize + " samples");
+      }
+      urlSet
+          .getXmlUrls()
+          .forEach(
+              xmlUrl -> {
+                final UriComponents sampleUri =
+                    UriComponentsBuilder.fromPath(xmlUrl.getLoc()).build();
+                final String sampleAccession = getAccessionFromUri(sampleUri);
+                missing.remove(sampleAccession);
+              });
+    }
+
+    return missing;
+  }
+
   private String getAccessionFromUri(final UriComponents uri) {
     final List<String> pathSegments = uri.getPathSegments();
     return pathSegments.get(pathSegments.size() - 1);
@@ -13,11 +13,8 @@ package uk.ac.ebi.biosamples;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -29,7 +26,7 @@ import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
+import uk.ac.ebi.biosamples.utils.thread.BoundedCompletionService;
 
 public abstract class PipelineApplicationRunner implements ApplicationRunner {
   protected final Logger LOG = LoggerFactory.getLogger(getClass());
@@ -64,7 +61,9 @@ public abstract class PipelineApplicationRunner implements ApplicationRunner {
             pipelinesProperties.getThreadCount(),
             pipelinesProperties.getThreadCountMax())) {
 
-      final Map<String, Future<PipelineResult>> futures = new HashMap<>();
+      final BoundedCompletionService<PipelineResult> completionService =
+          new BoundedCompletionService<>(
+              executorService, pipelinesProperties.getMaxInFlight(), pipelineFutureCallback);
       for (final EntityModel<Sample> sampleResource :
           bioSamplesClient.fetchSampleResourceAll("", filters)) {
         final Sample sample = Objects.requireNonNull(sampleResource.getContent());
@@ -75,11 +74,11 @@ public abstract class PipelineApplicationRunner implements ApplicationRunner {
         if (sampleCount % 10000 == 0) {
           LOG.info("{} samples scheduled for processing", sampleCount);
         }
-        futures.put(sample.getAccession(), executorService.submit(task));
+        completionService.submit(task);
       }
 
-      LOG.info("waiting for futures to finish");
-      ThreadUtils.checkAndCallbackFutures(futures, 0, pipelineFutureCallback);
+      LOG.info("waiting for the last {} samples to finish", completionService.getInFlight());
+      completionService.awaitAll();
     } catch (final Exception e) {
       LOG.error("Pipeline failed to finish successfully", e);
       throw e;
@@ -24,6 +24,25 @@ public class PipelinesProperties {
   @Value("${biosamples.pipelines.threadcount.max:60}")
   private int threadCountMax;
 
+  // max number of samples submitted for processing and not yet handled, bounds pipeline memory use
+  @Value("${biosamples.pipelines.inflight.max:10000}")
+  private int maxInFlight;
+
+  // samples per bulk request when importing, 0 persists them one request at a time
+  @Value("${biosamples.pipelines.batch.size:0}")
+  private int batchSize;
+
+  // seconds a partial batch waits for more samples before it is sent
+  @Value("${biosamples.pipelines.batch.maxwait:10}")
+  private int batchMaxWait;
+
+  @Value("${biosamples.pipelines.batch.retries:5}")
+  private int batchRetries;
+
+  // millis before the first retry of a failed bulk request, doubled on each retry
+  @Value("${biosamples.pipelines.batch.backoff:500}")
+  private int batchBackoff;
+
   @Value("${biosamples.pipelines.connectioncount.max:8}")
   private int connectionCountMax;
 
@@ -45,6 +64,18 @@ public class PipelinesProperties {
   @Value("${biosamples.pipelines.ncbi.domain:self.BiosampleImportNCBI}")
   private String ncbiDomain;
 
+  // sax builds a document for each sample, stax skips the samples filtered out without building,
+  // parallel reads with stax too, on several threads
+  @Value("${biosamples.pipelines.ncbi.parser:sax}")
+  private String ncbiParser;
+
+  @Value("${biosamples.pipelines.ncbi.parser.threads:4}")
+  private int ncbiParserThreads;
+
+  // file of the fingerprints of the samples imported, empty to import all the samples every run
+  @Value("${biosamples.pipelines.ncbi.fingerprints:}")
+  private String ncbiFingerprints;
+
   @Value("${biosamples.pipelines.ncbi.controlledaccess:true}")
   private Boolean ncbiControlledAccess;
 
@@ -100,6 +131,18 @@ public class PipelinesProperties {
     return ncbiDomain;
   }
 
+  public String getNcbiParser() {
+    return ncbiParser;
+  }
+
+  public int getNcbiParserThreads() {
+    return ncbiParserThreads;
+  }
+
+  public String getNcbiFingerprints() {
+    return ncbiFingerprints;
+  }
+
   public Boolean getNcbiControlledAccess() {
     return ncbiControlledAccess;
   }
@@ -132,6 +175,26 @@ public class PipelinesProperties {
     return threadCountMax;
   }
 
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getBatchMaxWait() {
+    return batchMaxWait;
+  }
+
+  public int getBatchRetries() {
+    return batchRetries;
+  }
+
+  public int getBatchBackoff() {
+    return batchBackoff;
+  }
+
   public int getConnectionCountMax() {
     return connectionCountMax;
   }
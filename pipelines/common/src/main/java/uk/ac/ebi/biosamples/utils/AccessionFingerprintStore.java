@@ -0,0 +1,328 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a fingerprint, a content hash, of each sample imported, so that an import can skip the
+ * samples that have not changed since the previous run. The fingerprints are saved in a file of
+ * accession and fingerprint pairs sorted by accession, which is memory mapped and binary searched,
+ * so a store of tens of millions of samples stays off the heap.
+ *
+ * <p>Accessions are packed into a long, up to five letters followed by up to ten digits, such as
+ * SAMN04192108. Other accessions are never found unchanged and are not saved. The fingerprints
+ * recorded during a run are kept in memory and merged into the file by {@link #save()}, with the
+ * removed accessions left out. Recording and lookups are thread safe.
+ */
+public class AccessionFingerprintStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AccessionFingerprintStore.class);
+  private static final long NO_KEY = -1;
+  private static final int MAX_LETTERS = 5;
+  private static final int MAX_DIGITS = 10;
+  private final Path file;
+  // previous fingerprints, a count followed by sorted key and fingerprint pairs
+  private final LongBuffer previous;
+  private final int previousCount;
+  private long[] keys = new long[1024];
+  private long[] fingerprints = new long[1024];
+  private int[] order = new int[1024];
+  private int count = 0;
+  private long[] removed = new long[16];
+  private int removedCount = 0;
+
+  private AccessionFingerprintStore(final Path file, final LongBuffer previous) {
+    this.file = file;
+    this.previous = previous;
+    previousCount = previous == null ? 0 : (int) previous.get(0);
+  }
+
+  /** Opens the store saved in the file, or an empty store if there is no such file yet */
+  public static AccessionFingerprintStore open(final Path file) throws IOException {
+    if (!Files.exists(file)) {
+      LOGGER.info("No fingerprints in " + file + ", all the samples are new");
+      return new AccessionFingerprintStore(file, null);
+    }
+
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final LongBuffer previous =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+      final AccessionFingerprintStore store = new AccessionFingerprintStore(file, previous);
+      LOGGER.info("Opened " + store.previousCount + " fingerprints from " + file);
+
+      return store;
+    }
+  }
+
+  public static long fingerprint(final byte[]... contents) {
+    final Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (final byte[] content : contents) {
+      hasher.putInt(content.length).putBytes(content);
+    }
+
+    return hasher.hash().asLong();
+  }
+
+  /** @return true if the accession was saved with the same fingerprint by the previous run */
+  public boolean isUnchanged(final String accession, final long fingerprint) {
+    final long key = encode(accession);
+    if (key == NO_KEY) {
+      return false;
+    }
+
+    final int index = indexOfPrevious(key);
+    return index >= 0 && getPreviousFingerprint(index) == fingerprint;
+  }
+
+  /** Records the fingerprint of a sample once imported, to be saved */
+  public synchronized void record(final String accession, final long fingerprint) {
+    final long key = encode(accession);
+    if (key == NO_KEY) {
+      return;
+    }
+
+    if (count == keys.length) {
+      keys = Arrays.copyOf(keys, count * 2);
+      fingerprints = Arrays.copyOf(fingerprints, count * 2);
+      order = Arrays.copyOf(order, count * 2);
+    }
+    keys[count] = key;
+    fingerprints[count] = fingerprint;
+    order[count] = count;
+    count++;
+  }
+
+  /** Leaves the accession out of the saved store */
+  public synchronized void remove(final String accession) {
+    final long key = encode(accession);
+    if (key == NO_KEY) {
+      return;
+    }
+
+    if (removedCount == removed.length) {
+      removed = Arrays.copyOf(removed, removedCount * 2);
+    }
+    removed[removedCount++] = key;
+  }
+
+  /**
+   * @return the accessions saved by the previous run that are not in the given set, such as the
+   *     samples no longer in the source
+   */
+  public SortedSet<String> getMissingAccessions(final Set<String> accessions) {
+    final SortedSet<String> missing = new TreeSet<>();
+    for (int i = 0; i < previousCount; i++) {
+      final String accession = decode(getPreviousKey(i));
+      if (!accessions.contains(accession)) {
+        missing.add(accession);
+      }
+    }
+
+    return missing;
+  }
+
+  /** Merges the recorded fingerprints into the previous ones and replaces the file */
+  public synchronized void save() throws IOException {
+    sort(0, count - 1);
+    final long[] removedKeys = Arrays.copyOf(removed, removedCount);
+    Arrays.sort(removedKeys);
+
+    final Path partFile = Paths.get(file + ".part");
+    if (file.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+
+    long saved = 0;
+    try (final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile), 65536))) {
+      // count placeholder, set once all the pairs are written
+      out.writeLong(0);
+
+      int i = 0;
+      int j = 0;
+      while (i < previousCount || j < count) {
+        final long key;
+        final long fingerprint;
+        final long previousKey = i < previousCount ? getPreviousKey(i) : Long.MAX_VALUE;
+
+        if (j < count && (i >= previousCount || keys[j] <= previousKey)) {
+          key = keys[j];
+          // the same accession may have been recorded more than once, the last one is kept
+          while (j + 1 < count && keys[j + 1] == key) {
+            j++;
+          }
+          fingerprint = fingerprints[j++];
+          if (i < previousCount && previousKey == key) {
+            i++;
+          }
+        } else {
+          key = previousKey;
+          fingerprint = getPreviousFingerprint(i++);
+        }
+
+        if (Arrays.binarySearch(removedKeys, key) < 0) {
+          out.writeLong(key);
+          out.writeLong(fingerprint);
+          saved++;
+        }
+      }
+    }
+
+    try (final FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, saved), 0);
+    }
+    Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    LOGGER.info(
+        "Saved "
+            + saved
+            + " fingerprints to "
+            + file
+            + ", "
+            + count
+            + " recorded and "
+            + removedCount
+            + " removed");
+  }
+
+  private int indexOfPrevious(final long key) {
+    int low = 0;
+    int high = previousCount - 1;
+
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final long middleKey = getPreviousKey(middle);
+
+      if (middleKey < key) {
+        low = middle + 1;
+      } else if (middleKey > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+
+    return -1;
+  }
+
+  private long getPreviousKey(final int index) {
+    return previous.get(1 + 2 * index);
+  }
+
+  private long getPreviousFingerprint(final int index) {
+    return previous.get(2 + 2 * index);
+  }
+
+  /** Letters in base 27 in the top 24 bits, then the digit count in 4 bits and the number */
+  static long encode(final String accession) {
+    int letterCount = 0;
+    long letters = 0;
+    while (letterCount < accession.length()
+        && accession.charAt(letterCount) >= 'A'
+        && accession.charAt(letterCount) <= 'Z') {
+      letters = letters * 27 + accession.charAt(letterCount) - 'A' + 1;
+      letterCount++;
+    }
+
+    final int digitCount = accession.length() - letterCount;
+    if (letterCount == 0
+        || letterCount > MAX_LETTERS
+        || digitCount == 0
+        || digitCount > MAX_DIGITS) {
+      return NO_KEY;
+    }
+
+    long number = 0;
+    for (int i = letterCount; i < accession.length(); i++) {
+      final char c = accession.charAt(i);
+      if (c < '0' || c > '9') {
+        return NO_KEY;
+      }
+      number = number * 10 + c - '0';
+    }
+
+    return letters << 40 | (long) digitCount << 36 | number;
+  }
+
+  static String decode(final long key) {
+    final StringBuilder letters = new StringBuilder();
+    for (long code = key >>> 40; code > 0; code /= 27) {
+      letters.insert(0, (char) ('A' + code % 27 - 1));
+    }
+
+    final int digitCount = (int) (key >>> 36 & 0xF);
+    final String number = Long.toString(key & 0xFFFFFFFFFL);
+
+    return letters + "0".repeat(digitCount - number.length()) + number;
+  }
+
+  /** Sorts the recorded fingerprints by key, then in the order they were recorded */
+  private void sort(int low, int high) {
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      final long pivot = keys[middle];
+      final int pivotOrder = order[middle];
+      int i = low;
+      int j = high;
+
+      while (i <= j) {
+        while (keys[i] < pivot || keys[i] == pivot && order[i] < pivotOrder) {
+          i++;
+        }
+        while (keys[j] > pivot || keys[j] == pivot && order[j] > pivotOrder) {
+          j--;
+        }
+        if (i <= j) {
+          swap(keys, i, j);
+          swap(fingerprints, i, j);
+          final int value = order[i];
+          order[i] = order[j];
+          order[j] = value;
+          i++;
+          j--;
+        }
+      }
+
+      // recurse into the smaller part, loop on the larger one, to bound the stack depth
+      if (j - low < high - i) {
+        sort(low, j);
+        low = i;
+      } else {
+        sort(i, high);
+        high = j;
+      }
+    }
+  }
+
+  private static void swap(final long[] array, final int i, final int j) {
+    final long value = array[i];
+    array[i] = array[j];
+    array[j] = value;
+  }
+}
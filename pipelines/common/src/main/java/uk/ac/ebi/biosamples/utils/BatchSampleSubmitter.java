@@ -0,0 +1,396 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import uk.ac.ebi.biosamples.core.model.Sample;
+
+/**
+ * Groups samples into batches for a bulk persist call, such as the V2 bulk submission endpoint. A
+ * batch is sent once it holds batchSize samples, from the thread adding the last one, or once its
+ * first sample has waited about maxWait, from a background thread.
+ *
+ * <p>Server and connection errors are retried with exponential backoff and jitter. A batch that
+ * still fails is split in halves until the samples causing the failure are isolated, except on
+ * connection errors which no sample can be blamed for. The outcome of every sample is passed to the
+ * listener, and the samples persisted to their own callback if they have one.
+ *
+ * <p>The callbacks can run on their own threads, so that the follow-up requests they make don't
+ * hold up the thread sending the batches. Closing the submitter waits for them to finish.
+ */
+public class BatchSampleSubmitter implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchSampleSubmitter.class);
+  private static final long MAX_BACKOFF_MILLIS = 60000;
+  private final Function<List<Sample>, List<Sample>> bulkPersister;
+  private final int batchSize;
+  private final long maxWaitNanos;
+  private final int maxRetries;
+  private final long backoffMillis;
+  private final Listener listener;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService callbackExecutor;
+  private final AtomicLong persistedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private List<Entry> batch;
+  private long batchStart;
+  private boolean closed = false;
+
+  public BatchSampleSubmitter(
+      final Function<List<Sample>, List<Sample>> bulkPersister,
+      final int batchSize,
+      final Duration maxWait,
+      final int maxRetries,
+      final Duration backoff,
+      final Listener listener) {
+    this(bulkPersister, batchSize, maxWait, maxRetries, backoff, listener, 0);
+  }
+
+  /**
+   * @param callbackThreads number of threads running the callbacks of the samples persisted, or 0
+   *     to run them on the thread that sent their batch
+   */
+  public BatchSampleSubmitter(
+      final Function<List<Sample>, List<Sample>> bulkPersister,
+      final int batchSize,
+      final Duration maxWait,
+      final int maxRetries,
+      final Duration backoff,
+      final Listener listener,
+      final int callbackThreads) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1");
+    }
+    this.bulkPersister = bulkPersister;
+    this.batchSize = batchSize;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.maxRetries = Math.max(0, maxRetries);
+    this.backoffMillis = Math.max(0, backoff.toMillis());
+    this.listener = listener;
+    batch = new ArrayList<>(batchSize);
+
+    if (maxWaitNanos > 0) {
+      final long checkMillis = Math.max(1, maxWait.toMillis() / 4);
+      scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                final Thread thread = new Thread(runnable, "batch-sample-submitter");
+                thread.setDaemon(true);
+                return thread;
+              });
+      scheduler.scheduleWithFixedDelay(
+          this::flushIfExpired, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+
+    if (callbackThreads > 0) {
+      // the sending thread runs the callbacks itself once a few batches are waiting
+      callbackExecutor =
+          new ThreadPoolExecutor(
+              callbackThreads,
+              callbackThreads,
+              0,
+              TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<>(batchSize * 4),
+              runnable -> {
+                final Thread thread = new Thread(runnable, "batch-sample-callback");
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.CallerRunsPolicy());
+    } else {
+      callbackExecutor = null;
+    }
+  }
+
+  public void add(final Sample sample) {
+    add(sample, null);
+  }
+
+  /**
+   * Adds the sample to the current batch, sending the batch if it is full.
+   *
+   * @param onPersisted called with the persisted sample once it has been persisted, may be null
+   */
+  public void add(final Sample sample, final Consumer<Sample> onPersisted) {
+    final List<Entry> full;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Batch submitter has been closed");
+      }
+      if (batch.isEmpty()) {
+        batchStart = System.nanoTime();
+      }
+      batch.add(new Entry(sample, onPersisted));
+      if (batch.size() < batchSize) {
+        return;
+      }
+      full = takeBatch();
+    }
+
+    submit(full);
+  }
+
+  /** Sends the current batch, whatever its size */
+  public void flush() {
+    final List<Entry> pending;
+    synchronized (this) {
+      pending = takeBatch();
+    }
+
+    submit(pending);
+  }
+
+  /**
+   * Stops the background thread, sends the last batch and waits for the callbacks, no more samples
+   * can be added after
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+
+    if (scheduler != null) {
+      scheduler.shutdown();
+      try {
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    flush();
+
+    if (callbackExecutor != null) {
+      callbackExecutor.shutdown();
+      try {
+        while (!callbackExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+          LOGGER.info("Waiting for the callbacks of the persisted samples");
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    LOGGER.info(
+        "Persisted {} samples and failed {} in {} bulk requests",
+        persistedCount.get(),
+        failedCount.get(),
+        requestCount.get());
+  }
+
+  public long getPersistedCount() {
+    return persistedCount.get();
+  }
+
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  private List<Entry> takeBatch() {
+    final List<Entry> taken = batch;
+    batch = new ArrayList<>(batchSize);
+
+    return taken;
+  }
+
+  private void flushIfExpired() {
+    final List<Entry> expired;
+    synchronized (this) {
+      if (batch.isEmpty() || System.nanoTime() - batchStart < maxWaitNanos) {
+        return;
+      }
+      expired = takeBatch();
+    }
+
+    try {
+      submit(expired);
+    } catch (final RuntimeException e) {
+      // an exception would stop any further scheduled flush
+      LOGGER.error("Failed to submit an expired batch", e);
+    }
+  }
+
+  private void submit(final List<Entry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    final List<Sample> samples =
+        entries.stream().map(entry -> entry.sample).collect(Collectors.toList());
+
+    final List<Sample> persisted;
+    try {
+      persisted = persistWithRetries(samples);
+    } catch (final RuntimeException e) {
+      if (entries.size() > 1 && isSplittable(e)) {
+        LOGGER.info("Bulk request of {} samples failed, splitting it", entries.size());
+
+        final int middle = entries.size() / 2;
+        submit(entries.subList(0, middle));
+        submit(entries.subList(middle, entries.size()));
+      } else {
+        entries.forEach(entry -> failed(entry, e));
+      }
+
+      return;
+    }
+
+    for (int i = 0; i < entries.size(); i++) {
+      persisted(entries.get(i), persisted.get(i));
+    }
+  }
+
+  private List<Sample> persistWithRetries(final List<Sample> samples) {
+    int retry = 0;
+    while (true) {
+      try {
+        requestCount.incrementAndGet();
+        final List<Sample> persisted = bulkPersister.apply(samples);
+        if (persisted == null || persisted.size() != samples.size()) {
+          throw new IllegalStateException(
+              "Sent "
+                  + samples.size()
+                  + " samples but got "
+                  + (persisted == null ? 0 : persisted.size())
+                  + " back");
+        }
+
+        return persisted;
+      } catch (final RuntimeException e) {
+        if (!isTransient(e) || retry >= maxRetries) {
+          throw e;
+        }
+        retry++;
+
+        LOGGER.debug("Bulk request failed, retry {} of {}", retry, maxRetries, e);
+        if (!sleep(getBackoffMillis(retry))) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private void persisted(final Entry entry, final Sample persisted) {
+    persistedCount.incrementAndGet();
+    try {
+      listener.persisted(entry.sample, persisted);
+    } catch (final RuntimeException e) {
+      LOGGER.error("Failed to handle persisted sample " + persisted.getAccession(), e);
+    }
+
+    if (entry.onPersisted == null) {
+      return;
+    }
+
+    if (callbackExecutor != null) {
+      callbackExecutor.execute(() -> callback(entry, persisted));
+    } else {
+      callback(entry, persisted);
+    }
+  }
+
+  private void callback(final Entry entry, final Sample persisted) {
+    try {
+      entry.onPersisted.accept(persisted);
+    } catch (final RuntimeException e) {
+      LOGGER.error("Failed to handle persisted sample " + persisted.getAccession(), e);
+    }
+  }
+
+  private void failed(final Entry entry, final Exception cause) {
+    failedCount.incrementAndGet();
+    try {
+      listener.failed(entry.sample, cause);
+    } catch (final RuntimeException e) {
+      LOGGER.error("Failed to handle failed sample " + entry.sample.getAccession(), e);
+    }
+  }
+
+  /** Exponential backoff with jitter, between half and all of the backoff for this retry */
+  private long getBackoffMillis(final int retry) {
+    final long backoff = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(retry - 1, 20));
+
+    return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+  }
+
+  /** @return false if interrupted */
+  private static boolean sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static boolean isTransient(final RuntimeException e) {
+    if (e instanceof ResourceAccessException || e instanceof HttpServerErrorException) {
+      return true;
+    }
+
+    return e instanceof HttpClientErrorException
+        && (((HttpClientErrorException) e).getStatusCode() == HttpStatus.REQUEST_TIMEOUT
+            || ((HttpClientErrorException) e).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  /** Connection errors are not caused by the samples, so there is no point in splitting */
+  private static boolean isSplittable(final RuntimeException e) {
+    return !(e instanceof ResourceAccessException) && !Thread.currentThread().isInterrupted();
+  }
+
+  /** Outcome of each sample, called from the thread that sent its batch */
+  public interface Listener {
+    void persisted(Sample submitted, Sample persisted);
+
+    void failed(Sample sample, Exception cause);
+  }
+
+  private static class Entry {
+    private final Sample sample;
+    private final Consumer<Sample> onPersisted;
+
+    private Entry(final Sample sample, final Consumer<Sample> onPersisted) {
+      this.sample = sample;
+      this.onPersisted = onPersisted;
+    }
+  }
+}
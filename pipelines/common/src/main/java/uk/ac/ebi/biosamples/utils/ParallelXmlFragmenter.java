@@ -0,0 +1,325 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.Element;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fragments a large XML stream with several threads. A reader thread pulls the input, so any
+ * decompression happens there, and cuts it into chunks at the start tags of the block elements.
+ * The chunks are parsed concurrently with {@link StaxXmlFragmenter}, and the elements are handed to
+ * the callback from the calling thread in document order, one chunk after the other.
+ *
+ * <p>The block elements must be children of the root element, not nested in each other, and their
+ * start tags must not appear in comments or CDATA sections. The encoding must be ASCII compatible,
+ * such as UTF-8. As the parser threads call {@link StaxXmlFragmenter.ElementCallback#isBlockStart}
+ * concurrently, it must be thread safe, while the elements are handled from a single thread.
+ */
+@Service
+public class ParallelXmlFragmenter {
+  private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  private static final String WRAPPER = "fragment";
+  private static final Future<List<Element>> END = CompletableFuture.completedFuture(null);
+  private final StaxXmlFragmenter staxXmlFragmenter;
+  private final int chunkSize;
+
+  @Autowired
+  public ParallelXmlFragmenter(final StaxXmlFragmenter staxXmlFragmenter) {
+    this(staxXmlFragmenter, DEFAULT_CHUNK_SIZE);
+  }
+
+  ParallelXmlFragmenter(final StaxXmlFragmenter staxXmlFragmenter, final int chunkSize) {
+    this.staxXmlFragmenter = staxXmlFragmenter;
+    this.chunkSize = chunkSize;
+  }
+
+  /** @param threads the number of parser threads, the reader thread comes on top */
+  public void handleStream(
+      final InputStream inputStream,
+      final String encoding,
+      final String blockName,
+      final int threads,
+      final StaxXmlFragmenter.ElementCallback callback)
+      throws IOException, XMLStreamException, InterruptedException {
+    final ExecutorService readerExecutor =
+        Executors.newSingleThreadExecutor(threadFactory("xml-fragment-reader"));
+    final ExecutorService parserExecutor =
+        Executors.newFixedThreadPool(threads, threadFactory("xml-fragment-parser"));
+    // parsed and parsing chunks, in document order, bounds the chunks held in memory
+    final BlockingQueue<Future<List<Element>>> chunks = new ArrayBlockingQueue<>(threads * 2);
+
+    try {
+      final Future<Void> reader =
+          readerExecutor.submit(
+              () -> {
+                try {
+                  split(
+                      inputStream,
+                      blockName,
+                      chunk ->
+                          chunks.put(
+                              parserExecutor.submit(
+                                  () -> parse(chunk, encoding, blockName, callback))));
+                } finally {
+                  chunks.put(END);
+                }
+                return null;
+              });
+
+      Future<List<Element>> chunk;
+      while ((chunk = chunks.take()) != END) {
+        for (final Element element : get(chunk)) {
+          try {
+            callback.handleElement(element);
+          } catch (final Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
+
+      get(reader);
+    } finally {
+      readerExecutor.shutdownNow();
+      parserExecutor.shutdownNow();
+      // makes room for the end marker, in case the reader is still running
+      chunks.clear();
+    }
+  }
+
+  private List<Element> parse(
+      final byte[] chunk,
+      final String encoding,
+      final String blockName,
+      final StaxXmlFragmenter.ElementCallback callback)
+      throws XMLStreamException {
+    final List<Element> elements = new ArrayList<>();
+    final InputStream wrapped =
+        new SequenceInputStream(
+            new SequenceInputStream(ascii("<" + WRAPPER + ">"), new ByteArrayInputStream(chunk)),
+            ascii("</" + WRAPPER + ">"));
+
+    staxXmlFragmenter.handleStream(
+        wrapped,
+        encoding,
+        blockName,
+        new StaxXmlFragmenter.ElementCallback() {
+          @Override
+          public void handleElement(final Element element) {
+            elements.add(element);
+          }
+
+          @Override
+          public boolean isBlockStart(final XMLStreamReader reader) {
+            return callback.isBlockStart(reader);
+          }
+        });
+
+    return elements;
+  }
+
+  /**
+   * Cuts the input into chunks of about chunkSize bytes, each made of whole block elements. The
+   * prolog and root start tag before the first block, and the root end tag, are left out.
+   */
+  void split(final InputStream in, final String blockName, final ChunkHandler handler)
+      throws IOException, InterruptedException {
+    final byte[] marker = ("<" + blockName).getBytes(StandardCharsets.US_ASCII);
+    byte[] buffer = new byte[chunkSize + 64 * 1024];
+    int length = 0;
+    // offset of the first block in the buffer, unknown until the prolog has been read
+    int start = -1;
+    byte[] rootEnd = null;
+
+    while (true) {
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      final int read = in.read(buffer, length, buffer.length - length);
+      if (read > 0) {
+        length += read;
+      }
+
+      if (start < 0) {
+        start = indexOfBoundary(buffer, 0, length, marker);
+        if (start < 0) {
+          if (read < 0) {
+            return;
+          }
+          continue;
+        }
+
+        final String rootName = getRootName(buffer, start);
+        if (rootName != null) {
+          rootEnd = ("</" + rootName).getBytes(StandardCharsets.US_ASCII);
+        }
+      }
+
+      if (read < 0) {
+        final int rootEndIndex = rootEnd == null ? -1 : lastIndexOf(buffer, start, length, rootEnd);
+        final int end = rootEndIndex < 0 ? length : rootEndIndex;
+        if (end > start) {
+          handler.handle(Arrays.copyOfRange(buffer, start, end));
+        }
+        return;
+      }
+
+      if (length - start < chunkSize) {
+        continue;
+      }
+      final int boundary = lastIndexOfBoundary(buffer, start + 1, length, marker);
+      if (boundary < 0) {
+        continue;
+      }
+
+      handler.handle(Arrays.copyOfRange(buffer, start, boundary));
+      System.arraycopy(buffer, boundary, buffer, 0, length - boundary);
+      length -= boundary;
+      start = 0;
+    }
+  }
+
+  private static int indexOfBoundary(
+      final byte[] buffer, final int from, final int length, final byte[] marker) {
+    for (int i = from; i < length - marker.length; i++) {
+      if (isBoundary(buffer, i, marker)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private static int lastIndexOfBoundary(
+      final byte[] buffer, final int from, final int length, final byte[] marker) {
+    for (int i = length - marker.length - 1; i >= from; i--) {
+      if (isBoundary(buffer, i, marker)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /** The marker followed by the end of the tag name, so that longer names do not match */
+  private static boolean isBoundary(final byte[] buffer, final int offset, final byte[] marker) {
+    if (!startsWith(buffer, offset, marker)) {
+      return false;
+    }
+
+    final byte next = buffer[offset + marker.length];
+    return next == ' '
+        || next == '\t'
+        || next == '\n'
+        || next == '\r'
+        || next == '>'
+        || next == '/';
+  }
+
+  private static int lastIndexOf(
+      final byte[] buffer, final int from, final int length, final byte[] bytes) {
+    for (int i = length - bytes.length; i >= from; i--) {
+      if (startsWith(buffer, i, bytes)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private static boolean startsWith(final byte[] buffer, final int offset, final byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (buffer[offset + i] != bytes[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** @return the name of the first start tag in the prolog, null if there is none */
+  private static String getRootName(final byte[] buffer, final int end) {
+    for (int i = 0; i < end - 1; i++) {
+      if (buffer[i] != '<' || buffer[i + 1] == '?' || buffer[i + 1] == '!') {
+        continue;
+      }
+
+      int nameEnd = i + 1;
+      while (nameEnd < end
+          && buffer[nameEnd] != '>'
+          && buffer[nameEnd] != '/'
+          && !Character.isWhitespace(buffer[nameEnd])) {
+        nameEnd++;
+      }
+
+      return new String(buffer, i + 1, nameEnd - i - 1, StandardCharsets.US_ASCII);
+    }
+
+    return null;
+  }
+
+  private static <T> T get(final Future<T> future)
+      throws IOException, XMLStreamException, InterruptedException {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof XMLStreamException) {
+        throw (XMLStreamException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  private static InputStream ascii(final String value) {
+    return new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static ThreadFactory threadFactory(final String name) {
+    final AtomicInteger count = new AtomicInteger();
+
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  interface ChunkHandler {
+    void handle(byte[] chunk) throws InterruptedException;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.DocumentFactory;
+import org.dom4j.Element;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reads an input stream of XML with StAX and calls the callback for each block element of interest.
+ * Unlike {@link XmlFragmenter}, the callback decides on the raw reader, before anything is built,
+ * and the elements it rejects are skipped with all their content. The accepted ones are built into
+ * elements detached from any document.
+ */
+@Service
+public class StaxXmlFragmenter {
+  private final XMLInputFactory factory = XMLInputFactory.newInstance();
+  private final DocumentFactory documentFactory = DocumentFactory.getInstance();
+
+  public StaxXmlFragmenter() {
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  /**
+   * @param blockName only the elements with this name are offered to the callback, any other
+   *     element is read through
+   */
+  public void handleStream(
+      final InputStream inputStream,
+      final String encoding,
+      final String blockName,
+      final ElementCallback callback)
+      throws XMLStreamException {
+    final XMLStreamReader reader = factory.createXMLStreamReader(inputStream, encoding);
+
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT
+            || !blockName.equals(reader.getLocalName())) {
+          continue;
+        }
+
+        if (callback.isBlockStart(reader)) {
+          final Element element = readElement(reader);
+
+          try {
+            callback.handleElement(element);
+          } catch (final Exception e) {
+            throw new RuntimeException(e);
+          }
+        } else {
+          skipElement(reader);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Builds the element the reader is at the start of, leaving the reader at its end */
+  Element readElement(final XMLStreamReader reader) throws XMLStreamException {
+    final Element root = startElement(reader, null);
+    Element current = root;
+    int depth = 1;
+
+    while (depth > 0) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          current = startElement(reader, current);
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          current = current.getParent();
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          current.addText(reader.getText());
+          break;
+        default:
+          break;
+      }
+    }
+
+    return root;
+  }
+
+  private Element startElement(final XMLStreamReader reader, final Element parent) {
+    final String name = getQName(reader.getPrefix(), reader.getLocalName());
+    final Element element =
+        parent == null ? documentFactory.createElement(name) : parent.addElement(name);
+
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      element.addAttribute(
+          getQName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+          reader.getAttributeValue(i));
+    }
+
+    return element;
+  }
+
+  /** Skips the element the reader is at the start of, leaving the reader at its end */
+  private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+
+    while (depth > 0) {
+      final int event = reader.next();
+
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static String getQName(final String prefix, final String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  public interface ElementCallback {
+    /**
+     * This function is passed an element of interest for further processing.
+     *
+     * @param element the element, detached from any document
+     */
+    void handleElement(Element element) throws Exception;
+
+    /**
+     * This function determines if an element is of interest and should be built and handled.
+     *
+     * @param reader positioned at the start of the element, it must not be moved
+     */
+    boolean isBlockStart(XMLStreamReader reader);
+  }
+}
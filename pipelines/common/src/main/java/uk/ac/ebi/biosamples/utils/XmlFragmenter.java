@@ -38,7 +38,7 @@ import org.xml.sax.helpers.DefaultHandler;
 public class XmlFragmenter {
   private final SAXParserFactory factory = SAXParserFactory.newInstance();
 
-  private XmlFragmenter() {}
+  XmlFragmenter() {}
 
   public void handleStream(
       final InputStream inputStream, final String encoding, final ElementCallback... callback)
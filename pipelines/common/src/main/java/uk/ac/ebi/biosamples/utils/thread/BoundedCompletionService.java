@@ -0,0 +1,90 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils.thread;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs pipeline tasks with at most maxInFlight of them submitted and not yet handled. Results are
+ * passed to the callback in completion order, as soon as each task finishes, so memory use does not
+ * grow with the number of tasks and submitting blocks while the window is full.
+ *
+ * <p>Not thread safe, tasks should be submitted from a single thread. The callback is only called
+ * from that thread, so it does not need to be thread safe either.
+ */
+public class BoundedCompletionService<T> {
+  private final CompletionService<T> completionService;
+  private final int maxInFlight;
+  private final ThreadUtils.Callback<T> callback;
+  private int inFlight = 0;
+  private long completedCount = 0;
+
+  public BoundedCompletionService(
+      final ExecutorService executorService,
+      final int maxInFlight,
+      final ThreadUtils.Callback<T> callback) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1");
+    }
+    completionService = new ExecutorCompletionService<>(executorService);
+    this.maxInFlight = maxInFlight;
+    this.callback = callback;
+  }
+
+  /**
+   * Waits for a task to finish if the window is full, then submits the task. The results of any
+   * tasks already finished are handled first.
+   *
+   * @throws ExecutionException if a finished task failed
+   */
+  public void submit(final Callable<T> task) throws InterruptedException, ExecutionException {
+    Future<T> done;
+    while ((done = completionService.poll()) != null) {
+      handle(done);
+    }
+    while (inFlight >= maxInFlight) {
+      handle(completionService.take());
+    }
+
+    completionService.submit(task);
+    inFlight++;
+  }
+
+  /**
+   * Waits for all the submitted tasks to finish, handling their results as they do.
+   *
+   * @throws ExecutionException if a task failed, the remaining ones are not waited for
+   */
+  public void awaitAll() throws InterruptedException, ExecutionException {
+    while (inFlight > 0) {
+      handle(completionService.take());
+    }
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  public long getCompletedCount() {
+    return completedCount;
+  }
+
+  private void handle(final Future<T> future) throws InterruptedException, ExecutionException {
+    inFlight--;
+    completedCount++;
+    callback.call(future.get());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccessionFingerprintStoreTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void encodes_accessions_reversibly() {
+    for (final String accession : new String[] {"SAMN04192108", "SAMD00000001", "SAMEA123"}) {
+      assertEquals(
+          accession, AccessionFingerprintStore.decode(AccessionFingerprintStore.encode(accession)));
+    }
+
+    // keys sort like the accessions of the same prefix and length
+    assertTrue(
+        AccessionFingerprintStore.encode("SAMN00000009")
+            < AccessionFingerprintStore.encode("SAMN00000010"));
+  }
+
+  @Test
+  public void finds_saved_fingerprints_once_reopened() throws Exception {
+    final Path file = temporaryFolder.getRoot().toPath().resolve("fingerprints");
+    final long fingerprint = AccessionFingerprintStore.fingerprint("sample".getBytes());
+
+    final AccessionFingerprintStore store = AccessionFingerprintStore.open(file);
+    assertFalse(store.isUnchanged("SAMN1", fingerprint));
+    store.record("SAMN2", 2);
+    store.record("SAMN1", 1);
+    store.record("SAMN1", fingerprint);
+    store.record("not an accession", fingerprint);
+    store.save();
+
+    final AccessionFingerprintStore reopened = AccessionFingerprintStore.open(file);
+    assertTrue(reopened.isUnchanged("SAMN1", fingerprint));
+    assertTrue(reopened.isUnchanged("SAMN2", 2));
+    assertFalse(reopened.isUnchanged("SAMN2", fingerprint));
+    assertFalse(reopened.isUnchanged("not an accession", fingerprint));
+  }
+
+  @Test
+  public void merges_recorded_fingerprints_and_leaves_out_removed_ones() throws Exception {
+    final Path file = temporaryFolder.getRoot().toPath().resolve("fingerprints");
+
+    final AccessionFingerprintStore first = AccessionFingerprintStore.open(file);
+    first.record("SAMN1", 1);
+    first.record("SAMN2", 2);
+    first.record("SAMN3", 3);
+    first.save();
+
+    final AccessionFingerprintStore second = AccessionFingerprintStore.open(file);
+    assertEquals(Set.of("SAMN2"), second.getMissingAccessions(Set.of("SAMN1", "SAMN3", "SAMN4")));
+    second.remove("SAMN2");
+    second.record("SAMN3", 30);
+    second.record("SAMN4", 4);
+    second.save();
+
+    final AccessionFingerprintStore third = AccessionFingerprintStore.open(file);
+    assertTrue(third.isUnchanged("SAMN1", 1));
+    assertFalse(third.isUnchanged("SAMN2", 2));
+    assertTrue(third.isUnchanged("SAMN3", 30));
+    assertTrue(third.isUnchanged("SAMN4", 4));
+    assertEquals(Set.of("SAMN4"), third.getMissingAccessions(Set.of("SAMN1", "SAMN3")));
+  }
+}
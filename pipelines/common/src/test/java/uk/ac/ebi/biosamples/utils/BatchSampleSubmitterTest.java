@@ -0,0 +1,209 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import uk.ac.ebi.biosamples.core.model.Sample;
+
+public class BatchSampleSubmitterTest {
+  private final List<String> persisted = Collections.synchronizedList(new ArrayList<>());
+  private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+  private final BatchSampleSubmitter.Listener listener =
+      new BatchSampleSubmitter.Listener() {
+        @Override
+        public void persisted(final Sample submitted, final Sample persistedSample) {
+          persisted.add(persistedSample.getAccession());
+        }
+
+        @Override
+        public void failed(final Sample sample, final Exception cause) {
+          failed.add(sample.getAccession());
+        }
+      };
+
+  @Test
+  public void sends_full_batches_and_the_rest_on_close() {
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> {
+              batchSizes.add(samples.size());
+              return samples;
+            },
+            4,
+            Duration.ZERO,
+            0,
+            Duration.ZERO,
+            listener);
+
+    for (int i = 0; i < 10; i++) {
+      submitter.add(sample(i));
+    }
+    assertEquals(List.of(4, 4), batchSizes);
+
+    submitter.close();
+
+    assertEquals(List.of(4, 4, 2), batchSizes);
+    assertEquals(10, persisted.size());
+    assertEquals(10, submitter.getPersistedCount());
+    assertEquals(3, submitter.getRequestCount());
+  }
+
+  @Test
+  public void sends_partial_batch_after_max_wait() throws Exception {
+    final CountDownLatch sent = new CountDownLatch(1);
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> {
+              sent.countDown();
+              return samples;
+            },
+            100,
+            Duration.ofMillis(20),
+            0,
+            Duration.ZERO,
+            listener);
+
+    submitter.add(sample(1));
+
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    submitter.close();
+    assertEquals(List.of("SAMN1"), persisted);
+  }
+
+  @Test
+  public void retries_server_errors() {
+    final AtomicInteger calls = new AtomicInteger();
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> {
+              if (calls.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+              }
+              return samples;
+            },
+            2,
+            Duration.ZERO,
+            5,
+            Duration.ofMillis(1),
+            listener);
+
+    submitter.add(sample(1));
+    submitter.add(sample(2));
+    submitter.close();
+
+    assertEquals(3, calls.get());
+    assertEquals(List.of("SAMN1", "SAMN2"), persisted);
+    assertTrue(failed.isEmpty());
+  }
+
+  @Test
+  public void splits_failing_batch_to_isolate_bad_samples() {
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> {
+              if (samples.stream().anyMatch(sample -> sample.getAccession().equals("SAMN5"))) {
+                throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+              }
+              return samples;
+            },
+            8,
+            Duration.ZERO,
+            1,
+            Duration.ofMillis(1),
+            listener);
+
+    for (int i = 0; i < 8; i++) {
+      submitter.add(sample(i));
+    }
+    submitter.close();
+
+    assertEquals(List.of("SAMN5"), failed);
+    assertEquals(7, persisted.size());
+    assertEquals(1, submitter.getFailedCount());
+  }
+
+  @Test
+  public void does_not_split_on_connection_errors() {
+    final AtomicInteger calls = new AtomicInteger();
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> {
+              calls.incrementAndGet();
+              throw new ResourceAccessException("Connection refused");
+            },
+            4,
+            Duration.ZERO,
+            2,
+            Duration.ofMillis(1),
+            listener);
+
+    for (int i = 0; i < 4; i++) {
+      submitter.add(sample(i));
+    }
+    submitter.close();
+
+    assertEquals(3, calls.get());
+    assertEquals(4, failed.size());
+    assertTrue(persisted.isEmpty());
+  }
+
+  @Test
+  public void runs_callbacks_off_the_sending_thread_and_waits_for_them_on_close() {
+    final Set<Thread> callbackThreads = ConcurrentHashMap.newKeySet();
+    final List<String> called = Collections.synchronizedList(new ArrayList<>());
+    final BatchSampleSubmitter submitter =
+        new BatchSampleSubmitter(
+            samples -> samples, 4, Duration.ZERO, 0, Duration.ZERO, listener, 2);
+
+    for (int i = 0; i < 10; i++) {
+      submitter.add(
+          sample(i),
+          persistedSample -> {
+            callbackThreads.add(Thread.currentThread());
+            sleep(10);
+            called.add(persistedSample.getAccession());
+          });
+    }
+    submitter.close();
+
+    assertEquals(10, called.size());
+    assertFalse(callbackThreads.contains(Thread.currentThread()));
+  }
+
+  private static void sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Sample sample(final int number) {
+    return new Sample.Builder("sample" + number, "SAMN" + number).build();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of reading a gzipped NCBI dump on one thread, inflating and parsing with
+ * {@link StaxXmlFragmenter}, to {@link ParallelXmlFragmenter} with a growing number of parser
+ * threads. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelXmlFragmenterBenchmark {
+  @Param("50000")
+  private int sampleCount;
+
+  @Param({"1", "2", "4", "8"})
+  private int threads;
+
+  private byte[] gzippedDump;
+  private StaxXmlFragmenter staxXmlFragmenter;
+  private ParallelXmlFragmenter parallelXmlFragmenter;
+
+  @Setup
+  public void setup() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(XmlFragmenterBenchmark.generateDump(sampleCount));
+    }
+    gzippedDump = bytes.toByteArray();
+    staxXmlFragmenter = new StaxXmlFragmenter();
+    parallelXmlFragmenter = new ParallelXmlFragmenter(staxXmlFragmenter);
+  }
+
+  @Benchmark
+  public void singleThread(final Blackhole blackhole) throws Exception {
+    staxXmlFragmenter.handleStream(
+        new GZIPInputStream(new ByteArrayInputStream(gzippedDump)),
+        "UTF-8",
+        "BioSample",
+        callback(blackhole));
+  }
+
+  @Benchmark
+  public void parallel(final Blackhole blackhole) throws Exception {
+    parallelXmlFragmenter.handleStream(
+        new GZIPInputStream(new ByteArrayInputStream(gzippedDump)),
+        "UTF-8",
+        "BioSample",
+        threads,
+        callback(blackhole));
+  }
+
+  private static StaxXmlFragmenter.ElementCallback callback(final Blackhole blackhole) {
+    return new StaxXmlFragmenter.ElementCallback() {
+      @Override
+      public void handleElement(final Element element) {
+        blackhole.consume(element);
+      }
+
+      @Override
+      public boolean isBlockStart(final XMLStreamReader reader) {
+        return "public".equals(reader.getAttributeValue(null, "access"));
+      }
+    };
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(ParallelXmlFragmenterBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
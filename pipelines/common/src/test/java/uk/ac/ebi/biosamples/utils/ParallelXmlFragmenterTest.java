@@ -0,0 +1,83 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.Element;
+import org.junit.Test;
+
+public class ParallelXmlFragmenterTest {
+  private final StaxXmlFragmenter staxXmlFragmenter = new StaxXmlFragmenter();
+
+  @Test
+  public void handles_same_elements_in_document_order() throws Exception {
+    final byte[] dump = XmlFragmenterBenchmark.generateDump(200);
+    final List<String> expected = new ArrayList<>();
+    final List<String> actual = new ArrayList<>();
+
+    staxXmlFragmenter.handleStream(
+        new ByteArrayInputStream(dump), "UTF-8", "BioSample", publicCallback(expected));
+    // small chunks, so that there are many of them
+    new ParallelXmlFragmenter(staxXmlFragmenter, 4096)
+        .handleStream(
+            new ByteArrayInputStream(dump), "UTF-8", "BioSample", 4, publicCallback(actual));
+
+    assertEquals(160, expected.size());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void splits_at_block_start_tags_without_prolog_and_root_end() throws Exception {
+    final String xml =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<BioSampleSet>\n"
+            + "<BioSample accession=\"SAMN1\"><Id>1</Id></BioSample>\n"
+            + "<BioSample accession=\"SAMN2\"/>\n"
+            + "<BioSample\naccession=\"SAMN3\"><BioSampleId>3</BioSampleId></BioSample>\n"
+            + "</BioSampleSet>\n";
+    final List<String> chunks = new ArrayList<>();
+
+    new ParallelXmlFragmenter(staxXmlFragmenter, 1)
+        .split(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+            "BioSample",
+            chunk -> chunks.add(new String(chunk, StandardCharsets.UTF_8)));
+
+    // the input is read at once, so it is cut at the last block start tag only
+    assertEquals(2, chunks.size());
+    assertEquals(
+        "<BioSample accession=\"SAMN1\"><Id>1</Id></BioSample>\n<BioSample accession=\"SAMN2\"/>\n",
+        chunks.get(0));
+    assertEquals(
+        "<BioSample\naccession=\"SAMN3\"><BioSampleId>3</BioSampleId></BioSample>\n",
+        chunks.get(1));
+  }
+
+  private static StaxXmlFragmenter.ElementCallback publicCallback(final List<String> accessions) {
+    return new StaxXmlFragmenter.ElementCallback() {
+      @Override
+      public void handleElement(final Element element) {
+        accessions.add(element.attributeValue("accession"));
+      }
+
+      @Override
+      public boolean isBlockStart(final XMLStreamReader reader) {
+        return "public".equals(reader.getAttributeValue(null, "access"));
+      }
+    };
+  }
+}
@@ -0,0 +1,79 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.junit.Test;
+
+public class StaxXmlFragmenterTest {
+  private static final String XML =
+      "<BioSampleSet>\n"
+          + "  <BioSample access=\"public\" accession=\"SAMN1\">\n"
+          + "    <Ids><Id db=\"BioSample\" is_primary=\"1\">SAMN1</Id></Ids>\n"
+          + "    <Description><Title>a &amp; b</Title></Description>\n"
+          + "    <Links/>\n"
+          + "  </BioSample>\n"
+          + "  <BioSample access=\"controlled-access\" accession=\"SAMN2\">\n"
+          + "    <BioSample access=\"public\" accession=\"SAMN3\"/>\n"
+          + "  </BioSample>\n"
+          + "  <Other><BioSample access=\"public\" accession=\"SAMN4\"/></Other>\n"
+          + "</BioSampleSet>";
+
+  private final StaxXmlFragmenter staxXmlFragmenter = new StaxXmlFragmenter();
+  private final List<Element> elements = new ArrayList<>();
+  private final StaxXmlFragmenter.ElementCallback publicCallback =
+      new StaxXmlFragmenter.ElementCallback() {
+        @Override
+        public void handleElement(final Element element) {
+          elements.add(element);
+        }
+
+        @Override
+        public boolean isBlockStart(final XMLStreamReader reader) {
+          return "public".equals(reader.getAttributeValue(null, "access"));
+        }
+      };
+
+  @Test
+  public void builds_same_element_as_dom4j() throws Exception {
+    staxXmlFragmenter.handleStream(stream(XML), "UTF-8", "BioSample", publicCallback);
+
+    final Element expected =
+        (Element) DocumentHelper.parseText(XML).getRootElement().elements("BioSample").get(0);
+
+    assertEquals(expected.asXML(), elements.get(0).asXML());
+    assertNull(elements.get(0).getDocument());
+  }
+
+  @Test
+  public void skips_rejected_elements_with_their_content() throws Exception {
+    staxXmlFragmenter.handleStream(stream(XML), "UTF-8", "BioSample", publicCallback);
+
+    final List<String> accessions = new ArrayList<>();
+    elements.forEach(element -> accessions.add(element.attributeValue("accession")));
+
+    // SAMN3 is inside the rejected SAMN2, SAMN4 is found anywhere
+    assertEquals(List.of("SAMN1", "SAMN4"), accessions);
+  }
+
+  private static ByteArrayInputStream stream(final String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLStreamReader;
+import org.dom4j.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.Attributes;
+
+/**
+ * Compares fragmenting an NCBI dump with {@link XmlFragmenter}, SAX building a dom4j document for
+ * every sample of interest, to {@link StaxXmlFragmenter}. Both keep the public samples updated
+ * since 2020, as the daily NCBI import keeps those in its window. Run with the main method from the
+ * test classpath, which adds the GC profiler to report the allocation rate.
+ *
+ * <p>The dump is generated unless the ncbi.dump system property points to an NCBI XML file,
+ * gzipped or not, which is read into memory so it should be a slice of the full dump.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlFragmenterBenchmark {
+  private static final String FROM_DATE = "2020-01-01";
+
+  @Param("10000")
+  private int sampleCount;
+
+  private byte[] dump;
+  private XmlFragmenter xmlFragmenter;
+  private StaxXmlFragmenter staxXmlFragmenter;
+
+  @Setup
+  public void setup() throws IOException {
+    final String dumpFile = System.getProperty("ncbi.dump");
+    dump = dumpFile == null ? generateDump(sampleCount) : readDump(Paths.get(dumpFile));
+    xmlFragmenter = new XmlFragmenter();
+    staxXmlFragmenter = new StaxXmlFragmenter();
+  }
+
+  @Benchmark
+  public void sax(final Blackhole blackhole) throws Exception {
+    xmlFragmenter.handleStream(
+        new ByteArrayInputStream(dump),
+        "UTF-8",
+        new XmlFragmenter.ElementCallback() {
+          @Override
+          public void handleElement(final Element element) {
+            blackhole.consume(element);
+          }
+
+          @Override
+          public boolean isBlockStart(
+              final String uri,
+              final String localName,
+              final String qName,
+              final Attributes attributes) {
+            return qName.equals("BioSample")
+                && isInWindow(
+                    attributes.getValue("", "access"), attributes.getValue("", "last_update"));
+          }
+        });
+  }
+
+  @Benchmark
+  public void stax(final Blackhole blackhole) throws Exception {
+    staxXmlFragmenter.handleStream(
+        new ByteArrayInputStream(dump),
+        "UTF-8",
+        "BioSample",
+        new StaxXmlFragmenter.ElementCallback() {
+          @Override
+          public void handleElement(final Element element) {
+            blackhole.consume(element);
+          }
+
+          @Override
+          public boolean isBlockStart(final XMLStreamReader reader) {
+            return isInWindow(
+                reader.getAttributeValue(null, "access"),
+                reader.getAttributeValue(null, "last_update"));
+          }
+        });
+  }
+
+  private static boolean isInWindow(final String access, final String lastUpdate) {
+    return "public".equals(access) && lastUpdate != null && lastUpdate.compareTo(FROM_DATE) >= 0;
+  }
+
+  private static byte[] readDump(final Path file) throws IOException {
+    try (final InputStream in =
+        file.toString().endsWith(".gz")
+            ? new GZIPInputStream(Files.newInputStream(file))
+            : Files.newInputStream(file)) {
+      return in.readAllBytes();
+    }
+  }
+
+  /** About a fifth of the samples are controlled access, and a third are in the date window */
+  static byte[] generateDump(final int sampleCount) {
+    final StringBuilder xml = new StringBuilder("<BioSampleSet>\n");
+
+    for (int i = 0; i < sampleCount; i++) {
+      final String accession = "SAMN" + (10000000 + i);
+      final String access = i % 5 == 0 ? "controlled-access" : "public";
+      final String date = (2010 + i % 15) + "-11-08T06:44:38.883";
+
+      xml.append("  <BioSample access=\"")
+          .append(access)
+          .append("\" accession=\"")
+          .append(accession)
+          .append("\" id=\"")
+          .append(i)
+          .append("\" last_update=\"")
+          .append(date)
+          .append("\" publication_date=\"")
+          .append(date)
+          .append("\" submission_date=\"")
+          .append(date)
+          .append("\">\n")
+          .append("    <Ids>\n")
+          .append("      <Id db=\"BioSample\" is_primary=\"1\">")
+          .append(accession)
+          .append("</Id>\n")
+          .append("      <Id db=\"SRA\">SRS")
+          .append(i)
+          .append("</Id>\n")
+          .append("    </Ids>\n")
+          .append("    <Description>\n")
+          .append("      <Title>Transgenic Nipponbare plant ")
+          .append(i)
+          .append("</Title>\n")
+          .append("      <Organism taxonomy_id=\"39947\" taxonomy_name=\"Oryza sativa\">\n")
+          .append("        <OrganismName>Oryza sativa Japonica Group</OrganismName>\n")
+          .append("      </Organism>\n")
+          .append("    </Description>\n")
+          .append("    <Owner><Name abbreviation=\"bioci\">BioCI</Name></Owner>\n")
+          .append("    <Models><Model>Plant</Model></Models>\n")
+          .append("    <Package display_name=\"Plant; version 1.0\">Plant.1.0</Package>\n")
+          .append("    <Attributes>\n")
+          .append("      <Attribute attribute_name=\"cultivar\">japonica</Attribute>\n")
+          .append("      <Attribute attribute_name=\"dev_stage\">callus</Attribute>\n")
+          .append("      <Attribute attribute_name=\"geo_loc_name\">USA: Michigan</Attribute>\n")
+          .append("      <Attribute attribute_name=\"tissue\">callus</Attribute>\n")
+          .append("    </Attributes>\n")
+          .append("    <Links/>\n")
+          .append("    <Status status=\"live\" when=\"")
+          .append(date)
+          .append("\"/>\n")
+          .append("  </BioSample>\n");
+    }
+
+    return xml.append("</BioSampleSet>\n").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(XmlFragmenterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.utils.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedCompletionServiceTest {
+  private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void handles_every_result_within_window() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<Integer> results = new ArrayList<>();
+    final BoundedCompletionService<Integer> completionService =
+        new BoundedCompletionService<>(executorService, 3, results::add);
+
+    for (int i = 0; i < 100; i++) {
+      final int value = i;
+      completionService.submit(
+          () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            running.decrementAndGet();
+            return value;
+          });
+      assertTrue(completionService.getInFlight() <= 3);
+    }
+    completionService.awaitAll();
+
+    assertEquals(100, results.size());
+    assertEquals(100, completionService.getCompletedCount());
+    assertEquals(0, completionService.getInFlight());
+    assertTrue(maxRunning.get() <= 3);
+  }
+
+  @Test
+  public void handles_results_in_completion_order() throws Exception {
+    final CountDownLatch slowTask = new CountDownLatch(1);
+    final List<String> results = new ArrayList<>();
+    final BoundedCompletionService<String> completionService =
+        new BoundedCompletionService<>(executorService, 2, results::add);
+
+    completionService.submit(
+        () -> {
+          slowTask.await();
+          return "slow";
+        });
+    completionService.submit(() -> "fast");
+    // the window is full, so this waits for the fast task only
+    completionService.submit(
+        () -> {
+          slowTask.countDown();
+          return "last";
+        });
+    completionService.awaitAll();
+
+    assertEquals("fast", results.get(0));
+    assertEquals(3, results.size());
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void failed_task_is_reported() throws Exception {
+    final BoundedCompletionService<String> completionService =
+        new BoundedCompletionService<>(executorService, 2, result -> {});
+
+    completionService.submit(
+        () -> {
+          throw new IllegalStateException("failed");
+        });
+    completionService.awaitAll();
+  }
+}
@@ -16,7 +16,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +37,7 @@ import uk.ac.ebi.biosamples.mongo.repository.MongoCurationRuleRepository;
 import uk.ac.ebi.biosamples.mongo.service.AnalyticsService;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
+import uk.ac.ebi.biosamples.utils.thread.BoundedCompletionService;
 
 @Component
 public class CuramiApplicationRunner implements ApplicationRunner {
@@ -84,7 +83,9 @@ public class CuramiApplicationRunner implements ApplicationRunner {
             pipelinesProperties.getThreadCount(),
             pipelinesProperties.getThreadCountMax())) {
 
-      final Map<String, Future<PipelineResult>> futures = new HashMap<>();
+      final BoundedCompletionService<PipelineResult> completionService =
+          new BoundedCompletionService<>(
+              executorService, pipelinesProperties.getMaxInFlight(), pipelineFutureCallback);
       for (final EntityModel<Sample> sampleResource :
           bioSamplesClient.fetchSampleResourceAll("", filters)) {
         LOG.trace("Handling {}", sampleResource);
@@ -95,7 +96,7 @@ public class CuramiApplicationRunner implements ApplicationRunner {
         final Callable<PipelineResult> task =
             new SampleCuramiCallable(
                 bioSamplesClient, sample, pipelinesProperties.getProxyWebinId(), curationRules);
-        futures.put(sample.getAccession(), executorService.submit(task));
+        completionService.submit(task);
 
         if (++sampleCount % 5000 == 0) {
           LOG.info("Scheduled sample count {}", sampleCount);
@@ -103,7 +104,7 @@ public class CuramiApplicationRunner implements ApplicationRunner {
       }
 
       LOG.info("Waiting for all scheduled tasks to finish");
-      ThreadUtils.checkAndCallbackFutures(futures, 0, pipelineFutureCallback);
+      completionService.awaitAll();
     } catch (final Exception e) {
       LOG.error("Pipeline failed to finish successfully", e);
       throw e;
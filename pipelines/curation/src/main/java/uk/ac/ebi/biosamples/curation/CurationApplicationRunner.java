@@ -15,7 +15,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -35,7 +34,7 @@ import uk.ac.ebi.biosamples.mongo.service.AnalyticsService;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
 import uk.ac.ebi.biosamples.utils.ols.OlsProcessor;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
+import uk.ac.ebi.biosamples.utils.thread.BoundedCompletionService;
 
 @Component
 public class CurationApplicationRunner implements ApplicationRunner {
@@ -77,7 +76,9 @@ public class CurationApplicationRunner implements ApplicationRunner {
             true,
             pipelinesProperties.getThreadCount(),
             pipelinesProperties.getThreadCountMax())) {
-      final Map<String, Future<PipelineResult>> futures = new HashMap<>();
+      final BoundedCompletionService<PipelineResult> completionService =
+          new BoundedCompletionService<>(
+              executorService, pipelinesProperties.getMaxInFlight(), pipelineFutureCallback);
 
       for (final EntityModel<Sample> sampleResource :
           bioSamplesClient.fetchSampleResourceAll("", filters)) {
@@ -101,12 +102,12 @@ public class CurationApplicationRunner implements ApplicationRunner {
         if (sampleCount % 10000 == 0) {
           LOG.info("{} scheduled for processing", sampleCount);
         }
-        futures.put(sample.getAccession(), executorService.submit(task));
+        completionService.submit(task);
       }
 
       LOG.info("waiting for futures");
       // wait for anything to finish
-      ThreadUtils.checkAndCallbackFutures(futures, 0, pipelineFutureCallback);
+      completionService.awaitAll();
     } catch (final Exception e) {
       LOG.error("Pipeline failed to finish successfully", e);
 
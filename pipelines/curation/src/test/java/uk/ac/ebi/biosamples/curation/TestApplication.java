@@ -12,6 +12,7 @@ package uk.ac.ebi.biosamples.curation;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collections;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
@@ -74,7 +75,7 @@ public class TestApplication {
 
   @Bean
   public OlsProcessor olsProcessor() {
-    return new OlsProcessor(restTemplate(), bioSamplesProperties());
+    return new OlsProcessor(restTemplate(), bioSamplesProperties(), new SimpleMeterRegistry());
   }
 
   @Bean
@@ -0,0 +1,28 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Describes an export, written next to the shards. It is rewritten as each shard finishes, so an
+ * interrupted or partly failed export can be resumed from it.
+ */
+@Data
+public class ExportManifest {
+  private String format;
+  private long shardSize;
+  private String started;
+  private String updated;
+  private List<ExportShard> shards = new ArrayList<>();
+}
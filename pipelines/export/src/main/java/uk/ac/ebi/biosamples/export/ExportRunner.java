@@ -11,72 +11,262 @@
 package uk.ac.ebi.biosamples.export;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.util.zip.GZIPOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.hateoas.EntityModel;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
 import org.springframework.stereotype.Component;
-import uk.ac.ebi.biosamples.client.BioSamplesClient;
-import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.service.FileDownloadSerializer;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 
+/**
+ * Exports all public samples into numbered gzip shards in the given directory, each shard covering
+ * a range of accession numbers of one accession prefix. Shards are exported concurrently, and a
+ * manifest with the range, sample count and SHA-256 checksum of each shard is kept up to date as
+ * they finish.
+ *
+ * <p>Options:
+ *
+ * <ul>
+ *   <li>--format=json|ndjson, each shard is a JSON array or has one sample per line (default json)
+ *   <li>--shardsize=N, the number of accession numbers covered by each shard (default 1000000)
+ *   <li>--threads=N, the number of shards exported at the same time (default 8)
+ *   <li>--resume, exports the shards of the existing manifest that are not complete, or whose file
+ *       no longer matches its checksum
+ *   <li>--shard=N, only exports the given shards of the existing manifest, can be repeated
+ * </ul>
+ *
+ * <p>The runner fails if any shard fails, once the other shards have finished.
+ */
 @Component
 public class ExportRunner implements ApplicationRunner {
-
-  private final Logger log = LoggerFactory.getLogger(getClass());
-  private final BioSamplesClient bioSamplesClient;
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExportRunner.class);
+  private static final String MANIFEST_FILE = "manifest.json";
+  private static final long DEFAULT_SHARD_SIZE = 1000000;
+  private static final int DEFAULT_THREAD_COUNT = 8;
+  private final ShardExporter shardExporter;
+  private final MongoOperations mongoOperations;
   private final ObjectMapper objectMapper;
 
-  public ExportRunner(final BioSamplesClient bioSamplesClient, final ObjectMapper objectMapper) {
-    // ensure the client is public
-    if (bioSamplesClient.getPublicClient().isPresent()) {
-      this.bioSamplesClient = bioSamplesClient.getPublicClient().get();
-    } else {
-      this.bioSamplesClient = bioSamplesClient;
-    }
+  public ExportRunner(
+      final ShardExporter shardExporter,
+      final MongoOperations mongoOperations,
+      final ObjectMapper objectMapper) {
+    this.shardExporter = shardExporter;
+    this.mongoOperations = mongoOperations;
     this.objectMapper = objectMapper;
   }
 
   @Override
-  public void run(final ApplicationArguments args) {
-    final String jsonSampleFilename = args.getNonOptionArgs().get(0);
+  public void run(final ApplicationArguments args) throws Exception {
+    final Path directory = Paths.get(args.getNonOptionArgs().get(0));
+    final Path manifestFile = directory.resolve(MANIFEST_FILE);
+    final List<String> requestedShards = args.getOptionValues("shard");
+    final int threadCount = Integer.parseInt(getOption(args, "threads", DEFAULT_THREAD_COUNT));
     final long oldTime = System.nanoTime();
-    int sampleCount = 0;
 
+    Files.createDirectories(directory);
+
+    final ExportManifest manifest;
+    if (args.containsOption("resume") || requestedShards != null) {
+      if (!Files.exists(manifestFile)) {
+        throw new IllegalStateException("No manifest to resume from in " + directory);
+      }
+      manifest = objectMapper.readValue(manifestFile.toFile(), ExportManifest.class);
+    } else {
+      manifest =
+          createManifest(
+              getOption(args, "format", "json"),
+              Long.parseLong(getOption(args, "shardsize", DEFAULT_SHARD_SIZE)));
+    }
+
+    final List<ExportShard> shards = getShardsToExport(manifest, requestedShards, directory);
+    final FileDownloadSerializer serializer = getSerializer(manifest.getFormat());
+    writeManifest(manifest, manifestFile);
+    LOGGER.info("Exporting " + shards.size() + " shards to " + directory);
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
     try {
-      boolean first = true;
-      try (final Writer jsonSampleWriter =
-          args.getOptionValues("gzip") == null
-              ? new OutputStreamWriter(
-                  new FileOutputStream(jsonSampleFilename), StandardCharsets.UTF_8)
-              : new OutputStreamWriter(
-                  new GZIPOutputStream(new FileOutputStream(jsonSampleFilename)),
-                  StandardCharsets.UTF_8)) {
-        jsonSampleWriter.write("[\n");
-        for (final EntityModel<Sample> sampleResource : bioSamplesClient.fetchSampleResourceAll()) {
-          log.trace("Handling " + sampleResource);
-          final Sample sample = sampleResource.getContent();
-          if (sample == null) {
-            throw new RuntimeException("Sample should not be null");
-          }
-          if (!first) {
-            jsonSampleWriter.write(",\n");
-          }
-          jsonSampleWriter.write(objectMapper.writeValueAsString(sample));
-          first = false;
-          sampleCount += 1;
-        }
-        jsonSampleWriter.write("\n]");
+      final List<Future<?>> futures = new ArrayList<>();
+      for (final ExportShard shard : shards) {
+        futures.add(
+            executorService.submit(
+                () -> {
+                  exportShard(shard, directory, serializer);
+                  writeManifest(manifest, manifestFile);
+                  return null;
+                }));
       }
-    } catch (final Exception e) {
+
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final ExecutionException e) {
+      throw new RuntimeException("Failed to write the export manifest", e.getCause());
     } finally {
-      final long elapsed = System.nanoTime() - oldTime;
-      log.info("Exported " + sampleCount + " samples in " + (elapsed / 1000000000L) + "s");
+      executorService.shutdownNow();
     }
+
+    final List<Integer> failedShards =
+        shards.stream()
+            .filter(shard -> shard.getStatus() != ExportShard.Status.COMPLETE)
+            .map(ExportShard::getNumber)
+            .collect(Collectors.toList());
+    final long sampleCount = manifest.getShards().stream().mapToLong(ExportShard::getCount).sum();
+    final long elapsed = System.nanoTime() - oldTime;
+    LOGGER.info(
+        "Exported "
+            + sampleCount
+            + " samples in "
+            + (elapsed / 1000000000L)
+            + "s, "
+            + failedShards.size()
+            + " shards failed");
+
+    if (!failedShards.isEmpty()) {
+      throw new IllegalStateException(
+          "Shards " + failedShards + " failed, export them again with --resume");
+    }
+  }
+
+  private void exportShard(
+      final ExportShard shard, final Path directory, final FileDownloadSerializer serializer) {
+    try {
+      shardExporter.export(shard, directory, serializer);
+    } catch (final Exception e) {
+      LOGGER.error("Failed to export shard " + shard.getNumber(), e);
+      shard.setStatus(ExportShard.Status.FAILED);
+    }
+  }
+
+  /** Splits the accession numbers of each prefix into ranges of the shard size */
+  private ExportManifest createManifest(final String format, final long shardSize) {
+    final Aggregation aggregation =
+        Aggregation.newAggregation(
+                Aggregation.group("accessionPrefix")
+                    .min("accessionNumber")
+                    .as("min")
+                    .max("accessionNumber")
+                    .as("max"))
+            .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    final List<Document> prefixes =
+        new ArrayList<>(
+            mongoOperations
+                .aggregate(aggregation, MongoSample.class, Document.class)
+                .getMappedResults());
+    prefixes.sort(
+        Comparator.comparing(
+            (Document prefix) -> prefix.getString("_id"),
+            Comparator.nullsLast(Comparator.naturalOrder())));
+
+    final String extension = "ndjson".equalsIgnoreCase(format) ? "ndjson" : "json";
+    final ExportManifest manifest = new ExportManifest();
+    manifest.setFormat(extension);
+    manifest.setShardSize(shardSize);
+    manifest.setStarted(Instant.now().toString());
+
+    for (final Document prefix : prefixes) {
+      final String accessionPrefix = prefix.getString("_id");
+      if (accessionPrefix == null || prefix.get("min") == null) {
+        manifest
+            .getShards()
+            .add(
+                ExportShard.build(
+                    manifest.getShards().size() + 1, accessionPrefix, 0, 0, extension));
+        continue;
+      }
+
+      final long min = ((Number) prefix.get("min")).longValue();
+      final long max = ((Number) prefix.get("max")).longValue();
+      for (long from = (min / shardSize) * shardSize; from <= max; from += shardSize) {
+        manifest
+            .getShards()
+            .add(
+                ExportShard.build(
+                    manifest.getShards().size() + 1,
+                    accessionPrefix,
+                    from,
+                    from + shardSize,
+                    extension));
+      }
+    }
+
+    return manifest;
+  }
+
+  private static List<ExportShard> getShardsToExport(
+      final ExportManifest manifest, final List<String> requestedShards, final Path directory) {
+    if (requestedShards == null) {
+      return manifest.getShards().stream()
+          .filter(shard -> !isExported(shard, directory))
+          .collect(Collectors.toList());
+    }
+
+    final Set<Integer> numbers =
+        requestedShards.stream().map(Integer::parseInt).collect(Collectors.toSet());
+    return manifest.getShards().stream()
+        .filter(shard -> numbers.contains(shard.getNumber()))
+        .collect(Collectors.toList());
+  }
+
+  /** A complete shard is only skipped if its file is still there, with the same checksum */
+  private static boolean isExported(final ExportShard shard, final Path directory) {
+    if (shard.getStatus() != ExportShard.Status.COMPLETE) {
+      return false;
+    }
+
+    final Path file = directory.resolve(shard.getFile());
+    try {
+      if (Files.exists(file) && ShardExporter.sha256(file).equals(shard.getSha256())) {
+        return true;
+      }
+    } catch (final IOException e) {
+      LOGGER.warn("Failed to read back shard " + shard.getNumber(), e);
+    }
+
+    LOGGER.warn("Shard " + shard.getNumber() + " does not match the manifest, exporting it again");
+    shard.setStatus(ExportShard.Status.PENDING);
+
+    return false;
+  }
+
+  private FileDownloadSerializer getSerializer(final String format) {
+    return "ndjson".equals(format)
+        ? new FileDownloadSerializer.FileDownloadNdJsonSerializer(objectMapper)
+        : new FileDownloadSerializer.FileDownloadJsonSerializer(objectMapper);
+  }
+
+  private synchronized void writeManifest(final ExportManifest manifest, final Path manifestFile)
+      throws IOException {
+    manifest.setUpdated(Instant.now().toString());
+
+    final Path partFile = manifestFile.resolveSibling(MANIFEST_FILE + ".part");
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(partFile.toFile(), manifest);
+    Files.move(partFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static String getOption(
+      final ApplicationArguments args, final String name, final Object defaultValue) {
+    final List<String> values = args.getOptionValues(name);
+    return values == null || values.isEmpty() ? String.valueOf(defaultValue) : values.get(0);
   }
 }
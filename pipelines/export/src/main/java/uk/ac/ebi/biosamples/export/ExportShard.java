@@ -0,0 +1,53 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.export;
+
+import lombok.Data;
+
+/**
+ * A range of accessions exported to one gzip file. Samples whose accession has no prefix and number
+ * are all exported to a shard without an accession prefix.
+ */
+@Data
+public class ExportShard {
+  public enum Status {
+    PENDING,
+    COMPLETE,
+    FAILED
+  }
+
+  private int number;
+  private String accessionPrefix;
+  // inclusive
+  private long fromNumber;
+  // exclusive
+  private long toNumber;
+  private String file;
+  private long count;
+  private String sha256;
+  private Status status = Status.PENDING;
+
+  public static ExportShard build(
+      final int number,
+      final String accessionPrefix,
+      final long fromNumber,
+      final long toNumber,
+      final String extension) {
+    final ExportShard shard = new ExportShard();
+    shard.number = number;
+    shard.accessionPrefix = accessionPrefix;
+    shard.fromNumber = fromNumber;
+    shard.toNumber = toNumber;
+    shard.file = String.format("samples-%05d.%s.gz", number, extension);
+
+    return shard;
+  }
+}
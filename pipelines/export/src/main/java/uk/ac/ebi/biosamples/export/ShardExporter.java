@@ -0,0 +1,171 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.model.SampleStatus;
+import uk.ac.ebi.biosamples.core.service.FileDownloadSerializer;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
+
+/**
+ * Exports the public samples of one shard, read from mongo in accession order and assembled in
+ * chunks. The file is written under a temporary name and only renamed once complete, so a shard
+ * file is never left truncated.
+ */
+@Component
+public class ShardExporter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShardExporter.class);
+  private static final int CHUNK_SIZE = 1000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private final SampleReadService sampleReadService;
+  private final MongoOperations mongoOperations;
+
+  public ShardExporter(
+      final SampleReadService sampleReadService, final MongoOperations mongoOperations) {
+    this.sampleReadService = sampleReadService;
+    this.mongoOperations = mongoOperations;
+  }
+
+  /** Sets the count, checksum and status of the shard once its file has been written */
+  public void export(
+      final ExportShard shard, final Path directory, final FileDownloadSerializer serializer)
+      throws IOException {
+    final Path file = directory.resolve(shard.getFile());
+    final Path partFile = directory.resolve(shard.getFile() + ".part");
+    final MessageDigest digest = getSha256Digest();
+    final Instant now = Instant.now();
+    long count = 0;
+
+    try (final CloseableIterator<MongoSample> it =
+            mongoOperations.stream(getQuery(shard, now), MongoSample.class);
+        final OutputStream out =
+            new GZIPOutputStream(
+                new DigestOutputStream(Files.newOutputStream(partFile), digest), BUFFER_SIZE);
+        final FileDownloadSerializer.SampleWriter sampleWriter = serializer.open(out)) {
+      final List<MongoSample> chunk = new ArrayList<>(CHUNK_SIZE);
+
+      while (it.hasNext()) {
+        chunk.add(it.next());
+        if (chunk.size() >= CHUNK_SIZE) {
+          count += writeChunk(chunk, sampleWriter, now);
+          chunk.clear();
+        }
+      }
+
+      count += writeChunk(chunk, sampleWriter, now);
+    } catch (final IOException | RuntimeException e) {
+      Files.deleteIfExists(partFile);
+      throw e;
+    }
+
+    Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+    shard.setCount(count);
+    shard.setSha256(toHex(digest.digest()));
+    shard.setStatus(ExportShard.Status.COMPLETE);
+    LOGGER.info("Exported " + count + " samples to " + file);
+  }
+
+  /** @return the SHA-256 checksum of a shard file, as recorded in the manifest */
+  public static String sha256(final Path file) throws IOException {
+    final MessageDigest digest = getSha256Digest();
+    try (final InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    return toHex(digest.digest());
+  }
+
+  private long writeChunk(
+      final List<MongoSample> chunk,
+      final FileDownloadSerializer.SampleWriter sampleWriter,
+      final Instant now)
+      throws IOException {
+    long count = 0;
+    for (final Sample sample : sampleReadService.assembleAll(chunk, true)) {
+      if (isPublic(sample, now)) {
+        sampleWriter.write(sample);
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private static Query getQuery(final ExportShard shard, final Instant now) {
+    final Query query;
+    if (shard.getAccessionPrefix() == null) {
+      query = new Query(Criteria.where("accessionPrefix").is(null));
+      query.with(Sort.by("accession"));
+    } else {
+      query =
+          new Query(
+              Criteria.where("accessionPrefix")
+                  .is(shard.getAccessionPrefix())
+                  .and("accessionNumber")
+                  .gte(shard.getFromNumber())
+                  .lt(shard.getToNumber()));
+      query.with(Sort.by("accessionNumber"));
+    }
+
+    query.addCriteria(Criteria.where("release").lte(now));
+
+    return query;
+  }
+
+  /** Curations may change the release date, so this is checked again once assembled */
+  private static boolean isPublic(final Sample sample, final Instant now) {
+    return sample.getRelease() != null
+        && !sample.getRelease().isAfter(now)
+        && (sample.getStatus() == null
+            || !SampleStatus.getSearchHiddenStatuses().contains(sample.getStatus().name()));
+  }
+
+  private static MessageDigest getSha256Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(final byte[] bytes) {
+    final StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (final byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+
+    return hex.toString();
+  }
+}
@@ -0,0 +1,174 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+public class ExportRunnerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ShardExporter shardExporter = mock(ShardExporter.class);
+  private final List<Integer> exportedShards = Collections.synchronizedList(new ArrayList<>());
+  private Path directory;
+  private ExportRunner exportRunner;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = temporaryFolder.getRoot().toPath();
+    exportRunner = new ExportRunner(shardExporter, mock(MongoOperations.class), objectMapper);
+
+    // writes the number of the shard as its content
+    doAnswer(
+            invocation -> {
+              final ExportShard shard = invocation.getArgument(0);
+              exportedShards.add(shard.getNumber());
+              writeShard(shard, String.valueOf(shard.getNumber()));
+              return null;
+            })
+        .when(shardExporter)
+        .export(any(), any(), any());
+  }
+
+  @Test
+  public void given_resume_only_shards_not_matching_their_checksum_are_exported()
+      throws Exception {
+    final ExportShard matching = newShard(1);
+    writeShard(matching, "1");
+    final ExportShard changed = newShard(2);
+    writeShard(changed, "2");
+    Files.write(directory.resolve(changed.getFile()), "truncated".getBytes(StandardCharsets.UTF_8));
+    writeManifest(matching, changed, newShard(3));
+
+    exportRunner.run(new DefaultApplicationArguments(directory.toString(), "--resume"));
+
+    assertEquals(List.of(2, 3), sorted(exportedShards));
+    for (final ExportShard shard : readManifest().getShards()) {
+      assertEquals(ExportShard.Status.COMPLETE, shard.getStatus());
+      assertEquals(shard.getSha256(), ShardExporter.sha256(directory.resolve(shard.getFile())));
+    }
+  }
+
+  @Test
+  public void given_resume_leftover_part_files_are_exported_again() throws Exception {
+    final ExportShard pending = newShard(1);
+    Files.write(
+        directory.resolve(pending.getFile() + ".part"), "1".getBytes(StandardCharsets.UTF_8));
+    // a complete shard whose file has gone, only the part file it was written to is left
+    final ExportShard renameLost = newShard(2);
+    writeShard(renameLost, "2");
+    Files.move(
+        directory.resolve(renameLost.getFile()),
+        directory.resolve(renameLost.getFile() + ".part"));
+    writeManifest(pending, renameLost);
+
+    exportRunner.run(new DefaultApplicationArguments(directory.toString(), "--resume"));
+
+    assertEquals(List.of(1, 2), sorted(exportedShards));
+    assertTrue(Files.exists(directory.resolve(pending.getFile())));
+    assertTrue(Files.exists(directory.resolve(renameLost.getFile())));
+  }
+
+  @Test
+  public void given_shard_option_only_that_shard_is_exported() throws Exception {
+    writeManifest(newShard(1), newShard(2), newShard(3));
+
+    exportRunner.run(new DefaultApplicationArguments(directory.toString(), "--shard=2"));
+
+    assertEquals(List.of(2), exportedShards);
+    final List<ExportShard> shards = readManifest().getShards();
+    assertFalse(Files.exists(directory.resolve(shards.get(0).getFile())));
+    assertTrue(Files.exists(directory.resolve(shards.get(1).getFile())));
+    assertFalse(Files.exists(directory.resolve(shards.get(2).getFile())));
+    assertEquals(ExportShard.Status.PENDING, shards.get(0).getStatus());
+    assertEquals(ExportShard.Status.COMPLETE, shards.get(1).getStatus());
+    assertEquals(ExportShard.Status.PENDING, shards.get(2).getStatus());
+  }
+
+  @Test
+  public void given_shard_fails_run_fails_once_the_others_are_exported() throws Exception {
+    doAnswer(
+            invocation -> {
+              final ExportShard shard = invocation.getArgument(0);
+              if (shard.getNumber() == 2) {
+                throw new IOException("disk full");
+              }
+              writeShard(shard, String.valueOf(shard.getNumber()));
+              return null;
+            })
+        .when(shardExporter)
+        .export(any(), any(), any());
+    writeManifest(newShard(1), newShard(2), newShard(3));
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> exportRunner.run(new DefaultApplicationArguments(directory.toString(), "--resume")));
+
+    final List<ExportShard> shards = readManifest().getShards();
+    assertEquals(ExportShard.Status.COMPLETE, shards.get(0).getStatus());
+    assertEquals(ExportShard.Status.FAILED, shards.get(1).getStatus());
+    assertEquals(ExportShard.Status.COMPLETE, shards.get(2).getStatus());
+  }
+
+  private static ExportShard newShard(final int number) {
+    return ExportShard.build(number, "SAMEA", (number - 1) * 10L, number * 10L, "json");
+  }
+
+  /** Writes the shard file and records it in the shard, as ShardExporter does */
+  private void writeShard(final ExportShard shard, final String content) throws IOException {
+    final Path file = directory.resolve(shard.getFile());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    shard.setCount(1);
+    shard.setSha256(ShardExporter.sha256(file));
+    shard.setStatus(ExportShard.Status.COMPLETE);
+  }
+
+  private void writeManifest(final ExportShard... shards) throws IOException {
+    final ExportManifest manifest = new ExportManifest();
+    manifest.setFormat("json");
+    manifest.setShardSize(10);
+    manifest.setShards(new ArrayList<>(List.of(shards)));
+    objectMapper.writeValue(directory.resolve("manifest.json").toFile(), manifest);
+  }
+
+  private ExportManifest readManifest() throws IOException {
+    return objectMapper.readValue(
+        directory.resolve("manifest.json").toFile(), ExportManifest.class);
+  }
+
+  private static List<Integer> sorted(final List<Integer> numbers) {
+    final List<Integer> sorted = new ArrayList<>(numbers);
+    Collections.sort(sorted);
+
+    return sorted;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import uk.ac.ebi.biosamples.core.service.FileDownloadSerializer;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
+
+public class ShardExporterTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final MongoOperations mongoOperations = mock(MongoOperations.class);
+  private final FileDownloadSerializer serializer =
+      new FileDownloadSerializer.FileDownloadJsonSerializer(new ObjectMapper());
+  private final ExportShard shard = ExportShard.build(1, "SAMEA", 0, 10, "json");
+  private Path directory;
+  private ShardExporter shardExporter;
+
+  @Before
+  public void setUp() {
+    directory = temporaryFolder.getRoot().toPath();
+    shardExporter = new ShardExporter(mock(SampleReadService.class), mongoOperations);
+  }
+
+  @Test
+  public void given_shard_exported_file_matches_its_checksum() throws IOException {
+    when(mongoOperations.stream(any(Query.class), eq(MongoSample.class)))
+        .thenReturn(new FailingIterator(false));
+
+    shardExporter.export(shard, directory, serializer);
+
+    assertEquals(ExportShard.Status.COMPLETE, shard.getStatus());
+    assertEquals(shard.getSha256(), ShardExporter.sha256(directory.resolve(shard.getFile())));
+    assertFalse(Files.exists(directory.resolve(shard.getFile() + ".part")));
+  }
+
+  @Test
+  public void given_export_fails_no_shard_file_is_left() throws IOException {
+    when(mongoOperations.stream(any(Query.class), eq(MongoSample.class)))
+        .thenReturn(new FailingIterator(true));
+
+    assertThrows(
+        IllegalStateException.class, () -> shardExporter.export(shard, directory, serializer));
+
+    assertEquals(ExportShard.Status.PENDING, shard.getStatus());
+    try (final Stream<Path> files = Files.list(directory)) {
+      assertTrue(files.findAny().isEmpty());
+    }
+  }
+
+  /** No samples, or a cursor failing as the first one is read */
+  private static class FailingIterator implements CloseableIterator<MongoSample> {
+    private final boolean fail;
+
+    private FailingIterator(final boolean fail) {
+      this.fail = fail;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return fail;
+    }
+
+    @Override
+    public MongoSample next() {
+      throw new IllegalStateException("cursor lost");
+    }
+
+    @Override
+    public void close() {}
+  }
+}
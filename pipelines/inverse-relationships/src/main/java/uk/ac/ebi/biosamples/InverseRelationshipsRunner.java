@@ -0,0 +1,80 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.biosamples.mongo.model.MongoSample;
+import uk.ac.ebi.biosamples.mongo.service.MongoInverseRelationshipService;
+
+/**
+ * This runner builds the precomputed inverse relationships from the relationships stored on the
+ * existing samples. It has to be run before biosamples.mongo.inverserelationships.precomputed is
+ * enabled, samples saved while it runs are kept up to date by the webapps.
+ *
+ * <p>Running it again only adds inverse relationships that are missing, it does not remove any.
+ */
+@Component
+public class InverseRelationshipsRunner implements ApplicationRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(InverseRelationshipsRunner.class);
+  private static final int CHUNK_SIZE = 1000;
+  private final MongoOperations mongoOperations;
+  private final MongoInverseRelationshipService mongoInverseRelationshipService;
+
+  @Autowired
+  public InverseRelationshipsRunner(
+      final MongoOperations mongoOperations,
+      final MongoInverseRelationshipService mongoInverseRelationshipService) {
+    this.mongoOperations = mongoOperations;
+    this.mongoInverseRelationshipService = mongoInverseRelationshipService;
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) {
+    // only samples with at least one relationship
+    final Query query = new Query(Criteria.where("relationships.0").exists(true));
+    long sampleCount = 0;
+
+    try (final CloseableIterator<MongoSample> it =
+        mongoOperations.stream(query, MongoSample.class)) {
+      List<MongoSample> chunk = new ArrayList<>(CHUNK_SIZE);
+
+      while (it.hasNext()) {
+        chunk.add(it.next());
+
+        if (chunk.size() == CHUNK_SIZE) {
+          mongoInverseRelationshipService.indexInverseRelationships(chunk);
+          sampleCount += chunk.size();
+          chunk = new ArrayList<>(CHUNK_SIZE);
+
+          LOGGER.info("Indexed relationships of " + sampleCount + " samples");
+        }
+      }
+
+      if (!chunk.isEmpty()) {
+        mongoInverseRelationshipService.indexInverseRelationships(chunk);
+        sampleCount += chunk.size();
+      }
+    }
+
+    LOGGER.info("Finished indexing relationships of " + sampleCount + " samples");
+  }
+}
@@ -26,8 +26,10 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import org.dom4j.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +48,11 @@ import uk.ac.ebi.biosamples.model.PipelineName;
 import uk.ac.ebi.biosamples.mongo.model.MongoPipeline;
 import uk.ac.ebi.biosamples.mongo.repository.MongoPipelineRepository;
 import uk.ac.ebi.biosamples.mongo.util.PipelineCompletionStatus;
+import uk.ac.ebi.biosamples.utils.AccessionFingerprintStore;
+import uk.ac.ebi.biosamples.utils.BatchSampleSubmitter;
+import uk.ac.ebi.biosamples.utils.ParallelXmlFragmenter;
 import uk.ac.ebi.biosamples.utils.PipelineUniqueIdentifierGenerator;
+import uk.ac.ebi.biosamples.utils.StaxXmlFragmenter;
 import uk.ac.ebi.biosamples.utils.XmlFragmenter;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
 import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
@@ -57,7 +63,10 @@ public class Ncbi implements ApplicationRunner {
   private final Logger log = LoggerFactory.getLogger(getClass());
   private final PipelinesProperties pipelinesProperties;
   private final XmlFragmenter xmlFragmenter;
+  private final StaxXmlFragmenter staxXmlFragmenter;
+  private final ParallelXmlFragmenter parallelXmlFragmenter;
   private final NcbiFragmentCallback sampleCallback;
+  private final NcbiElementCallableFactory ncbiElementCallableFactory;
   private final BioSamplesClient bioSamplesClient;
   private final MongoPipelineRepository mongoPipelineRepository;
   private final Map<String, Set<StructuredDataTable>> sampleToAmrMap;
@@ -65,12 +74,18 @@ public class Ncbi implements ApplicationRunner {
   public Ncbi(
       final PipelinesProperties pipelinesProperties,
       final XmlFragmenter xmlFragmenter,
+      final StaxXmlFragmenter staxXmlFragmenter,
+      final ParallelXmlFragmenter parallelXmlFragmenter,
       final NcbiFragmentCallback sampleCallback,
+      final NcbiElementCallableFactory ncbiElementCallableFactory,
       final BioSamplesClient bioSamplesClient,
       final MongoPipelineRepository mongoPipelineRepository) {
     this.pipelinesProperties = pipelinesProperties;
     this.xmlFragmenter = xmlFragmenter;
+    this.staxXmlFragmenter = staxXmlFragmenter;
+    this.parallelXmlFragmenter = parallelXmlFragmenter;
     this.sampleCallback = sampleCallback;
+    this.ncbiElementCallableFactory = ncbiElementCallableFactory;
     this.bioSamplesClient = bioSamplesClient;
     this.mongoPipelineRepository = mongoPipelineRepository;
     this.sampleToAmrMap = new HashMap<>();
@@ -79,7 +94,7 @@ public class Ncbi implements ApplicationRunner {
   @Override
   public void run(final ApplicationArguments args)
       throws IOException, ParserConfigurationException, ExecutionException, InterruptedException,
-          SAXException {
+          SAXException, XMLStreamException {
     String pipelineFailureCause = null;
     boolean isPassed = true;
     boolean includeAmr = true;
@@ -138,8 +153,17 @@ public class Ncbi implements ApplicationRunner {
       Path inputPath = Paths.get(ncbiFile);
       inputPath = inputPath.toAbsolutePath();
 
-      try (final InputStream is =
-          new GZIPInputStream(new BufferedInputStream(Files.newInputStream(inputPath)))) {
+      // in delta mode, the samples unchanged since the previous run are not submitted again
+      final AccessionFingerprintStore fingerprintStore =
+          ncbiElementCallableFactory.openFingerprintStore();
+      sampleCallback.setFingerprintStore(fingerprintStore);
+
+      // closed after the input, so the last batch is sent once all the samples have been added
+      try (final BatchSampleSubmitter batchSampleSubmitter = createBatchSampleSubmitter();
+          final InputStream is =
+              new GZIPInputStream(new BufferedInputStream(Files.newInputStream(inputPath)))) {
+        sampleCallback.setBatchSampleSubmitter(batchSampleSubmitter);
+
         if (pipelinesProperties.getThreadCount() > 0) {
           ExecutorService executorService = null;
 
@@ -159,7 +183,7 @@ public class Ncbi implements ApplicationRunner {
             sampleCallback.setSampleToAmrMap(sampleToAmrMap);
 
             // this does the actual processing
-            xmlFragmenter.handleStream(is, "UTF-8", sampleCallback);
+            parse(is);
 
             log.info("waiting for futures");
 
@@ -173,14 +197,19 @@ public class Ncbi implements ApplicationRunner {
         } else {
           // do all on master thread
           // this does the actual processing
-          xmlFragmenter.handleStream(is, "UTF-8", sampleCallback);
+          parse(is);
         }
       }
       log.info("Handled new and updated NCBI samples");
       log.info("Number of accession from NCBI = " + sampleCallback.getAccessions().size());
       // remove old NCBI samples no longer present
-      // get all existing NCBI samples
-      // makingNcbiSamplesPrivate();
+      if (fingerprintStore != null) {
+        makingMissingNcbiSamplesPrivate(fingerprintStore);
+        fingerprintStore.save();
+      } else {
+        // get all existing NCBI samples
+        // makingNcbiSamplesPrivate();
+      }
       log.info("Processed NCBI pipeline");
     } catch (final Exception e) {
       log.error("Pipeline failed to finish successfully", e);
@@ -221,6 +250,46 @@ public class Ncbi implements ApplicationRunner {
     }
   }
 
+  private void parse(final InputStream is)
+      throws IOException, ParserConfigurationException, SAXException, XMLStreamException,
+          InterruptedException {
+    if ("parallel".equalsIgnoreCase(pipelinesProperties.getNcbiParser())) {
+      // the reader thread inflates the dump while the chunks are parsed
+      parallelXmlFragmenter.handleStream(
+          is, "UTF-8", "BioSample", pipelinesProperties.getNcbiParserThreads(), sampleCallback);
+    } else if ("stax".equalsIgnoreCase(pipelinesProperties.getNcbiParser())) {
+      staxXmlFragmenter.handleStream(is, "UTF-8", "BioSample", sampleCallback);
+    } else {
+      xmlFragmenter.handleStream(is, "UTF-8", sampleCallback);
+    }
+  }
+
+  private BatchSampleSubmitter createBatchSampleSubmitter() {
+    final BatchSampleSubmitter batchSampleSubmitter =
+        ncbiElementCallableFactory.buildBatchSampleSubmitter(
+            new BatchSampleSubmitter.Listener() {
+              @Override
+              public void persisted(final Sample submitted, final Sample persisted) {
+                log.trace("Persisted NCBI sample " + submitted.getAccession());
+              }
+
+              @Override
+              public void failed(final Sample sample, final Exception cause) {
+                log.info(
+                    "Failed to import NCBI sample having accession "
+                        + sample.getAccession()
+                        + ": "
+                        + cause.getMessage());
+              }
+            });
+
+    if (batchSampleSubmitter != null) {
+      log.info("Persisting NCBI samples in batches of " + pipelinesProperties.getBatchSize());
+    }
+
+    return batchSampleSubmitter;
+  }
+
   private void makingNcbiSamplesPrivate() {
     // Run every Monday as this scans through all samples, not required to run each day
     if (isFirstDayOfTheWeek()) {
@@ -230,10 +299,23 @@ public class Ncbi implements ApplicationRunner {
       // remove those samples that are left
       log.info("Number of samples to make private = " + toRemoveAccessions.size());
 
-      makePrivate(toRemoveAccessions);
+      makePrivate(toRemoveAccessions, accession -> {});
     }
   }
 
+  /**
+   * Makes private the samples imported by a previous run that are no longer public in NCBI. The
+   * store knows them, so unlike {@link #makingNcbiSamplesPrivate()} this does not scan through all
+   * the samples and can run every day.
+   */
+  private void makingMissingNcbiSamplesPrivate(final AccessionFingerprintStore fingerprintStore) {
+    final Set<String> toRemoveAccessions =
+        fingerprintStore.getMissingAccessions(sampleCallback.getAccessions());
+    log.info("Number of samples to make private = " + toRemoveAccessions.size());
+
+    makePrivate(toRemoveAccessions, fingerprintStore::remove);
+  }
+
   private boolean isFirstDayOfTheWeek() {
     final Calendar calendar = Calendar.getInstance();
     calendar.setTime(new Date());
@@ -269,7 +351,8 @@ public class Ncbi implements ApplicationRunner {
     }
   }
 
-  private void makePrivate(final Set<String> toRemoveAccessions) {
+  private void makePrivate(
+      final Set<String> toRemoveAccessions, final Consumer<String> onMadePrivate) {
     // TODO make this multithreaded for performance
     try {
       for (final String accession : toRemoveAccessions) {
@@ -294,6 +377,7 @@ public class Ncbi implements ApplicationRunner {
 
           bioSamplesClient.persistSampleResource(newSample);
         }
+        onMadePrivate.accept(accession);
       }
     } catch (final Exception sampleMakePrivateException) {
       log.info(
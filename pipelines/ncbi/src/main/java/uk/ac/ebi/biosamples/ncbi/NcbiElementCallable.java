@@ -10,10 +10,19 @@
 */
 package uk.ac.ebi.biosamples.ncbi;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import org.dom4j.Element;
 import org.slf4j.Logger;
@@ -24,8 +33,11 @@ import uk.ac.ebi.biosamples.core.model.ExternalReference;
 import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.core.model.SubmittedViaType;
 import uk.ac.ebi.biosamples.core.model.structured.StructuredData;
+import uk.ac.ebi.biosamples.core.model.structured.StructuredDataEntry;
 import uk.ac.ebi.biosamples.core.model.structured.StructuredDataTable;
 import uk.ac.ebi.biosamples.ncbi.service.NcbiSampleConversionService;
+import uk.ac.ebi.biosamples.utils.AccessionFingerprintStore;
+import uk.ac.ebi.biosamples.utils.BatchSampleSubmitter;
 
 public class NcbiElementCallable implements Callable<Void> {
   private static final int MAX_RETRIES = 5;
@@ -35,6 +47,9 @@ public class NcbiElementCallable implements Callable<Void> {
   private final BioSamplesClient bioSamplesClient;
   private final NcbiSampleConversionService ncbiSampleConversionService;
   private final Map<String, Set<StructuredDataTable>> sampleToAmrMap;
+  private final BatchSampleSubmitter batchSampleSubmitter;
+  private final AccessionFingerprintStore fingerprintStore;
+  private final ObjectMapper objectMapper;
 
   NcbiElementCallable(
       final NcbiSampleConversionService ncbiSampleConversionService,
@@ -42,11 +57,40 @@ public class NcbiElementCallable implements Callable<Void> {
       final Element sampleElement,
       final String webinId,
       final Map<String, Set<StructuredDataTable>> sampleToAmrMap) {
+    this(
+        ncbiSampleConversionService,
+        bioSamplesClient,
+        sampleElement,
+        webinId,
+        sampleToAmrMap,
+        null,
+        null,
+        null);
+  }
+
+  /**
+   * @param batchSampleSubmitter if not null, the sample is added to a batch instead of being
+   *     persisted on its own, and its curation and structured data follow once it is persisted
+   * @param fingerprintStore if not null, the sample is skipped when unchanged since the previous
+   *     run, and its fingerprint is recorded once persisted
+   */
+  NcbiElementCallable(
+      final NcbiSampleConversionService ncbiSampleConversionService,
+      final BioSamplesClient bioSamplesClient,
+      final Element sampleElement,
+      final String webinId,
+      final Map<String, Set<StructuredDataTable>> sampleToAmrMap,
+      final BatchSampleSubmitter batchSampleSubmitter,
+      final AccessionFingerprintStore fingerprintStore,
+      final ObjectMapper objectMapper) {
     this.ncbiSampleConversionService = ncbiSampleConversionService;
     this.bioSamplesClient = bioSamplesClient;
     this.sampleElement = sampleElement;
     this.webinId = webinId;
     this.sampleToAmrMap = sampleToAmrMap;
+    this.batchSampleSubmitter = batchSampleSubmitter;
+    this.fingerprintStore = fingerprintStore;
+    this.objectMapper = objectMapper;
   }
 
   @Override
@@ -57,12 +101,14 @@ public class NcbiElementCallable implements Callable<Void> {
       boolean success = false;
       int numRetry = 0;
 
-      Set<StructuredDataTable> amrData = new HashSet<>();
+      final Set<StructuredDataTable> amrData;
 
       log.trace("Element callable starting for " + accession);
 
       if (sampleToAmrMap != null && sampleToAmrMap.containsKey(accession)) {
         amrData = sampleToAmrMap.get(accession);
+      } else {
+        amrData = new HashSet<>();
       }
 
       // Generate the sample without the domain
@@ -76,6 +122,31 @@ public class NcbiElementCallable implements Callable<Void> {
       final ExternalReference exRef =
           ExternalReference.build("https://www.ebi.ac.uk/ena/browser/view/" + accession);
       final Curation curation = Curation.build(null, null, null, Collections.singleton(exRef));
+      final Set<StructuredDataTable> structuredDataTableSet =
+          ncbiSampleConversionService.convertNcbiXmlElementToStructuredData(sampleElement, amrData);
+      final long fingerprint;
+
+      if (fingerprintStore != null) {
+        fingerprint = getFingerprint(sample, structuredDataTableSet);
+
+        if (fingerprintStore.isUnchanged(accession, fingerprint)) {
+          log.trace("Element callable skipped unchanged sample");
+          return null;
+        }
+      } else {
+        fingerprint = 0;
+      }
+
+      if (batchSampleSubmitter != null) {
+        batchSampleSubmitter.add(
+            sample,
+            persisted ->
+                persistCurationAndStructuredData(
+                    accession, sample, curation, structuredDataTableSet, fingerprint));
+
+        log.trace("Element callable added sample to batch");
+        return null;
+      }
 
       while (!success) {
         try {
@@ -89,20 +160,8 @@ public class NcbiElementCallable implements Callable<Void> {
         }
       }
 
-      try {
-        bioSamplesClient.persistCuration(accession, curation, webinId);
-      } catch (final Exception e) {
-        log.info("Failed to curate NCBI sample with ENA link " + accession);
-      }
-
-      final Set<StructuredDataTable> structuredDataTableSet =
-          ncbiSampleConversionService.convertNcbiXmlElementToStructuredData(sampleElement, amrData);
-
-      if (!structuredDataTableSet.isEmpty()) {
-        final StructuredData structuredData =
-            StructuredData.build(accession, sample.getCreate(), structuredDataTableSet);
-        bioSamplesClient.persistStructuredData(structuredData);
-      }
+      persistCurationAndStructuredData(
+          accession, sample, curation, structuredDataTableSet, fingerprint);
 
       log.trace("Element callable finished");
     } catch (final Exception e) {
@@ -112,6 +171,61 @@ public class NcbiElementCallable implements Callable<Void> {
     return null;
   }
 
+  private void persistCurationAndStructuredData(
+      final String accession,
+      final Sample sample,
+      final Curation curation,
+      final Set<StructuredDataTable> structuredDataTableSet,
+      final long fingerprint) {
+    try {
+      bioSamplesClient.persistCuration(accession, curation, webinId);
+    } catch (final Exception e) {
+      log.info("Failed to curate NCBI sample with ENA link " + accession);
+    }
+
+    if (!structuredDataTableSet.isEmpty()) {
+      final StructuredData structuredData =
+          StructuredData.build(accession, sample.getCreate(), structuredDataTableSet);
+      bioSamplesClient.persistStructuredData(structuredData);
+    }
+
+    if (fingerprintStore != null) {
+      fingerprintStore.record(accession, fingerprint);
+    }
+  }
+
+  /**
+   * The structured data tables, their rows and the entries of each row come in no particular order,
+   * so the rows are sorted by their JSON, with the entries sorted by key, and then the tables by
+   * their JSON, for the same content to always give the same fingerprint
+   */
+  long getFingerprint(final Sample sample, final Set<StructuredDataTable> structuredDataTableSet)
+      throws JsonProcessingException {
+    final ObjectWriter writer = objectMapper.writer(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    final List<String> tables = new ArrayList<>();
+
+    for (final StructuredDataTable table : structuredDataTableSet) {
+      final Map<String, Map<String, StructuredDataEntry>> rows = new TreeMap<>();
+      for (final Map<String, StructuredDataEntry> row : table.getContent()) {
+        rows.put(writer.writeValueAsString(row), row);
+      }
+
+      tables.add(
+          writer.writeValueAsString(
+              StructuredDataTable.build(
+                  table.getDomain(),
+                  table.getWebinSubmissionAccountId(),
+                  table.getType(),
+                  table.getSchema(),
+                  new LinkedHashSet<>(rows.values()))));
+    }
+    Collections.sort(tables);
+
+    return AccessionFingerprintStore.fingerprint(
+        objectMapper.writeValueAsBytes(sample),
+        ("[" + String.join(",", tables) + "]").getBytes(StandardCharsets.UTF_8));
+  }
+
   /** Safe way to extract the taxonomy id from the string */
   private int getTaxId(final String value) {
     if (value == null) {
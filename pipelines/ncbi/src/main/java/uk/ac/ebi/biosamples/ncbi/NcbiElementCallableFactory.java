@@ -10,6 +10,10 @@
 */
 package uk.ac.ebi.biosamples.ncbi;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
 import org.dom4j.Element;
@@ -19,25 +23,79 @@ import uk.ac.ebi.biosamples.PipelinesProperties;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.core.model.structured.StructuredDataTable;
 import uk.ac.ebi.biosamples.ncbi.service.NcbiSampleConversionService;
+import uk.ac.ebi.biosamples.utils.AccessionFingerprintStore;
+import uk.ac.ebi.biosamples.utils.BatchSampleSubmitter;
 
 @Service
 public class NcbiElementCallableFactory {
   private final BioSamplesClient bioSamplesClient;
   private final String webinId;
   private final NcbiSampleConversionService conversionService;
+  private final PipelinesProperties pipelinesProperties;
+  private final ObjectMapper objectMapper;
 
   public NcbiElementCallableFactory(
       final NcbiSampleConversionService conversionService,
       @Qualifier("WEBINCLIENT") final BioSamplesClient bioSamplesClient,
-      final PipelinesProperties pipelinesProperties) {
+      final PipelinesProperties pipelinesProperties,
+      final ObjectMapper objectMapper) {
     this.conversionService = conversionService;
     this.bioSamplesClient = bioSamplesClient;
+    this.pipelinesProperties = pipelinesProperties;
+    this.objectMapper = objectMapper;
     this.webinId = pipelinesProperties.getProxyWebinId();
   }
 
+  /**
+   * @return a submitter persisting the samples through the V2 bulk endpoint, with the curations and
+   *     structured data of the persisted samples sent from as many threads as the pipeline uses, or
+   *     null if batches are disabled
+   */
+  public BatchSampleSubmitter buildBatchSampleSubmitter(
+      final BatchSampleSubmitter.Listener listener) {
+    if (pipelinesProperties.getBatchSize() <= 0) {
+      return null;
+    }
+
+    return new BatchSampleSubmitter(
+        bioSamplesClient::persistSampleResourceV2,
+        pipelinesProperties.getBatchSize(),
+        Duration.ofSeconds(pipelinesProperties.getBatchMaxWait()),
+        pipelinesProperties.getBatchRetries(),
+        Duration.ofMillis(pipelinesProperties.getBatchBackoff()),
+        listener,
+        pipelinesProperties.getThreadCount());
+  }
+
+  /** @return the fingerprints of the previous run, or null if the delta mode is disabled */
+  public AccessionFingerprintStore openFingerprintStore() throws IOException {
+    final String fingerprints = pipelinesProperties.getNcbiFingerprints();
+    if (fingerprints == null || fingerprints.isEmpty()) {
+      return null;
+    }
+
+    return AccessionFingerprintStore.open(Paths.get(fingerprints));
+  }
+
   public NcbiElementCallable build(
       final Element element, final Map<String, Set<StructuredDataTable>> sampleToAmrMap) {
     return new NcbiElementCallable(
         conversionService, bioSamplesClient, element, webinId, sampleToAmrMap);
   }
+
+  public NcbiElementCallable build(
+      final Element element,
+      final Map<String, Set<StructuredDataTable>> sampleToAmrMap,
+      final BatchSampleSubmitter batchSampleSubmitter,
+      final AccessionFingerprintStore fingerprintStore) {
+    return new NcbiElementCallable(
+        conversionService,
+        bioSamplesClient,
+        element,
+        webinId,
+        sampleToAmrMap,
+        batchSampleSubmitter,
+        fingerprintStore,
+        objectMapper);
+  }
 }
@@ -14,9 +14,12 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import javax.xml.stream.XMLStreamReader;
 import org.dom4j.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,20 +27,26 @@ import org.springframework.stereotype.Component;
 import org.xml.sax.Attributes;
 import uk.ac.ebi.biosamples.PipelinesProperties;
 import uk.ac.ebi.biosamples.core.model.structured.StructuredDataTable;
+import uk.ac.ebi.biosamples.utils.AccessionFingerprintStore;
+import uk.ac.ebi.biosamples.utils.BatchSampleSubmitter;
+import uk.ac.ebi.biosamples.utils.StaxXmlFragmenter;
 import uk.ac.ebi.biosamples.utils.XmlFragmenter.ElementCallback;
 import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
 
 @Component
-public class NcbiFragmentCallback implements ElementCallback {
+public class NcbiFragmentCallback implements ElementCallback, StaxXmlFragmenter.ElementCallback {
   private final Logger log = LoggerFactory.getLogger(getClass());
   private final NcbiElementCallableFactory ncbiElementCallableFactory;
   private final PipelinesProperties pipelinesProperties;
-  private final SortedSet<String> accessions = new TreeSet<>();
+  // sorted and thread safe, as the parallel parser filters elements from several threads
+  private final SortedSet<String> accessions = new ConcurrentSkipListSet<>();
   private LocalDate fromDate;
   private LocalDate toDate;
   private ExecutorService executorService;
   private Map<Element, Future<Void>> futures;
   private Map<String, Set<StructuredDataTable>> sampleToAmrMap = new HashMap<>();
+  private BatchSampleSubmitter batchSampleSubmitter;
+  private AccessionFingerprintStore fingerprintStore;
 
   private NcbiFragmentCallback(
       final NcbiElementCallableFactory ncbiElementCallableFactory,
@@ -82,6 +91,14 @@ public class NcbiFragmentCallback implements ElementCallback {
     this.sampleToAmrMap = sampleToAmrMap;
   }
 
+  void setBatchSampleSubmitter(final BatchSampleSubmitter batchSampleSubmitter) {
+    this.batchSampleSubmitter = batchSampleSubmitter;
+  }
+
+  void setFingerprintStore(final AccessionFingerprintStore fingerprintStore) {
+    this.fingerprintStore = fingerprintStore;
+  }
+
   SortedSet<String> getAccessions() {
     return Collections.unmodifiableSortedSet(accessions);
   }
@@ -90,7 +107,9 @@ public class NcbiFragmentCallback implements ElementCallback {
   public void handleElement(final Element element) throws InterruptedException, ExecutionException {
     log.trace("Handling element");
 
-    final Callable<Void> callable = ncbiElementCallableFactory.build(element, sampleToAmrMap);
+    final Callable<Void> callable =
+        ncbiElementCallableFactory.build(
+            element, sampleToAmrMap, batchSampleSubmitter, fingerprintStore);
 
     if (executorService == null) {
       try {
@@ -116,17 +135,33 @@ public class NcbiFragmentCallback implements ElementCallback {
     if (!qName.equals("BioSample")) {
       return false;
     }
+
+    return isBlockStart(name -> attributes.getValue("", name));
+  }
+
+  @Override
+  public boolean isBlockStart(final XMLStreamReader reader) {
+    // its not a biosample element, skip
+    if (!reader.getLocalName().equals("BioSample")) {
+      return false;
+    }
+
+    return isBlockStart(name -> reader.getAttributeValue(null, name));
+  }
+
+  /** Checks the attributes of a biosample element, with whichever parser is reading it */
+  private boolean isBlockStart(final UnaryOperator<String> attributes) {
     // its not public, skip
-    if (attributes.getValue("", "access").equals("public")) {
+    if (attributes.apply("access").equals("public")) {
       // do nothing
     } else if (pipelinesProperties.getNcbiControlledAccess()
-        && attributes.getValue("", "access").equals("controlled-access")) {
+        && attributes.apply("access").equals("controlled-access")) {
       // do nothing
     } else {
       return false;
     }
     // its an EBI biosample, or has no accession, skip
-    final String accession = attributes.getValue("", "accession");
+    final String accession = attributes.apply("accession");
 
     if (accession == null || accession.startsWith("SAME")) {
       return false;
@@ -138,19 +173,18 @@ public class NcbiFragmentCallback implements ElementCallback {
     // check the date compared to window
     final LocalDate updateDate;
 
-    if (attributes.getValue("", "last_update") != null) {
+    if (attributes.apply("last_update") != null) {
       updateDate =
-          LocalDate.parse(
-              attributes.getValue("", "last_update"), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+          LocalDate.parse(attributes.apply("last_update"), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     } else {
       // no update date, abort
       return false;
     }
     final LocalDate releaseDate;
-    if (attributes.getValue("", "publication_date") != null) {
+    if (attributes.apply("publication_date") != null) {
       releaseDate =
           LocalDate.parse(
-              attributes.getValue("", "publication_date"), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+              attributes.apply("publication_date"), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     } else {
       // no release date, abort
       return false;
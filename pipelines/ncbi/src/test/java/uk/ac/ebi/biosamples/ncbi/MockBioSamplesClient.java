@@ -17,6 +17,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
+import java.util.List;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +81,12 @@ public class MockBioSamplesClient extends BioSamplesClient {
     return Mockito.mock(EntityModel.class);
   }
 
+  @Override
+  public List<Sample> persistSampleResourceV2(final List<Sample> samples) {
+    samples.forEach(this::logSample);
+    return samples;
+  }
+
   @Override
   public void finalize() {
     try {
@@ -13,8 +13,13 @@ package uk.ac.ebi.biosamples.ncbi;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.dom4j.Element;
 import org.junit.Before;
@@ -29,6 +34,8 @@ import uk.ac.ebi.biosamples.TestApplication;
 import uk.ac.ebi.biosamples.client.BioSamplesClient;
 import uk.ac.ebi.biosamples.core.model.Attribute;
 import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.core.model.structured.StructuredDataEntry;
+import uk.ac.ebi.biosamples.core.model.structured.StructuredDataTable;
 import uk.ac.ebi.biosamples.ncbi.service.NcbiSampleConversionService;
 import uk.ac.ebi.biosamples.service.TaxonomyService;
 import uk.ac.ebi.biosamples.utils.XmlPathBuilder;
@@ -107,4 +114,51 @@ public class NcbiElementCallableTest {
             .anyMatch(organism -> organism.getValue().equals("Oryza sativa Japonica Group")));
     assertThat(organisms.stream().anyMatch(organism -> organism.getValue().equals("Oryza sativa")));
   }
+
+  @Test
+  public void should_give_same_fingerprint_to_structured_data_in_any_order() throws Exception {
+    final NcbiSampleConversionService ncbiSampleConversionService =
+        new NcbiSampleConversionService(taxonService);
+    final NcbiElementCallable callable =
+        new NcbiElementCallable(
+            ncbiSampleConversionService,
+            bioSamplesClient,
+            sample,
+            "test",
+            null,
+            null,
+            null,
+            new ObjectMapper());
+    final Sample generatedSample =
+        ncbiSampleConversionService.convertNcbiXmlElementToSample(sample);
+
+    final Map<String, StructuredDataEntry> row1 = new LinkedHashMap<>();
+    row1.put("antibioticName", StructuredDataEntry.build("ampicillin", null));
+    row1.put("resistancePhenotype", StructuredDataEntry.build("resistant", null));
+    final Map<String, StructuredDataEntry> reorderedRow1 = new LinkedHashMap<>();
+    reorderedRow1.put("resistancePhenotype", StructuredDataEntry.build("resistant", null));
+    reorderedRow1.put("antibioticName", StructuredDataEntry.build("ampicillin", null));
+    final Map<String, StructuredDataEntry> row2 =
+        Map.of("antibioticName", StructuredDataEntry.build("tetracycline", null));
+
+    final StructuredDataTable amr = getTable("AMR", row1, row2);
+    final StructuredDataTable reorderedAmr = getTable("AMR", row2, reorderedRow1);
+    final StructuredDataTable other = getTable("OTHER", row2);
+
+    assertThat(callable.getFingerprint(generatedSample, new LinkedHashSet<>(List.of(amr, other))))
+        .isEqualTo(
+            callable.getFingerprint(
+                generatedSample, new LinkedHashSet<>(List.of(other, reorderedAmr))));
+    assertThat(callable.getFingerprint(generatedSample, new LinkedHashSet<>(List.of(amr))))
+        .isNotEqualTo(
+            callable.getFingerprint(generatedSample, new LinkedHashSet<>(List.of(other))));
+  }
+
+  @SafeVarargs
+  private static StructuredDataTable getTable(
+      final String type, final Map<String, StructuredDataEntry>... rows) {
+    final Set<Map<String, StructuredDataEntry>> content = new LinkedHashSet<>(List.of(rows));
+
+    return StructuredDataTable.build("self.BiosampleImportNCBI", null, type, null, content);
+  }
 }
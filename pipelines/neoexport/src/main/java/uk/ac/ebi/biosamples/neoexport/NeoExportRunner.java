@@ -15,7 +15,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -33,7 +32,7 @@ import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.neo4j.repo.NeoSampleRepository;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
+import uk.ac.ebi.biosamples.utils.thread.BoundedCompletionService;
 
 @Component
 public class NeoExportRunner implements ApplicationRunner {
@@ -90,7 +89,9 @@ public class NeoExportRunner implements ApplicationRunner {
             pipelinesProperties.getThreadCount(),
             pipelinesProperties.getThreadCountMax())) {
 
-      final Map<String, Future<PipelineResult>> futures = new HashMap<>();
+      final BoundedCompletionService<PipelineResult> completionService =
+          new BoundedCompletionService<>(
+              executorService, pipelinesProperties.getMaxInFlight(), pipelineFutureCallback);
       for (final EntityModel<Sample> sampleResource :
           bioSamplesClient.fetchSampleResourceAll("", filters)) {
         LOG.trace("Handling {}", sampleResource);
@@ -105,7 +106,7 @@ public class NeoExportRunner implements ApplicationRunner {
           } else {
             final Callable<PipelineResult> task =
                 new NeoExportCallable(neoSampleRepository, sample);
-            futures.put(sample.getAccession(), executorService.submit(task));
+            completionService.submit(task);
           }
         }
 
@@ -118,7 +119,7 @@ public class NeoExportRunner implements ApplicationRunner {
         neoCsvExporter.flush();
       } else {
         LOG.info("Waiting for all scheduled tasks to finish");
-        ThreadUtils.checkAndCallbackFutures(futures, 0, pipelineFutureCallback);
+        completionService.awaitAll();
       }
 
     } catch (final Exception e) {
@@ -12,6 +12,7 @@ package uk.ac.ebi.biosamples;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang.IncompleteArgumentException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,21 +33,28 @@ import uk.ac.ebi.biosamples.messaging.model.MessageContent;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
 
 /**
- * This runner will get a list of accessions from mongo directly, query the API to get the latest
- * information, and then send that information to Rabbit for the Solr Agent to reindex it into Solr.
+ * This runner will stream samples from mongo directly, add their inverse relationships, curations
+ * and structured data, and then send them to Rabbit for the Solr Agent to reindex them into Solr.
  *
  * <p>Mongo is queried instead of the API because the API is driven by Solr, and if Solr is
  * incorrect (which it will be because why else would you run this) then it won't get the right
  * information from the API.
  *
+ * <p>The streamed samples are reused rather than fetched again. They are grouped into chunks, and
+ * everything else needed to build a chunk of samples is loaded with one query per collection. At
+ * most {@link #MAX_CHUNKS_IN_FLIGHT} chunks are queued or in progress, reading from mongo pauses
+ * until a chunk has been sent.
+ *
  * @author faulcon
  */
 @Component
 public class ReindexRunner implements ApplicationRunner {
   private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationRunner.class);
+  private static final int CHUNK_SIZE = 1000;
+  private static final int THREAD_COUNT = 16;
+  private static final int MAX_CHUNKS_IN_FLIGHT = THREAD_COUNT * 2;
   private final AmqpTemplate amqpTemplate;
   private final SampleReadService sampleReadService;
   private final MongoOperations mongoOperations;
@@ -64,11 +72,13 @@ public class ReindexRunner implements ApplicationRunner {
   @Override
   public void run(final ApplicationArguments args) throws Exception {
     final Collection<Filter> filters = PipelineUtils.getDateFilters(args, "update");
-    final Map<String, Future<Void>> futures = new HashMap<>();
+    final Semaphore chunksInFlight = new Semaphore(MAX_CHUNKS_IN_FLIGHT);
+    final AtomicLong sentCount = new AtomicLong();
+    final AtomicLong failedCount = new AtomicLong();
 
     ExecutorService executor = null;
     try {
-      executor = Executors.newFixedThreadPool(128);
+      executor = Executors.newFixedThreadPool(THREAD_COUNT);
 
       final Query query = new Query();
       try {
@@ -94,53 +104,97 @@ public class ReindexRunner implements ApplicationRunner {
 
       try (final CloseableIterator<MongoSample> it =
           mongoOperations.stream(query, MongoSample.class)) {
+        List<MongoSample> chunk = new ArrayList<>(CHUNK_SIZE);
+
         while (it.hasNext()) {
           final MongoSample mongoSample = it.next();
-          final String accession = mongoSample.getAccession();
 
-          LOGGER.info("Handling sample " + accession);
+          LOGGER.debug("Handling sample " + mongoSample.getAccession());
 
-          futures.put(
-              accession,
-              executor.submit(
-                  new SampleIndexingCallable(accession, sampleReadService, amqpTemplate)));
+          chunk.add(mongoSample);
 
-          ThreadUtils.checkFutures(futures, 1000);
+          if (chunk.size() == CHUNK_SIZE) {
+            submitChunk(executor, chunksInFlight, chunk, sentCount, failedCount);
+            chunk = new ArrayList<>(CHUNK_SIZE);
+          }
         }
-      }
 
-      ThreadUtils.checkFutures(futures, 0);
+        if (!chunk.isEmpty()) {
+          submitChunk(executor, chunksInFlight, chunk, sentCount, failedCount);
+        }
+      }
     } finally {
-      executor.shutdown();
-      executor.awaitTermination(24, TimeUnit.HOURS);
+      if (executor != null) {
+        executor.shutdown();
+        executor.awaitTermination(24, TimeUnit.HOURS);
+      }
+    }
+
+    LOGGER.info(
+        String.format(
+            "Reindex finished, sent %d samples, failed to send %d samples",
+            sentCount.get(), failedCount.get()));
+  }
+
+  private void submitChunk(
+      final ExecutorService executor,
+      final Semaphore chunksInFlight,
+      final List<MongoSample> chunk,
+      final AtomicLong sentCount,
+      final AtomicLong failedCount)
+      throws InterruptedException {
+    // blocks the mongo stream while too many chunks are waiting to be sent
+    chunksInFlight.acquire();
+
+    try {
+      executor.submit(
+          new ChunkIndexingCallable(
+              chunk, sampleReadService, amqpTemplate, chunksInFlight, sentCount, failedCount));
+    } catch (final RejectedExecutionException e) {
+      chunksInFlight.release();
+
+      throw e;
     }
   }
 
-  private static class SampleIndexingCallable implements Callable<Void> {
+  private static class ChunkIndexingCallable implements Callable<Void> {
     private static final List<Sample> related = new ArrayList<>();
-    private final String accession;
+    private final List<MongoSample> mongoSamples;
     private final SampleReadService sampleReadService;
     private final AmqpTemplate amqpTemplate;
+    private final Semaphore chunksInFlight;
+    private final AtomicLong sentCount;
+    private final AtomicLong failedCount;
 
-    public SampleIndexingCallable(
-        final String accession,
+    public ChunkIndexingCallable(
+        final List<MongoSample> mongoSamples,
         final SampleReadService sampleReadService,
-        final AmqpTemplate amqpTemplate) {
-      this.accession = accession;
+        final AmqpTemplate amqpTemplate,
+        final Semaphore chunksInFlight,
+        final AtomicLong sentCount,
+        final AtomicLong failedCount) {
+      this.mongoSamples = mongoSamples;
       this.sampleReadService = sampleReadService;
       this.amqpTemplate = amqpTemplate;
+      this.chunksInFlight = chunksInFlight;
+      this.sentCount = sentCount;
+      this.failedCount = failedCount;
     }
 
     @Override
     public Void call() {
-      if (!fetchSampleAndSendMessage(false)) {
-        fetchSampleAndSendMessage(true);
+      try {
+        if (!assembleSamplesAndSendMessages(false) && !assembleSamplesAndSendMessages(true)) {
+          failedCount.addAndGet(mongoSamples.size());
+        }
+      } finally {
+        chunksInFlight.release();
       }
 
       return null;
     }
 
-    private boolean fetchSampleAndSendMessage(final boolean isRetry) {
+    private boolean assembleSamplesAndSendMessages(final boolean isRetry) {
       if (isRetry) {
         try {
           TimeUnit.SECONDS.sleep(1);
@@ -149,32 +203,48 @@ public class ReindexRunner implements ApplicationRunner {
         }
       }
 
-      final Optional<Sample> sampleOptional = sampleReadService.fetch(accession, true);
+      final String firstAccession = mongoSamples.get(0).getAccession();
+      final List<Sample> samples;
+
+      try {
+        samples = sampleReadService.assembleAll(mongoSamples, true);
+      } catch (final Exception e) {
+        final String errorMessage =
+            isRetry
+                ? String.format(
+                    "Failed to fetch samples after retrying for chunk starting at %s",
+                    firstAccession)
+                : String.format("Failed to fetch samples for chunk starting at %s", firstAccession);
+
+        LOGGER.warn(errorMessage, e);
 
-      if (sampleOptional.isPresent()) {
+        return false;
+      }
+
+      for (final Sample sample : samples) {
         try {
           amqpTemplate.convertAndSend(
               MessagingConstants.REINDEXING_EXCHANGE,
               MessagingConstants.REINDEXING_QUEUE,
-              MessageContent.build(sampleOptional.get(), null, related, false));
+              MessageContent.build(sample, null, related, false));
 
-          return true;
+          sentCount.incrementAndGet();
         } catch (final Exception e) {
+          failedCount.incrementAndGet();
           LOGGER.error(
               String.format(
-                  "Failed to convert sample to message and send to queue for %s", accession),
+                  "Failed to convert sample to message and send to queue for %s",
+                  sample.getAccession()),
               e);
         }
-      } else {
-        final String errorMessage =
-            isRetry
-                ? String.format("Failed to fetch sample after retrying for %s", accession)
-                : String.format("Failed to fetch sample for %s", accession);
-
-        LOGGER.warn(errorMessage);
       }
 
-      return false;
+      LOGGER.info(
+          String.format(
+              "Sent %d samples for chunk starting at %s, %d sent in total",
+              samples.size(), firstAccession, sentCount.get()));
+
+      return true;
     }
   }
 }
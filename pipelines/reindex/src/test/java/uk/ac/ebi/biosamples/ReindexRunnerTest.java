@@ -13,6 +13,8 @@ package uk.ac.ebi.biosamples;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.*;
@@ -26,6 +28,7 @@ import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.util.CloseableIterator;
 import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.core.model.SampleStatus;
+import uk.ac.ebi.biosamples.messaging.MessagingConstants;
 import uk.ac.ebi.biosamples.mongo.model.MongoSample;
 import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
 
@@ -42,7 +45,7 @@ public class ReindexRunnerTest {
   private final Map<String, Sample> sampleMap = new HashMap<String, Sample>() {};
 
   @Test
-  public void test_log_messages_are_generated_when_samples_not_fetchable() throws Exception {
+  public void test_chunk_is_retried_when_samples_not_fetchable() throws Exception {
     final CloseableIterator<MongoSample> samples =
         new CloseableIterator<MongoSample>() {
           private int count = 0;
@@ -100,13 +103,18 @@ public class ReindexRunnerTest {
             Collections.EMPTY_SET);
 
     when(mongoOperations.stream(any(), eq(MongoSample.class))).thenReturn(samples);
-    when(sampleReadService.fetch("ACCESSION1", true)).thenReturn(Optional.of(sample1));
-    when(sampleReadService.fetch("ACCESSION2", true)).thenReturn(Optional.empty());
-    when(sampleReadService.fetch("ACCESSION3", true))
-        .thenReturn(Optional.empty())
-        .thenReturn(Optional.of(sample3));
+    when(sampleReadService.assembleAll(any(), eq(true)))
+        .thenThrow(new RuntimeException())
+        .thenReturn(Arrays.asList(sample1, sample3));
     final ReindexRunner reindexRunner =
         new ReindexRunner(amqpTemplate, sampleReadService, mongoOperations);
     reindexRunner.run(applicationArguments);
+
+    verify(sampleReadService, times(2)).assembleAll(any(), eq(true));
+    verify(amqpTemplate, times(2))
+        .convertAndSend(
+            eq(MessagingConstants.REINDEXING_EXCHANGE),
+            eq(MessagingConstants.REINDEXING_QUEUE),
+            any(Object.class));
   }
 }
@@ -15,7 +15,6 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -31,7 +30,7 @@ import uk.ac.ebi.biosamples.core.model.filter.AttributeFilter;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.utils.PipelineUtils;
 import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
-import uk.ac.ebi.biosamples.utils.thread.ThreadUtils;
+import uk.ac.ebi.biosamples.utils.thread.BoundedCompletionService;
 
 @Component
 public class TransformationApplicationRunner implements ApplicationRunner {
@@ -62,7 +61,9 @@ public class TransformationApplicationRunner implements ApplicationRunner {
             pipelinesProperties.getThreadCount(),
             pipelinesProperties.getThreadCountMax())) {
 
-      final Map<String, Future<PipelineResult>> futures = new HashMap<>();
+      final BoundedCompletionService<PipelineResult> completionService =
+          new BoundedCompletionService<>(
+              executorService, pipelinesProperties.getMaxInFlight(), pipelineFutureCallback);
 
       filters.add(new AttributeFilter.Builder("project name").withValue("DTOL").build());
 
@@ -77,7 +78,7 @@ public class TransformationApplicationRunner implements ApplicationRunner {
         final Callable<PipelineResult> task =
             new TransformationCallable(sample, bioSamplesClientWebin);
 
-        futures.put(sample.getAccession(), executorService.submit(task));
+        completionService.submit(task);
 
         if (++sampleCount % 5000 == 0) {
           LOG.info("Scheduled sample count {}", sampleCount);
@@ -85,7 +86,7 @@ public class TransformationApplicationRunner implements ApplicationRunner {
       }
 
       LOG.info("Waiting for all scheduled tasks to finish");
-      ThreadUtils.checkAndCallbackFutures(futures, 0, pipelineFutureCallback);
+      completionService.awaitAll();
     } catch (final Exception e) {
       LOG.error("Pipeline failed to finish successfully", e);
       throw e;
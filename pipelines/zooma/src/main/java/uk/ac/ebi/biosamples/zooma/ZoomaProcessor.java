@@ -11,14 +11,16 @@
 package uk.ac.ebi.biosamples.zooma;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.RequestEntity;
@@ -27,8 +29,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.PipelinesProperties;
 import uk.ac.ebi.biosamples.utils.ClientUtils;
+import uk.ac.ebi.biosamples.utils.ols.OntologyLookupCache;
 
 @Service
 public class ZoomaProcessor {
@@ -36,20 +40,37 @@ public class ZoomaProcessor {
   private final RestOperations restOperations;
   // TODO make this an application.properties value
   private final UriComponents uriBuilder;
+  private final OntologyLookupCache zoomaCache;
 
   public ZoomaProcessor(
       final RestTemplateBuilder restTemplateBuilder,
-      final PipelinesProperties pipelinesProperties) {
+      final PipelinesProperties pipelinesProperties,
+      final BioSamplesProperties bioSamplesProperties,
+      final MeterRegistry meterRegistry) {
     restOperations = restTemplateBuilder.build();
     uriBuilder =
         UriComponentsBuilder.fromUriString(
                 pipelinesProperties.getZooma()
                     + "/v2/api/services/annotate?propertyValue={value}&propertyType={type}&filter=ontologies:[none]")
             .build();
+    zoomaCache = new OntologyLookupCache("zooma", bioSamplesProperties, meterRegistry);
+  }
+
+  @PreDestroy
+  public void saveLookups() {
+    zoomaCache.save();
   }
 
-  @Cacheable(value = "zooma", sync = true)
   public Optional<String> queryZooma(final String type, final String value) {
+    return zoomaCache
+        .get(
+            OntologyLookupCache.key(type, value),
+            key -> queryZoomaForIri(type, value).map(List::of).orElse(Collections.emptyList()))
+        .stream()
+        .findFirst();
+  }
+
+  private Optional<String> queryZoomaForIri(final String type, final String value) {
     log.trace("Zooma getting : " + type + " : " + value);
     final URI uri = uriBuilder.expand(value, type).encode().toUri();
     // log.info("Zooma uri : "+url);
@@ -21,6 +21,18 @@ public class BioSamplesProperties {
   @Value("${biosamples.agent.solr.stayalive:false}")
   private Boolean agentSolrStayalive;
 
+  // max number of messages sent to solr in a single update request
+  @Value("${biosamples.agent.solr.batch.size:250}")
+  private int agentSolrBatchSize;
+
+  // send a partial batch after waiting this long for more messages (in milliseconds)
+  @Value("${biosamples.agent.solr.batch.timeout:1000}")
+  private long agentSolrBatchTimeout;
+
+  // max time before indexed samples become searchable (in milliseconds)
+  @Value("${biosamples.agent.solr.commitwithin:10000}")
+  private long agentSolrCommitWithin;
+
   @Value("${biosamples.client.uri:http://localhost:8081}")
   private URI biosamplesClientUri;
 
@@ -77,6 +89,23 @@ public class BioSamplesProperties {
   @Value("${biosamples.ols:https://www.ebi.ac.uk/ols}")
   private String ols;
 
+  // ontology lookups of the pipelines are saved here on shutdown and read on the next run, empty
+  // keeps them in memory only
+  @Value("${biosamples.ontology.cache.dir:}")
+  private String ontologyCacheDir;
+
+  // max number of lookups kept by each ontology lookup cache
+  @Value("${biosamples.ontology.cache.maxentries:500000}")
+  private int ontologyCacheMaxEntries;
+
+  // in seconds, 30 days
+  @Value("${biosamples.ontology.cache.ttl:2592000}")
+  private int ontologyCacheTtl;
+
+  // how long a lookup that found nothing is kept (in seconds), terms are added to the ontologies
+  @Value("${biosamples.ontology.cache.negative.ttl:86400}")
+  private int ontologyCacheNegativeTtl;
+
   @Value("${biosamples.webapp.core.uri:http://localhost:8081/biosamples}")
   private URI biosamplesWebappCoreUri;
 
@@ -93,10 +122,73 @@ public class BioSamplesProperties {
   @Value("${biosamples.webapp.core.page.cache.maxage:300}")
   private int webappCorePageCacheMaxAge;
 
+  // max number of assembled samples kept in memory by each instance, 0 disables the sample cache
+  @Value("${biosamples.webapp.core.sample.cache.maxentries:10000}")
+  private int webappCoreSampleCacheMaxEntries;
+
+  // other instances don't see each other's evictions, so keep this short (in seconds)
+  @Value("${biosamples.webapp.core.sample.cache.maxage:60}")
+  private int webappCoreSampleCacheMaxAge;
+
+  // max number of parsed authentication tokens kept by each instance until they expire, 0 parses
+  // the token of every request
+  @Value("${biosamples.security.token.cache.maxentries:10000}")
+  private int securityTokenCacheMaxEntries;
+
+  // accession numbers reserved at once by each instance, unused numbers are lost on shutdown
+  @Value("${biosamples.accession.block.size:1000}")
+  private int accessionBlockSize;
+
+  // read inverse relationships from the precomputed collection instead of searching all samples,
+  // only enable once the inverse relationships pipeline has built the collection
+  @Value("${biosamples.mongo.inverserelationships.precomputed:false}")
+  private boolean mongoInverseRelationshipsPrecomputed;
+
   // cache facets upto 24 hours (in seconds)
   @Value("${biosamples.webapp.core.facet.cache.maxage:86400}")
   private int webappCoreFacetCacheMaxAge;
 
+  // max number of facet results kept in memory by each instance, 0 disables the facet cache
+  @Value("${biosamples.webapp.core.facet.cache.maxentries:1000}")
+  private int webappCoreFacetCacheMaxEntries;
+
+  // in seconds
+  @Value("${biosamples.webapp.core.facet.cache.ttl:600}")
+  private int webappCoreFacetCacheTtl;
+
+  // how often to check if the solr agent changed the index (in seconds), 0 only relies on the ttl
+  @Value("${biosamples.webapp.core.facet.cache.generation.interval:30}")
+  private int webappCoreFacetCacheGenerationInterval;
+
+  // threads shared by all facet requests for fetching facet fields in parallel, 0 fetches all the
+  // fields in a single solr request
+  @Value("${biosamples.webapp.core.facet.parallel.threadcount:8}")
+  private int webappCoreFacetParallelThreadCount;
+
+  @Value("${biosamples.webapp.core.facet.parallel.fieldsperrequest:3}")
+  private int webappCoreFacetParallelFieldsPerRequest;
+
+  // facet fields not fetched within this time (in milliseconds) are left out of the response
+  @Value("${biosamples.webapp.core.facet.parallel.budget:10000}")
+  private int webappCoreFacetParallelBudget;
+
+  // the generated sitemaps are kept here, instances sharing the directory can serve them without
+  // generating them themselves
+  @Value("${biosamples.webapp.core.sitemap.dir:${java.io.tmpdir}/biosamples/sitemap}")
+  private String webappCoreSitemapDir;
+
+  @Value("${biosamples.webapp.core.sitemap.generate:true}")
+  private boolean webappCoreSitemapGenerate;
+
+  // max number of samples in each sitemap page, crawlers accept up to 50000
+  @Value("${biosamples.webapp.core.sitemap.pagesize:10000}")
+  private int webappCoreSitemapPageSize;
+
+  // the public address of the webapp, the sitemaps are generated ahead of any request
+  @Value(
+      "${biosamples.webapp.core.sitemap.baseurl:${biosamples.webapp.core.uri:http://localhost:8081/biosamples}}")
+  private String webappCoreSitemapBaseUrl;
+
   @Value("${biosamples.schema.validator.uri:http://localhost:8085/validate}")
   private URI biosamplesSchemaValidatorServiceUri;
 
@@ -112,6 +204,14 @@ public class BioSamplesProperties {
   @Value("${biosamples.schema.restricted:ERC000011:0.1}")
   private String biosamplesRestrictedSchema;
 
+  // how long a schema is used before checking the schema store for changes (in seconds)
+  @Value("${biosamples.schema.registry.ttl:300}")
+  private int biosamplesSchemaRegistryTtl;
+
+  // elixir posts each sample to the schema validator, local validates in the webapp
+  @Value("${biosamples.schema.validation.mode:elixir}")
+  private String biosamplesSchemaValidationMode;
+
   @Value("${biosamples.bulksubmisison.webin.superuser.validation:false}")
   private boolean enableBulkSubmissionWebinSuperUserValidation;
 
@@ -146,4 +246,52 @@ public class BioSamplesProperties {
   public int getBiosamplesCoreFacetCacheMaxAge() {
     return webappCoreFacetCacheMaxAge;
   }
+
+  public int getBiosamplesCoreFacetCacheMaxEntries() {
+    return webappCoreFacetCacheMaxEntries;
+  }
+
+  public int getBiosamplesCoreFacetCacheTtl() {
+    return webappCoreFacetCacheTtl;
+  }
+
+  public int getBiosamplesCoreFacetCacheGenerationInterval() {
+    return webappCoreFacetCacheGenerationInterval;
+  }
+
+  public int getBiosamplesCoreFacetParallelThreadCount() {
+    return webappCoreFacetParallelThreadCount;
+  }
+
+  public int getBiosamplesCoreFacetParallelFieldsPerRequest() {
+    return webappCoreFacetParallelFieldsPerRequest;
+  }
+
+  public int getBiosamplesCoreFacetParallelBudget() {
+    return webappCoreFacetParallelBudget;
+  }
+
+  public String getBiosamplesCoreSitemapDir() {
+    return webappCoreSitemapDir;
+  }
+
+  public boolean getBiosamplesCoreSitemapGenerate() {
+    return webappCoreSitemapGenerate;
+  }
+
+  public int getBiosamplesCoreSitemapPageSize() {
+    return webappCoreSitemapPageSize;
+  }
+
+  public String getBiosamplesCoreSitemapBaseUrl() {
+    return webappCoreSitemapBaseUrl;
+  }
+
+  public int getBiosamplesCoreSampleCacheMaxEntries() {
+    return webappCoreSampleCacheMaxEntries;
+  }
+
+  public int getBiosamplesCoreSampleCacheMaxAge() {
+    return webappCoreSampleCacheMaxAge;
+  }
 }
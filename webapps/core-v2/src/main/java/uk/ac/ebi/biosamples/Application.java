@@ -88,12 +88,14 @@ public class Application extends SpringBootServletInitializer {
       final MongoSampleRepository mongoSampleRepository,
       final SampleToMongoSampleConverter sampleToMongoSampleConverter,
       final MongoSampleToSampleConverter mongoSampleToSampleConverter,
-      final MongoOperations mongoOperations) {
+      final MongoOperations mongoOperations,
+      final BioSamplesProperties bioSamplesProperties) {
     return new MongoAccessionService(
         mongoSampleRepository,
         sampleToMongoSampleConverter,
         mongoSampleToSampleConverter,
-        mongoOperations);
+        mongoOperations,
+        bioSamplesProperties.getAccessionBlockSize());
   }
 
   @Bean
@@ -100,20 +100,13 @@ public class BulkActionControllerV2 {
             .map(sample -> webinAuthenticationService.buildSampleWithWebinId(sample, principle))
             .collect(Collectors.toList());
 
+    /*
+    Call the accessionSamples from SampleService, it doesn't do a lot of housekeeping like reporting to Rabbit,
+    saving to MongoSampleCurated etc which is not required for bulk-accessioning
+     */
     final List<Sample> createdSamplesList =
-        samples.stream()
-            .map(
-                sample -> {
-                  log.trace("Initiating persistSample() for " + sample.getName());
-
-                  sample = sampleService.buildPrivateSample(sample);
-                  /*
-                  Call the accessionSample from SampleService, it doesn't do a lot of housekeeping like reporting to Rabbit,
-                  saving to MongoSampleCurated etc which is not required for bulk-accessioning
-                   */
-                  return sampleService.accessionSample(sample);
-                })
-            .toList();
+        sampleService.accessionSamples(
+            samples.stream().map(sampleService::buildPrivateSample).collect(Collectors.toList()));
 
     final Map<String, String> outputMap =
         createdSamplesList.stream()
@@ -303,8 +296,11 @@ public class BulkActionControllerV2 {
     final List<SubmissionReceipt.ErrorReceipt> errors = new ArrayList<>();
     List<SubmissionReceipt.ValidationError> validationErrors;
 
-    for (final Sample sample : samples) {
-      final String validationResult = validateGetMessages(sample, principle);
+    final List<String> validationResults = schemaValidationService.validateAll(samples, principle);
+
+    for (int i = 0; i < samples.size(); i++) {
+      final Sample sample = samples.get(i);
+      final String validationResult = validationResults.get(i);
 
       if (validationResult != null) {
         try {
@@ -382,26 +378,6 @@ public class BulkActionControllerV2 {
     return sampleService.persistSampleV2(sample, oldSample.orElse(null), true);
   }
 
-  private String validateGetMessages(final Sample sample, final String principle) {
-    final String sampleIdentifier =
-        sample.getAccession() != null ? sample.getAccession() : sample.getName();
-    try {
-      schemaValidationService.validate(sample, principle);
-    } catch (GlobalExceptions.SchemaValidationException e) {
-      log.info("Sample validation failed: {}", sample.getAccession());
-
-      return Optional.ofNullable(e.getMessage())
-          .orElse("Unknown validation error while validating sample: " + sampleIdentifier);
-    } catch (Exception e) {
-      log.error("Failed to validate sample", e);
-
-      return Optional.ofNullable(e.getMessage())
-          .orElse("Unknown validation error while validating sample: " + sampleIdentifier);
-    }
-
-    return null;
-  }
-
   private void validate(final Sample sample, final String principle) {
     schemaValidationService.validate(sample, principle);
   }
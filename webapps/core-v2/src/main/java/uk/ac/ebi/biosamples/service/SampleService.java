@@ -58,6 +58,7 @@ public class SampleService {
   private final MongoRelationshipToRelationshipConverter mongoRelationshipToRelationshipConverter;
   private final SampleValidator sampleValidator;
   private final SampleReadService sampleReadService;
+  private final MongoInverseRelationshipService mongoInverseRelationshipService;
   private final MessagingService messagingService;
   private final BioSamplesProperties bioSamplesProperties;
   private final BioSamplesCrossSourceIngestAccessControlService
@@ -73,6 +74,7 @@ public class SampleService {
       final MongoRelationshipToRelationshipConverter mongoRelationshipToRelationshipConverter,
       final SampleValidator sampleValidator,
       final SampleReadService sampleReadService,
+      final MongoInverseRelationshipService mongoInverseRelationshipService,
       final MessagingService messagingService,
       final BioSamplesProperties bioSamplesProperties,
       final BioSamplesCrossSourceIngestAccessControlService
@@ -85,6 +87,7 @@ public class SampleService {
     this.mongoRelationshipToRelationshipConverter = mongoRelationshipToRelationshipConverter;
     this.sampleValidator = sampleValidator;
     this.sampleReadService = sampleReadService;
+    this.mongoInverseRelationshipService = mongoInverseRelationshipService;
     this.messagingService = messagingService;
     this.bioSamplesProperties = bioSamplesProperties;
     this.bioSamplesCrossSourceIngestAccessControlService =
@@ -166,12 +169,6 @@ public class SampleService {
     return oldSample.getStructuredData().isEmpty();
   }
 
-  // Because the fetch caches the sample, if an updated version is stored, we need to make
-  // sure
-  // that any cached version
-  // is removed.
-  // Note, pages of samples will not be cache busted, only single-accession sample retrieval
-  // @CacheEvict(cacheNames=WebappProperties.fetchUsing, key="#result.accession")
   /*
   Called by V1 endpoints to persist samples
    */
@@ -194,6 +191,8 @@ public class SampleService {
 
       MongoSample mongoSample = sampleToMongoSampleConverter.convert(newSample);
       mongoSample = mongoSampleRepository.save(mongoSample);
+      updateInverseRelationships(mongoSample, oldSample);
+      evictFromSampleCache(newSample, oldSample);
 
       if (isTaxIdUpdated(oldSample, newSample)) {
         mongoSampleMessageRepository.save(
@@ -278,6 +277,8 @@ public class SampleService {
     }
 
     newSample = mongoAccessionService.generateAccession(newSample, noSraAccession);
+    updateInverseRelationships(sampleToMongoSampleConverter.convert(newSample), null);
+    evictFromSampleCache(newSample, null);
     sendMessageToRabbitForIndexingToSolr(newSample.getAccession(), Collections.emptyList());
 
     return newSample;
@@ -354,6 +355,8 @@ public class SampleService {
       assert mongoSample != null;
 
       mongoSample = mongoSampleRepository.save(mongoSample);
+      updateInverseRelationships(mongoSample, oldSample);
+      evictFromSampleCache(newSample, oldSample);
       newSample = mongoSampleToSampleConverter.apply(mongoSample);
 
       sendMessageToRabbitForIndexingToSolr(newSample.getAccession(), Collections.emptyList());
@@ -364,6 +367,39 @@ public class SampleService {
     return newSample;
   }
 
+  /*
+  Keeps the precomputed inverse relationships of the targets in step with the relationships that
+  were just stored. The old sample is converted the same way as the new one so that relationships
+  that were removed can be found.
+   */
+  private void updateInverseRelationships(final MongoSample mongoSample, final Sample oldSample) {
+    final Collection<MongoRelationship> oldRelationships =
+        oldSample == null
+            ? Collections.emptyList()
+            : Objects.requireNonNull(sampleToMongoSampleConverter.convert(oldSample))
+                .getRelationships();
+
+    mongoInverseRelationshipService.updateInverseRelationships(
+        mongoSample.getAccession(), oldRelationships, mongoSample.getRelationships());
+  }
+
+  /*
+  Because fetch caches the sample, any cached version has to be removed once an updated version is
+  stored. Relationship targets are evicted as well since they carry this sample as an inverse
+  relationship. Pages of samples are not cached.
+   */
+  private void evictFromSampleCache(final Sample newSample, final Sample oldSample) {
+    sampleReadService.evict(newSample.getAccession());
+
+    for (final Sample sample : Arrays.asList(newSample, oldSample)) {
+      if (sample != null) {
+        for (final Relationship relationship : sample.getRelationships()) {
+          sampleReadService.evict(relationship.getTarget());
+        }
+      }
+    }
+  }
+
   private void sendMessageToRabbitForIndexingToSolr(
       final String accession, final List<String> existingRelationshipTargets) {
     try {
@@ -377,6 +413,53 @@ public class SampleService {
   Called by V2 endpoints to build a sample with a newly generated sample accession
    */
   public Sample accessionSample(Sample newSample) {
+    validateForAccessioning(newSample);
+
+    if (isEnaAccessioning(newSample)) {
+      newSample = withSraAccessionFromName(newSample);
+      newSample = mongoAccessionService.generateAccession(newSample, false);
+    } else {
+      newSample = mongoAccessionService.generateAccession(newSample, true);
+    }
+
+    updateInverseRelationships(sampleToMongoSampleConverter.convert(newSample), null);
+    evictFromSampleCache(newSample, null);
+
+    return newSample;
+  }
+
+  /*
+  Called by V2 bulk accessioning, accessions all the samples with one insert for the ENA samples and
+  one for the others instead of one insert per sample
+   */
+  public List<Sample> accessionSamples(final List<Sample> newSamples) {
+    final List<Sample> enaSamples = new ArrayList<>();
+    final List<Sample> otherSamples = new ArrayList<>();
+
+    for (final Sample newSample : newSamples) {
+      validateForAccessioning(newSample);
+
+      if (isEnaAccessioning(newSample)) {
+        enaSamples.add(withSraAccessionFromName(newSample));
+      } else {
+        otherSamples.add(newSample);
+      }
+    }
+
+    final List<Sample> accessionedSamples = new ArrayList<>(newSamples.size());
+
+    accessionedSamples.addAll(mongoAccessionService.generateAccessions(enaSamples, false));
+    accessionedSamples.addAll(mongoAccessionService.generateAccessions(otherSamples, true));
+
+    for (final Sample accessionedSample : accessionedSamples) {
+      updateInverseRelationships(sampleToMongoSampleConverter.convert(accessionedSample), null);
+      evictFromSampleCache(accessionedSample, null);
+    }
+
+    return accessionedSamples;
+  }
+
+  private void validateForAccessioning(final Sample newSample) {
     final Collection<String> errors = sampleValidator.validate(newSample);
 
     if (!errors.isEmpty()) {
@@ -384,20 +467,21 @@ public class SampleService {
 
       throw new GlobalExceptions.SampleMandatoryFieldsMissingException(String.join("|", errors));
     }
+  }
 
-    if (newSample
+  private boolean isEnaAccessioning(final Sample newSample) {
+    return newSample
         .getWebinSubmissionAccountId()
-        .equalsIgnoreCase(bioSamplesProperties.getBiosamplesClientWebinUsername())) {
-      // accessioning from ENA, sample name is the SRA accession here
-      final Attribute sraAccessionAttribute = Attribute.build(SRA_ACCESSION, newSample.getName());
+        .equalsIgnoreCase(bioSamplesProperties.getBiosamplesClientWebinUsername());
+  }
 
-      newSample.getAttributes().add(sraAccessionAttribute);
-      newSample = Sample.Builder.fromSample(newSample).build();
+  private Sample withSraAccessionFromName(final Sample newSample) {
+    // accessioning from ENA, sample name is the SRA accession here
+    final Attribute sraAccessionAttribute = Attribute.build(SRA_ACCESSION, newSample.getName());
 
-      return mongoAccessionService.generateAccession(newSample, false);
-    } else {
-      return mongoAccessionService.generateAccession(newSample, true);
-    }
+    newSample.getAttributes().add(sraAccessionAttribute);
+
+    return Sample.Builder.fromSample(newSample).build();
   }
 
   public String generateOneSRAAccession() {
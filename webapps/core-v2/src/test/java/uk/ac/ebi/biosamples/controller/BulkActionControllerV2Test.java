@@ -93,7 +93,8 @@ public class BulkActionControllerV2Test {
     when(webinAuthenticationService.buildSampleWithWebinId(any(), anyString())).thenReturn(sample);
     when(sampleService.getPrinciple(any(Authentication.class))).thenReturn(WEBIN_TESTING_ACCOUNT);
     when(sampleService.buildPrivateSample(any(Sample.class))).thenReturn(sample);
-    when(sampleService.accessionSample(any(Sample.class))).thenReturn(accessionedSample);
+    when(sampleService.accessionSamples(anyList()))
+        .thenReturn(Collections.singletonList(accessionedSample));
 
     // Serialize samples to JSON
     String content = objectMapper.writeValueAsString(samples);
@@ -124,7 +125,8 @@ public class BulkActionControllerV2Test {
     when(webinAuthenticationService.buildSampleWithWebinId(any(), anyString())).thenReturn(sample);
     when(sampleService.getPrinciple(any(Authentication.class))).thenReturn(WEBIN_TESTING_ACCOUNT);
     when(sampleService.buildPrivateSample(any(Sample.class))).thenReturn(sample);
-    when(sampleService.accessionSample(any(Sample.class))).thenReturn(accessionedSample);
+    when(sampleService.accessionSamples(anyList()))
+        .thenReturn(Collections.singletonList(accessionedSample));
 
     // Act & Assert
     mockMvc
@@ -18,6 +18,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -67,13 +69,23 @@ public class FileDownloadController {
     final String outputFormat = getDownloadFormat(format, request.getHeader("Accept"));
     setResponseHeaders(response, zip, outputFormat);
     final InputStream in =
-        fileDownloadService.getDownloadStream(decodedText, filters, outputFormat, count);
+        fileDownloadService.getDownloadStream(
+            decodedText, filters, outputFormat, count, isBulkDownloadUser());
     final StreamingResponseBody responseBody =
         outputStream -> fileDownloadService.copyAndCompress(in, outputStream, zip, outputFormat);
 
     return ResponseEntity.ok().body(responseBody);
   }
 
+  /** Bulk download users are not limited to the default maximum number of samples */
+  private boolean isBulkDownloadUser() {
+    final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+    return authentication != null
+        && authentication.isAuthenticated()
+        && webinAuthenticationService.isWebinSuperUser(authentication.getName());
+  }
+
   private String getDownloadFormat(String format, final String acceptHeader) {
     if (format == null || format.isEmpty()) {
       format = acceptHeader != null && acceptHeader.contains("xml") ? "xml" : "json";
@@ -10,140 +10,117 @@
 */
 package uk.ac.ebi.biosamples.controller;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.Collection;
-import java.util.Collections;
-import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.expression.ParseException;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseBody;
-import uk.ac.ebi.biosamples.core.model.Sample;
-import uk.ac.ebi.biosamples.core.model.filter.Filter;
-import uk.ac.ebi.biosamples.service.SamplePageService;
-import uk.ac.ebi.biosamples.sitemap.model.XmlSitemap;
-import uk.ac.ebi.biosamples.sitemap.model.XmlSitemapIndex;
-import uk.ac.ebi.biosamples.sitemap.model.XmlUrl;
-import uk.ac.ebi.biosamples.sitemap.model.XmlUrlSet;
+import uk.ac.ebi.biosamples.service.SitemapService;
 
+/**
+ * Serves the sitemaps pre-generated by {@link SitemapService}, gzipped as they are stored when the
+ * client accepts it.
+ */
 @Controller
 @RequestMapping("/sitemap")
 public class SitemapController {
   private final Logger log = LoggerFactory.getLogger(getClass());
 
-  @Value("${model.page.size:10}")
-  private int sitemapPageSize;
+  private final SitemapService sitemapService;
 
-  private final SamplePageService samplePageService;
-
-  public SitemapController(final SamplePageService pageService) {
-    samplePageService = pageService;
+  public SitemapController(final SitemapService sitemapService) {
+    this.sitemapService = sitemapService;
   }
 
   /**
-   * Generate the sitemap index
+   * Get the sitemap index
    *
-   * @param request the request
+   * @param acceptEncoding the encodings accepted by the client
    * @return the sitemap index in xml format
    */
   @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_XML_VALUE)
-  @ResponseBody
-  public XmlSitemapIndex createSampleSitemapIndex(final HttpServletRequest request) {
-    final long sampleCount = getTotalSamples();
-    final long pageNumber = (sampleCount / (long) sitemapPageSize) + 1L;
-    final XmlSitemapIndex xmlSitemapIndex = new XmlSitemapIndex();
-
-    for (int i = 0; i < pageNumber; i++) {
-      final String location = generateBaseUrl(request) + String.format("/sitemap/%d", i + 1);
-      final XmlSitemap xmlSiteMap = new XmlSitemap(location);
-
-      xmlSitemapIndex.addSitemap(xmlSiteMap);
+  public ResponseEntity<Resource> getSampleSitemapIndex(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          final String acceptEncoding)
+      throws IOException {
+    final Optional<Path> index = sitemapService.getSitemapIndex();
+    if (!index.isPresent()) {
+      log.warn("Sitemap requested before the sitemaps have been generated");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, "600")
+          .build();
     }
 
-    log.info("Sitemap API called, returning {} sitemaps ", xmlSitemapIndex.getXmlSitemaps().size());
-
-    return xmlSitemapIndex;
+    return serve(index.get(), acceptEncoding, HttpStatus.SERVICE_UNAVAILABLE);
   }
 
   /**
-   * Generate a sitemap subpage
+   * Get a sitemap subpage
    *
    * @param pageNumber the page number
-   * @param request the request object
+   * @param acceptEncoding the encodings accepted by the client
    * @return the sitemap page content
-   * @throws ParseException
    */
   @RequestMapping(
       value = "/{id}",
       method = RequestMethod.GET,
       produces = MediaType.APPLICATION_XML_VALUE)
-  @ResponseBody
-  public XmlUrlSet createSampleSitemapPage(
-      @PathVariable("id") final int pageNumber, final HttpServletRequest request)
-      throws ParseException {
-    final long startTime = System.currentTimeMillis();
-    final Pageable pageRequest = PageRequest.of(pageNumber - 1, sitemapPageSize);
-    final Page<Sample> samplePage =
-        samplePageService.getSamplesByText("", Collections.emptyList(), null, pageRequest, true);
-    final XmlUrlSet xmlUrlSet = new XmlUrlSet();
-
-    for (final Sample sample : samplePage.getContent()) {
-      final String location =
-          generateBaseUrl(request) + String.format("/samples/%s", sample.getAccession());
-      final LocalDate lastModifiedDate =
-          LocalDateTime.ofInstant(sample.getUpdate(), ZoneOffset.UTC).toLocalDate();
-      final XmlUrl url =
-          new XmlUrl.XmlUrlBuilder(location)
-              .lastModified(lastModifiedDate)
-              .hasPriority(XmlUrl.Priority.MEDIUM)
-              .build();
-
-      xmlUrlSet.addUrl(url);
+  public ResponseEntity<Resource> getSampleSitemapPage(
+      @PathVariable("id") final int pageNumber,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          final String acceptEncoding)
+      throws IOException {
+    final Optional<Path> page = sitemapService.getSitemapPage(pageNumber);
+    if (!page.isPresent()) {
+      return ResponseEntity.notFound().build();
     }
 
-    log.debug(
-        String.format(
-            "Returning model for %d samples took %d millis",
-            sitemapPageSize, System.currentTimeMillis() - startTime));
-
-    return xmlUrlSet;
+    return serve(page.get(), acceptEncoding, HttpStatus.NOT_FOUND);
   }
 
   /**
-   * Generate the proper url based on the request
-   *
-   * @param request
-   * @return the base url for the links in the sitemap
+   * The file may be removed by a newer generation after it has been looked up, in which case the
+   * client gets the given status and should ask again.
    */
-  private String generateBaseUrl(final HttpServletRequest request) {
-    final String requestURI = request.getRequestURI();
-    final String requestURL = request.getRequestURL().toString();
-
-    return requestURL.replaceFirst(requestURI, "") + request.getContextPath();
-  }
+  private ResponseEntity<Resource> serve(
+      final Path file, final String acceptEncoding, final HttpStatus missingStatus)
+      throws IOException {
+    final boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+    final long size;
+    final InputStream in;
+    try {
+      size = Files.size(file);
+      in = Files.newInputStream(file);
+    } catch (final NoSuchFileException e) {
+      return ResponseEntity.status(missingStatus).build();
+    }
 
-  /**
-   * Get the total number of samples in the database
-   *
-   * @return the number of samples
-   */
-  private long getTotalSamples() {
-    final Pageable pageable = PageRequest.of(0, 1);
-    final Collection<Filter> filters = Collections.emptyList();
-    final Page<Sample> samplePage =
-        samplePageService.getSamplesByText("", filters, null, pageable, true);
+    final ResponseEntity.BodyBuilder response =
+        ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_XML)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      return response
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .contentLength(size)
+          .body(new InputStreamResource(in));
+    }
 
-    return samplePage.getTotalElements();
+    return response.body(new InputStreamResource(new GZIPInputStream(in)));
   }
 }
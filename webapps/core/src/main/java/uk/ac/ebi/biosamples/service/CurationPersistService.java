@@ -27,6 +27,7 @@ import uk.ac.ebi.biosamples.mongo.repository.MongoCurationRepository;
 import uk.ac.ebi.biosamples.mongo.service.CurationLinkToMongoCurationLinkConverter;
 import uk.ac.ebi.biosamples.mongo.service.CurationToMongoCurationConverter;
 import uk.ac.ebi.biosamples.mongo.service.MongoCurationLinkToCurationLinkConverter;
+import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
 
 @Service
 public class CurationPersistService {
@@ -41,6 +42,7 @@ public class CurationPersistService {
   @Autowired private MongoCurationRepository mongoCurationRepository;
   @Autowired private CurationToMongoCurationConverter curationToMongoCurationConverter;
   @Autowired private MessagingService messagingSerivce;
+  @Autowired private SampleReadService sampleReadService;
 
   public CurationLink store(CurationLink curationLink) {
     // TODO do this as a trigger on the curation link repo
@@ -75,6 +77,7 @@ public class CurationPersistService {
 
     // for each relationship curation create reverse relationship curation
     createReverseRelationshipCurations(curationLink);
+    evictFromSampleCache(curationLink);
     messagingSerivce.fetchThenSendMessage(curationLink.getSample());
 
     return curationLink;
@@ -89,9 +92,23 @@ public class CurationPersistService {
         curationLinkToMongoCurationLinkConverter.convert(curationLink);
 
     mongoCurationLinkRepository.deleteById(mongoCurationLink.getHash());
+    evictFromSampleCache(curationLink);
     messagingSerivce.fetchThenSendMessage(curationLink.getSample());
   }
 
+  // the curated sample and the targets of any relationship curation are no longer up to date
+  private void evictFromSampleCache(final CurationLink curationLink) {
+    sampleReadService.evict(curationLink.getSample());
+
+    for (final Relationship rel : curationLink.getCuration().getRelationshipsPre()) {
+      sampleReadService.evict(rel.getTarget());
+    }
+
+    for (final Relationship rel : curationLink.getCuration().getRelationshipsPost()) {
+      sampleReadService.evict(rel.getTarget());
+    }
+  }
+
   // sample reverse relationships are dynamically generated, therefore should create for curations
   private void createReverseRelationshipCurations(final CurationLink curationLink) {
     final SortedSet<Relationship> relationshipsPre =
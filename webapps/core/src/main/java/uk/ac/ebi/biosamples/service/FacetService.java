@@ -53,7 +53,7 @@ public class FacetService {
     // TODO if a facet is enabled as a filter, then that value will be the only filter displayed
     // TODO allow update date range
 
-    // TODO if (text == null && filters.isEmpty()) cache results for the search landing page
+    // facets are cached by SolrFacetService, including the ones of the search landing page
     final long startTime = System.nanoTime();
     final String escapedText = text == null ? null : ClientUtils.escapeQueryChars(text);
     final List<Facet> facets =
@@ -10,32 +10,51 @@
 */
 package uk.ac.ebi.biosamples.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
-import org.apache.commons.io.IOUtils;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.core.service.FileDownloadSerializer;
 import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
 
+/**
+ * Streams the samples matching a search, one cursor page at a time. The next page is fetched on the
+ * prefetch executor while the current one is being written out, so at most two pages are held in
+ * memory however many samples are downloaded.
+ *
+ * <p>Each sample is serialized into a reusable buffer by a single writer shared by the whole file.
+ * The buffer is copied out by the bulk reads or written directly to the output stream by {@link
+ * #transferTo(OutputStream)}.
+ */
 public class FileDownloadInputStream extends InputStream {
-  private static final int MAX_DOWNLOAD_SIZE = 100000;
+  static final int MAX_DOWNLOAD_SIZE = 100000;
   private static final int PAGE_SIZE = 1000;
-  private static final String CURSOR_EOF = "EoF";
+  private static final int INITIAL_BUFFER_SIZE = 8192;
 
   private final SamplePageService samplePageService;
   private final String text;
   private final Collection<Filter> filters;
   private final FileDownloadSerializer serializer;
-  private final Queue<Sample> sampleQueue;
-  private InputStream sampleStream;
+  private final Executor prefetchExecutor;
+  private final long totalCount;
+  private final SampleBuffer buffer = new SampleBuffer();
+  private FileDownloadSerializer.SampleWriter sampleWriter;
+  private CompletableFuture<CursorArrayList<Sample>> nextPage;
+  private Iterator<Sample> currentPage;
   private String cursor;
-  private int sampleCount;
-  private final int totalCount;
+  private long fetchedCount;
+  private long sampleCount;
+  private int position;
+  private boolean started;
+  private boolean finished;
 
   FileDownloadInputStream(
       final SamplePageService samplePageService,
@@ -43,68 +62,206 @@ public class FileDownloadInputStream extends InputStream {
       final Collection<Filter> filters,
       final int totalCount,
       final FileDownloadSerializer serializer) {
+    this(
+        samplePageService,
+        text,
+        filters,
+        Math.min(MAX_DOWNLOAD_SIZE, totalCount),
+        serializer,
+        Runnable::run);
+  }
+
+  /** The total count is not capped, it is up to the caller to limit it */
+  FileDownloadInputStream(
+      final SamplePageService samplePageService,
+      final String text,
+      final Collection<Filter> filters,
+      final long totalCount,
+      final FileDownloadSerializer serializer,
+      final Executor prefetchExecutor) {
     this.samplePageService = samplePageService;
     this.text = text;
     this.filters = filters;
     this.serializer = serializer;
+    this.prefetchExecutor = prefetchExecutor;
+    this.totalCount = totalCount;
 
-    this.totalCount = Math.min(MAX_DOWNLOAD_SIZE, totalCount);
-    sampleQueue = new LinkedList<>();
     cursor = "*";
+    fetchedCount = 0;
     sampleCount = 0;
   }
 
   @Override
   public int read() throws IOException {
-    if (sampleStream == null) {
-      sampleStream = generateStream(serializer.startOfFile());
+    while (position >= buffer.size()) {
+      if (!fillBuffer()) {
+        return -1;
+      }
     }
 
-    int nextByte = sampleStream.read();
-    if (nextByte == -1 && !CURSOR_EOF.equals(cursor)) {
-      sampleStream = generateStream(serializer.delimiter());
-      nextByte = sampleStream.read();
+    return buffer.byteAt(position++) & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+    if (offset < 0 || length < 0 || length > bytes.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (length == 0) {
+      return 0;
+    }
+
+    int read = 0;
+    while (read < length) {
+      if (position >= buffer.size() && !fillBuffer()) {
+        break;
+      }
+
+      final int count = Math.min(length - read, buffer.size() - position);
+      buffer.copyTo(position, bytes, offset + read, count);
+      position += count;
+      read += count;
     }
 
-    return nextByte;
+    return read == 0 ? -1 : read;
+  }
+
+  @Override
+  public long transferTo(final OutputStream out) throws IOException {
+    long transferred = 0;
+    do {
+      final int count = buffer.size() - position;
+      if (count > 0) {
+        buffer.writeTo(position, out);
+        position += count;
+        transferred += count;
+      }
+    } while (fillBuffer());
+
+    return transferred;
+  }
+
+  @Override
+  public int available() {
+    return buffer.size() - position;
   }
 
-  private InputStream generateStream(final String delimiter) throws IOException {
-    final InputStream inputStream;
-    if (sampleQueue.isEmpty() && !CURSOR_EOF.equals(cursor)) {
-      loadSamples();
+  @Override
+  public void close() {
+    finished = true;
+    currentPage = null;
+    if (nextPage != null) {
+      nextPage.cancel(true);
+      nextPage = null;
     }
+  }
+
+  /**
+   * Replaces the buffer content with the next sample, along with the start or end of the file where
+   * needed. The buffer may be left empty, when the serializer has nothing to write.
+   *
+   * @return false once everything has been read
+   */
+  private boolean fillBuffer() throws IOException {
+    if (finished) {
+      return false;
+    }
+
+    buffer.reset();
+    position = 0;
 
-    if (!CURSOR_EOF.equals(cursor)) {
-      final Sample sample = sampleQueue.poll();
-      sampleCount++;
-      inputStream = toInputStream(delimiter, serializer.asString(sample));
-      if (sampleCount >= totalCount) {
-        cursor = CURSOR_EOF;
+    if (!started) {
+      started = true;
+      if (totalCount > 0) {
+        nextPage = fetchPage(cursor);
       }
-    } else if (delimiter.equalsIgnoreCase(serializer.startOfFile())) {
-      inputStream =
-          toInputStream(
-              serializer.startOfFile() + serializer.endOfFile(), ""); // empty search results
+      sampleWriter = serializer.open(buffer);
+    }
+
+    final Sample sample = nextSample();
+    if (sample != null) {
+      sampleWriter.write(sample);
     } else {
-      inputStream = toInputStream(serializer.endOfFile(), "");
+      sampleWriter.close();
+      close();
     }
 
-    return inputStream;
+    return true;
   }
 
-  private void loadSamples() {
-    final CursorArrayList<Sample> samplePage =
-        samplePageService.getSamplesByText(text, filters, null, cursor, PAGE_SIZE, true);
-    if (!samplePage.isEmpty()) {
-      sampleQueue.addAll(samplePage);
-      cursor = samplePage.getNextCursorMark();
-    } else {
-      cursor = CURSOR_EOF; // mark end of samples
+  private Sample nextSample() throws IOException {
+    if (sampleCount >= totalCount) {
+      return null;
     }
+
+    if (currentPage == null || !currentPage.hasNext()) {
+      currentPage = takeNextPage();
+      if (currentPage == null) {
+        return null;
+      }
+    }
+
+    sampleCount++;
+    return currentPage.next();
   }
 
-  private InputStream toInputStream(final String delimiter, final String sample) {
-    return IOUtils.toInputStream(delimiter + sample, StandardCharsets.UTF_8);
+  private Iterator<Sample> takeNextPage() throws IOException {
+    if (nextPage == null) {
+      return null;
+    }
+
+    final CursorArrayList<Sample> page = await(nextPage);
+    nextPage = null;
+    if (page.isEmpty()) {
+      return null;
+    }
+
+    // solr hands back the same cursor once it has reached the end of the results
+    fetchedCount += page.size();
+    final String nextCursor = page.getNextCursorMark();
+    if (fetchedCount < totalCount && nextCursor != null && !nextCursor.equals(cursor)) {
+      cursor = nextCursor;
+      nextPage = fetchPage(cursor);
+    }
+
+    return page.iterator();
+  }
+
+  private CompletableFuture<CursorArrayList<Sample>> fetchPage(final String cursorMark) {
+    return CompletableFuture.supplyAsync(
+        () ->
+            samplePageService.getSamplesByText(text, filters, null, cursorMark, PAGE_SIZE, true),
+        prefetchExecutor);
+  }
+
+  private static CursorArrayList<Sample> await(
+      final CompletableFuture<CursorArrayList<Sample>> page) throws IOException {
+    try {
+      return page.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while fetching samples for download");
+    } catch (final ExecutionException e) {
+      throw new IOException("Failed to fetch samples for download", e.getCause());
+    }
+  }
+
+  /** Gives access to the written bytes without copying them, the array is reused by each sample */
+  private static class SampleBuffer extends ByteArrayOutputStream {
+    private SampleBuffer() {
+      super(INITIAL_BUFFER_SIZE);
+    }
+
+    private byte byteAt(final int index) {
+      return buf[index];
+    }
+
+    private void copyTo(final int from, final byte[] bytes, final int offset, final int length) {
+      System.arraycopy(buf, from, bytes, offset, length);
+    }
+
+    private void writeTo(final int from, final OutputStream out) throws IOException {
+      out.write(buf, from, count - from);
+    }
   }
 }
@@ -16,23 +16,43 @@ import java.io.OutputStream;
 import java.util.Collection;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import javax.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 import uk.ac.ebi.biosamples.core.model.filter.Filter;
 import uk.ac.ebi.biosamples.core.service.FileDownloadSerializer;
+import uk.ac.ebi.biosamples.utils.thread.AdaptiveThreadPoolExecutor;
 
 @Service
 public class FileDownloadService {
   private final SamplePageService samplePageService;
+  // fetches the next page of each download, when busy the download fetches it itself
+  private final AdaptiveThreadPoolExecutor prefetchExecutor =
+      AdaptiveThreadPoolExecutor.create(100, 10000, false, 4, 32);
 
   public FileDownloadService(final SamplePageService samplePageService) {
     this.samplePageService = samplePageService;
   }
 
+  /**
+   * @param unlimited if true the count is not capped to {@link
+   *     FileDownloadInputStream#MAX_DOWNLOAD_SIZE}, only for authorised bulk download users
+   */
   public InputStream getDownloadStream(
-      final String text, final Collection<Filter> filters, final String format, final int count) {
+      final String text,
+      final Collection<Filter> filters,
+      final String format,
+      final int count,
+      final boolean unlimited) {
     final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor(format);
-    return new FileDownloadInputStream(samplePageService, text, filters, count, serializer);
+    final int totalCount =
+        unlimited ? count : Math.min(FileDownloadInputStream.MAX_DOWNLOAD_SIZE, count);
+    return new FileDownloadInputStream(
+        samplePageService, text, filters, totalCount, serializer, prefetchExecutor);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    prefetchExecutor.shutdownNow();
   }
 
   public void copyAndCompress(
@@ -41,7 +61,7 @@ public class FileDownloadService {
     if (zip) {
       zip(in, out, format);
     } else {
-      StreamUtils.copy(in, out);
+      in.transferTo(out);
     }
   }
 
@@ -50,7 +70,7 @@ public class FileDownloadService {
     try (final ZipOutputStream zippedOut = new ZipOutputStream(out)) {
       final ZipEntry zipEntry = new ZipEntry("samples." + format);
       zippedOut.putNextEntry(zipEntry);
-      StreamUtils.copy(in, zippedOut);
+      in.transferTo(zippedOut);
 
       zippedOut.closeEntry();
       zippedOut.finish();
@@ -20,12 +20,16 @@ import uk.ac.ebi.biosamples.core.model.Attribute;
 import uk.ac.ebi.biosamples.core.model.Sample;
 import uk.ac.ebi.biosamples.curami.model.AttributeRecommendation;
 import uk.ac.ebi.biosamples.curami.model.CuramiRecommendation;
+import uk.ac.ebi.biosamples.curami.service.AttributeMatcher;
 import uk.ac.ebi.biosamples.curami.service.CuramiUtils;
 import uk.ac.ebi.biosamples.curami.service.DataLoader;
 
 @Service
 public class RecommendationService {
+  // distinct unknown attributes to remember the closest popular attribute of
+  private static final int MATCH_CACHE_SIZE = 10000;
   private final DataLoader dataLoader;
+  private AttributeMatcher attributeMatcher;
 
   public RecommendationService() {
     dataLoader = new DataLoader();
@@ -34,6 +38,7 @@ public class RecommendationService {
   @PostConstruct
   private void init() {
     dataLoader.loadDataFromClassPathResource();
+    attributeMatcher = new AttributeMatcher(dataLoader.getPopularAttributes(), MATCH_CACHE_SIZE);
   }
 
   public CuramiRecommendation getRecommendations(final Sample sample) {
@@ -76,8 +81,7 @@ public class RecommendationService {
         continue;
       }
 
-      final Optional<String> similarAttribute =
-          CuramiUtils.getMostSimilarAttribute(attribute, dataLoader.getPopularAttributes());
+      final Optional<String> similarAttribute = attributeMatcher.getMostSimilarAttribute(attribute);
       if (similarAttribute.isPresent()) {
         badAttributes.add(
             new AttributeRecommendation.Builder()
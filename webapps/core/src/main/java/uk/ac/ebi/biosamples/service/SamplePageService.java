@@ -12,14 +12,12 @@ package uk.ac.ebi.biosamples.service;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.biosamples.core.model.Sample;
@@ -85,23 +83,10 @@ public class SamplePageService {
     log.trace("Got solr page in " + ((endTime - startTime) / 1000000) + "ms");
 
     startTime = System.nanoTime();
-    final Page<Future<Optional<Sample>>> pageFutureSample;
-    pageFutureSample =
-        pageSolrSample.map(ss -> sampleService.fetchAsync(ss.getAccession(), applyCurations));
-
+    final List<Sample> samples =
+        sampleService.fetchAll(getAccessions(pageSolrSample.getContent()), applyCurations);
     final Page<Sample> pageSample =
-        pageFutureSample.map(
-            ss -> {
-              try {
-                if (ss.get().isPresent()) {
-                  return ss.get().get();
-                } else {
-                  return null;
-                }
-              } catch (final InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-              }
-            });
+        new PageImpl<>(samples, pageSolrSample.getPageable(), pageSolrSample.getTotalElements());
     endTime = System.nanoTime();
     log.trace("Got mongo page content in " + ((endTime - startTime) / 1000000) + "ms");
     return pageSample;
@@ -120,29 +105,14 @@ public class SamplePageService {
     final CursorArrayList<SolrSample> cursorSolrSample =
         solrSampleService.fetchSolrSampleByText(
             text, filters, webinSubmissionAccountId, cursorMark, size);
-    final List<Future<Optional<Sample>>> listFutureSample;
-
-    listFutureSample =
-        cursorSolrSample.stream()
-            .map(s -> sampleService.fetchAsync(s.getAccession(), applyCurations))
-            .collect(Collectors.toList());
-
-    final List<Sample> listSample = collectSampleFutures(listFutureSample);
+    final List<Sample> listSample =
+        sampleService.fetchAll(getAccessions(cursorSolrSample), applyCurations);
 
     return new CursorArrayList<>(listSample, cursorSolrSample.getNextCursorMark());
   }
 
-  private List<Sample> collectSampleFutures(final List<Future<Optional<Sample>>> listFutureSample) {
-    return listFutureSample.stream()
-        .map(
-            ss -> {
-              try {
-                return ss.get().get();
-              } catch (final InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-              }
-            })
-        .collect(Collectors.toList());
+  private List<String> getAccessions(final List<SolrSample> solrSamples) {
+    return solrSamples.stream().map(SolrSample::getAccession).collect(Collectors.toList());
   }
 
   private String validateCursor(String cursorMark) {
@@ -55,6 +55,7 @@ public class SampleService {
   private final MongoRelationshipToRelationshipConverter mongoRelationshipToRelationshipConverter;
   private final SampleValidator sampleValidator;
   private final SampleReadService sampleReadService;
+  private final MongoInverseRelationshipService mongoInverseRelationshipService;
   private final MessagingService messagingService;
   private final BioSamplesProperties bioSamplesProperties;
   private final BioSamplesCrossSourceIngestAccessControlService
@@ -70,6 +71,7 @@ public class SampleService {
       final MongoRelationshipToRelationshipConverter mongoRelationshipToRelationshipConverter,
       final SampleValidator sampleValidator,
       final SampleReadService sampleReadService,
+      final MongoInverseRelationshipService mongoInverseRelationshipService,
       final MessagingService messagingService,
       final BioSamplesProperties bioSamplesProperties,
       final BioSamplesCrossSourceIngestAccessControlService
@@ -82,6 +84,7 @@ public class SampleService {
     this.mongoRelationshipToRelationshipConverter = mongoRelationshipToRelationshipConverter;
     this.sampleValidator = sampleValidator;
     this.sampleReadService = sampleReadService;
+    this.mongoInverseRelationshipService = mongoInverseRelationshipService;
     this.messagingService = messagingService;
     this.bioSamplesProperties = bioSamplesProperties;
     this.bioSamplesCrossSourceIngestAccessControlService =
@@ -163,12 +166,6 @@ public class SampleService {
     return oldSample.getStructuredData().isEmpty();
   }
 
-  // Because the fetch caches the sample, if an updated version is stored, we need to make
-  // sure
-  // that any cached version
-  // is removed.
-  // Note, pages of samples will not be cache busted, only single-accession sample retrieval
-  // @CacheEvict(cacheNames=WebappProperties.fetchUsing, key="#result.accession")
   /*
   Called by V1 endpoints to persist samples
    */
@@ -191,6 +188,8 @@ public class SampleService {
 
       MongoSample mongoSample = sampleToMongoSampleConverter.convert(newSample);
       mongoSample = mongoSampleRepository.save(mongoSample);
+      updateInverseRelationships(mongoSample, oldSample);
+      evictFromSampleCache(newSample, oldSample);
 
       if (isTaxIdUpdated(oldSample, newSample)) {
         mongoSampleMessageRepository.save(
@@ -275,6 +274,8 @@ public class SampleService {
     }
 
     newSample = mongoAccessionService.generateAccession(newSample, noSraAccession);
+    updateInverseRelationships(sampleToMongoSampleConverter.convert(newSample), null);
+    evictFromSampleCache(newSample, null);
     sendMessageToRabbitForIndexingToSolr(newSample.getAccession(), Collections.emptyList());
 
     return newSample;
@@ -352,6 +353,8 @@ public class SampleService {
       assert mongoSample != null;
 
       mongoSample = mongoSampleRepository.save(mongoSample);
+      updateInverseRelationships(mongoSample, oldSample);
+      evictFromSampleCache(newSample, oldSample);
       newSample = mongoSampleToSampleConverter.apply(mongoSample);
 
       sendMessageToRabbitForIndexingToSolr(newSample.getAccession(), Collections.emptyList());
@@ -362,6 +365,39 @@ public class SampleService {
     return newSample;
   }
 
+  /*
+  Keeps the precomputed inverse relationships of the targets in step with the relationships that
+  were just stored. The old sample is converted the same way as the new one so that relationships
+  that were removed can be found.
+   */
+  private void updateInverseRelationships(final MongoSample mongoSample, final Sample oldSample) {
+    final Collection<MongoRelationship> oldRelationships =
+        oldSample == null
+            ? Collections.emptyList()
+            : Objects.requireNonNull(sampleToMongoSampleConverter.convert(oldSample))
+                .getRelationships();
+
+    mongoInverseRelationshipService.updateInverseRelationships(
+        mongoSample.getAccession(), oldRelationships, mongoSample.getRelationships());
+  }
+
+  /*
+  Because fetch caches the sample, any cached version has to be removed once an updated version is
+  stored. Relationship targets are evicted as well since they carry this sample as an inverse
+  relationship. Pages of samples are not cached.
+   */
+  private void evictFromSampleCache(final Sample newSample, final Sample oldSample) {
+    sampleReadService.evict(newSample.getAccession());
+
+    for (final Sample sample : Arrays.asList(newSample, oldSample)) {
+      if (sample != null) {
+        for (final Relationship relationship : sample.getRelationships()) {
+          sampleReadService.evict(relationship.getTarget());
+        }
+      }
+    }
+  }
+
   private void sendMessageToRabbitForIndexingToSolr(
       final String accession, final List<String> existingRelationshipTargets) {
     try {
@@ -392,10 +428,15 @@ public class SampleService {
       newSample.getAttributes().add(sraAccessionAttribute);
       newSample = Sample.Builder.fromSample(newSample).build();
 
-      return mongoAccessionService.generateAccession(newSample, false);
+      newSample = mongoAccessionService.generateAccession(newSample, false);
     } else {
-      return mongoAccessionService.generateAccession(newSample, true);
+      newSample = mongoAccessionService.generateAccession(newSample, true);
     }
+
+    updateInverseRelationships(sampleToMongoSampleConverter.convert(newSample), null);
+    evictFromSampleCache(newSample, null);
+
+    return newSample;
   }
 
   public String generateOneSRAAccession() {
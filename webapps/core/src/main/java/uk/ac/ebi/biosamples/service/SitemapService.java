@@ -0,0 +1,311 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.solr.common.SolrDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.sitemap.model.XmlUrl;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+/**
+ * Generates the sitemap index and pages in a single pass over a solr cursor, which only reads the
+ * accession and update date of each public sample. The files are gzipped and written to a new
+ * generation directory, which replaces the previous one once complete, so the sitemaps can be
+ * served straight from disk.
+ */
+@Service
+public class SitemapService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SitemapService.class);
+  private static final String NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+  private static final String INDEX_FILE = "sitemap-index.xml.gz";
+  private static final String PART_SUFFIX = ".part";
+  private static final int FETCH_SIZE = 10000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+  private final SolrSampleService solrSampleService;
+  private final Path directory;
+  private final boolean generate;
+  private final int pageSize;
+  private final String baseUrl;
+
+  @Autowired
+  public SitemapService(
+      final SolrSampleService solrSampleService, final BioSamplesProperties bioSamplesProperties) {
+    this(
+        solrSampleService,
+        Paths.get(bioSamplesProperties.getBiosamplesCoreSitemapDir()),
+        bioSamplesProperties.getBiosamplesCoreSitemapGenerate(),
+        bioSamplesProperties.getBiosamplesCoreSitemapPageSize(),
+        bioSamplesProperties.getBiosamplesCoreSitemapBaseUrl());
+  }
+
+  SitemapService(
+      final SolrSampleService solrSampleService,
+      final Path directory,
+      final boolean generate,
+      final int pageSize,
+      final String baseUrl) {
+    this.solrSampleService = solrSampleService;
+    this.directory = directory;
+    this.generate = generate;
+    this.pageSize = pageSize;
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+  }
+
+  /** @return the gzipped sitemap index, empty until the first generation has completed */
+  public Optional<Path> getSitemapIndex() throws IOException {
+    return getCurrentGeneration().map(generation -> generation.resolve(INDEX_FILE));
+  }
+
+  /** @return the gzipped sitemap page, empty if there is no such page */
+  public Optional<Path> getSitemapPage(final int pageNumber) throws IOException {
+    if (pageNumber < 1) {
+      return Optional.empty();
+    }
+
+    return getCurrentGeneration()
+        .map(generation -> generation.resolve(getPageFile(pageNumber)))
+        .filter(Files::exists);
+  }
+
+  @Scheduled(
+      initialDelayString = "${biosamples.webapp.core.sitemap.initialdelay:PT1M}",
+      fixedDelayString = "${biosamples.webapp.core.sitemap.refresh:PT24H}")
+  public void refresh() {
+    if (!generate) {
+      return;
+    }
+
+    try {
+      generate();
+    } catch (final IOException | XMLStreamException | RuntimeException e) {
+      LOGGER.error("Failed to generate the sitemaps, still serving the previous ones", e);
+    }
+  }
+
+  /** Generates a new set of sitemaps, then removes the previous ones */
+  public void generate() throws IOException, XMLStreamException {
+    final long startTime = System.currentTimeMillis();
+    final String name = String.valueOf(startTime);
+    final Path partDirectory = directory.resolve(name + PART_SUFFIX);
+
+    Files.createDirectories(partDirectory);
+
+    final int[] counts;
+    try {
+      counts = writeSitemaps(partDirectory);
+    } catch (final IOException | XMLStreamException | RuntimeException e) {
+      deleteRecursively(partDirectory);
+      throw e;
+    }
+
+    final Path generation =
+        Files.move(partDirectory, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+
+    for (final Path previous : listGenerations(true)) {
+      if (!previous.equals(generation)) {
+        deleteRecursively(previous);
+      }
+    }
+
+    LOGGER.info(
+        "Generated {} sitemaps for {} samples in {} millis",
+        counts[0],
+        counts[1],
+        System.currentTimeMillis() - startTime);
+  }
+
+  /** @return the number of pages and of samples written */
+  private int[] writeSitemaps(final Path generation) throws IOException, XMLStreamException {
+    final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    String cursorMark = "*";
+    int pageCount = 1;
+    int sampleCount = 0;
+    UrlSetWriter urlSetWriter = new UrlSetWriter(generation.resolve(getPageFile(pageCount)));
+
+    try {
+      while (true) {
+        final CursorArrayList<SolrDocument> documents =
+            solrSampleService.fetchPublicSampleUpdates(cursorMark, FETCH_SIZE);
+
+        for (final SolrDocument document : documents) {
+          if (urlSetWriter.count >= pageSize) {
+            urlSetWriter.close();
+            pageCount++;
+            urlSetWriter = new UrlSetWriter(generation.resolve(getPageFile(pageCount)));
+          }
+
+          urlSetWriter.write(
+              baseUrl + "/samples/" + document.getFieldValue("id"),
+              getLastModified(document.getFieldValue("update_dt")));
+          sampleCount++;
+        }
+
+        final String nextCursorMark = documents.getNextCursorMark();
+        if (documents.isEmpty() || nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+          break;
+        }
+        cursorMark = nextCursorMark;
+      }
+    } finally {
+      urlSetWriter.close();
+    }
+
+    writeIndex(generation.resolve(INDEX_FILE), pageCount, today);
+
+    return new int[] {pageCount, sampleCount};
+  }
+
+  private void writeIndex(final Path file, final int pageCount, final LocalDate lastModified)
+      throws IOException, XMLStreamException {
+    try (final OutputStream out =
+        new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+      final XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeStartElement("sitemapindex");
+      writer.writeDefaultNamespace(NAMESPACE);
+
+      for (int i = 1; i <= pageCount; i++) {
+        writer.writeStartElement("sitemap");
+        writeElement(writer, "loc", baseUrl + "/sitemap/" + i);
+        writeElement(writer, "lastmod", lastModified.toString());
+        writer.writeEndElement();
+      }
+
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+    }
+  }
+
+  /** @return the complete generations, most recent first, with the partial ones if asked */
+  private List<Path> listGenerations(final boolean includePartial) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+
+    try (final Stream<Path> paths = Files.list(directory)) {
+      return paths
+          .filter(Files::isDirectory)
+          .filter(path -> includePartial || !path.getFileName().toString().endsWith(PART_SUFFIX))
+          .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+          .collect(Collectors.toList());
+    }
+  }
+
+  private Optional<Path> getCurrentGeneration() throws IOException {
+    return listGenerations(false).stream().findFirst();
+  }
+
+  private static String getPageFile(final int pageNumber) {
+    return String.format("sitemap-%d.xml.gz", pageNumber);
+  }
+
+  private static LocalDate getLastModified(final Object update) {
+    if (update instanceof Date) {
+      return ((Date) update).toInstant().atZone(ZoneOffset.UTC).toLocalDate();
+    }
+    if (update != null) {
+      return Instant.parse(update.toString()).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    return null;
+  }
+
+  private static void writeElement(
+      final XMLStreamWriter writer, final String name, final String value)
+      throws XMLStreamException {
+    writer.writeStartElement(name);
+    writer.writeCharacters(value);
+    writer.writeEndElement();
+  }
+
+  private static void deleteRecursively(final Path path) throws IOException {
+    try (final Stream<Path> paths = Files.walk(path)) {
+      for (final Path child : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.deleteIfExists(child);
+      }
+    }
+  }
+
+  /** Writes one gzipped sitemap page */
+  private class UrlSetWriter implements Closeable {
+    private final OutputStream out;
+    private final XMLStreamWriter writer;
+    private int count;
+    private boolean closed;
+
+    private UrlSetWriter(final Path file) throws IOException, XMLStreamException {
+      out = new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+      writer = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeStartElement("urlset");
+      writer.writeDefaultNamespace(NAMESPACE);
+    }
+
+    private void write(final String location, final LocalDate lastModified)
+        throws XMLStreamException {
+      writer.writeStartElement("url");
+      writeElement(writer, "loc", location);
+      if (lastModified != null) {
+        writeElement(writer, "lastmod", lastModified.toString());
+      }
+      writeElement(writer, "changefreq", XmlUrl.ChangeFrequency.WEEKLY.getValue());
+      writeElement(writer, "priority", XmlUrl.Priority.MEDIUM.getValue());
+      writer.writeEndElement();
+      count++;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+
+      try {
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.close();
+      } catch (final XMLStreamException e) {
+        throw new IOException(e);
+      } finally {
+        out.close();
+      }
+    }
+  }
+}
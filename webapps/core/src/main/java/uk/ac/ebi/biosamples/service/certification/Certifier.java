@@ -32,15 +32,18 @@ public class Certifier {
   private static final Logger EVENTS = LoggerFactory.getLogger("events");
 
   private final ConfigLoader configLoader;
+  private final ChecklistSchemaRegistry checklistSchemaRegistry;
   private final ValidatorI validator;
   private final Applicator applicator;
 
   public Certifier(
       final ConfigLoader configLoader,
+      final ChecklistSchemaRegistry checklistSchemaRegistry,
       @Qualifier("javaValidator") final ValidatorI validator,
       final Applicator applicator) {
     this.validator = validator;
     this.configLoader = configLoader;
+    this.checklistSchemaRegistry = checklistSchemaRegistry;
     this.applicator = applicator;
   }
 
@@ -86,7 +89,7 @@ public class Certifier {
     boolean certified = false;
     String suggestionMessage = "";
 
-    for (final Checklist checklist : configLoader.config.getChecklists()) {
+    for (final Checklist checklist : checklistSchemaRegistry.getChecklists()) {
       try {
         validator.validate(checklist.getFileName(), sampleDocument.getDocument());
         EVENTS.info(
@@ -165,7 +168,7 @@ public class Certifier {
     String suggestionMessage = "";
 
     final Optional<Checklist> filteredChecklist =
-        configLoader.config.getChecklists().stream()
+        checklistSchemaRegistry.getChecklists().stream()
             .filter(checklist -> checklist.getName().equalsIgnoreCase(inputChecklist))
             .findAny();
 
@@ -94,6 +94,17 @@ public class CertifyService {
     return doRecordResult(isJustCertification, certificationResults, rawSampleDocument);
   }
 
+  /**
+   * Certifies a batch of samples in parallel, as they all share the compiled checklist schemas. The
+   * results are in the order of the samples.
+   */
+  public List<BioSamplesCertificationComplainceResult> recordResults(
+      final List<SampleDocument> rawSampleDocuments, final boolean isJustCertification) {
+    return rawSampleDocuments.parallelStream()
+        .map(rawSampleDocument -> recordResult(rawSampleDocument, isJustCertification))
+        .collect(Collectors.toList());
+  }
+
   private BioSamplesCertificationComplainceResult doRecordResult(
       final boolean isJustCertification,
       final Set<CertificationResult> certificationResults,
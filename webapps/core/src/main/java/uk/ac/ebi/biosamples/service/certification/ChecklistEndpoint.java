@@ -0,0 +1,50 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service.certification;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.biosamples.model.certification.Checklist;
+
+/**
+ * Lists the certification checklists in use, and reloads them with a POST to
+ * /actuator/checklists. Like the other actuator endpoints, it is only served over http once
+ * included in management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "checklists")
+public class ChecklistEndpoint {
+  private final ChecklistSchemaRegistry checklistSchemaRegistry;
+
+  public ChecklistEndpoint(final ChecklistSchemaRegistry checklistSchemaRegistry) {
+    this.checklistSchemaRegistry = checklistSchemaRegistry;
+  }
+
+  /** @return the ids of the checklists the current schemas were compiled from */
+  @ReadOperation
+  public List<String> checklists() {
+    return checklistSchemaRegistry.getChecklists().stream()
+        .map(Checklist::getID)
+        .collect(Collectors.toList());
+  }
+
+  /** @return the ids of the checklists once reloaded */
+  @WriteOperation
+  public List<String> reload() {
+    checklistSchemaRegistry.reload();
+
+    return checklists();
+  }
+}
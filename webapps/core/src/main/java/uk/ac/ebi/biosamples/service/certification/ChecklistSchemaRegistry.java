@@ -0,0 +1,171 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service.certification;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.everit.json.schema.Schema;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.biosamples.model.certification.Checklist;
+
+/**
+ * Holds the checklist schemas of the certification config compiled once, so that validating a
+ * document does not read and compile its schema again. The compiled schemas are immutable and can
+ * be shared by concurrent validations. A reload, triggered through {@link ChecklistEndpoint},
+ * compiles the schemas into a new snapshot, which replaces the current one once complete, while the
+ * validations in flight finish on the previous one.
+ */
+@Service
+public class ChecklistSchemaRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(ChecklistSchemaRegistry.class);
+
+  private final ConfigLoader configLoader;
+  private volatile Snapshot snapshot;
+
+  public ChecklistSchemaRegistry(final ConfigLoader configLoader) {
+    this.configLoader = configLoader;
+  }
+
+  @PostConstruct
+  public void init() {
+    snapshot = compile(configLoader.config.getChecklists());
+  }
+
+  /**
+   * Reads the config again and recompiles all the schemas. If the config cannot be read, the
+   * previous checklists are compiled again.
+   */
+  public synchronized void reload() {
+    configLoader.init();
+    snapshot = compile(configLoader.config.getChecklists());
+  }
+
+  /** @return the checklists the current schemas were compiled from */
+  public List<Checklist> getChecklists() {
+    return snapshot.checklists;
+  }
+
+  /** @return the checklist with this id, or the latest version of the checklist with this name */
+  public Checklist getChecklist(final String checklistId) {
+    return snapshot.checklistsById.get(checklistId);
+  }
+
+  /**
+   * @param schemaPath the classpath resource of the schema, which is compiled on first use if it is
+   *     not one of the checklists
+   */
+  public Schema getSchema(final String schemaPath) throws IOException {
+    final Map<String, Schema> schemas = snapshot.schemas;
+    final Schema schema = schemas.get(schemaPath);
+
+    if (schema != null) {
+      return schema;
+    }
+
+    try {
+      return schemas.computeIfAbsent(
+          schemaPath,
+          path -> {
+            try {
+              return load(path);
+            } catch (final IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Snapshot compile(final List<Checklist> checklists) {
+    final long startTime = System.currentTimeMillis();
+    final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    for (final Checklist checklist : checklists) {
+      if (schemas.containsKey(checklist.getFileName())) {
+        continue;
+      }
+
+      try {
+        schemas.put(checklist.getFileName(), load(checklist.getFileName()));
+      } catch (final IOException | RuntimeException e) {
+        // left out, so the error is raised again when the checklist is validated against
+        LOG.error(String.format("cannot compile schema at %s", checklist.getFileName()), e);
+      }
+    }
+
+    LOG.info(
+        String.format(
+            "compiled %d checklist schemas in %d ms",
+            schemas.size(), System.currentTimeMillis() - startTime));
+
+    return new Snapshot(
+        Collections.unmodifiableList(checklists), getChecklistsById(checklists), schemas);
+  }
+
+  private static Map<String, Checklist> getChecklistsById(final List<Checklist> checklists) {
+    final Map<String, Checklist> checklistsById = new HashMap<>();
+
+    for (final Checklist checklist : checklists) {
+      checklistsById.put(checklist.getID(), checklist);
+    }
+
+    // to validate schemas without the version
+    for (final Checklist checklist : checklists) {
+      checklistsById.merge(
+          checklist.getName(),
+          checklist,
+          (current, other) ->
+              current.getVersion().compareTo(other.getVersion()) < 0 ? other : current);
+    }
+
+    return Collections.unmodifiableMap(checklistsById);
+  }
+
+  private Schema load(final String schemaPath) throws IOException {
+    try (final InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream(schemaPath)) {
+      if (inputStream == null) {
+        throw new FileNotFoundException(schemaPath);
+      }
+
+      return SchemaLoader.load(new JSONObject(new JSONTokener(inputStream)));
+    }
+  }
+
+  private static class Snapshot {
+    private final List<Checklist> checklists;
+    private final Map<String, Checklist> checklistsById;
+    private final Map<String, Schema> schemas;
+
+    private Snapshot(
+        final List<Checklist> checklists,
+        final Map<String, Checklist> checklistsById,
+        final Map<String, Schema> schemas) {
+      this.checklists = checklists;
+      this.checklistsById = checklistsById;
+      this.schemas = schemas;
+    }
+  }
+}
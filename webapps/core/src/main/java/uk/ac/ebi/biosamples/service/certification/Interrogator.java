@@ -28,13 +28,14 @@ public class Interrogator {
   private static final Logger LOG = LoggerFactory.getLogger(Interrogator.class);
   private static final Logger EVENTS = LoggerFactory.getLogger("events");
 
-  private final ConfigLoader configLoader;
+  private final ChecklistSchemaRegistry checklistSchemaRegistry;
   private final ValidatorI validator;
 
   public Interrogator(
-      final ConfigLoader configLoader, @Qualifier("javaValidator") final ValidatorI validator) {
+      final ChecklistSchemaRegistry checklistSchemaRegistry,
+      @Qualifier("javaValidator") final ValidatorI validator) {
     this.validator = validator;
-    this.configLoader = configLoader;
+    this.checklistSchemaRegistry = checklistSchemaRegistry;
   }
 
   public InterrogationResult interrogate(final SampleDocument sampleDocument) {
@@ -46,7 +47,7 @@ public class Interrogator {
 
     final List<Checklist> checklists = new ArrayList<>();
 
-    for (final Checklist checklist : configLoader.config.getChecklists()) {
+    for (final Checklist checklist : checklistSchemaRegistry.getChecklists()) {
       try {
         validator.validate(checklist.getFileName(), sampleDocument.getDocument());
         EVENTS.info(
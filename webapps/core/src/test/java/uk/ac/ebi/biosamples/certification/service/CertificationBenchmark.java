@@ -0,0 +1,152 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.certification.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.everit.json.schema.ValidationException;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.ebi.biosamples.exception.GlobalExceptions;
+import uk.ac.ebi.biosamples.model.certification.BioSamplesCertificationComplainceResult;
+import uk.ac.ebi.biosamples.model.certification.Checklist;
+import uk.ac.ebi.biosamples.model.certification.SampleDocument;
+import uk.ac.ebi.biosamples.service.certification.*;
+import uk.ac.ebi.biosamples.service.validation.ValidatorI;
+
+/**
+ * Measures the cost of certifying a sample, which validates it against every checklist several
+ * times, with the schemas compiled once in {@link ChecklistSchemaRegistry} and with the previous
+ * validator, which read and compiled the schema on every validation. The batch benchmark certifies
+ * the samples in parallel. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificationBenchmark {
+  private static final int BATCH_SIZE = 100;
+
+  private CertifyService certifyService;
+  private CertifyService uncompiledCertifyService;
+  private SampleDocument sampleDocument;
+  private List<SampleDocument> sampleDocuments;
+
+  @Setup
+  public void setup() throws IOException {
+    final ConfigLoader configLoader = new ConfigLoader();
+    configLoader.init();
+    final ChecklistSchemaRegistry checklistSchemaRegistry =
+        new ChecklistSchemaRegistry(configLoader);
+    checklistSchemaRegistry.init();
+
+    certifyService =
+        buildCertifyService(
+            configLoader, checklistSchemaRegistry, new Validator(checklistSchemaRegistry));
+    uncompiledCertifyService =
+        buildCertifyService(
+            configLoader, checklistSchemaRegistry, new UncompiledValidator(configLoader));
+
+    final String data =
+        IOUtils.toString(
+            getClass().getClassLoader().getResourceAsStream("json/ncbi-SAMN03894263.json"),
+            StandardCharsets.UTF_8);
+    sampleDocument = new SampleDocument("test-uuid", data);
+    sampleDocuments = new ArrayList<>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      sampleDocuments.add(new SampleDocument("test-uuid-" + i, data));
+    }
+  }
+
+  @Benchmark
+  public BioSamplesCertificationComplainceResult certify() {
+    return certifyService.recordResult(sampleDocument, true);
+  }
+
+  @Benchmark
+  public BioSamplesCertificationComplainceResult certifyUncompiled() {
+    return uncompiledCertifyService.recordResult(sampleDocument, true);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<BioSamplesCertificationComplainceResult> certifyBatch() {
+    return certifyService.recordResults(sampleDocuments, true);
+  }
+
+  private static CertifyService buildCertifyService(
+      final ConfigLoader configLoader,
+      final ChecklistSchemaRegistry checklistSchemaRegistry,
+      final ValidatorI validator) {
+    final Curator curator = new Curator(configLoader);
+    curator.init();
+
+    return new CertifyService(
+        new Certifier(configLoader, checklistSchemaRegistry, validator, new Applicator()),
+        curator,
+        new Identifier(),
+        new Interrogator(checklistSchemaRegistry, validator),
+        new NullRecorder(),
+        configLoader);
+  }
+
+  /** Reads and compiles the schema on every validation, as the validator used to */
+  private static class UncompiledValidator implements ValidatorI {
+    private final ConfigLoader configLoader;
+
+    private UncompiledValidator(final ConfigLoader configLoader) {
+      this.configLoader = configLoader;
+    }
+
+    @Override
+    public void validate(final String schemaPath, final String document) throws IOException {
+      try (final InputStream inputStream =
+          getClass().getClassLoader().getResourceAsStream(schemaPath)) {
+        SchemaLoader.load(new JSONObject(new JSONTokener(inputStream)))
+            .validate(new JSONObject(document));
+      }
+    }
+
+    @Override
+    public String validateById(final String schemaId, final String document)
+        throws IOException, GlobalExceptions.SchemaValidationException {
+      final Checklist checklist =
+          configLoader.config.getChecklists().stream()
+              .filter(c -> c.getID().equals(schemaId) || c.getName().equals(schemaId))
+              .findFirst()
+              .orElseThrow(() -> new IllegalArgumentException("Unknown checklist " + schemaId));
+      try {
+        validate(checklist.getFileName(), document);
+      } catch (final ValidationException e) {
+        throw new GlobalExceptions.SchemaValidationException(e.getMessage());
+      }
+
+      return checklist.getID();
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CertificationBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
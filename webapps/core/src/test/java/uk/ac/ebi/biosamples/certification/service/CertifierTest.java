@@ -35,6 +35,7 @@ import uk.ac.ebi.biosamples.service.validation.ValidatorI;
     classes = {
       Certifier.class,
       ConfigLoader.class,
+      ChecklistSchemaRegistry.class,
       Validator.class,
       ValidatorI.class,
       ElixirSchemaValidator.class,
@@ -0,0 +1,102 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.certification.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import org.everit.json.schema.Schema;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.biosamples.model.certification.Checklist;
+import uk.ac.ebi.biosamples.service.certification.ChecklistEndpoint;
+import uk.ac.ebi.biosamples.service.certification.ChecklistSchemaRegistry;
+import uk.ac.ebi.biosamples.service.certification.ConfigLoader;
+
+public class ChecklistSchemaRegistryTest {
+  private static final String NCBI_SCHEMA = "schemas/certification/ncbi-candidate-schema.json";
+
+  private ChecklistSchemaRegistry checklistSchemaRegistry;
+
+  @Before
+  public void setUp() {
+    final ConfigLoader configLoader = new ConfigLoader();
+    configLoader.init();
+    checklistSchemaRegistry = new ChecklistSchemaRegistry(configLoader);
+    checklistSchemaRegistry.init();
+  }
+
+  @Test
+  public void given_checklist_schema_return_same_compiled_schema() throws Exception {
+    final List<Checklist> checklists = checklistSchemaRegistry.getChecklists();
+    assertFalse(checklists.isEmpty());
+
+    final String fileName = checklists.get(0).getFileName();
+    assertSame(
+        checklistSchemaRegistry.getSchema(fileName), checklistSchemaRegistry.getSchema(fileName));
+  }
+
+  @Test
+  public void given_other_schema_compile_it_once() throws Exception {
+    assertSame(
+        checklistSchemaRegistry.getSchema(NCBI_SCHEMA),
+        checklistSchemaRegistry.getSchema(NCBI_SCHEMA));
+  }
+
+  @Test
+  public void given_reload_compile_schemas_again() throws Exception {
+    final List<Checklist> checklists = checklistSchemaRegistry.getChecklists();
+    final Schema schema = checklistSchemaRegistry.getSchema(checklists.get(0).getFileName());
+
+    checklistSchemaRegistry.reload();
+
+    assertNotSame(checklists, checklistSchemaRegistry.getChecklists());
+    assertNotSame(
+        schema,
+        checklistSchemaRegistry.getSchema(
+            checklistSchemaRegistry.getChecklists().get(0).getFileName()));
+  }
+
+  @Test
+  public void given_checklist_name_return_latest_version() {
+    for (final Checklist checklist : checklistSchemaRegistry.getChecklists()) {
+      assertSame(checklist, checklistSchemaRegistry.getChecklist(checklist.getID()));
+      assertTrue(
+          checklistSchemaRegistry
+                  .getChecklist(checklist.getName())
+                  .getVersion()
+                  .compareTo(checklist.getVersion())
+              >= 0);
+    }
+  }
+
+  @Test
+  public void given_reload_through_endpoint_swap_checklists() {
+    final ChecklistEndpoint checklistEndpoint = new ChecklistEndpoint(checklistSchemaRegistry);
+    final List<Checklist> checklists = checklistSchemaRegistry.getChecklists();
+    final List<String> checklistIds = checklistEndpoint.checklists();
+
+    assertEquals(checklistIds, checklistEndpoint.reload());
+    assertNotSame(checklists, checklistSchemaRegistry.getChecklists());
+    assertNotSame(
+        checklists.get(0), checklistSchemaRegistry.getChecklist(checklists.get(0).getID()));
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void given_missing_schema_throw_exception() throws Exception {
+    checklistSchemaRegistry.getSchema("schemas/certification/missing.json");
+  }
+}
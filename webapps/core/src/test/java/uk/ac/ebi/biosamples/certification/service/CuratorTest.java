@@ -40,6 +40,7 @@ import uk.ac.ebi.biosamples.service.validation.ValidatorI;
       Curator.class,
       Certifier.class,
       ConfigLoader.class,
+      ChecklistSchemaRegistry.class,
       Validator.class,
       ValidatorI.class,
       ElixirSchemaValidator.class,
@@ -35,6 +35,7 @@ import uk.ac.ebi.biosamples.service.validation.ValidatorI;
     classes = {
       Interrogator.class,
       ConfigLoader.class,
+      ChecklistSchemaRegistry.class,
       Curator.class,
       Certifier.class,
       Validator.class,
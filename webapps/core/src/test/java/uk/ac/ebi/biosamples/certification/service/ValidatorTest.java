@@ -23,6 +23,7 @@ import org.springframework.web.client.RestTemplate;
 import uk.ac.ebi.biosamples.BioSamplesProperties;
 import uk.ac.ebi.biosamples.service.certification.*;
 import uk.ac.ebi.biosamples.service.validation.ElixirSchemaValidator;
+import uk.ac.ebi.biosamples.service.validation.SchemaRegistry;
 import uk.ac.ebi.biosamples.service.validation.ValidatorI;
 
 @RunWith(SpringRunner.class)
@@ -31,12 +32,14 @@ import uk.ac.ebi.biosamples.service.validation.ValidatorI;
       Validator.class,
       ValidatorI.class,
       ElixirSchemaValidator.class,
+      SchemaRegistry.class,
       RestTemplate.class,
       BioSamplesProperties.class,
       ObjectMapper.class,
       Curator.class,
       Certifier.class,
       ConfigLoader.class,
+      ChecklistSchemaRegistry.class,
       Validator.class,
       Applicator.class
     },
@@ -13,14 +13,16 @@ package uk.ac.ebi.biosamples.service;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -83,7 +85,6 @@ public class FileDownloadInputStreamTest {
   }
 
   @Test
-  @Ignore
   public void read_empty_xml() throws IOException {
     final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("xml");
     fileDownloadInputStream =
@@ -109,9 +110,49 @@ public class FileDownloadInputStreamTest {
     assertNotEquals("[]", sampleJson);
   }
 
+  @Test
+  public void read_accessions_across_prefetched_pages() throws IOException {
+    final String pagedSearchText = "paged search";
+    final CursorArrayList<Sample> firstPage = new CursorArrayList<>("page2");
+    firstPage.add(getTestSample("SAMEA1"));
+    final CursorArrayList<Sample> secondPage = new CursorArrayList<>("page2");
+    secondPage.add(getTestSample("SAMEA2"));
+    when(samplePageService.getSamplesByText(
+            pagedSearchText, filters, null, cursor, pageSize, true))
+        .thenReturn(firstPage);
+    when(samplePageService.getSamplesByText(
+            pagedSearchText, filters, null, "page2", pageSize, true))
+        .thenReturn(secondPage);
+
+    final FileDownloadSerializer serializer = FileDownloadSerializer.getSerializerFor("txt");
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      final ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+      new FileDownloadInputStream(
+              samplePageService, pagedSearchText, filters, 200000, serializer, executorService)
+          .transferTo(transferred);
+
+      final StringWriter read = new StringWriter();
+      IOUtils.copy(
+          new FileDownloadInputStream(
+              samplePageService, pagedSearchText, filters, 200000, serializer, executorService),
+          read,
+          Charset.defaultCharset());
+
+      final String expected = "SAMEA1" + System.lineSeparator() + "SAMEA2";
+      assertEquals(expected, transferred.toString());
+      assertEquals(expected, read.toString());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   private Sample getTestSample() {
+    return getTestSample("fileDownloadTestAccession");
+  }
+
+  private Sample getTestSample(final String accession) {
     final String name = "FileDownloadInputStreamTest_sample";
-    final String accession = "fileDownloadTestAccession";
     final Instant release = Instant.parse("2016-04-01T11:36:57.00Z");
     final SortedSet<Attribute> attributes = new TreeSet<>();
     attributes.add(Attribute.build("organism", "Homo sapiens"));
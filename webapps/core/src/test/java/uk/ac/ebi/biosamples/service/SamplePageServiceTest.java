@@ -0,0 +1,103 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import uk.ac.ebi.biosamples.core.model.Sample;
+import uk.ac.ebi.biosamples.mongo.service.SampleReadService;
+import uk.ac.ebi.biosamples.solr.model.SolrSample;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SamplePageServiceTest {
+  @Mock private SolrSampleService solrSampleService;
+  @Mock private SampleReadService sampleService;
+  @InjectMocks private SamplePageService samplePageService;
+
+  @Test
+  public void page_of_samples_fetched_in_solr_hit_order() {
+    final Pageable pageable = PageRequest.of(0, 3);
+    when(solrSampleService.fetchSolrSampleByText("liver", Collections.emptyList(), null, pageable))
+        .thenReturn(new PageImpl<>(getSolrSamples("SAMEA3", "SAMEA1", "SAMEA2"), pageable, 10));
+    when(sampleService.fetchAll(Arrays.asList("SAMEA3", "SAMEA1", "SAMEA2"), true))
+        .thenReturn(getSamples("SAMEA3", "SAMEA1", "SAMEA2"));
+
+    final Page<Sample> page =
+        samplePageService.getSamplesByText("liver", Collections.emptyList(), null, pageable, true);
+
+    assertEquals(Arrays.asList("SAMEA3", "SAMEA1", "SAMEA2"), getAccessions(page.getContent()));
+    assertEquals(10, page.getTotalElements());
+  }
+
+  @Test
+  public void cursor_of_samples_fetched_in_solr_hit_order() {
+    when(solrSampleService.fetchSolrSampleByText("liver", Collections.emptyList(), null, "*", 2))
+        .thenReturn(new CursorArrayList<>(getSolrSamples("SAMEA2", "SAMEA1"), "next"));
+    when(sampleService.fetchAll(Arrays.asList("SAMEA2", "SAMEA1"), false))
+        .thenReturn(getSamples("SAMEA2", "SAMEA1"));
+
+    final CursorArrayList<Sample> samples =
+        samplePageService.getSamplesByText("liver", Collections.emptyList(), null, null, 2, false);
+
+    assertEquals(Arrays.asList("SAMEA2", "SAMEA1"), getAccessions(samples));
+    assertEquals("next", samples.getNextCursorMark());
+  }
+
+  private static List<SolrSample> getSolrSamples(final String... accessions) {
+    return Arrays.stream(accessions)
+        .map(
+            accession ->
+                SolrSample.build(
+                    accession,
+                    accession,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    Collections.emptyList()))
+        .collect(Collectors.toList());
+  }
+
+  private static List<Sample> getSamples(final String... accessions) {
+    return Arrays.stream(accessions)
+        .map(accession -> new Sample.Builder("test", accession).build())
+        .collect(Collectors.toList());
+  }
+
+  private static List<String> getAccessions(final List<Sample> samples) {
+    return samples.stream().map(Sample::getAccession).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,121 @@
+/*
+* Copyright 2021 EMBL - European Bioinformatics Institute
+* Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+* file except in compliance with the License. You may obtain a copy of the License at
+* http://www.apache.org/licenses/LICENSE-2.0
+* Unless required by applicable law or agreed to in writing, software distributed under the
+* License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+* CONDITIONS OF ANY KIND, either express or implied. See the License for the
+* specific language governing permissions and limitations under the License.
+*/
+package uk.ac.ebi.biosamples.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.apache.solr.common.SolrDocument;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import uk.ac.ebi.biosamples.solr.repo.CursorArrayList;
+import uk.ac.ebi.biosamples.solr.service.SolrSampleService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SitemapServiceTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Mock private SolrSampleService solrSampleService;
+  private SitemapService sitemapService;
+
+  @Before
+  public void init() {
+    sitemapService =
+        new SitemapService(
+            solrSampleService, temporaryFolder.getRoot().toPath(), true, 2, "http://test/");
+  }
+
+  @Test
+  public void nothing_served_before_generation() throws IOException {
+    assertFalse(sitemapService.getSitemapIndex().isPresent());
+    assertFalse(sitemapService.getSitemapPage(1).isPresent());
+  }
+
+  @Test
+  public void generate_pages_from_solr_cursor() throws Exception {
+    when(solrSampleService.fetchPublicSampleUpdates("*", 10000))
+        .thenReturn(getDocuments("cursor1", "SAMEA1", "SAMEA2", "SAMEA3"));
+    when(solrSampleService.fetchPublicSampleUpdates("cursor1", 10000))
+        .thenReturn(getDocuments("cursor1"));
+
+    sitemapService.generate();
+
+    final String index = read(sitemapService.getSitemapIndex().get());
+    assertTrue(index.contains("<loc>http://test/sitemap/1</loc>"));
+    assertTrue(index.contains("<loc>http://test/sitemap/2</loc>"));
+    assertFalse(index.contains("<loc>http://test/sitemap/3</loc>"));
+
+    final String firstPage = read(sitemapService.getSitemapPage(1).get());
+    assertTrue(firstPage.contains("<loc>http://test/samples/SAMEA1</loc>"));
+    assertTrue(firstPage.contains("<lastmod>2021-03-04</lastmod>"));
+    assertTrue(firstPage.contains("<loc>http://test/samples/SAMEA2</loc>"));
+
+    final String secondPage = read(sitemapService.getSitemapPage(2).get());
+    assertTrue(secondPage.contains("<loc>http://test/samples/SAMEA3</loc>"));
+    assertFalse(sitemapService.getSitemapPage(3).isPresent());
+  }
+
+  @Test
+  public void generation_replaces_previous_one() throws Exception {
+    when(solrSampleService.fetchPublicSampleUpdates("*", 10000))
+        .thenReturn(getDocuments("cursor1", "SAMEA1"))
+        .thenReturn(getDocuments("cursor1"));
+    when(solrSampleService.fetchPublicSampleUpdates("cursor1", 10000))
+        .thenReturn(getDocuments("cursor1"));
+
+    sitemapService.generate();
+    Thread.sleep(5);
+    sitemapService.generate();
+
+    try (final Stream<Path> generations = Files.list(temporaryFolder.getRoot().toPath())) {
+      assertEquals(1, generations.count());
+    }
+    final String page = read(sitemapService.getSitemapPage(1).get());
+    assertTrue(page.startsWith("<?xml"));
+    assertFalse(page.contains("SAMEA1"));
+  }
+
+  private static CursorArrayList<SolrDocument> getDocuments(
+      final String nextCursorMark, final String... accessions) {
+    final List<SolrDocument> documents = new ArrayList<>();
+    for (final String accession : accessions) {
+      final SolrDocument document = new SolrDocument();
+      document.setField("id", accession);
+      document.setField("update_dt", Date.from(Instant.parse("2021-03-04T10:15:30Z")));
+      documents.add(document);
+    }
+
+    return new CursorArrayList<>(documents, nextCursorMark);
+  }
+
+  private static String read(final Path file) throws IOException {
+    try (final InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
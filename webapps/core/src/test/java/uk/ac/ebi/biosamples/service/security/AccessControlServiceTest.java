@@ -11,9 +11,15 @@
 package uk.ac.ebi.biosamples.service.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
 import junit.framework.TestCase;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ebi.biosamples.BioSamplesProperties;
+import uk.ac.ebi.biosamples.security.model.AuthToken;
 import uk.ac.ebi.biosamples.security.service.AccessControlService;
 
 public class AccessControlServiceTest extends TestCase {
@@ -23,8 +29,7 @@ public class AccessControlServiceTest extends TestCase {
           + "J4tNgaihj7OmZmCpIKTOecxEhh3anNfjQQ1O9vQhtCeiFz9g2Tj8pTdv-6FBZ5t5gidz5W4GDsJ_8hDnXPge7Gk5ug3_GddDAWHv"
           + "wJhuK_OR5oIIAf6SBeWNr9HKLpOQYcywYsrmKAFjTgA-wrGWtcR3qvFVDiQCpW2UzB8kzFVKdegIdrI2PgQnP5e0f5BoQ5V-qo7W"
           + "Bwn81bW7NkWHBXVecMab_UsKUyTMqNbsFY5TGJNj715a1Z_N6npkynGCpB3VbR5X6L3JVEnlhkBoCTE9zKUbfa3KLglYA";
-  private final AccessControlService accessControlService =
-      new AccessControlService(new ObjectMapper());
+  private final AccessControlService accessControlService = newAccessControlService(100);
 
   public void testExtractToken() {
     try {
@@ -37,4 +42,52 @@ public class AccessControlServiceTest extends TestCase {
       assertSame(rse.getStatus(), HttpStatus.UNAUTHORIZED);
     }
   }
+
+  public void testExtractTokenParsesTokenOnce() {
+    final String token = buildToken(System.currentTimeMillis() / 1000 + 3600);
+
+    final AuthToken authToken = accessControlService.extractToken("Bearer " + token).get();
+
+    assertEquals("Webin-59287", authToken.getUser());
+    assertEquals(Collections.singletonList("ROLE_USER"), authToken.getRoles());
+    assertSame(authToken, accessControlService.extractToken(token).get());
+  }
+
+  public void testExtractTokenWithoutCache() {
+    final String token = buildToken(System.currentTimeMillis() / 1000 + 3600);
+
+    assertEquals("Webin-59287", newAccessControlService(0).extractToken(token).get().getUser());
+  }
+
+  public void testExtractTokenRejectsExpiredToken() {
+    final String token = buildToken(System.currentTimeMillis() / 1000 - 60);
+
+    try {
+      accessControlService.extractToken(token);
+      fail();
+    } catch (final ResponseStatusException e) {
+      assertSame(e.getStatus(), HttpStatus.UNAUTHORIZED);
+    }
+  }
+
+  private static AccessControlService newAccessControlService(final int cacheSize) {
+    final BioSamplesProperties bioSamplesProperties = new BioSamplesProperties();
+    bioSamplesProperties.setSecurityTokenCacheMaxEntries(cacheSize);
+
+    return new AccessControlService(
+        new ObjectMapper(), bioSamplesProperties, new SimpleMeterRegistry());
+  }
+
+  // encoded as the service decodes it
+  private static String buildToken(final long expiresAt) {
+    final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    final String header = "{\"alg\":\"RS256\"}";
+    final String payload =
+        "{\"principle\":\"Webin-59287\",\"role\":[\"ROLE_USER\"],\"exp\":" + expiresAt + "}";
+
+    return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8))
+        + "."
+        + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+        + ".signature";
+  }
 }